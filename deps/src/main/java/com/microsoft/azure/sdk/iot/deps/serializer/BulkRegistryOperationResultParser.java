@@ -0,0 +1,155 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for the result of a bulk registry operation, that is, a request that creates, updates or deletes up to 100
+ * devices at once.
+ */
+public class BulkRegistryOperationResultParser
+{
+    private final transient static Gson gson = new Gson();
+
+    /**
+     * The failure of the bulk registry operation for a single device.
+     */
+    public static class DeviceRegistryOperationErrorParser
+    {
+        @Expose
+        @SerializedName("deviceId")
+        @Getter
+        private String deviceId;
+
+        @Expose
+        @SerializedName("moduleId")
+        @Getter
+        private String moduleId;
+
+        @Expose
+        @SerializedName("errorCode")
+        @Getter
+        private String errorCode;
+
+        @Expose
+        @SerializedName("errorStatus")
+        @Getter
+        private String errorStatus;
+    }
+
+    /**
+     * A warning about a device the bulk registry operation succeeded for.
+     */
+    public static class DeviceRegistryOperationWarningParser
+    {
+        @Expose
+        @SerializedName("deviceId")
+        @Getter
+        private String deviceId;
+
+        @Expose
+        @SerializedName("warningCode")
+        @Getter
+        private String warningCode;
+
+        @Expose
+        @SerializedName("warningStatus")
+        @Getter
+        private String warningStatus;
+    }
+
+    private static final String IS_SUCCESSFUL_NAME = "isSuccessful";
+    @Expose
+    @SerializedName(IS_SUCCESSFUL_NAME)
+    private Boolean isSuccessful;
+
+    private static final String ERRORS_NAME = "errors";
+    @Expose
+    @SerializedName(ERRORS_NAME)
+    private List<DeviceRegistryOperationErrorParser> errors;
+
+    private static final String WARNINGS_NAME = "warnings";
+    @Expose
+    @SerializedName(WARNINGS_NAME)
+    private List<DeviceRegistryOperationWarningParser> warnings;
+
+    /**
+     * Empty constructor: Used only to keep GSON happy.
+     */
+    public BulkRegistryOperationResultParser()
+    {
+    }
+
+    /**
+     * Constructor for a BulkRegistryOperationResultParser that is built using the provided json.
+     * @param json the json string to build the BulkRegistryOperationResultParser out of.
+     * @throws IllegalArgumentException if the provided json is null, empty, cannot be parsed, or is missing the
+     * isSuccessful field.
+     */
+    public BulkRegistryOperationResultParser(String json)
+    {
+        if (json == null || json.isEmpty())
+        {
+            throw new IllegalArgumentException("The provided json cannot be null or empty");
+        }
+
+        BulkRegistryOperationResultParser parser;
+        try
+        {
+            parser = gson.fromJson(json, BulkRegistryOperationResultParser.class);
+        }
+        catch (JsonParseException e)
+        {
+            throw new IllegalArgumentException("The provided json could not be parsed");
+        }
+
+        if (parser == null || parser.isSuccessful == null)
+        {
+            // Error responses from the bulk registry endpoint that aren't about individual devices have no isSuccessful field
+            throw new IllegalArgumentException("The isSuccessful field must be present in the provided json");
+        }
+
+        this.isSuccessful = parser.isSuccessful;
+        this.errors = parser.errors != null ? parser.errors : new ArrayList<DeviceRegistryOperationErrorParser>();
+        this.warnings = parser.warnings != null ? parser.warnings : new ArrayList<DeviceRegistryOperationWarningParser>();
+    }
+
+    /**
+     * Getter for isSuccessful
+     *
+     * @return true if the operation succeeded for every device.
+     */
+    public boolean isSuccessful()
+    {
+        return this.isSuccessful != null && this.isSuccessful;
+    }
+
+    /**
+     * Getter for errors
+     *
+     * @return the devices the operation failed for.
+     */
+    public List<DeviceRegistryOperationErrorParser> getErrors()
+    {
+        return this.errors;
+    }
+
+    /**
+     * Getter for warnings
+     *
+     * @return the warnings about devices the operation succeeded for.
+     */
+    public List<DeviceRegistryOperationWarningParser> getWarnings()
+    {
+        return this.warnings;
+    }
+}
@@ -4,10 +4,14 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -97,7 +101,7 @@ public class DeviceParser
     @SerializedName(PARENT_SCOPES_NAMES)
     private List<String> parentScopes = new ArrayList<>();
 
-    private final transient Gson gson = new Gson();
+    private static final Gson gson = new Gson();
 
     /**
      * Converts this into JSON format and returns it.
@@ -154,6 +158,57 @@ public class DeviceParser
             throw new IllegalArgumentException("The provided json could not be parsed.");
         }
 
+        initializeFrom(deviceParser);
+    }
+
+    /**
+     * Parse a JSON array of devices or modules, such as the body of a list devices or list modules response.
+     * <p>
+     * The array is read one token at a time, and each element is deserialized straight into its DeviceParser, so the
+     * JSON is parsed in a single pass and is never held in memory as a string or as a tree.
+     * </p>
+     *
+     * @param reader The reader to read the JSON array from. It is not closed by this method.
+     * @return The DeviceParser for each element of the array, in order.
+     * @throws IllegalArgumentException If the reader is {@code null}, or if the JSON is not an array of the expected format.
+     */
+    public static List<DeviceParser> fromJsonArray(Reader reader)
+    {
+        if (reader == null)
+        {
+            throw new IllegalArgumentException("The provided reader cannot be null.");
+        }
+
+        List<DeviceParser> deviceParsers = new ArrayList<>();
+        JsonReader jsonReader = new JsonReader(reader);
+        try
+        {
+            jsonReader.beginArray();
+            while (jsonReader.hasNext())
+            {
+                DeviceParser parsedElement = gson.fromJson(jsonReader, DeviceParser.class);
+                if (parsedElement == null)
+                {
+                    throw new IllegalArgumentException("The provided json array cannot contain null elements.");
+                }
+
+                DeviceParser deviceParser = new DeviceParser();
+                deviceParser.initializeFrom(parsedElement);
+                deviceParsers.add(deviceParser);
+            }
+
+            jsonReader.endArray();
+        }
+        catch (IOException | JsonParseException | IllegalStateException e)
+        {
+            throw new IllegalArgumentException("The provided json could not be parsed.", e);
+        }
+
+        return deviceParsers;
+    }
+
+    private void initializeFrom(DeviceParser deviceParser)
+    {
         if (deviceParser.deviceId == null || deviceParser.deviceId.isEmpty())
         {
             throw new IllegalArgumentException(
@@ -9,6 +9,8 @@ import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 
+import java.util.List;
+
 public class ExportImportDeviceParser
 {
     private static final String ID_NAME = "id";
@@ -51,6 +53,21 @@ public class ExportImportDeviceParser
     @SerializedName(TAGS_NAME)
     private TwinCollection tags;
 
+    private static final String CAPABILITIES_NAME = "capabilities";
+    @Expose
+    @SerializedName(CAPABILITIES_NAME)
+    private DeviceCapabilitiesParser capabilities;
+
+    private static final String SCOPE_NAME = "deviceScope";
+    @Expose
+    @SerializedName(SCOPE_NAME)
+    private String scope;
+
+    private static final String PARENT_SCOPES_NAME = "parentScopes";
+    @Expose
+    @SerializedName(PARENT_SCOPES_NAME)
+    private List<String> parentScopes;
+
     private final transient static Gson gson = new Gson();
 
     /**
@@ -115,6 +132,9 @@ public class ExportImportDeviceParser
         this.statusReason = deviceParser.statusReason;
         this.status = deviceParser.status;
         this.tags = deviceParser.tags;
+        this.capabilities = deviceParser.capabilities;
+        this.scope = deviceParser.scope;
+        this.parentScopes = deviceParser.parentScopes;
     }
 
     /**
@@ -320,4 +340,64 @@ public class ExportImportDeviceParser
 	public void setTags(TwinCollection tags) {
 		this.tags = tags;
 	}
+
+    /**
+     * Getter for Capabilities.
+     *
+     * @return The value of Capabilities.
+     */
+    public DeviceCapabilitiesParser getCapabilities()
+    {
+        return capabilities;
+    }
+
+    /**
+     * Setter for Capabilities.
+     *
+     * @param capabilities The value to set Capabilities to.
+     */
+    public void setCapabilities(DeviceCapabilitiesParser capabilities)
+    {
+        this.capabilities = capabilities;
+    }
+
+    /**
+     * Get the device scope for this device.
+     *
+     * @return The device scope for this device.
+     */
+    public String getScope()
+    {
+        return this.scope;
+    }
+
+    /**
+     * Set the device scope for this device.
+     *
+     * @param scope The device scope to set.
+     */
+    public void setScope(String scope)
+    {
+        this.scope = scope;
+    }
+
+    /**
+     * Get the parent scopes for this device.
+     *
+     * @return The parent scopes for this device.
+     */
+    public List<String> getParentScopes()
+    {
+        return this.parentScopes;
+    }
+
+    /**
+     * Sets the parent scopes for this device.
+     *
+     * @param parentScopes The parent scopes to set.
+     */
+    public void setParentScopes(List<String> parentScopes)
+    {
+        this.parentScopes = parentScopes;
+    }
 }
@@ -42,6 +42,9 @@ public class ParserUtility
     private static final double MILLISECONDS_NUMERIC_BASE = 10;
     private static final String MILLISECONDS_REGEX = "[.,Z]";
 
+    // Gson instances are thread safe, so there is no need to build one for every map that is serialized
+    private static final Gson MAP_VALUE_GSON = new GsonBuilder().serializeNulls().create();
+
     /**
      * Helper to validate if the provided string is not null, empty, and all characters are UTF-8.
      *
@@ -401,8 +404,6 @@ public class ParserUtility
     {
         /* Codes_SRS_PARSER_UTILITY_21_035: [The mapToJsonElement shall serialize the provided map into a JsonElement.] */
         /* Codes_SRS_PARSER_UTILITY_21_036: [The mapToJsonElement shall include keys with null values in the JsonElement.] */
-        Gson gson = new GsonBuilder().serializeNulls().create();
-
         /* Codes_SRS_PARSER_UTILITY_21_038: [If the map is empty, the mapToJsonElement shall return a empty JsonElement.] */
         JsonObject json = new JsonObject();
 
@@ -425,7 +426,7 @@ public class ParserUtility
             }
             else
             {
-                json.add(entry.getKey(), gson.toJsonTree(entry.getValue()));
+                json.add(entry.getKey(), MAP_VALUE_GSON.toJsonTree(entry.getValue()));
             }
         }
 
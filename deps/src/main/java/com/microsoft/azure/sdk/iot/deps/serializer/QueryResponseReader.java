@@ -0,0 +1,173 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the items of a query response one at a time, as an alternative to {@link QueryResponseParser}.
+ * <p>
+ * The response is read one token at a time, and each item is copied token by token into its own json string when it
+ * is requested. The response is parsed in a single pass, and only the item being read is ever held in memory, no
+ * matter how large the page of results is.
+ * </p>
+ */
+public class QueryResponseReader implements Iterator<String>, Closeable
+{
+    private final JsonReader jsonReader;
+    private boolean endOfArray;
+
+    /**
+     * CONSTRUCTOR
+     * Create an instance of the QueryResponseReader that reads the json array of query items from the provided reader.
+     *
+     * @param reader is the reader that contains a valid json array with the QueryResponse.
+     * @throws IllegalArgumentException if the reader is null, or does not start with a json array.
+     */
+    public QueryResponseReader(Reader reader) throws IllegalArgumentException
+    {
+        if (reader == null)
+        {
+            throw new IllegalArgumentException("parameter is null");
+        }
+
+        this.jsonReader = new JsonReader(reader);
+
+        try
+        {
+            this.jsonReader.beginArray();
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            throw new IllegalArgumentException("Malformed json:" + e);
+        }
+    }
+
+    /**
+     * @return true if there is another item in the response and false otherwise.
+     * @throws IllegalArgumentException if the json is not valid.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        if (this.endOfArray)
+        {
+            return false;
+        }
+
+        try
+        {
+            if (this.jsonReader.hasNext())
+            {
+                return true;
+            }
+
+            this.jsonReader.endArray();
+            this.endOfArray = true;
+            return false;
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            throw new IllegalArgumentException("Malformed json:" + e);
+        }
+    }
+
+    /**
+     * @return the next item in the response, as a json string.
+     * @throws NoSuchElementException if there are no more items in the response.
+     * @throws IllegalArgumentException if the json is not valid.
+     */
+    @Override
+    public String next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("There are no more items in the query response");
+        }
+
+        StringWriter item = new StringWriter();
+        try
+        {
+            JsonWriter jsonWriter = new JsonWriter(item);
+            // Matches the items returned by QueryResponseParser, which drop the fields whose value is null
+            jsonWriter.setSerializeNulls(false);
+            copyValue(this.jsonReader, jsonWriter);
+            jsonWriter.flush();
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            throw new IllegalArgumentException("Malformed json:" + e);
+        }
+
+        return item.toString();
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException("Items cannot be removed from a query response");
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.jsonReader.close();
+    }
+
+    private static void copyValue(JsonReader jsonReader, JsonWriter jsonWriter) throws IOException
+    {
+        JsonToken token = jsonReader.peek();
+        switch (token)
+        {
+            case BEGIN_ARRAY:
+                jsonReader.beginArray();
+                jsonWriter.beginArray();
+                while (jsonReader.hasNext())
+                {
+                    copyValue(jsonReader, jsonWriter);
+                }
+                jsonReader.endArray();
+                jsonWriter.endArray();
+                break;
+            case BEGIN_OBJECT:
+                jsonReader.beginObject();
+                jsonWriter.beginObject();
+                while (jsonReader.hasNext())
+                {
+                    jsonWriter.name(jsonReader.nextName());
+                    copyValue(jsonReader, jsonWriter);
+                }
+                jsonReader.endObject();
+                jsonWriter.endObject();
+                break;
+            case STRING:
+                jsonWriter.value(jsonReader.nextString());
+                break;
+            case NUMBER:
+                // Copied as written, so that no precision is lost
+                jsonWriter.jsonValue(jsonReader.nextString());
+                break;
+            case BOOLEAN:
+                jsonWriter.value(jsonReader.nextBoolean());
+                break;
+            case NULL:
+                jsonReader.nextNull();
+                jsonWriter.nullValue();
+                break;
+            default:
+                throw new IllegalStateException("Unexpected token " + token);
+        }
+    }
+}
@@ -344,7 +344,25 @@ public class TwinCollection extends HashMap<String, Object> {
     }
 
 
-    private static void addMetadata(TwinCollection twinCollection, Map<? extends String, Object> metadata) {
+    /**
+     * Add an entry that was parsed from JSON.
+     *
+     * <p> Unlike {@link #putFinal(String, Object)}, this neither copies nor validates the value, since
+     * {@link TwinJsonCodec} only creates nested TwinCollections and values that JSON can represent.
+     */
+    final void putParsed(String key, Object value) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("Key cannot be null or empty");
+        }
+
+        super.put(key, value);
+    }
+
+    final void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    static void addMetadata(TwinCollection twinCollection, Map<? extends String, Object> metadata) {
         String lastUpdated = null;
         Integer lastUpdatedVersion = null;
         String lastUpdatedBy = null;
@@ -394,6 +412,21 @@ public class TwinCollection extends HashMap<String, Object> {
         return ParserUtility.mapToJsonElement(this);
     }
 
+    /**
+     * Serializer
+     *
+     * <p> Creates a JSON with the information in this class and its subclasses, without any metadata.
+     *
+     * <p> The JSON is the same as {@code toJsonElement().toString()}, but it is written straight to
+     * a {@code String} instead of building a {@code JsonElement} tree first, which makes a difference
+     * for collections with many entries.
+     *
+     * @return The {@code String} with the JSON content of this class.
+     */
+    public String toJson() {
+        return TwinJsonCodec.toJson(this);
+    }
+
     /**
      * Serializer with metadata.
      *
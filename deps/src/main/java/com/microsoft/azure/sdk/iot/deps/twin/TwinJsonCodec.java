@@ -0,0 +1,371 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.twin;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming JSON codec for twin collections.
+ *
+ * <p> Writes a collection straight to a {@code JsonWriter} and reads it straight from a {@code JsonReader}, without
+ * building the intermediate {@code JsonElement} tree or raw {@code Map} that the Gson based serializers need. A twin
+ * with hundreds of properties is then copied once instead of three times.
+ *
+ * <p> The JSON that it writes is the same as {@code TwinCollection.toJsonElement().toString()}, and the collections
+ * that it reads are the same as the ones that the Gson based factories of {@link TwinState} used to create. In
+ * particular, numbers are read as {@code Double}, nested objects as {@link TwinCollection}, and arrays as
+ * {@code List}.
+ */
+// Unchecked casts of Maps to Map<String, Object> are safe since all json keys are Strings
+@SuppressWarnings("unchecked")
+final class TwinJsonCodec
+{
+    private static final String DESIRED_PROPERTIES_TAG = "desired";
+    private static final String REPORTED_PROPERTIES_TAG = "reported";
+    private static final String VERSION_TAG = "$version";
+    private static final String METADATA_TAG = "$metadata";
+
+    // Only used for values that are not a string, a boolean or a number, with the same settings as the tree serializer
+    private static final Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+    private TwinJsonCodec()
+    {
+    }
+
+    /**
+     * Serialize the provided map, without metadata.
+     *
+     * @param map the map to serialize. It cannot be {@code null}.
+     * @return the JSON with the content of the map.
+     * @throws IllegalArgumentException if the map is {@code null}.
+     */
+    static String toJson(Map<String, Object> map) throws IllegalArgumentException
+    {
+        if (map == null)
+        {
+            throw new IllegalArgumentException("null map to parse");
+        }
+
+        StringWriter stringWriter = new StringWriter();
+        JsonWriter writer = new JsonWriter(stringWriter);
+        writer.setLenient(true);
+        try
+        {
+            writeMap(writer, map);
+            writer.flush();
+        }
+        catch (IOException e)
+        {
+            // A StringWriter never throws
+            throw new JsonIOException(e);
+        }
+
+        return stringWriter.toString();
+    }
+
+    private static void writeMap(JsonWriter writer, Map<String, Object> map) throws IOException
+    {
+        writer.beginObject();
+        for (Map.Entry<String, Object> entry : map.entrySet())
+        {
+            writer.name(entry.getKey());
+            writeValue(writer, entry.getValue());
+        }
+
+        writer.endObject();
+    }
+
+    private static void writeValue(JsonWriter writer, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            writer.nullValue();
+        }
+        else if (value instanceof Map)
+        {
+            writeMap(writer, (Map<String, Object>) value);
+        }
+        else if (value instanceof String)
+        {
+            writer.value((String) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            writer.value(((Boolean) value).booleanValue());
+        }
+        else if ((value instanceof Integer) || (value instanceof Long) || (value instanceof Short) || (value instanceof Byte))
+        {
+            writer.value((Number) value);
+        }
+        else if (((value instanceof Double) || (value instanceof Float)) && isFinite(((Number) value).doubleValue()))
+        {
+            writer.value((Number) value);
+        }
+        else
+        {
+            // Gson rejects NaN and infinities, and knows how to write everything else that a collection may contain
+            GSON.toJson(value, value.getClass(), writer);
+        }
+    }
+
+    private static boolean isFinite(double value)
+    {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    /**
+     * Parse a JSON object with the content of a twin collection, including its version and metadata.
+     *
+     * @param json the JSON to parse.
+     * @return the collection, or {@code null} if the JSON is blank.
+     * @throws JsonSyntaxException if the JSON is not a valid JSON object.
+     * @throws IllegalArgumentException if the JSON is not a valid twin collection.
+     */
+    static TwinCollection readCollection(String json) throws JsonSyntaxException, IllegalArgumentException
+    {
+        JsonReader reader = createReader(json);
+        try
+        {
+            if (isEmptyDocument(reader))
+            {
+                return null;
+            }
+
+            TwinCollection collection = readCollection(reader);
+            assertFullConsumption(reader);
+            return collection;
+        }
+        catch (IllegalStateException | NumberFormatException | EOFException | MalformedJsonException e)
+        {
+            throw new JsonSyntaxException(e);
+        }
+        catch (IOException e)
+        {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Parse a JSON object with the desired and reported properties of a twin.
+     *
+     * @param json the JSON to parse.
+     * @return the properties, or {@code null} if the JSON is blank or contains neither desired nor reported properties.
+     * @throws JsonSyntaxException if the JSON is not a valid JSON object.
+     * @throws IllegalArgumentException if either of the properties is not a valid twin collection.
+     */
+    static TwinProperties readProperties(String json) throws JsonSyntaxException, IllegalArgumentException
+    {
+        JsonReader reader = createReader(json);
+        try
+        {
+            if (isEmptyDocument(reader))
+            {
+                return null;
+            }
+
+            TwinCollection desired = null;
+            TwinCollection reported = null;
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                String name = reader.nextName();
+                if (DESIRED_PROPERTIES_TAG.equals(name))
+                {
+                    desired = readNullableCollection(reader);
+                }
+                else if (REPORTED_PROPERTIES_TAG.equals(name))
+                {
+                    reported = readNullableCollection(reader);
+                }
+                else
+                {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+            assertFullConsumption(reader);
+            return TwinProperties.createFromCollections(desired, reported);
+        }
+        catch (IllegalStateException | NumberFormatException | EOFException | MalformedJsonException e)
+        {
+            throw new JsonSyntaxException(e);
+        }
+        catch (IOException e)
+        {
+            throw new JsonIOException(e);
+        }
+    }
+
+    private static JsonReader createReader(String json)
+    {
+        // Lenient, like the Gson factories that this codec replaced
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    private static boolean isEmptyDocument(JsonReader reader) throws IOException
+    {
+        try
+        {
+            reader.peek();
+            return false;
+        }
+        catch (EOFException e)
+        {
+            return true;
+        }
+    }
+
+    private static void assertFullConsumption(JsonReader reader) throws IOException
+    {
+        if (reader.peek() != JsonToken.END_DOCUMENT)
+        {
+            throw new JsonIOException("JSON document was not fully consumed.");
+        }
+    }
+
+    private static TwinCollection readNullableCollection(JsonReader reader) throws IOException
+    {
+        if (reader.peek() == JsonToken.NULL)
+        {
+            reader.nextNull();
+            return null;
+        }
+
+        return readCollection(reader);
+    }
+
+    private static TwinCollection readCollection(JsonReader reader) throws IOException
+    {
+        TwinCollection collection = new TwinCollection();
+        Map<String, Object> metadata = null;
+
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+            if (VERSION_TAG.equals(name))
+            {
+                Object version = readValue(reader);
+                if (!(version instanceof Number))
+                {
+                    throw new IllegalArgumentException("version is not a number");
+                }
+
+                collection.setVersion(((Number) version).intValue());
+            }
+            else if (METADATA_TAG.equals(name))
+            {
+                // Metadata is rarely asked for, so it is kept simple and goes through the same map as before
+                metadata = (Map<String, Object>) readValue(reader);
+            }
+            else
+            {
+                if (collection.containsKey(name))
+                {
+                    throw new JsonSyntaxException("duplicate key: " + name);
+                }
+
+                collection.putParsed(name, readCollectionValue(reader));
+            }
+        }
+
+        reader.endObject();
+
+        if (metadata != null)
+        {
+            TwinCollection.addMetadata(collection, metadata);
+        }
+
+        return collection;
+    }
+
+    /**
+     * Read a value of a collection, where objects are nested collections.
+     */
+    private static Object readCollectionValue(JsonReader reader) throws IOException
+    {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT)
+        {
+            return readValue(reader);
+        }
+
+        // Nested collections have no version or metadata of their own, so every key is a property
+        TwinCollection collection = new TwinCollection();
+        reader.beginObject();
+        while (reader.hasNext())
+        {
+            String name = reader.nextName();
+            collection.putParsed(name, readCollectionValue(reader));
+        }
+
+        reader.endObject();
+        return collection;
+    }
+
+    /**
+     * Read a value the way that Gson reads an {@code Object}.
+     */
+    private static Object readValue(JsonReader reader) throws IOException
+    {
+        switch (reader.peek())
+        {
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext())
+                {
+                    list.add(readValue(reader));
+                }
+
+                reader.endArray();
+                return list;
+
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    map.put(reader.nextName(), readValue(reader));
+                }
+
+                reader.endObject();
+                return map;
+
+            case STRING:
+                return reader.nextString();
+
+            case NUMBER:
+                return reader.nextDouble();
+
+            case BOOLEAN:
+                return reader.nextBoolean();
+
+            case NULL:
+                reader.nextNull();
+                return null;
+
+            default:
+                throw new IllegalStateException("Unexpected token " + reader.peek());
+        }
+    }
+}
@@ -139,6 +139,25 @@ public class TwinProperties
         }
     }
 
+    /**
+     * Create the properties from collections that already hold their version and metadata apart from their entries,
+     * such as the ones that {@link TwinJsonCodec} parses.
+     *
+     * @return the properties, or {@code null} if both collections are {@code null}.
+     */
+    static TwinProperties createFromCollections(TwinCollection desired, TwinCollection reported)
+    {
+        if ((desired == null) && (reported == null))
+        {
+            return null;
+        }
+
+        TwinProperties twinProperties = new TwinProperties();
+        twinProperties.desired = desired;
+        twinProperties.reported = reported;
+        return twinProperties;
+    }
+
     /**
      * Serializer
      *
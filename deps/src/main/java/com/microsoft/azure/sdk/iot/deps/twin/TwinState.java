@@ -348,10 +348,9 @@ public class TwinState extends RegisterManager
 
         /* SRS_TWIN_STATE_21_015: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_016: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-        TwinCollection result = gson.fromJson(json, TwinCollection.class);
+        TwinCollection result = TwinJsonCodec.readCollection(json);
 
-        return new TwinState(null, result, null);
+        return createFromProperties(TwinProperties.createFromCollections(result, null));
     }
 
     /**
@@ -372,10 +371,9 @@ public class TwinState extends RegisterManager
 
         /* SRS_TWIN_STATE_21_018: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_019: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-        TwinCollection result = gson.fromJson(json, TwinCollection.class);
+        TwinCollection result = TwinJsonCodec.readCollection(json);
 
-        return new TwinState(null, null, result);
+        return createFromProperties(TwinProperties.createFromCollections(null, result));
     }
 
     /**
@@ -396,10 +394,17 @@ public class TwinState extends RegisterManager
 
         /* SRS_TWIN_STATE_21_021: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_022: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-        TwinProperties result = gson.fromJson(json, TwinProperties.class);
+        TwinProperties result = TwinJsonCodec.readProperties(json);
 
-        return new TwinState(null, result.getDesired(), result.getReported());
+        return createFromProperties(result);
+    }
+
+    private static TwinState createFromProperties(TwinProperties properties)
+    {
+        // The parsed collections are not copied again, since nothing else refers to them
+        TwinState twinState = new TwinState();
+        twinState.properties = properties;
+        return twinState;
     }
 
     /**
@@ -0,0 +1,61 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+    Unit tests for BulkRegistryOperationResultParser
+ */
+public class BulkRegistryOperationResultParserTest
+{
+    @Test
+    public void constructorParsesErrorsAndWarnings()
+    {
+        //arrange
+        String json = "{\"isSuccessful\":false," +
+                "\"errors\":[{\"deviceId\":\"devA\",\"errorCode\":\"DeviceAlreadyExists\",\"errorStatus\":\"Already registered\"}]," +
+                "\"warnings\":[{\"deviceId\":\"devB\",\"warningCode\":\"DeviceRegisteredWithoutTwin\",\"warningStatus\":\"No twin\"}]}";
+
+        //act
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser(json);
+
+        //assert
+        assertFalse(parser.isSuccessful());
+        assertEquals(1, parser.getErrors().size());
+        assertEquals("devA", parser.getErrors().get(0).getDeviceId());
+        assertEquals("DeviceAlreadyExists", parser.getErrors().get(0).getErrorCode());
+        assertEquals("Already registered", parser.getErrors().get(0).getErrorStatus());
+        assertEquals(1, parser.getWarnings().size());
+        assertEquals("devB", parser.getWarnings().get(0).getDeviceId());
+        assertEquals("DeviceRegisteredWithoutTwin", parser.getWarnings().get(0).getWarningCode());
+        assertEquals("No twin", parser.getWarnings().get(0).getWarningStatus());
+    }
+
+    @Test
+    public void constructorDefaultsMissingListsToEmpty()
+    {
+        //act
+        BulkRegistryOperationResultParser parser = new BulkRegistryOperationResultParser("{\"isSuccessful\":true}");
+
+        //assert
+        assertTrue(parser.isSuccessful());
+        assertTrue(parser.getErrors().isEmpty());
+        assertTrue(parser.getWarnings().isEmpty());
+    }
+
+    @Test
+    public void constructorThrowsForJsonThatIsNotAResult()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new BulkRegistryOperationResultParser("{\"Message\":\"ErrorCode:ArgumentInvalid;Bad request\"}"));
+        assertThrows(IllegalArgumentException.class, () -> new BulkRegistryOperationResultParser("not json"));
+        assertThrows(IllegalArgumentException.class, () -> new BulkRegistryOperationResultParser(""));
+        assertThrows(IllegalArgumentException.class, () -> new BulkRegistryOperationResultParser(null));
+    }
+}
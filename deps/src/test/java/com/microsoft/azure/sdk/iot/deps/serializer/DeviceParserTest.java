@@ -11,10 +11,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
 
+import java.io.StringReader;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNull;
@@ -507,4 +509,63 @@ public class DeviceParserTest
             parser.setAuthenticationParser(null);
         });
     }
+
+    @Test
+    public void fromJsonArrayParsesEachDevice()
+    {
+        //arrange
+        String json = "[" +
+                "{\"deviceId\":\"device1\",\"etag\":\"MA==\",\"lastActivityTime\":\"" + validDateString + "\"," +
+                "\"authentication\":{\"type\":\"" + SAS_JSON_VALUE + "\",\"symmetricKey\":{\"primaryKey\":\"a\",\"secondaryKey\":\"b\"}}}," +
+                "{\"deviceId\":\"device2\",\"moduleId\":\"module2\"," +
+                "\"authentication\":{\"type\":\"" + CERTIFICATE_AUTHORITY_JSON_VALUE + "\"}}" +
+                "]";
+
+        //act
+        List<DeviceParser> parsers = DeviceParser.fromJsonArray(new StringReader(json));
+
+        //assert
+        assertEquals(2, parsers.size());
+        assertEquals("device1", parsers.get(0).getDeviceId());
+        assertEquals("\"MA==\"", parsers.get(0).geteTag());
+        assertEquals("a", parsers.get(0).getAuthenticationParser().getSymmetricKey().getPrimaryKey());
+        assertTrue(parsers.get(0).getLastActivityTime() != null);
+        assertEquals("device2", parsers.get(1).getDeviceId());
+        assertEquals("module2", parsers.get(1).getModuleId());
+        assertEquals(AuthenticationTypeParser.CERTIFICATE_AUTHORITY, parsers.get(1).getAuthenticationParser().getType());
+    }
+
+    @Test
+    public void fromJsonArrayParsesEmptyArray()
+    {
+        //act
+        List<DeviceParser> parsers = DeviceParser.fromJsonArray(new StringReader("[]"));
+
+        //assert
+        assertTrue(parsers.isEmpty());
+    }
+
+    @Test
+    public void fromJsonArrayThrowsForNullReader()
+    {
+        assertThrows(IllegalArgumentException.class, () -> DeviceParser.fromJsonArray(null));
+    }
+
+    @Test
+    public void fromJsonArrayThrowsForJsonThatIsNotAnArray()
+    {
+        assertThrows(IllegalArgumentException.class, () -> DeviceParser.fromJsonArray(new StringReader("{\"deviceId\":\"device1\"}")));
+    }
+
+    @Test
+    public void fromJsonArrayThrowsForElementWithoutAuthentication()
+    {
+        assertThrows(IllegalArgumentException.class, () -> DeviceParser.fromJsonArray(new StringReader("[{\"deviceId\":\"device1\"}]")));
+    }
+
+    @Test
+    public void fromJsonArrayThrowsForTruncatedJson()
+    {
+        assertThrows(IllegalArgumentException.class, () -> DeviceParser.fromJsonArray(new StringReader("[{\"deviceId\":\"device1\",")));
+    }
 }
@@ -8,6 +8,7 @@ import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 import org.junit.jupiter.api.Test;
 
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNull;
@@ -493,4 +494,30 @@ public class ExportImportDeviceParserTest
             new ExportImportDeviceParser(json);
         });
     }
+
+    @Test
+    public void edgeCapabilityAndScopesSurviveARoundTrip()
+    {
+        //arrange
+        ExportImportDeviceParser parser = new ExportImportDeviceParser();
+        parser.setId("test");
+        parser.setAuthentication(new AuthenticationParser());
+        parser.getAuthenticationFinal().setType(AuthenticationTypeParser.CERTIFICATE_AUTHORITY);
+        parser.setCapabilities(new DeviceCapabilitiesParser());
+        parser.getCapabilities().setIotEdge(true);
+        parser.setScope("ms-azure-iot-edge://test-1234");
+        parser.setParentScopes(Collections.singletonList("ms-azure-iot-edge://parent-5678"));
+
+        //act
+        String json = parser.toJson();
+        ExportImportDeviceParser processedParser = new ExportImportDeviceParser(json);
+
+        //assert
+        assertTrue(json.contains("\"capabilities\":{\"iotEdge\":true}"));
+        assertTrue(json.contains("\"deviceScope\":\"ms-azure-iot-edge://test-1234\""));
+        assertTrue(json.contains("\"parentScopes\":[\"ms-azure-iot-edge://parent-5678\"]"));
+        assertTrue(processedParser.getCapabilities().getIotEdge());
+        assertEquals("ms-azure-iot-edge://test-1234", processedParser.getScope());
+        assertEquals(Collections.singletonList("ms-azure-iot-edge://parent-5678"), processedParser.getParentScopes());
+    }
 }
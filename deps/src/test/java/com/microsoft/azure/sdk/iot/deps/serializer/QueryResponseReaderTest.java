@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/*
+    Unit tests for QueryResponseReader
+ */
+public class QueryResponseReaderTest
+{
+    private static final String VALID_TWIN_JSON = "{\n" +
+            "\t\"deviceId\": \"devA\",\n" +
+            "\t\"statusReason\": null,\n" +
+            "\t\"tags\": {\"location\": {\"building\": \"43\", \"floors\": [1, 2.50, -3e2]}},\n" +
+            "\t\"properties\": {\n" +
+            "\t\t\"desired\": {\"enabled\": true, \"name\": \"<a&b>\", \"$version\": 1},\n" +
+            "\t\t\"reported\": {\"batteryLevel\": 55, \"values\": [null, false], \"$version\": 4}\n" +
+            "\t}\n" +
+            "}";
+
+    private static List<String> readAll(QueryResponseReader reader)
+    {
+        List<String> items = new ArrayList<>();
+        while (reader.hasNext())
+        {
+            items.add(reader.next());
+        }
+
+        return items;
+    }
+
+    @Test
+    public void readsTheSameItemsAsQueryResponseParser()
+    {
+        //arrange
+        String json = "[" + VALID_TWIN_JSON + "," + VALID_TWIN_JSON + ",{\"deviceId\":\"devB\"}]";
+
+        //act
+        List<String> items = readAll(new QueryResponseReader(new StringReader(json)));
+
+        //assert
+        assertEquals(new QueryResponseParser(json).getJsonItems(), items);
+    }
+
+    @Test
+    public void copiesNumbersAsWritten()
+    {
+        //act
+        List<String> items = readAll(new QueryResponseReader(new StringReader("[{\"value\":12345678901234567890.000}]")));
+
+        //assert
+        assertEquals("{\"value\":12345678901234567890.000}", items.get(0));
+    }
+
+    @Test
+    public void readsEmptyArray()
+    {
+        //arrange
+        QueryResponseReader reader = new QueryResponseReader(new StringReader("[]"));
+
+        //act / assert
+        assertFalse(reader.hasNext());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void hasNextDoesNotConsumeItems()
+    {
+        //arrange
+        QueryResponseReader reader = new QueryResponseReader(new StringReader("[{\"a\":1},{\"b\":2}]"));
+
+        //act / assert
+        assertTrue(reader.hasNext());
+        assertTrue(reader.hasNext());
+        assertEquals("{\"a\":1}", reader.next());
+        assertEquals("{\"b\":2}", reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void nextThrowsWhenNoItemsRemain()
+    {
+        //arrange
+        QueryResponseReader reader = new QueryResponseReader(new StringReader("[]"));
+
+        //act / assert
+        assertThrows(NoSuchElementException.class, reader::next);
+    }
+
+    @Test
+    public void constructorThrowsForNullReader()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new QueryResponseReader(null));
+    }
+
+    @Test
+    public void constructorThrowsForJsonThatIsNotAnArray()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new QueryResponseReader(new StringReader("{\"deviceId\":\"devA\"}")));
+    }
+
+    @Test
+    public void nextThrowsForTruncatedJson()
+    {
+        //arrange
+        QueryResponseReader reader = new QueryResponseReader(new StringReader("[{\"deviceId\":\"devA\","));
+
+        //act / assert
+        assertThrows(IllegalArgumentException.class, reader::next);
+    }
+
+    @Test
+    public void removeIsNotSupported()
+    {
+        //arrange
+        QueryResponseReader reader = new QueryResponseReader(new StringReader("[{\"a\":1}]"));
+
+        //act / assert
+        assertThrows(UnsupportedOperationException.class, reader::remove);
+    }
+}
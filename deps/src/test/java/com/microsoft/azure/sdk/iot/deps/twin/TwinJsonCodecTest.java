@@ -0,0 +1,183 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.twin;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for TwinJsonCodec, comparing it with the Gson tree based serializer and parser.
+ */
+public class TwinJsonCodecTest
+{
+    private static final String COLLECTION_JSON =
+        "{\"Color\":\"White\",\"Enabled\":true,\"Nothing\":null,\"Tags\":[\"a\",1,{\"b\":2}],"
+            + "\"MaxSpeed\":{\"Value\":500,\"NewValue\":300.5,\"Limits\":{\"Low\":1}},"
+            + "\"$metadata\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":4,"
+            + "\"Color\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":4},"
+            + "\"MaxSpeed\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":3,"
+            + "\"Value\":{\"$lastUpdated\":\"2017-09-21T02:07:44.238Z\",\"$lastUpdatedVersion\":2}}},"
+            + "\"$version\":4}";
+
+    private enum Mode
+    {
+        AUTO
+    }
+
+    private static TwinCollection parseWithGson(String json)
+    {
+        return TwinCollection.createFromRawCollection(new Gson().fromJson(json, TwinCollection.class));
+    }
+
+    @Test
+    public void toJsonWritesTheSameJsonAsToJsonElement()
+    {
+        // arrange
+        Map<String, Object> inner = new HashMap<>();
+        inner.put("level", 3);
+        inner.put("ratio", 0.25f);
+        inner.put("missing", null);
+        TwinCollection collection = new TwinCollection();
+        collection.putFinal("text", "<tag> & \"quotes\" \u00e9\u4e2d");
+        collection.putFinal("integer", 42);
+        collection.putFinal("long", 9007199254740993L);
+        collection.putFinal("double", 20.0);
+        collection.putFinal("short", (short) 7);
+        collection.putFinal("enabled", false);
+        collection.putFinal("nothing", null);
+        collection.putFinal("list", Arrays.asList("a", 1, null));
+        collection.putFinal("mode", Mode.AUTO);
+        collection.putFinal("character", 'c');
+        collection.putFinal("inner", inner);
+
+        // act
+        String json = collection.toJson();
+
+        // assert
+        assertEquals(collection.toJsonElement().toString(), json);
+    }
+
+    @Test
+    public void toJsonOfAnEmptyCollection()
+    {
+        // arrange
+        TwinCollection collection = new TwinCollection();
+
+        // act
+        String json = collection.toJson();
+
+        // assert
+        assertEquals("{}", json);
+    }
+
+    @Test
+    public void toJsonRejectsNotFiniteNumbersLikeToJsonElement()
+    {
+        // arrange
+        final TwinCollection collection = new TwinCollection();
+        collection.putFinal("value", Double.NaN);
+
+        // act
+        // assert
+        assertThrows(IllegalArgumentException.class, () -> collection.toJsonElement());
+        assertThrows(IllegalArgumentException.class, () -> collection.toJson());
+    }
+
+    @Test
+    public void readCollectionCreatesTheSameCollectionAsGson()
+    {
+        // arrange
+        TwinCollection expected = parseWithGson(COLLECTION_JSON);
+
+        // act
+        TwinCollection collection = TwinJsonCodec.readCollection(COLLECTION_JSON);
+
+        // assert
+        assertEquals(expected, collection);
+        assertEquals(expected.toString(), collection.toString());
+        assertEquals(Integer.valueOf(4), collection.getVersionFinal());
+        assertEquals(Integer.valueOf(4), collection.getTwinMetadataFinal().getLastUpdatedVersion());
+        assertEquals(Integer.valueOf(3), collection.getTwinMetadataFinal("MaxSpeed").getLastUpdatedVersion());
+        TwinCollection maxSpeed = (TwinCollection) collection.get("MaxSpeed");
+        assertEquals(500.0, maxSpeed.get("Value"));
+        assertEquals(Integer.valueOf(2), maxSpeed.getTwinMetadataFinal("Value").getLastUpdatedVersion());
+        assertTrue(maxSpeed.get("Limits") instanceof TwinCollection);
+        assertTrue(collection.get("Tags") instanceof List);
+        assertTrue(collection.containsKey("Nothing"));
+    }
+
+    @Test
+    public void readCollectionOfABlankJsonReturnsNull()
+    {
+        // arrange
+        // act
+        TwinCollection collection = TwinJsonCodec.readCollection("  ");
+
+        // assert
+        assertNull(collection);
+    }
+
+    @Test
+    public void readCollectionThrowsOnInvalidJson()
+    {
+        assertThrows(JsonSyntaxException.class, () -> TwinJsonCodec.readCollection("{\"a\":"));
+        assertThrows(JsonSyntaxException.class, () -> TwinJsonCodec.readCollection("[1,2]"));
+        assertThrows(JsonSyntaxException.class, () -> TwinJsonCodec.readCollection("{\"a\":1,\"a\":2}"));
+        assertThrows(JsonIOException.class, () -> TwinJsonCodec.readCollection("{\"a\":1}{\"b\":2}"));
+        assertThrows(IllegalArgumentException.class, () -> TwinJsonCodec.readCollection("{\"a\":1,\"$version\":\"one\"}"));
+        assertThrows(IllegalArgumentException.class, () -> TwinJsonCodec.readCollection("{\"\":1}"));
+    }
+
+    @Test
+    public void propertiesJsonIsParsedLikeGson()
+    {
+        // arrange
+        String json = "{\"desired\":" + COLLECTION_JSON + ",\"reported\":{\"firmware\":\"1.0\",\"$version\":7},\"unknown\":[1]}";
+
+        // act
+        TwinState twinState = TwinState.createFromPropertiesJson(json);
+
+        // assert
+        assertEquals(parseWithGson(COLLECTION_JSON).toString(), twinState.getDesiredProperty().toString());
+        assertEquals("1.0", twinState.getReportedProperty().get("firmware"));
+        assertEquals(Integer.valueOf(7), twinState.getReportedProperty().getVersionFinal());
+    }
+
+    @Test
+    public void propertiesJsonWithoutPropertiesHasNoProperties()
+    {
+        // act
+        TwinState twinState = TwinState.createFromPropertiesJson("{\"desired\":null,\"tags\":{\"a\":1}}");
+
+        // assert
+        assertNull(twinState.getDesiredProperty());
+        assertNull(twinState.getReportedProperty());
+    }
+
+    @Test
+    public void desiredAndReportedPropertyJsonAreParsedLikeGson()
+    {
+        // act
+        TwinState desiredState = TwinState.createFromDesiredPropertyJson(COLLECTION_JSON);
+        TwinState reportedState = TwinState.createFromReportedPropertyJson(COLLECTION_JSON);
+
+        // assert
+        assertEquals(parseWithGson(COLLECTION_JSON).toString(), desiredState.getDesiredProperty().toString());
+        assertNull(desiredState.getReportedProperty());
+        assertEquals(parseWithGson(COLLECTION_JSON).toString(), reportedState.getReportedProperty().toString());
+        assertNull(reportedState.getDesiredProperty());
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.net.URISyntaxException;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Shared fixtures for the send path benchmarks. None of the values here are ever sent over a network, so the
+ * connection string only needs to be well formed. This class lives in the same package as the client so that it can
+ * use the package private config setters the transports rely on.
+ */
+public final class BenchmarkMessages
+{
+    public static final String HOST_NAME = "benchmark-hub.azure-devices.net";
+    public static final String DEVICE_ID = "benchmark-device";
+    public static final String CONNECTION_STRING =
+            "HostName=" + HOST_NAME + ";DeviceId=" + DEVICE_ID + ";SharedAccessKey=YmVuY2htYXJrLWtleS1ub3QtYS1yZWFsLXNlY3JldA==";
+
+    private BenchmarkMessages()
+    {
+    }
+
+    /**
+     * Create a telemetry message resembling what a gateway forwards on behalf of a leaf device.
+     *
+     * @param payloadSizeBytes the size of the random payload
+     * @param propertyCount the number of application properties to set on the message
+     * @return the new message
+     */
+    public static Message createTelemetryMessage(int payloadSizeBytes, int propertyCount)
+    {
+        byte[] payload = new byte[payloadSizeBytes];
+        new Random(payloadSizeBytes).nextBytes(payload);
+
+        Message message = new Message(payload);
+        message.setContentType("application/json");
+        message.setContentEncoding("utf-8");
+        message.setCorrelationId("correlation-" + payloadSizeBytes);
+        message.setConnectionDeviceId(DEVICE_ID);
+        message.setCreationTimeUTC(new Date());
+
+        for (int i = 0; i < propertyCount; i++)
+        {
+            message.setProperty("routingProperty" + i, "value " + i);
+        }
+
+        return message;
+    }
+
+    /**
+     * Create a config for a device using the given protocol.
+     *
+     * @param protocol the protocol the config is for
+     * @return the new config
+     */
+    public static DeviceClientConfig createConfig(IotHubClientProtocol protocol)
+    {
+        try
+        {
+            DeviceClientConfig config = new DeviceClientConfig(new IotHubConnectionString(CONNECTION_STRING));
+            config.setProtocol(protocol);
+            return config;
+        }
+        catch (URISyntaxException e)
+        {
+            throw new IllegalStateException("Benchmark connection string could not be parsed", e);
+        }
+    }
+}
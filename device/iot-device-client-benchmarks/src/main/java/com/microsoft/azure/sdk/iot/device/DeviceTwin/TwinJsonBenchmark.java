@@ -0,0 +1,101 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization of reported properties and the parsing of desired properties, which {@link DeviceTwin}
+ * does for every reported properties update and every desired properties patch or twin that it receives. The tree
+ * benchmarks reproduce the {@code JsonElement} and raw map based code that the streaming codec replaced, as a
+ * baseline for the other two.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TwinJsonBenchmark
+{
+    @Param({"10", "100", "500"})
+    public int propertyCount;
+
+    private TwinCollection reportedProperties;
+    private String desiredPropertiesJson;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.reportedProperties = new TwinCollection();
+        for (int i = 0; i < this.propertyCount; i++)
+        {
+            // a mix of the value types that devices usually report, with every tenth property nested
+            if (i % 10 == 9)
+            {
+                TwinCollection nested = new TwinCollection();
+                nested.putFinal("value", i);
+                nested.putFinal("unit", "celsius");
+                nested.putFinal("valid", true);
+                this.reportedProperties.putFinal("property" + i, nested);
+            }
+            else if (i % 2 == 0)
+            {
+                this.reportedProperties.putFinal("property" + i, "value" + i);
+            }
+            else
+            {
+                this.reportedProperties.putFinal("property" + i, i * 1.5);
+            }
+        }
+
+        String propertiesJson = this.reportedProperties.toJson();
+        this.desiredPropertiesJson = propertiesJson.substring(0, propertiesJson.length() - 1) + ",\"$version\":42}";
+    }
+
+    /**
+     * The serialization of reported properties before the streaming codec, through a JsonElement tree.
+     */
+    @Benchmark
+    public String serializeWithTree()
+    {
+        return this.reportedProperties.toJsonElement().toString();
+    }
+
+    /**
+     * The serialization of reported properties with the streaming codec.
+     */
+    @Benchmark
+    public String serializeWithStream()
+    {
+        return this.reportedProperties.toJson();
+    }
+
+    /**
+     * The parsing of a desired properties patch before the streaming codec, through a raw collection that Gson fills
+     * in and that is then copied into the final collection.
+     */
+    @Benchmark
+    public TwinState parseWithTree()
+    {
+        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
+        TwinCollection rawCollection = gson.fromJson(this.desiredPropertiesJson, TwinCollection.class);
+        return new TwinState(null, rawCollection, null);
+    }
+
+    /**
+     * The parsing of a desired properties patch with the streaming codec.
+     */
+    @Benchmark
+    public TwinState parseWithStream()
+    {
+        return TwinState.createFromDesiredPropertyJson(this.desiredPropertiesJson);
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Message#getCreationTimeUTCString()}, which every transport calls once per sent message that has a
+ * creation time. The legacy benchmark reproduces the SimpleDateFormat based formatting that the method used to do, as
+ * a baseline for the other two.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCreationTimeBenchmark
+{
+    private static final int CREATION_TIME_COUNT = 1024;
+
+    private Date[] creationTimes;
+    private int nextCreationTime;
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        long now = System.currentTimeMillis();
+        this.creationTimes = new Date[CREATION_TIME_COUNT];
+        for (int i = 0; i < CREATION_TIME_COUNT; i++)
+        {
+            this.creationTimes[i] = new Date(now + i);
+        }
+
+        this.message = BenchmarkMessages.createTelemetryMessage(16, 0);
+    }
+
+    /**
+     * The formatting that getCreationTimeUTCString used to do on every call.
+     */
+    @Benchmark
+    public String legacySimpleDateFormat()
+    {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd_HH:mm:ss.SSSSSSS");
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return sdf.format(nextCreationTime()).replace("_", "T") + "Z";
+    }
+
+    /**
+     * A message whose creation time changes before each call, so that the time is formatted every time.
+     */
+    @Benchmark
+    public String formatNewCreationTime()
+    {
+        this.message.setCreationTimeUTC(nextCreationTime());
+        return this.message.getCreationTimeUTCString();
+    }
+
+    /**
+     * A message that is sent more than once, for instance when it is retried, so that its formatted time is reused.
+     */
+    @Benchmark
+    public String formatSameCreationTime()
+    {
+        return this.message.getCreationTimeUTCString();
+    }
+
+    private Date nextCreationTime()
+    {
+        Date creationTime = this.creationTimes[this.nextCreationTime];
+        this.nextCreationTime = (this.nextCreationTime + 1) % CREATION_TIME_COUNT;
+        return creationTime;
+    }
+}
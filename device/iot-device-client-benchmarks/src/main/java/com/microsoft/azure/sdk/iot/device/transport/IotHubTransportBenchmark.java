@@ -0,0 +1,96 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.BenchmarkMessages;
+import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.Message;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queueing overhead of {@link IotHubTransport#addMessage} and {@link IotHubTransport#sendMessages()}
+ * against a connection that acknowledges messages immediately.
+ * <p>
+ * The {@code backlog} parameter pre-fills the waiting queue to model a gateway that has buffered messages. Each
+ * invocation queues one message and sends one message, so the backlog stays constant for the whole run.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IotHubTransportBenchmark
+{
+    @Param({"0", "1000", "10000"})
+    public int backlog;
+
+    @Param({"256"})
+    public int payloadSizeBytes;
+
+    @Param({"0", "20"})
+    public int propertyCount;
+
+    private IotHubTransport transport;
+    private Message message;
+    private CountingCallback callback;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        DeviceClientConfig config = BenchmarkMessages.createConfig(IotHubClientProtocol.AMQPS);
+        this.transport = new IotHubTransport(config, (status, statusChangeReason, throwable, callbackContext) -> { }, false);
+
+        StubIotHubTransportConnection connection = new StubIotHubTransportConnection(config.getDeviceId());
+        connection.setListener(this.transport);
+        setField(this.transport, "iotHubTransportConnection", connection);
+        setField(this.transport, "connectionStatus", IotHubConnectionStatus.CONNECTED);
+
+        // one message out per message in, so the backlog does not drain over the course of the run
+        this.transport.setMaxNumberOfMessagesSentPerSendThread(1);
+
+        this.callback = new CountingCallback();
+        for (int i = 0; i < this.backlog; i++)
+        {
+            this.transport.addMessage(BenchmarkMessages.createTelemetryMessage(this.payloadSizeBytes, this.propertyCount), this.callback, null, config.getDeviceId());
+        }
+
+        this.message = BenchmarkMessages.createTelemetryMessage(this.payloadSizeBytes, this.propertyCount);
+    }
+
+    @Benchmark
+    public void addSendAndInvokeCallbacks(Blackhole blackhole)
+    {
+        this.transport.addMessage(this.message, this.callback, null, BenchmarkMessages.DEVICE_ID);
+        this.transport.sendMessages();
+        this.transport.invokeCallbacks();
+        blackhole.consume(this.callback.count);
+    }
+
+    private static void setField(Object target, String fieldName, Object value) throws ReflectiveOperationException
+    {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static final class CountingCallback implements IotHubEventCallback
+    {
+        long count;
+
+        @Override
+        public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+        {
+            this.count++;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.BenchmarkMessages;
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.BufferOverflowException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of an IoT Hub message into a proton message, its encoding, and the full
+ * {@link AmqpsSenderLinkHandler#sendMessageAndGetDeliveryTag(Message)} path on a telemetry sender link. The link
+ * belongs to a proton connection that is never bound to a transport, so nothing leaves the process.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AmqpsSenderLinkHandlerBenchmark
+{
+    @Param({"256", "65536"})
+    public int payloadSizeBytes;
+
+    @Param({"0", "20"})
+    public int propertyCount;
+
+    private Sender sender;
+    private AmqpsTelemetrySenderLinkHandler linkHandler;
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        Connection connection = Proton.connection();
+        this.sender = connection.session().sender("benchmark-telemetry-sender");
+        this.linkHandler = new AmqpsTelemetrySenderLinkHandler(
+                this.sender,
+                new NoOpLinkStateCallback(),
+                BenchmarkMessages.createConfig(IotHubClientProtocol.AMQPS),
+                "benchmark-link-correlation-id");
+
+        this.message = BenchmarkMessages.createTelemetryMessage(this.payloadSizeBytes, this.propertyCount);
+    }
+
+    @Benchmark
+    public MessageImpl iotHubMessageToProtonMessage()
+    {
+        return this.linkHandler.iotHubMessageToProtonMessage(this.message);
+    }
+
+    @Benchmark
+    public int iotHubMessageToProtonMessageAndEncode()
+    {
+        MessageImpl protonMessage = this.linkHandler.iotHubMessageToProtonMessage(this.message);
+
+        // same buffer growth strategy as the sender link handler uses
+        byte[] msgData = new byte[1024];
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(msgData, 0, msgData.length);
+            }
+            catch (BufferOverflowException e)
+            {
+                msgData = new byte[msgData.length * 2];
+            }
+        }
+    }
+
+    @Benchmark
+    public AmqpsSendResult sendMessageAndGetDeliveryTag()
+    {
+        AmqpsSendResult sendResult = this.linkHandler.sendMessageAndGetDeliveryTag(this.message);
+
+        // Nothing ever acknowledges these deliveries, so release them here to keep the heap flat
+        this.linkHandler.inProgressMessages.remove(sendResult.getDeliveryTag());
+        Delivery delivery = this.sender.head();
+        while (delivery != null)
+        {
+            Delivery next = delivery.next();
+            delivery.free();
+            delivery = next;
+        }
+
+        return sendResult;
+    }
+
+    private static final class NoOpLinkStateCallback implements AmqpsLinkStateCallback
+    {
+        @Override
+        public void onLinkOpened(BaseHandler linkHandler)
+        {
+        }
+
+        @Override
+        public void onMessageAcknowledged(Message message, int deliveryTag, DeliveryState deliveryState)
+        {
+        }
+
+        @Override
+        public void onMessageReceived(IotHubTransportMessage message)
+        {
+        }
+
+        @Override
+        public void onLinkClosedUnexpectedly(ErrorCondition errorCondition)
+        {
+        }
+    }
+}
@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.BenchmarkMessages;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the JSON body of a batched HTTPS telemetry request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpsBatchMessageBenchmark
+{
+    @Param({"10", "100"})
+    public int batchSize;
+
+    @Param({"64", "1024"})
+    public int payloadSizeBytes;
+
+    @Param({"0", "20"})
+    public int propertyCount;
+
+    private List<HttpsSingleMessage> singleMessages;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.singleMessages = new ArrayList<>(this.batchSize);
+        for (int i = 0; i < this.batchSize; i++)
+        {
+            this.singleMessages.add(HttpsSingleMessage.parseHttpsMessage(BenchmarkMessages.createTelemetryMessage(this.payloadSizeBytes, this.propertyCount)));
+        }
+    }
+
+    @Benchmark
+    public byte[] constructBatchMessage() throws IotHubSizeExceededException
+    {
+        return new HttpsBatchMessage(this.singleMessages).getBody();
+    }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.BenchmarkMessages;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MqttMessaging#send(Message)}, which builds the publish topic from the message's system and
+ * application properties before handing the payload to Paho, followed by the acknowledgement of that publish. Paho
+ * itself is replaced with a client that never touches the network.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MqttMessagingBenchmark
+{
+    @Param({"256", "65536"})
+    public int payloadSizeBytes;
+
+    @Param({"0", "20"})
+    public int propertyCount;
+
+    private MqttMessaging mqttMessaging;
+    private StubMqttAsyncClient mqttAsyncClient;
+    private Map<Integer, Message> unacknowledgedSentMessages;
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setUp() throws MqttException
+    {
+        this.unacknowledgedSentMessages = new ConcurrentHashMap<>();
+        this.mqttMessaging = new MqttMessaging(
+                BenchmarkMessages.DEVICE_ID,
+                null,
+                null,
+                false,
+                new MqttConnectOptions(),
+                this.unacknowledgedSentMessages,
+                new ConcurrentLinkedQueue<Pair<String, byte[]>>());
+
+        this.mqttAsyncClient = new StubMqttAsyncClient();
+        this.mqttMessaging.setMqttAsyncClient(this.mqttAsyncClient);
+        this.message = BenchmarkMessages.createTelemetryMessage(this.payloadSizeBytes, this.propertyCount);
+    }
+
+    @Benchmark
+    public Map<Integer, Message> send() throws TransportException
+    {
+        this.mqttMessaging.send(this.message);
+
+        // acknowledge the publish right away, as a PUBACK would, so that the in flight window never fills up
+        this.mqttMessaging.deliveryComplete(this.mqttAsyncClient.lastDeliveryToken);
+        return this.unacknowledgedSentMessages;
+    }
+
+    /**
+     * Paho client that reports itself as connected and completes every publish locally.
+     */
+    private static final class StubMqttAsyncClient extends MqttAsyncClient
+    {
+        private IMqttDeliveryToken lastDeliveryToken;
+
+        StubMqttAsyncClient() throws MqttException
+        {
+            super("tcp://localhost:1883", BenchmarkMessages.DEVICE_ID, new MemoryPersistence());
+        }
+
+        @Override
+        public boolean isConnected()
+        {
+            return true;
+        }
+
+        @Override
+        public IMqttDeliveryToken publish(String topic, MqttMessage message)
+        {
+            this.lastDeliveryToken = new MqttDeliveryToken(getClientId());
+            return this.lastDeliveryToken;
+        }
+    }
+}
@@ -7,8 +7,10 @@ import lombok.Getter;
 import lombok.Setter;
 
 import javax.net.ssl.SSLContext;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static com.microsoft.azure.sdk.iot.device.DeviceClientConfig.DEFAULT_KEEP_ALIVE_INTERVAL_IN_SECONDS;
+import static com.microsoft.azure.sdk.iot.device.DeviceClientConfig.DEFAULT_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT;
 
 /**
  * Options that allow configuration of the device client instance during initialization.
@@ -76,4 +78,223 @@ public final class ClientOptions
 
         this.keepAliveInterval = keepAliveInterval;
     }
+
+    /**
+     * The maximum number of messages that may be published and not yet acknowledged by the service at once. Once this
+     * limit is reached, the next message is published as soon as the service acknowledges an earlier one. The default
+     * value is 65000.
+     *
+     * <p>
+     * This value is only used in MQTT and MQTT_WS. If the client is using any other protocol, then this value is ignored.
+     * </p>
+     */
+    @Getter
+    public int mqttMaxInFlightMessageCount = DEFAULT_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT;
+
+    /**
+     * Sets the maximum number of messages that may be published and not yet acknowledged by the service at once.
+     *
+     * @param mqttMaxInFlightMessageCount the maximum number of unacknowledged published messages. Must be greater than 0.
+     */
+    public void setMqttMaxInFlightMessageCount(int mqttMaxInFlightMessageCount)
+    {
+        if (mqttMaxInFlightMessageCount <= 0)
+        {
+            throw new IllegalArgumentException("MQTT max in flight message count must be greater than 0");
+        }
+
+        this.mqttMaxInFlightMessageCount = mqttMaxInFlightMessageCount;
+    }
+
+    /**
+     * The maximum number of telemetry messages that may wait in the outbound queue at once, including messages queued
+     * while the client is disconnected. Once this limit is reached, the {@link #outboundQueueOverflowPolicy} decides what
+     * happens to newly queued messages. Twin and method messages are queued separately and are never subject to this
+     * limit, so they are not starved by a backlog of telemetry. The default value is 0, which means that the number of
+     * queued messages is not limited.
+     */
+    @Getter
+    public int maxOutboundQueueMessageCount;
+
+    /**
+     * The maximum total size, in bytes, of the payloads of the telemetry messages that may wait in the outbound queue
+     * at once. Once this limit is reached, the {@link #outboundQueueOverflowPolicy} decides what happens to newly
+     * queued messages. The default value is 0, which means that the size of the queue is not limited.
+     */
+    @Getter
+    public long maxOutboundQueueSizeInBytes;
+
+    /**
+     * The behavior of the client when a telemetry message is queued while the outbound queue is full. Only used if
+     * {@link #maxOutboundQueueMessageCount} or {@link #maxOutboundQueueSizeInBytes} is set. The default value is
+     * {@link OutboundQueueOverflowPolicy#BLOCK}.
+     */
+    @Setter
+    @Getter
+    public OutboundQueueOverflowPolicy outboundQueueOverflowPolicy = OutboundQueueOverflowPolicy.BLOCK;
+
+    /**
+     * Sets the maximum number of telemetry messages that may wait in the outbound queue at once.
+     *
+     * @param maxOutboundQueueMessageCount the maximum number of queued telemetry messages, or 0 to not limit the number
+     * of queued messages. Must not be negative.
+     */
+    public void setMaxOutboundQueueMessageCount(int maxOutboundQueueMessageCount)
+    {
+        if (maxOutboundQueueMessageCount < 0)
+        {
+            throw new IllegalArgumentException("Maximum outbound queue message count cannot be negative");
+        }
+
+        this.maxOutboundQueueMessageCount = maxOutboundQueueMessageCount;
+    }
+
+    /**
+     * Sets the maximum total size, in bytes, of the payloads of the telemetry messages that may wait in the outbound
+     * queue at once.
+     *
+     * @param maxOutboundQueueSizeInBytes the maximum number of queued payload bytes, or 0 to not limit the size of the
+     * queue. Must not be negative.
+     */
+    public void setMaxOutboundQueueSizeInBytes(long maxOutboundQueueSizeInBytes)
+    {
+        if (maxOutboundQueueSizeInBytes < 0)
+        {
+            throw new IllegalArgumentException("Maximum outbound queue size cannot be negative");
+        }
+
+        this.maxOutboundQueueSizeInBytes = maxOutboundQueueSizeInBytes;
+    }
+
+    /**
+     * The executor that runs the send and receive work of this client and schedules its message retries. By default,
+     * each client creates three threads of its own for this work. When many clients run in the same process, setting
+     * the same executor on all of them bounds the total number of threads that they use for this work: instead of
+     * waiting on a thread of its own, the work of each client is run on the executor whenever there is some to do.
+     *
+     * <p>
+     * The client does not shut the executor down when it is closed, so the application should shut it down once all
+     * of the clients that use it are closed. Sending or receiving may still block a thread of the executor on network
+     * I/O, so it should have as many threads as the number of clients that are expected to be busy at the same time.
+     * The default value is null, which means that the client uses threads of its own.
+     * </p>
+     *
+     * <p>
+     * This value is not used by the multiplexing client, whose connection already shares its threads between all of
+     * its devices.
+     * </p>
+     */
+    @Setter
+    @Getter
+    public ScheduledExecutorService sharedWorkerExecutor;
+
+    /**
+     * The number of threads that execute the callbacks of received messages. By default, the callbacks of all received
+     * cloud to device messages, twin messages and method invocations are executed one at a time on the receive thread
+     * of the client, so a slow callback holds up every message received after it. When this is greater than 0, the
+     * callbacks are executed on a pool of this many threads instead. Messages still have their callbacks executed in
+     * the order that they were received within each stream: the cloud to device messages of each input name are one
+     * stream, and the twin messages are another. Method invocations are independent of each other and of the other
+     * messages, so their callbacks may be executed in parallel with each other.
+     *
+     * <p>
+     * The default value is 0, which means that callbacks are executed on the receive thread. Statistics about the
+     * queued and handled messages are available from the client while this is enabled. This value is not used by the
+     * multiplexing client.
+     * </p>
+     */
+    @Getter
+    public int receivedMessageDispatchThreadCount;
+
+    /**
+     * Sets the number of threads that execute the callbacks of received messages.
+     *
+     * @param receivedMessageDispatchThreadCount the number of threads, or 0 to execute the callbacks on the receive
+     * thread of the client. Must not be negative.
+     */
+    public void setReceivedMessageDispatchThreadCount(int receivedMessageDispatchThreadCount)
+    {
+        if (receivedMessageDispatchThreadCount < 0)
+        {
+            throw new IllegalArgumentException("Received message dispatch thread count cannot be negative");
+        }
+
+        this.receivedMessageDispatchThreadCount = receivedMessageDispatchThreadCount;
+    }
+
+    /**
+     * The maximum amount of time, in milliseconds, that a reported properties update waits to be merged with the
+     * updates sent after it. By default, each call to send reported properties sends its own request, so properties
+     * that are updated many times per second may get the client throttled. When this is greater than 0, the updates
+     * sent within this interval of each other are merged into a single request: a property set by more than one update
+     * takes its latest value, and values that are maps in both updates are merged key by key. The callbacks of all of
+     * the merged updates are executed with the status of that single request.
+     *
+     * <p>
+     * Updates that are sent with a version or with a correlating message callback are never merged, since they need a
+     * request of their own. They are sent after any updates that are waiting to be merged. The default value is 0,
+     * which means that updates are not merged.
+     * </p>
+     */
+    @Getter
+    public long reportedPropertiesCoalescingIntervalMillis;
+
+    /**
+     * Sets the maximum amount of time, in milliseconds, that a reported properties update waits to be merged with the
+     * updates sent after it.
+     *
+     * @param reportedPropertiesCoalescingIntervalMillis the maximum amount of time, or 0 to send each update in a
+     * request of its own. Must not be negative.
+     */
+    public void setReportedPropertiesCoalescingIntervalMillis(long reportedPropertiesCoalescingIntervalMillis)
+    {
+        if (reportedPropertiesCoalescingIntervalMillis < 0)
+        {
+            throw new IllegalArgumentException("Reported properties coalescing interval cannot be negative");
+        }
+
+        this.reportedPropertiesCoalescingIntervalMillis = reportedPropertiesCoalescingIntervalMillis;
+    }
+
+    /**
+     * The number of top level properties that causes merged reported properties updates to be sent without waiting
+     * for the rest of the {@link #reportedPropertiesCoalescingIntervalMillis}. Only used if that interval is set. The
+     * default value is 0, which means that merged updates are only sent once the interval has passed.
+     */
+    @Getter
+    public int reportedPropertiesCoalescingMaxPropertyCount;
+
+    /**
+     * Sets the number of top level properties that causes merged reported properties updates to be sent right away.
+     *
+     * @param reportedPropertiesCoalescingMaxPropertyCount the number of properties, or 0 to only send merged updates
+     * once the coalescing interval has passed. Must not be negative.
+     */
+    public void setReportedPropertiesCoalescingMaxPropertyCount(int reportedPropertiesCoalescingMaxPropertyCount)
+    {
+        if (reportedPropertiesCoalescingMaxPropertyCount < 0)
+        {
+            throw new IllegalArgumentException("Reported properties coalescing max property count cannot be negative");
+        }
+
+        this.reportedPropertiesCoalescingMaxPropertyCount = reportedPropertiesCoalescingMaxPropertyCount;
+    }
+
+    /**
+     * The path of a file to keep a copy of the desired and reported properties of the twin in. By default, the twin
+     * property callbacks are only executed once the twin has been downloaded from the service after the twin is
+     * started, which may take a while on slow connections. When this is set, the properties that were last received
+     * are loaded from this file when the twin is started and the callbacks are executed with them right away. The
+     * twin downloaded from the service then only executes the callbacks again if its version differs from the version
+     * in the file, and desired property updates whose version is already in the file are ignored.
+     *
+     * <p>
+     * The file is replaced each time that the twin properties change. The properties in the file don't have their
+     * metadata, such as when they were last updated. Each client must use a file of its own. The default value is
+     * null, which means that the twin properties are not kept in a file.
+     * </p>
+     */
+    @Setter
+    @Getter
+    public String twinCacheFilePath;
 }
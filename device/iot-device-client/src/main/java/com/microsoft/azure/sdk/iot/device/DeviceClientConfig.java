@@ -22,6 +22,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Configuration settings for an IoT Hub client. Validates all user-defined
@@ -35,6 +36,10 @@ public final class DeviceClientConfig
 
     public static final int DEFAULT_KEEP_ALIVE_INTERVAL_IN_SECONDS = 230;
 
+    // relatively arbitrary, but only because Paho doesn't have any particular recommendations here. Just a high enough
+    // value that users who are building a gateway type solution don't find this value to be a bottleneck.
+    public static final int DEFAULT_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT = 65000;
+
     // authentication session timeout is public because a multiplexed connection needs this default if no devices
     // were registered prior to opening the connection. No device sessions would be opened in that case though, so
     // the default device session timeout can stay private.
@@ -76,6 +81,49 @@ public final class DeviceClientConfig
     @Setter
     private int keepAliveInterval = DEFAULT_KEEP_ALIVE_INTERVAL_IN_SECONDS;
 
+    @Getter
+    @Setter
+    private int mqttMaxInFlightMessageCount = DEFAULT_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT;
+
+    // 0 means that the outbound telemetry queue is not limited by message count
+    @Getter
+    @Setter
+    private int maxOutboundQueueMessageCount;
+
+    // 0 means that the outbound telemetry queue is not limited by size
+    @Getter
+    @Setter
+    private long maxOutboundQueueSizeInBytes;
+
+    @Getter
+    @Setter
+    private OutboundQueueOverflowPolicy outboundQueueOverflowPolicy = OutboundQueueOverflowPolicy.BLOCK;
+
+    // null means that the client runs its send, receive and retry tasks on threads of its own
+    @Getter
+    @Setter
+    private ScheduledExecutorService sharedWorkerExecutor;
+
+    // 0 means that the callbacks of received messages are executed on the receive thread
+    @Getter
+    @Setter
+    private int receivedMessageDispatchThreadCount;
+
+    // 0 means that each reported properties update is sent in a request of its own
+    @Getter
+    @Setter
+    private long reportedPropertiesCoalescingIntervalMillis;
+
+    // 0 means that merged reported properties updates are only sent once the coalescing interval has passed
+    @Getter
+    @Setter
+    private int reportedPropertiesCoalescingMaxPropertyCount;
+
+    // null means that the twin properties are not kept in a file
+    @Getter
+    @Setter
+    private String twinCacheFilePath;
+
     private IotHubAuthenticationProvider authenticationProvider;
 
     /**
@@ -163,6 +211,7 @@ public final class DeviceClientConfig
         SSLContext sslContext = clientOptions != null ? clientOptions.sslContext : null;
         this.keepAliveInterval =
             clientOptions != null && clientOptions.getKeepAliveInterval() != 0 ? clientOptions.getKeepAliveInterval() : DEFAULT_KEEP_ALIVE_INTERVAL_IN_SECONDS;
+        setMessagingOptions(clientOptions);
         this.authenticationProvider =
                 new IotHubSasTokenProvidedAuthenticationProvider(hostName, deviceId, moduleId, sasTokenProvider, sslContext);
 
@@ -209,6 +258,32 @@ public final class DeviceClientConfig
         }
 
         this.keepAliveInterval = clientOptions != null && clientOptions.getKeepAliveInterval() != 0 ? clientOptions.getKeepAliveInterval() : DEFAULT_KEEP_ALIVE_INTERVAL_IN_SECONDS;
+        setMessagingOptions(clientOptions);
+    }
+
+    private void setMessagingOptions(ClientOptions clientOptions)
+    {
+        if (clientOptions != null)
+        {
+            if (clientOptions.getMqttMaxInFlightMessageCount() > 0)
+            {
+                this.mqttMaxInFlightMessageCount = clientOptions.getMqttMaxInFlightMessageCount();
+            }
+
+            this.maxOutboundQueueMessageCount = clientOptions.getMaxOutboundQueueMessageCount();
+            this.maxOutboundQueueSizeInBytes = clientOptions.getMaxOutboundQueueSizeInBytes();
+
+            if (clientOptions.getOutboundQueueOverflowPolicy() != null)
+            {
+                this.outboundQueueOverflowPolicy = clientOptions.getOutboundQueueOverflowPolicy();
+            }
+
+            this.sharedWorkerExecutor = clientOptions.getSharedWorkerExecutor();
+            this.receivedMessageDispatchThreadCount = clientOptions.getReceivedMessageDispatchThreadCount();
+            this.reportedPropertiesCoalescingIntervalMillis = clientOptions.getReportedPropertiesCoalescingIntervalMillis();
+            this.reportedPropertiesCoalescingMaxPropertyCount = clientOptions.getReportedPropertiesCoalescingMaxPropertyCount();
+            this.twinCacheFilePath = clientOptions.getTwinCacheFilePath();
+        }
     }
 
     public DeviceClientConfig(IotHubConnectionString iotHubConnectionString, SSLContext sslContext)
@@ -10,6 +10,7 @@ import com.microsoft.azure.sdk.iot.device.transport.IotHubConnectionStatus;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.ReceivedMessageDispatchStatistics;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import lombok.extern.slf4j.Slf4j;
 
@@ -87,6 +88,12 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
     private ScheduledExecutorService sendTaskScheduler;
     private IotHubConnectionStatus state;
 
+    // When set, the send and receive work runs on this executor, which is shared with other clients, instead of on
+    // threads owned by this client. See ClientOptions.sharedWorkerExecutor
+    private final ScheduledExecutorService sharedWorkerExecutor;
+    private SharedExecutorWorker sharedSendWorker;
+    private SharedExecutorWorker sharedReceiveWorker;
+
 
     // This lock is used to keep calls to open/close/connection status changes synchronous.
     private final Object stateLock = new Object();
@@ -122,6 +129,7 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
         this.state = IotHubConnectionStatus.DISCONNECTED;
 
         this.transport = new IotHubTransport(config, this, isMultiplexing);
+        this.sharedWorkerExecutor = config.getSharedWorkerExecutor();
 
         this.sendPeriodInMilliseconds = sendPeriodInMilliseconds;
         this.receivePeriodInMilliseconds = receivePeriodInMilliseconds;
@@ -142,6 +150,7 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
         this.receivePeriodInMilliseconds = receivePeriodInMilliseconds;
         this.state = IotHubConnectionStatus.DISCONNECTED;
         this.transport = new IotHubTransport(hostName, protocol, sslContext, proxySettings, this, keepAliveInterval);
+        this.sharedWorkerExecutor = null;
     }
 
     /**
@@ -214,11 +223,22 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
         this.transport.setMaxNumberOfMessagesSentPerSendThread(maxNumberOfMessagesSentPerSendThread);
     }
 
+    void setOutboundQueueLimits(int maxMessageCount, long maxSizeInBytes, OutboundQueueOverflowPolicy overflowPolicy)
+    {
+        this.transport.setOutboundQueueLimits(maxMessageCount, maxSizeInBytes, overflowPolicy);
+    }
+
     /**
      * Handles logic common to all open functions.
      */
     private void startWorkerThreads()
     {
+        if (this.sharedWorkerExecutor != null)
+        {
+            this.startSharedWorkers();
+            return;
+        }
+
         this.sendTask = new IotHubSendTask(this.transport);
         this.receiveTask = new IotHubReceiveTask(this.transport);
 
@@ -243,8 +263,62 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
         this.state = IotHubConnectionStatus.CONNECTED;
     }
 
+    /**
+     * Run the send and receive work on the shared executor each time the transport signals that there is work to do,
+     * rather than on threads that wait for the work.
+     */
+    private void startSharedWorkers()
+    {
+        final IotHubTransport transport = this.transport;
+
+        this.sharedSendWorker = new SharedExecutorWorker(
+                "Send task",
+                () ->
+                {
+                    transport.sendMessages();
+                    transport.invokeCallbacks();
+                },
+                () -> transport.hasMessagesToSend() || transport.hasCallbacksToExecute(),
+                this.sharedWorkerExecutor,
+                this.sendPeriodInMilliseconds);
+
+        // HTTPS has no connection to receive messages on, so its receive work polls the service each period
+        final boolean pollForReceivedMessages = transport.getProtocol() == IotHubClientProtocol.HTTPS;
+        this.sharedReceiveWorker = new SharedExecutorWorker(
+                "Receive task",
+                () ->
+                {
+                    try
+                    {
+                        transport.handleMessage();
+                    }
+                    catch (DeviceClientException e)
+                    {
+                        log.warn("Receive task encountered exception while processing received messages", e);
+                    }
+                },
+                () -> pollForReceivedMessages || transport.hasReceivedMessagesToHandle(),
+                this.sharedWorkerExecutor,
+                this.receivePeriodInMilliseconds);
+
+        this.transport.setWorkListeners(this.sharedSendWorker::signal, this.sharedReceiveWorker::signal);
+
+        // Run both once right away, like the first execution of the dedicated worker threads
+        this.sharedSendWorker.signal();
+        this.sharedReceiveWorker.signal();
+
+        this.state = IotHubConnectionStatus.CONNECTED;
+    }
+
     private void stopWorkerThreads()
     {
+        if (this.sharedSendWorker != null)
+        {
+            this.transport.setWorkListeners(null, null);
+            this.sharedSendWorker.stop();
+            this.sharedReceiveWorker.stop();
+        }
+
         if (this.sendTaskScheduler != null)
         {
             this.sendTaskScheduler.shutdown();
@@ -311,7 +385,16 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
             message.setConnectionDeviceId(deviceId);
         }
 
-        transport.addMessage(message, callback, callbackContext, deviceId);
+        if (SharedExecutorWorker.isRunningWorkOnCurrentThread())
+        {
+            // Sent from a callback on a shared executor thread. Blocking it on a full queue could starve the send work
+            // that would make room, so the message is cancelled instead when there is no room for it
+            transport.addMessage(message, callback, callbackContext, deviceId, false);
+        }
+        else
+        {
+            transport.addMessage(message, callback, callbackContext, deviceId);
+        }
     }
 
     /**
@@ -340,6 +423,11 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
 
         this.receivePeriodInMilliseconds = newIntervalInMilliseconds;
 
+        if (this.sharedReceiveWorker != null)
+        {
+            this.sharedReceiveWorker.setPeriodInMilliseconds(newIntervalInMilliseconds);
+        }
+
         if (this.receiveTaskScheduler != null)
         {
             if (this.receiveTask == null)
@@ -384,6 +472,11 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
 
         this.sendPeriodInMilliseconds = newIntervalInMilliseconds;
 
+        if (this.sharedSendWorker != null)
+        {
+            this.sharedSendWorker.setPeriodInMilliseconds(newIntervalInMilliseconds);
+        }
+
         if (this.sendTaskScheduler != null)
         {
             if (this.sendTask == null)
@@ -424,6 +517,16 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
         return (this.state == IotHubConnectionStatus.CONNECTED || this.state == IotHubConnectionStatus.DISCONNECTED_RETRYING);
     }
 
+    /**
+     * Getter for the statistics of the received message dispatcher.
+     *
+     * @return a snapshot of the statistics of the received message dispatcher, or null if it is not enabled.
+     */
+    public ReceivedMessageDispatchStatistics getReceivedMessageDispatchStatistics()
+    {
+        return this.transport.getReceivedMessageDispatchStatistics();
+    }
+
     /**
      * Getter for the transport empty queue.
      * @return a boolean true if the transport queue is empty, or false if there is messages to send.
@@ -0,0 +1,224 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinMetadata;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The desired property callbacks that the user subscribed to, kept in a trie of property paths so that a desired
+ * properties patch is only matched against the subscriptions below the properties that it contains.
+ * <p>
+ * A path is either the name of a top level property, or the names of nested properties separated by dots, such as
+ * {@code config.sensors.interval}. A {@code *} in a path matches any single property name, so that
+ * {@code config.sensors.*} subscribes to every property directly below {@code config.sensors}. Property names can't
+ * contain dots, so paths are never ambiguous.
+ * </p>
+ * <p>
+ * The callbacks of a path are executed for every patch that contains the property at that path, with the path as the
+ * property key. A patch that removes or replaces a parent of the property, without the property itself, does not
+ * execute them.
+ * </p>
+ * <p>
+ * This class is not thread safe. {@link DeviceTwin} only uses it while holding its lock.
+ * </p>
+ */
+final class DesiredPropertySubscriptions
+{
+    private static final String PATH_SEPARATOR = ".";
+    private static final String WILDCARD = "*";
+
+    private static final class Node
+    {
+        private final Map<String, Node> children = new HashMap<>();
+        private Pair<PropertyCallBack<String, Object>, Object> propertyCallback;
+        private Pair<TwinPropertyCallBack, Object> twinPropertyCallback;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Subscribe a callback to a path, replacing the callback of the same type that was subscribed to it before.
+     *
+     * @param path the path of the properties to execute the callback for.
+     * @param callback the callback and its context.
+     */
+    void setPropertyCallback(String path, Pair<PropertyCallBack<String, Object>, Object> callback)
+    {
+        this.getOrCreateNode(path).propertyCallback = callback;
+    }
+
+    /**
+     * Subscribe a callback to a path, replacing the callback of the same type that was subscribed to it before.
+     *
+     * @param path the path of the properties to execute the callback for.
+     * @param callback the callback and its context.
+     */
+    void setTwinPropertyCallback(String path, Pair<TwinPropertyCallBack, Object> callback)
+    {
+        this.getOrCreateNode(path).twinPropertyCallback = callback;
+    }
+
+    /**
+     * @return the callback that is subscribed to exactly this path, or null if there is none.
+     */
+    Pair<PropertyCallBack<String, Object>, Object> getPropertyCallback(String path)
+    {
+        Node node = this.getNode(path);
+        return node == null ? null : node.propertyCallback;
+    }
+
+    /**
+     * @return the callback that is subscribed to exactly this path, or null if there is none.
+     */
+    Pair<TwinPropertyCallBack, Object> getTwinPropertyCallback(String path)
+    {
+        Node node = this.getNode(path);
+        return node == null ? null : node.twinPropertyCallback;
+    }
+
+    /**
+     * Execute the callbacks of the subscriptions that match a top level property of a desired properties patch or
+     * any of the properties nested in it.
+     *
+     * @param desiredProperties the patch.
+     * @param key the name of the top level property.
+     * @return true if at least one callback was executed.
+     */
+    boolean execute(TwinCollection desiredProperties, String key)
+    {
+        return execute(this.root, desiredProperties, key, key, desiredProperties.getVersionFinal());
+    }
+
+    private static boolean execute(Node parent, TwinCollection collection, String key, String path, Integer version)
+    {
+        boolean executed = false;
+
+        Node node = parent.children.get(key);
+        if (node != null)
+        {
+            executed = executeNode(node, collection, key, path, version);
+        }
+
+        Node wildcardNode = parent.children.get(WILDCARD);
+        if (wildcardNode != null)
+        {
+            executed |= executeNode(wildcardNode, collection, key, path, version);
+        }
+
+        return executed;
+    }
+
+    private static boolean executeNode(Node node, TwinCollection collection, String key, String path, Integer version)
+    {
+        Object value = collection.get(key);
+        boolean executed = false;
+
+        if (node.propertyCallback != null && node.propertyCallback.getKey() != null)
+        {
+            node.propertyCallback.getKey().PropertyCall(path, value, node.propertyCallback.getValue());
+            executed = true;
+        }
+
+        if (node.twinPropertyCallback != null && node.twinPropertyCallback.getKey() != null)
+        {
+            node.twinPropertyCallback.getKey().TwinPropertyCallBack(createProperty(collection, key, path, version), node.twinPropertyCallback.getValue());
+            executed = true;
+        }
+
+        if (!node.children.isEmpty() && value instanceof TwinCollection)
+        {
+            TwinCollection nestedCollection = (TwinCollection) value;
+            if (node.children.containsKey(WILDCARD) || nestedCollection.size() <= node.children.size())
+            {
+                for (String nestedKey : nestedCollection.keySet())
+                {
+                    executed |= execute(node, nestedCollection, nestedKey, path + PATH_SEPARATOR + nestedKey, version);
+                }
+            }
+            else
+            {
+                // Fewer subscriptions than properties at this level, so only look up the subscribed ones
+                for (String nestedKey : node.children.keySet())
+                {
+                    if (nestedCollection.containsKey(nestedKey))
+                    {
+                        executed |= execute(node, nestedCollection, nestedKey, path + PATH_SEPARATOR + nestedKey, version);
+                    }
+                }
+            }
+        }
+
+        return executed;
+    }
+
+    /**
+     * Create the property that the callbacks receive for a property of a desired properties patch.
+     *
+     * @param collection the collection that contains the property, which is the patch itself for a top level property.
+     * @param key the name of the property in the collection.
+     * @param path the path of the property, which is its key for a top level property.
+     * @param version the version of the patch.
+     * @return the property.
+     */
+    static Property createProperty(TwinCollection collection, String key, String path, Integer version)
+    {
+        TwinMetadata metadata = collection.getTwinMetadataFinal(key);
+        if (metadata == null)
+        {
+            return new Property(path, collection.get(key), version, false, null, null, null, null);
+        }
+
+        return new Property(
+                path, collection.get(key),
+                version,
+                false,
+                metadata.getLastUpdated(),
+                metadata.getLastUpdatedVersion(),
+                metadata.getLastUpdatedBy(),
+                metadata.getLastUpdatedByDigest());
+    }
+
+    private Node getNode(String path)
+    {
+        Node node = this.root;
+        for (String name : splitPath(path))
+        {
+            node = node.children.get(name);
+            if (node == null)
+            {
+                return null;
+            }
+        }
+
+        return node;
+    }
+
+    private Node getOrCreateNode(String path)
+    {
+        Node node = this.root;
+        for (String name : splitPath(path))
+        {
+            Node child = node.children.get(name);
+            if (child == null)
+            {
+                child = new Node();
+                node.children.put(name, child);
+            }
+
+            node = child;
+        }
+
+        return node;
+    }
+
+    private static String[] splitPath(String path)
+    {
+        // Keeps empty names, which no property has, so that malformed paths never match instead of matching too much
+        return path.split("\\" + PATH_SEPARATOR, -1);
+    }
+}
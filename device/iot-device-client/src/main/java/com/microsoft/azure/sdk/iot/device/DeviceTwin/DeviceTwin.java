@@ -12,11 +12,11 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentSkipListMap;
 
 import static com.microsoft.azure.sdk.iot.device.IotHubMessageResult.ABANDON;
 import static com.microsoft.azure.sdk.iot.device.IotHubMessageResult.COMPLETE;
@@ -30,6 +30,13 @@ public class DeviceTwin
 
     private final Object DEVICE_TWIN_LOCK = new Object();
 
+    // Null unless the client was configured to merge reported properties updates
+    private ReportedPropertiesCoalescer reportedPropertiesCoalescer;
+
+    // Null unless the client was configured to keep the twin properties in a file
+    private TwinCache twinCache;
+    private boolean isCachedTwinDelivered;
+
     /*
         Callback to respond to user on all of its status
      */
@@ -49,10 +56,9 @@ public class DeviceTwin
     private final TwinPropertiesCallback deviceTwinGenericTwinPropertiesChangeCallback;
 
     /*
-        Map of callbacks to call when a particular desired property changed
+        Callbacks to call when a particular desired property, or a property nested in it, changed
      */
-    private ConcurrentSkipListMap<String, Pair<PropertyCallBack<String, Object>, Object>> onDesiredPropertyChangeMap;
-    private ConcurrentSkipListMap<String, Pair<TwinPropertyCallBack, Object>> onDesiredTwinPropertyChangeMap;
+    private final DesiredPropertySubscriptions desiredPropertySubscriptions = new DesiredPropertySubscriptions();
 
     /*
         Callback invoked when a response to device twin operation is issued by iothub
@@ -91,6 +97,16 @@ public class DeviceTwin
                         if (iotHubStatus == IotHubStatusCode.OK)
                         {
                             TwinState twinState = TwinState.createFromPropertiesJson(new String(dtMessage.getBytes(), Message.DEFAULT_IOTHUB_MESSAGE_CHARSET));
+                            if (twinCache != null)
+                            {
+                                // Only the properties whose version differs from the cached ones are new to the callbacks
+                                twinState = twinCache.reconcile(twinState);
+                                if (twinState == null)
+                                {
+                                    break;
+                                }
+                            }
+
                             if (twinState.getDesiredProperty() != null)
                             {
                                 OnDesiredPropertyChanged(twinState.getDesiredProperty());
@@ -118,7 +134,8 @@ public class DeviceTwin
                         isSubscribed = true;
                         TwinState twinState = TwinState.createFromDesiredPropertyJson(new String(dtMessage.getBytes(), Message.DEFAULT_IOTHUB_MESSAGE_CHARSET));
 
-                        if (twinState.getDesiredProperty() != null)
+                        if (twinState.getDesiredProperty() != null
+                            && (twinCache == null || twinCache.applyDesiredPropertiesPatch(twinState.getDesiredProperty())))
                         {
                             OnDesiredPropertyChanged(twinState.getDesiredProperty());
                         }
@@ -148,10 +165,9 @@ public class DeviceTwin
 
                 for (String propertyKey : desiredPropertyMap.keySet())
                 {
-                    Property property = this.getDesiredProperty(desiredPropertyMap, propertyKey);
-
-                    if (!reportPropertyCallback(property))
+                    if (!this.desiredPropertySubscriptions.execute(desiredPropertyMap, propertyKey))
                     {
+                        Property property = DesiredPropertySubscriptions.createProperty(desiredPropertyMap, propertyKey, propertyKey, desiredPropertyMap.getVersionFinal());
                         if (reportDeviceTwinGenericPropertyCallback(property))
                         {
                             log.info("The user subscribed desired property callback was triggered.");
@@ -184,32 +200,6 @@ public class DeviceTwin
         }
     }
 
-    private Property getDesiredProperty(TwinCollection twinCollection, String key)
-    {
-        Object value = twinCollection.get(key);
-        Integer propertyVersion = twinCollection.getVersionFinal();
-        TwinMetadata metadata = twinCollection.getTwinMetadataFinal(key);
-        Date lastUpdated = null;
-        Integer lastUpdatedVersion = null;
-        String lastUpdatedBy = null;
-        String lastUpdatedByDigest = null;
-        if (metadata != null)
-        {
-            lastUpdated = metadata.getLastUpdated();
-            lastUpdatedVersion = metadata.getLastUpdatedVersion();
-            lastUpdatedBy = metadata.getLastUpdatedBy();
-            lastUpdatedByDigest = metadata.getLastUpdatedByDigest();
-        }
-        return new Property(
-                key, value,
-                propertyVersion,
-                false,
-                lastUpdated,
-                lastUpdatedVersion,
-                lastUpdatedBy,
-                lastUpdatedByDigest);
-    }
-
     private Property getReportedProperty(TwinCollection twinCollection, String key)
     {
         Object value = twinCollection.get(key);
@@ -296,16 +286,41 @@ public class DeviceTwin
 
         this.deviceIO = client;
         this.config = config;
-        this.config.setDeviceTwinMessageCallback(new deviceTwinResponseMessageCallback(), null);
         this.deviceTwinStatusCallback = deviceTwinCallback;
         this.deviceTwinStatusCallbackContext = deviceTwinCallbackContext;
         this.deviceTwinGenericPropertyChangeCallbackContext = genericPropertyCallbackContext;
+
+        if (config.getTwinCacheFilePath() != null)
+        {
+            synchronized (DEVICE_TWIN_LOCK)
+            {
+                this.twinCache = new TwinCache(Paths.get(config.getTwinCacheFilePath()));
+                this.twinCache.load();
+            }
+        }
+
+        // Registered once the twin cache is loaded, since every response is reconciled with it
+        this.config.setDeviceTwinMessageCallback(new deviceTwinResponseMessageCallback(), null);
+
+        if (config.getReportedPropertiesCoalescingIntervalMillis() > 0)
+        {
+            this.reportedPropertiesCoalescer = new ReportedPropertiesCoalescer(
+                config.getReportedPropertiesCoalescingIntervalMillis(),
+                config.getReportedPropertiesCoalescingMaxPropertyCount(),
+                config.getSharedWorkerExecutor(),
+                (reportedProperties, callback, callbackContext) -> sendReportedProperties(reportedProperties, null, null, null, callback, callbackContext));
+        }
     }
 
     public void getDeviceTwin()
     {
         checkSubscription();
 
+        if (this.twinCache != null)
+        {
+            this.deliverCachedTwin();
+        }
+
         IotHubTransportMessage getTwinRequestMessage = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_TWIN);
         getTwinRequestMessage.setRequestId(UUID.randomUUID().toString());
         getTwinRequestMessage.setCorrelationId(getTwinRequestMessage.getRequestId());
@@ -340,7 +355,37 @@ public class DeviceTwin
 
             reportedPropertiesMap.putFinal(p.getKey(), p.getValue());
         }
-        String serializedReportedProperties = reportedPropertiesMap.toJsonElement().toString();
+
+        if (this.reportedPropertiesCoalescer != null)
+        {
+            if (version == null && correlatingMessageCallback == null)
+            {
+                this.reportedPropertiesCoalescer.add(reportedPropertiesMap, reportedPropertiesCallback, callbackContext);
+                return;
+            }
+
+            // Keep this update behind the ones that are waiting to be merged
+            this.reportedPropertiesCoalescer.flush();
+        }
+
+        this.sendReportedProperties(reportedPropertiesMap, version, correlatingMessageCallback, correlatingMessageCallbackContext, reportedPropertiesCallback, callbackContext);
+    }
+
+    /**
+     * Send the reported properties updates that are waiting to be merged with later updates right away. Does nothing
+     * unless the client was configured to merge reported properties updates.
+     */
+    public void flushReportedProperties()
+    {
+        if (this.reportedPropertiesCoalescer != null)
+        {
+            this.reportedPropertiesCoalescer.flush();
+        }
+    }
+
+    private void sendReportedProperties(TwinCollection reportedPropertiesMap, Integer version, CorrelatingMessageCallback correlatingMessageCallback, Object correlatingMessageCallbackContext, IotHubEventCallback reportedPropertiesCallback, Object callbackContext)
+    {
+        String serializedReportedProperties = reportedPropertiesMap.toJson();
 
         if (serializedReportedProperties == null)
         {
@@ -370,16 +415,14 @@ public class DeviceTwin
 
     public void subscribeDesiredPropertiesNotification(Map<Property, Pair<PropertyCallBack<String, Object>, Object>> onDesiredPropertyChange)
     {
-        if (onDesiredPropertyChangeMap == null)
-        {
-            onDesiredPropertyChangeMap = new ConcurrentSkipListMap<>();
-        }
-
         if (onDesiredPropertyChange != null)
         {
-            for (Map.Entry<Property, Pair<PropertyCallBack<String, Object>, Object>> desired : onDesiredPropertyChange.entrySet())
+            synchronized (DEVICE_TWIN_LOCK)
             {
-                onDesiredPropertyChangeMap.put(desired.getKey().getKey(), desired.getValue());
+                for (Map.Entry<Property, Pair<PropertyCallBack<String, Object>, Object>> desired : onDesiredPropertyChange.entrySet())
+                {
+                    this.desiredPropertySubscriptions.setPropertyCallback(desired.getKey().getKey(), desired.getValue());
+                }
             }
         }
 
@@ -388,57 +431,60 @@ public class DeviceTwin
 
     public void subscribeDesiredPropertiesTwinPropertyNotification(Map<Property, Pair<TwinPropertyCallBack, Object>> onDesiredPropertyChange)
     {
-        if (onDesiredTwinPropertyChangeMap == null)
-        {
-            onDesiredTwinPropertyChangeMap = new ConcurrentSkipListMap<>();
-        }
-
         if (onDesiredPropertyChange != null)
         {
-            for (Map.Entry<Property, Pair<TwinPropertyCallBack, Object>> desired : onDesiredPropertyChange.entrySet())
+            synchronized (DEVICE_TWIN_LOCK)
             {
-                onDesiredTwinPropertyChangeMap.put(desired.getKey().getKey(), desired.getValue());
+                for (Map.Entry<Property, Pair<TwinPropertyCallBack, Object>> desired : onDesiredPropertyChange.entrySet())
+                {
+                    this.desiredPropertySubscriptions.setTwinPropertyCallback(desired.getKey().getKey(), desired.getValue());
+                }
             }
         }
 
         checkSubscription();
     }
 
-    private void checkSubscription()
+    /**
+     * Execute the property callbacks with the cached twin properties, the first time that the twin is requested.
+     */
+    private void deliverCachedTwin()
     {
-        if (!isSubscribed)
+        synchronized (DEVICE_TWIN_LOCK)
         {
-            IotHubTransportMessage desiredPropertiesNotificationRequest = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_TWIN);
-            desiredPropertiesNotificationRequest.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST);
-            this.deviceIO.sendEventAsync(desiredPropertiesNotificationRequest, new deviceTwinRequestMessageCallback(), null, this.config.getDeviceId());
-        }
-    }
+            if (this.isCachedTwinDelivered)
+            {
+                return;
+            }
 
-    private boolean reportPropertyCallback(Property property)
-    {
-        boolean reported = false;
+            this.isCachedTwinDelivered = true;
+            TwinState cachedTwinState = this.twinCache.getSnapshot();
+            if (cachedTwinState == null)
+            {
+                return;
+            }
 
-        if (onDesiredPropertyChangeMap != null && onDesiredPropertyChangeMap.containsKey(property.getKey()))
-        {
-            Pair<PropertyCallBack<String, Object>, Object> callBackObjectPair = onDesiredPropertyChangeMap.get(property.getKey());
-            if (callBackObjectPair != null && callBackObjectPair.getKey() != null)
+            log.debug("Executing twin callbacks with the cached twin properties");
+            if (cachedTwinState.getDesiredProperty() != null)
             {
-                callBackObjectPair.getKey().PropertyCall(property.getKey(), property.getValue(), callBackObjectPair.getValue());
-                reported = true;
+                OnDesiredPropertyChanged(cachedTwinState.getDesiredProperty());
             }
-        }
 
-        if (onDesiredTwinPropertyChangeMap != null && onDesiredTwinPropertyChangeMap.containsKey(property.getKey()))
-        {
-            Pair<TwinPropertyCallBack, Object> callBackObjectPair = onDesiredTwinPropertyChangeMap.get(property.getKey());
-            if (callBackObjectPair != null && callBackObjectPair.getKey() != null)
+            if (cachedTwinState.getReportedProperty() != null)
             {
-                callBackObjectPair.getKey().TwinPropertyCallBack(property, callBackObjectPair.getValue());
-                reported = true;
+                OnReportedPropertyChanged(cachedTwinState.getReportedProperty());
             }
         }
+    }
 
-        return reported;
+    private void checkSubscription()
+    {
+        if (!isSubscribed)
+        {
+            IotHubTransportMessage desiredPropertiesNotificationRequest = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_TWIN);
+            desiredPropertiesNotificationRequest.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST);
+            this.deviceIO.sendEventAsync(desiredPropertiesNotificationRequest, new deviceTwinRequestMessageCallback(), null, this.config.getDeviceId());
+        }
     }
 
     // Public API limits us to taking a generic PropertyCallback<Type1, Type2> when it probably should have been
@@ -0,0 +1,256 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges the reported property patches that are sent within a flush interval of each other into a single patch, so
+ * that properties which are updated many times per second don't cost one request per update.
+ * <p>
+ * A property that is set by more than one of the merged patches takes the value of the latest one, and values that
+ * are maps in both patches are merged key by key in the same way. A map can't be merged into a pending value that is
+ * not a map, such as an explicit null, since the service would merge it into the value that the property had before
+ * instead of replacing it, so the pending patch is sent first in that case. The merged patch is sent once the flush
+ * interval has passed since the first patch that was merged into it, or as soon as it holds the maximum number of
+ * properties. The callbacks of all of the merged patches are then executed with the status of the merged patch, or
+ * with {@link IotHubStatusCode#ERROR} if it could not be sent.
+ * </p>
+ */
+@Slf4j
+final class ReportedPropertiesCoalescer
+{
+    /**
+     * Sends a reported property patch to the service.
+     */
+    interface Sender
+    {
+        void send(TwinCollection reportedProperties, IotHubEventCallback callback, Object callbackContext);
+    }
+
+    private static final int TIMER_KEEP_ALIVE_SECONDS = 1;
+
+    private final Object lock = new Object();
+
+    private final long flushIntervalMillis;
+    private final int maxPendingPropertyCount;
+    private final ScheduledExecutorService timer;
+    private final Sender sender;
+
+    // Guarded by lock. The patch is null when nothing is waiting to be sent.
+    private TwinCollection pendingReportedProperties;
+    private List<Pair<IotHubEventCallback, Object>> pendingCallbacks;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * @param flushIntervalMillis the maximum amount of time that a patch waits for other patches to be merged with.
+     * @param maxPendingPropertyCount the number of top level properties that causes the merged patch to be sent
+     * right away, or 0 to only send it once the flush interval has passed.
+     * @param timer the executor to schedule flushes on, or null to schedule them on a thread of this coalescer, which
+     * exits whenever no flush is scheduled.
+     * @param sender sends the merged patches.
+     */
+    ReportedPropertiesCoalescer(long flushIntervalMillis, int maxPendingPropertyCount, ScheduledExecutorService timer, Sender sender)
+    {
+        if (flushIntervalMillis <= 0)
+        {
+            throw new IllegalArgumentException("Flush interval must be greater than 0");
+        }
+
+        if (maxPendingPropertyCount < 0)
+        {
+            throw new IllegalArgumentException("Maximum pending property count cannot be negative");
+        }
+
+        if (sender == null)
+        {
+            throw new IllegalArgumentException("Sender cannot be null");
+        }
+
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingPropertyCount = maxPendingPropertyCount;
+        this.sender = sender;
+
+        if (timer != null)
+        {
+            this.timer = timer;
+        }
+        else
+        {
+            ScheduledThreadPoolExecutor ownTimer = new ScheduledThreadPoolExecutor(1, runnable ->
+            {
+                Thread thread = new Thread(runnable, "ReportedPropertiesCoalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ownTimer.setKeepAliveTime(TIMER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            ownTimer.allowCoreThreadTimeOut(true);
+            ownTimer.setRemoveOnCancelPolicy(true);
+            this.timer = ownTimer;
+        }
+    }
+
+    /**
+     * Merge a patch into the pending patch.
+     *
+     * @param reportedProperties the patch to merge. It is not modified.
+     * @param callback the callback to execute once the merged patch was sent. May be null.
+     * @param callbackContext the context to execute the callback with.
+     */
+    void add(TwinCollection reportedProperties, IotHubEventCallback callback, Object callbackContext)
+    {
+        List<Pair<IotHubEventCallback, Object>> failedCallbacks = new ArrayList<>();
+        synchronized (this.lock)
+        {
+            if (this.pendingReportedProperties != null && isReplacedByMap(this.pendingReportedProperties, reportedProperties))
+            {
+                failedCallbacks.addAll(this.sendPendingPatch());
+            }
+
+            if (this.pendingReportedProperties == null)
+            {
+                this.pendingReportedProperties = new TwinCollection();
+                this.pendingCallbacks = new ArrayList<>();
+                this.scheduledFlush = this.timer.schedule(this::flush, this.flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+
+            for (Map.Entry<String, Object> property : reportedProperties.entrySet())
+            {
+                merge(this.pendingReportedProperties, property.getKey(), property.getValue());
+            }
+
+            if (callback != null)
+            {
+                this.pendingCallbacks.add(new Pair<>(callback, callbackContext));
+            }
+
+            if (this.maxPendingPropertyCount > 0 && this.pendingReportedProperties.size() >= this.maxPendingPropertyCount)
+            {
+                failedCallbacks.addAll(this.sendPendingPatch());
+            }
+        }
+
+        executeCallbacks(failedCallbacks, IotHubStatusCode.ERROR);
+    }
+
+    /**
+     * Send the pending patch right away, if there is one.
+     */
+    void flush()
+    {
+        List<Pair<IotHubEventCallback, Object>> failedCallbacks;
+        synchronized (this.lock)
+        {
+            failedCallbacks = this.sendPendingPatch();
+        }
+
+        executeCallbacks(failedCallbacks, IotHubStatusCode.ERROR);
+    }
+
+    /**
+     * Send the pending patch, if there is one. Must be called while holding the lock.
+     *
+     * @return the callbacks of the pending patch if it could not be sent, which the caller must execute with an error
+     * once it released the lock, or an empty list.
+     */
+    private List<Pair<IotHubEventCallback, Object>> sendPendingPatch()
+    {
+        if (this.pendingReportedProperties == null)
+        {
+            return Collections.emptyList();
+        }
+
+        TwinCollection reportedProperties = this.pendingReportedProperties;
+        final List<Pair<IotHubEventCallback, Object>> callbacks = this.pendingCallbacks;
+        this.pendingReportedProperties = null;
+        this.pendingCallbacks = null;
+        this.scheduledFlush.cancel(false);
+        this.scheduledFlush = null;
+
+        log.trace("Sending {} reported properties merged from {} patches", reportedProperties.size(), callbacks.size());
+
+        try
+        {
+            // Sent while holding the lock so that merged patches are queued in the order that they were flushed in
+            this.sender.send(reportedProperties, (responseStatus, callbackContext) -> executeCallbacks(callbacks, responseStatus), null);
+        }
+        catch (RuntimeException e)
+        {
+            // Nobody else would ever hear of this failure when the patch is sent by the timer
+            log.warn("Failed to send {} merged reported properties, executing their callbacks with an error", reportedProperties.size(), e);
+            return callbacks;
+        }
+
+        return Collections.emptyList();
+    }
+
+    private static void executeCallbacks(List<Pair<IotHubEventCallback, Object>> callbacks, IotHubStatusCode responseStatus)
+    {
+        for (Pair<IotHubEventCallback, Object> callback : callbacks)
+        {
+            try
+            {
+                callback.getKey().execute(responseStatus, callback.getValue());
+            }
+            catch (Exception e)
+            {
+                log.warn("Exception thrown while executing the callback of a merged reported properties patch", e);
+            }
+        }
+    }
+
+    /**
+     * @return true if the patch sets a property that has a pending value which is not a map to a map, at any level.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean isReplacedByMap(TwinCollection pending, Map<String, Object> patch)
+    {
+        for (Map.Entry<String, Object> property : patch.entrySet())
+        {
+            if (!(property.getValue() instanceof Map) || !pending.containsKey(property.getKey()))
+            {
+                continue;
+            }
+
+            Object pendingValue = pending.get(property.getKey());
+            if (!(pendingValue instanceof TwinCollection) || isReplacedByMap((TwinCollection) pendingValue, (Map<String, Object>) property.getValue()))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void merge(TwinCollection target, String key, Object value)
+    {
+        Object existingValue = target.get(key);
+        if (existingValue instanceof TwinCollection && value instanceof Map)
+        {
+            // putFinal copies every map that it is given into a TwinCollection, so this one belongs to the pending patch
+            TwinCollection existingCollection = (TwinCollection) existingValue;
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet())
+            {
+                merge(existingCollection, entry.getKey(), entry.getValue());
+            }
+        }
+        else
+        {
+            target.putFinal(key, value);
+        }
+    }
+}
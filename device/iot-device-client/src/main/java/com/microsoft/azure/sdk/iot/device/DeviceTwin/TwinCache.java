@@ -0,0 +1,331 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * A snapshot of the desired and reported properties of a twin, kept in a file so that a restarted client can execute
+ * its property callbacks before the twin has been downloaded from the service.
+ * <p>
+ * The file holds the same json as the properties of a twin that the service sends, with the version of each of the
+ * desired and reported properties, but without their metadata. It is replaced atomically each time that the snapshot
+ * changes, so it is never left half written. A file that can't be read or parsed is ignored, and the snapshot then
+ * starts out empty.
+ * </p>
+ * <p>
+ * This class is not thread safe. {@link DeviceTwin} only uses it while holding its lock.
+ * </p>
+ */
+@Slf4j
+final class TwinCache
+{
+    private static final String DESIRED_PROPERTIES_TAG = "desired";
+    private static final String REPORTED_PROPERTIES_TAG = "reported";
+    private static final String VERSION_TAG = "$version";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private final Path file;
+
+    // Null until the properties are loaded from the file or received from the service
+    private TwinCollection desiredProperties;
+    private Integer desiredVersion;
+    private TwinCollection reportedProperties;
+    private Integer reportedVersion;
+
+    // Whether the desired properties were received from the service since this cache was created. Until then, the
+    // snapshot may be missing patches that were sent while the client was not connected, so no patch can be applied to it
+    private boolean isDesiredPropertiesReconciled;
+
+    TwinCache(Path file)
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("Twin cache file cannot be null");
+        }
+
+        this.file = file;
+    }
+
+    /**
+     * Load the snapshot from the file.
+     *
+     * @return true if a snapshot was loaded.
+     */
+    boolean load()
+    {
+        String json;
+        try
+        {
+            json = new String(Files.readAllBytes(this.file), StandardCharsets.UTF_8);
+        }
+        catch (NoSuchFileException e)
+        {
+            log.debug("No twin cache file found at {}", this.file);
+            return false;
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to read the twin cache file at {}, ignoring it", this.file, e);
+            return false;
+        }
+
+        TwinState twinState;
+        try
+        {
+            twinState = TwinState.createFromPropertiesJson(json);
+        }
+        catch (JsonParseException | IllegalArgumentException e)
+        {
+            log.warn("Failed to parse the twin cache file at {}, ignoring it", this.file, e);
+            return false;
+        }
+
+        this.setDesiredProperties(twinState.getDesiredProperty());
+        this.setReportedProperties(twinState.getReportedProperty());
+        log.debug("Loaded twin cache file from {} with desired properties version {} and reported properties version {}", this.file, this.desiredVersion, this.reportedVersion);
+        return this.desiredProperties != null || this.reportedProperties != null;
+    }
+
+    /**
+     * @return the snapshot, with the version of the desired and reported properties, or null if it is empty.
+     */
+    TwinState getSnapshot()
+    {
+        if (this.desiredProperties == null && this.reportedProperties == null)
+        {
+            return null;
+        }
+
+        // Parsed back from json so that the collections carry their version, which can't be set directly
+        return TwinState.createFromPropertiesJson(this.toJson());
+    }
+
+    /**
+     * Replace the snapshot with the full twin downloaded from the service.
+     *
+     * @param twinState the properties of the twin. Either of them may be null if the service didn't send them. A top
+     * level desired property that is in the snapshot, but not in the twin, is added to the desired properties of the
+     * twin with a null value, in the same way that a patch signals that a property was removed.
+     * @return the properties whose version differs from the version in the snapshot before it was replaced, which are
+     * the ones that the callbacks have not seen yet. Null if neither of them differs.
+     */
+    TwinState reconcile(TwinState twinState)
+    {
+        TwinCollection changedDesiredProperties = null;
+        TwinCollection changedReportedProperties = null;
+
+        TwinCollection receivedDesiredProperties = twinState.getDesiredProperty();
+        if (receivedDesiredProperties != null)
+        {
+            TwinCollection cachedDesiredProperties = this.desiredProperties;
+            boolean isChanged = isDifferentVersion(receivedDesiredProperties.getVersionFinal(), this.desiredVersion);
+            this.setDesiredProperties(receivedDesiredProperties);
+            this.isDesiredPropertiesReconciled = true;
+
+            if (isChanged)
+            {
+                if (cachedDesiredProperties != null)
+                {
+                    for (String key : cachedDesiredProperties.keySet())
+                    {
+                        if (!receivedDesiredProperties.containsKey(key))
+                        {
+                            receivedDesiredProperties.putFinal(key, null);
+                        }
+                    }
+                }
+
+                changedDesiredProperties = receivedDesiredProperties;
+            }
+        }
+
+        TwinCollection receivedReportedProperties = twinState.getReportedProperty();
+        if (receivedReportedProperties != null)
+        {
+            if (isDifferentVersion(receivedReportedProperties.getVersionFinal(), this.reportedVersion))
+            {
+                changedReportedProperties = receivedReportedProperties;
+            }
+
+            this.setReportedProperties(receivedReportedProperties);
+        }
+
+        if (changedDesiredProperties == null && changedReportedProperties == null)
+        {
+            log.debug("Twin received from the service has the same versions as the twin cache");
+            return null;
+        }
+
+        this.save();
+        return new TwinState(null, changedDesiredProperties, changedReportedProperties);
+    }
+
+    /**
+     * Apply a desired properties patch that the service sent.
+     *
+     * <p>
+     * A patch that arrives before the desired properties were received from the service is not applied, and its
+     * version is not recorded, since the snapshot it would be applied to may be missing earlier patches. Recording its
+     * version would then make {@link #reconcile(TwinState)} treat the full desired properties as already seen.
+     * </p>
+     *
+     * @param patch the desired properties that changed. A property with a null value was removed.
+     * @return false if the snapshot already has the version of the patch or a later one, in which case the callbacks
+     * have already seen it. True otherwise, even if the patch was not applied.
+     */
+    boolean applyDesiredPropertiesPatch(TwinCollection patch)
+    {
+        Integer patchVersion = patch.getVersionFinal();
+        if (patchVersion != null && this.desiredVersion != null && patchVersion <= this.desiredVersion)
+        {
+            log.debug("Ignoring desired properties patch with version {} since the twin cache has version {}", patchVersion, this.desiredVersion);
+            return false;
+        }
+
+        if (!this.isDesiredPropertiesReconciled)
+        {
+            log.debug("Not applying desired properties patch with version {} to the twin cache until the twin has been received from the service", patchVersion);
+            return true;
+        }
+
+        if (this.desiredProperties == null)
+        {
+            this.desiredProperties = new TwinCollection();
+        }
+
+        for (Map.Entry<String, Object> property : patch.entrySet())
+        {
+            merge(this.desiredProperties, property.getKey(), property.getValue());
+        }
+
+        if (patchVersion != null)
+        {
+            this.desiredVersion = patchVersion;
+        }
+
+        this.save();
+        return true;
+    }
+
+    private void setDesiredProperties(TwinCollection desiredProperties)
+    {
+        this.desiredProperties = desiredProperties == null ? null : new TwinCollection(desiredProperties);
+        this.desiredVersion = desiredProperties == null ? null : desiredProperties.getVersionFinal();
+    }
+
+    private void setReportedProperties(TwinCollection reportedProperties)
+    {
+        this.reportedProperties = reportedProperties == null ? null : new TwinCollection(reportedProperties);
+        this.reportedVersion = reportedProperties == null ? null : reportedProperties.getVersionFinal();
+    }
+
+    private static boolean isDifferentVersion(Integer receivedVersion, Integer cachedVersion)
+    {
+        // A twin that was deleted and created again starts over at a lower version, which the service is right about
+        return receivedVersion == null || !receivedVersion.equals(cachedVersion);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void merge(TwinCollection target, String key, Object value)
+    {
+        Object existingValue = target.get(key);
+        if (value == null)
+        {
+            target.remove(key);
+        }
+        else if (existingValue instanceof TwinCollection && value instanceof Map)
+        {
+            TwinCollection existingCollection = (TwinCollection) existingValue;
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet())
+            {
+                merge(existingCollection, entry.getKey(), entry.getValue());
+            }
+        }
+        else
+        {
+            target.putFinal(key, value);
+        }
+    }
+
+    private String toJson()
+    {
+        JsonObject json = new JsonObject();
+        if (this.desiredProperties != null)
+        {
+            json.add(DESIRED_PROPERTIES_TAG, toJsonElement(this.desiredProperties, this.desiredVersion));
+        }
+
+        if (this.reportedProperties != null)
+        {
+            json.add(REPORTED_PROPERTIES_TAG, toJsonElement(this.reportedProperties, this.reportedVersion));
+        }
+
+        return json.toString();
+    }
+
+    private static JsonElement toJsonElement(TwinCollection properties, Integer version)
+    {
+        JsonObject json = properties.toJsonElement().getAsJsonObject();
+        if (version != null)
+        {
+            json.addProperty(VERSION_TAG, version);
+        }
+
+        return json;
+    }
+
+    /**
+     * Write the snapshot to a temporary file next to the cache file, then move it over the cache file.
+     */
+    private void save()
+    {
+        Path temporaryFile = this.file.resolveSibling(this.file.getFileName() + TEMPORARY_FILE_SUFFIX);
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(this.toJson().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+
+                // Otherwise a power loss shortly after the move could leave an empty file behind on some file systems
+                channel.force(true);
+            }
+
+            try
+            {
+                Files.move(temporaryFile, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporaryFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e)
+        {
+            // The cache only saves time on the next start, so failing to write it must not fail the twin operation
+            log.warn("Failed to write the twin cache file at {}", this.file, e);
+        }
+    }
+}
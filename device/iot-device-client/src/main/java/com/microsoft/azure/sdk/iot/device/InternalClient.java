@@ -8,6 +8,7 @@ package com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.ReceivedMessageDispatchStatistics;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import lombok.extern.slf4j.Slf4j;
@@ -211,6 +212,12 @@ public class InternalClient
      */
     public void close() throws IOException
     {
+        if (this.twin != null)
+        {
+            // Reported properties updates that are waiting to be merged with later ones would otherwise be lost
+            this.twin.flushReportedProperties();
+        }
+
         //noinspection StatementWithEmptyBody
         while (!this.deviceIO.isEmpty())
         {
@@ -256,9 +263,10 @@ public class InternalClient
 
     /**
      * Asynchronously sends a batch of messages to the IoT hub
-     * HTTPS messages will be sent in a single batch and MQTT and AMQP messages will be sent individually.
-     * In case of HTTPS, This API call is an all-or-nothing single HTTPS message and the callback will be triggered only once.
-     * Maximum payload size for HTTPS is 255KB
+     * HTTPS and AMQP messages will be sent in a single batch, and MQTT messages will be published back to back without
+     * waiting for each other to be acknowledged. For all protocols, the callback will be triggered only once, after all
+     * the messages in the batch have been acknowledged.
+     * In case of HTTPS and AMQP, this API call is all-or-nothing. Maximum payload size of a batch is 255KB
      *
      * @param messages the list of message to be sent.
      * @param callback the callback to be invoked when a response is received.
@@ -280,6 +288,7 @@ public class InternalClient
         }
 
         Message message = new BatchMessage(messages);
+        message.setConnectionDeviceId(this.config.getDeviceId());
 
         deviceIO.sendEventAsync(message, callback, callbackContext, this.config.getDeviceId());
     }
@@ -299,6 +308,11 @@ public class InternalClient
      * See <a href="https://docs.microsoft.com/en-us/rest/api/iothub/service/twin/replacedevicetwin">PUT</a> and
      * <a href="https://docs.microsoft.com/en-us/rest/api/iothub/service/twin/updatedevicetwin">PATCH</a>
      *
+     * The key of each property may also be the path of a nested property, with the names along the path separated by
+     * dots, such as {@code config.sensors.interval}. A {@code *} in a path matches any name, so {@code config.sensors.*}
+     * subscribes to every property directly below {@code config.sensors}. The callback then receives the path as the key.
+     * Desired properties that no subscription matches are passed to the generic desired property callback.
+     *
      * @param onDesiredPropertyChange the Map for desired properties and their corresponding callback and context. Can be {@code null}.
      *
      * @throws IOException if called when client is not opened or called before starting twin.
@@ -327,6 +341,9 @@ public class InternalClient
     /**
      * Subscribes to desired properties
      *
+     * The key of each property may also be the path of a nested property, or include wildcards, as described in
+     * {@link #subscribeToDesiredProperties(Map)}.
+     *
      * @param onDesiredPropertyChange the Map for desired properties and their corresponding callback and context. Can be {@code null}.
      *
      * @throws IOException if called when client is not opened or called before starting twin.
@@ -474,6 +491,19 @@ public class InternalClient
         return this.config.getProductInfo();
     }
 
+    /**
+     * Get the statistics of the threads that execute the callbacks of received messages, which are only used if
+     * {@link ClientOptions#setReceivedMessageDispatchThreadCount(int)} was set to a value greater than 0.
+     *
+     * @return a snapshot of the number of queued and handled received messages and of the time spent handling them
+     * since the client was last opened, or null if the callbacks of received messages are executed on the receive
+     * thread of the client.
+     */
+    public ReceivedMessageDispatchStatistics getReceivedMessageDispatchStatistics()
+    {
+        return this.deviceIO == null ? null : this.deviceIO.getReceivedMessageDispatchStatistics();
+    }
+
     /**
      * Getter for the device client config.
      *
@@ -9,9 +9,13 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
 import java.util.*;
 
 @Slf4j
@@ -21,11 +25,19 @@ public class Message
 
     public static final Charset DEFAULT_IOTHUB_MESSAGE_CHARSET = StandardCharsets.UTF_8;
 
+    // The SimpleDateFormat pattern that the creation time used to be formatted with, before the '_' was replaced by 'T'.
+    // Note that SSSSSSS is the number of milliseconds padded to 7 digits, not the fraction of the second.
     private static final String DATE_TIME_FORMAT = "yyyy-MM-dd_HH:mm:ss.SSSSSSS";
 
-    private static final String SECURITY_CLIENT_JSON_ENCODING = "application/json";
+    // Produces the same strings as DATE_TIME_FORMAT did, but is thread safe so it can be shared by all messages
+    private static final DateTimeFormatter CREATION_TIME_UTC_FORMATTER = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd'T'HH:mm:ss.")
+            .appendValue(ChronoField.MILLI_OF_SECOND, 7)
+            .appendLiteral('Z')
+            .toFormatter(Locale.ROOT)
+            .withZone(ZoneOffset.UTC);
 
-    private static final String UTC_TIMEZONE = "UTC";
+    private static final String SECURITY_CLIENT_JSON_ENCODING = "application/json";
 
     // ----- Data Fields -----
 
@@ -91,10 +103,21 @@ public class Message
     private String deliveryAcknowledgement;
 
     /**
-     * User-defined properties.
+     * User-defined properties, in the order that they were first set.
      */
     private ArrayList<MessageProperty> properties;
 
+    /**
+     * Read only view of {@link #properties}, created once so that iterating over the properties doesn't allocate.
+     */
+    private List<MessageProperty> propertiesView;
+
+    /**
+     * Index into {@link #properties} by lower case property name, since property names are case insensitive. Only
+     * created once the first property is set.
+     */
+    private Map<String, Integer> propertyIndexes;
+
     /**
      * The message body
      */
@@ -108,6 +131,9 @@ public class Message
 
     private Date creationTimeUTC;
 
+    // The last formatted creation time. Its time is compared on each call since the Date itself is mutable.
+    private FormattedCreationTime formattedCreationTimeUTC;
+
     /**
      * Security Client flag
      */
@@ -160,6 +186,36 @@ public class Message
         this.body = body;
     }
 
+    /**
+     * Constructor. The remaining bytes of the provided buffer become the body of the message. The buffer's position
+     * and limit are not modified.
+     * <p>
+     * If the buffer is a writable heap buffer whose remaining bytes span its entire backing array, the message uses
+     * that array directly instead of copying it, just like {@link #Message(byte[])} does. In that case the buffer's
+     * content must not be modified after this message is created. Any other buffer is copied once.
+     * </p>
+     * @param body The body of the new Message instance.
+     */
+    public Message(ByteBuffer body)
+    {
+        if (body == null)
+        {
+            throw new IllegalArgumentException("Message body cannot be 'null'.");
+        }
+
+        initialize();
+
+        if (body.hasArray() && body.arrayOffset() == 0 && body.position() == 0 && body.remaining() == body.array().length)
+        {
+            this.body = body.array();
+        }
+        else
+        {
+            this.body = new byte[body.remaining()];
+            body.duplicate().get(this.body);
+        }
+    }
+
     /**
      * Constructor.
      * @param body The body of the new Message instance. It is internally serialized to a byte array using UTF-8 encoding.
@@ -206,6 +262,39 @@ public class Message
         return bodyClone;
     }
 
+    /**
+     * A read only view of the body. Unlike {@link #getBytes()}, this does not copy the body, so it is the cheaper way
+     * to read the body of large messages.
+     * @return A read only buffer over this Message body, or null if this message has no body.
+     */
+    public ByteBuffer getByteBuffer()
+    {
+        if (this.body == null)
+        {
+            return null;
+        }
+
+        return ByteBuffer.wrap(this.body).asReadOnlyBuffer();
+    }
+
+    /**
+     * <b>For internal use by the SDK's transports only. Not for application use.</b> It is only protected so that
+     * {@link com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage} can reach it, and it may change or be
+     * removed in any release.
+     * <p>
+     * The byte content of the body of a message, without copying it, so that the transports don't copy the body on
+     * each send. They reach it through
+     * {@link com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage#getBytesWithoutCopy(Message)}. The
+     * returned array is the message's own body, so it must not be modified.
+     * </p>
+     * @param message the message to get the body of.
+     * @return The body of the message, as a byte array.
+     */
+    protected static byte[] getBodyWithoutCopy(Message message)
+    {
+        return message.body;
+    }
+
     /**
      * Gets the values of user-defined properties of this Message.
      * @param name Name of the user-defined property to search for.
@@ -215,13 +304,10 @@ public class Message
     {
         MessageProperty messageProperty = null;
 
-        for (MessageProperty currentMessageProperty: this.properties)
+        Integer propertyIndex = this.propertyIndexes != null && name != null ? this.propertyIndexes.get(toPropertyKey(name)) : null;
+        if (propertyIndex != null)
         {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
+            messageProperty = this.properties.get(propertyIndex);
         }
 
         // Codes_SRS_MESSAGE_11_034: [If no value associated with the property name is found, the function shall return null.]
@@ -254,23 +340,25 @@ public class Message
         }
 
         // Codes_SRS_MESSAGE_11_026: [The function shall set the message property to the given value.]
-        MessageProperty messageProperty = null;
+        MessageProperty messageProperty = new MessageProperty(name, value);
 
-        for (MessageProperty currentMessageProperty: this.properties)
+        if (this.propertyIndexes == null)
         {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
+            this.propertyIndexes = new HashMap<>();
         }
 
-        if (messageProperty != null)
+        // An existing property with the same name is replaced in place, so it keeps its position
+        String propertyKey = toPropertyKey(name);
+        Integer propertyIndex = this.propertyIndexes.get(propertyKey);
+        if (propertyIndex != null)
         {
-            this.properties.remove(messageProperty);
+            this.properties.set(propertyIndex, messageProperty);
+        }
+        else
+        {
+            this.propertyIndexes.put(propertyKey, this.properties.size());
+            this.properties.add(messageProperty);
         }
-
-        this.properties.add(new MessageProperty(name, value));
     }
 
     /**
@@ -284,6 +372,18 @@ public class Message
         return properties.toArray(new MessageProperty[this.properties.size()]);
     }
 
+    /**
+     * Returns a read only view of the message properties, in the order that they were first set. Unlike
+     * {@link #getProperties()}, this does not copy the properties, and iterating over it by index does not allocate.
+     * The view reflects later changes to the properties of this message.
+     *
+     * @return a read only view of the message properties.
+     */
+    public List<MessageProperty> getPropertiesView()
+    {
+        return this.propertiesView;
+    }
+
     // ----- Private Methods -----
 
     /**
@@ -294,9 +394,16 @@ public class Message
         this.messageId = UUID.randomUUID().toString();
         this.correlationId = UUID.randomUUID().toString();
         this.properties = new ArrayList<>();
+        this.propertiesView = Collections.unmodifiableList(this.properties);
         this.isSecurityClient = false;
     }
 
+    private static String toPropertyKey(String name)
+    {
+        // Property names are US-ASCII, so this matches the case insensitive comparison of MessageProperty.hasSameName
+        return name.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Verifies whether the message is expired or not
      * @return true if the message is expired, false otherwise
@@ -391,6 +498,15 @@ public class Message
         log.trace("The message with messageid {} has expiry time in {} milliseconds and the message will expire on {}", this.getMessageId(), timeOut, new Date(this.expiryTime));
     }
 
+    /**
+     * Getter for the expiryTime property
+     * @return The time, in milliseconds since the epoch, after which this message expires, or 0 if it never expires.
+     */
+    public long getAbsoluteExpiryTime()
+    {
+        return this.expiryTime;
+    }
+
     /**
      * Setter for the expiryTime property using absolute time
      * @param absoluteTimeout The time out for the message, in milliseconds.
@@ -610,9 +726,15 @@ public class Message
         }
 
         // Codes_SRS_MESSAGE_34_064: [The function shall return the saved creationTimeUTC as a string in the format "yyyy-MM-dd_HH:mm:ss.SSSSSSSZ".]
-        SimpleDateFormat sdf = new SimpleDateFormat(DATE_TIME_FORMAT);
-        sdf.setTimeZone(TimeZone.getTimeZone(UTC_TIMEZONE));
-        return sdf.format(this.creationTimeUTC).replace("_", "T") + "Z";
+        long creationTimeMillis = this.creationTimeUTC.getTime();
+        FormattedCreationTime formattedCreationTime = this.formattedCreationTimeUTC;
+        if (formattedCreationTime == null || formattedCreationTime.millis != creationTimeMillis)
+        {
+            formattedCreationTime = new FormattedCreationTime(creationTimeMillis, CREATION_TIME_UTC_FORMATTER.format(this.creationTimeUTC.toInstant()));
+            this.formattedCreationTimeUTC = formattedCreationTime;
+        }
+
+        return formattedCreationTime.value;
     }
 
     public final void setCreationTimeUTC(Date creationTimeUTC)
@@ -666,4 +788,16 @@ public class Message
     public Object getCorrelatingMessageCallbackContext() {
         return correlatingMessageCallbackContext;
     }
-}
\ No newline at end of file
+
+    private static final class FormattedCreationTime
+    {
+        private final long millis;
+        private final String value;
+
+        private FormattedCreationTime(long millis, String value)
+        {
+            this.millis = millis;
+            this.value = value;
+        }
+    }
+}
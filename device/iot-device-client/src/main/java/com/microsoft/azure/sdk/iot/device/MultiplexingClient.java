@@ -136,6 +136,14 @@ public class MultiplexingClient
         this.sslContext = options != null ? options.getSslContext() : null;
         this.deviceIO = new DeviceIO(hostName, protocol, sslContext, proxySettings, sendPeriod, receivePeriod, keepAliveInterval);
         this.deviceIO.setMaxNumberOfMessagesSentPerSendThread(sendMessagesPerThread);
+
+        if (options != null)
+        {
+            this.deviceIO.setOutboundQueueLimits(
+                options.getMaxOutboundQueueMessageCount(),
+                options.getMaxOutboundQueueSizeInBytes(),
+                options.getOutboundQueueOverflowPolicy());
+        }
     }
 
     /**
@@ -57,6 +57,32 @@ public class MultiplexingClientOptions
     @Setter
     private int maxMessagesSentPerSendThread;
 
+    /**
+     * The maximum number of telemetry messages that can be queued across all the multiplexed devices while waiting to
+     * be sent. Twin and method messages are not counted against this limit. If unset, the number of queued messages
+     * is not limited.
+     */
+    @Getter
+    @Setter
+    private int maxOutboundQueueMessageCount;
+
+    /**
+     * The maximum total size, in bytes, of the payloads of the telemetry messages that can be queued across all the
+     * multiplexed devices while waiting to be sent. If unset, the size of the queued messages is not limited.
+     */
+    @Getter
+    @Setter
+    private long maxOutboundQueueSizeInBytes;
+
+    /**
+     * What to do when a telemetry message is sent while the outbound queue is at one of its limits. If unset, this will
+     * default to {@link OutboundQueueOverflowPolicy#BLOCK}.
+     */
+    @Getter
+    @Setter
+    @Builder.Default
+    private OutboundQueueOverflowPolicy outboundQueueOverflowPolicy = OutboundQueueOverflowPolicy.BLOCK;
+
     /**
      * Gets the keep alive interval in seconds. This value defines the
      * maximum time interval between messages sent or received. It enables the
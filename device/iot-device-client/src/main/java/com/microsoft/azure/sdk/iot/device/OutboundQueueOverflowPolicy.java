@@ -0,0 +1,30 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * The behavior of the client when a new telemetry message is queued while the outbound queue is already holding as
+ * many messages or bytes as {@link ClientOptions} allows. Twin and method messages are never subject to these limits.
+ */
+public enum OutboundQueueOverflowPolicy
+{
+    /**
+     * The thread queueing the message blocks until enough queued messages have been sent to make room for it. If no
+     * room has been made once the device operation timeout elapses, the message is completed with
+     * {@link IotHubStatusCode#MESSAGE_CANCELLED_QUEUE_FULL}. Avoid this policy if messages are sent from within
+     * message callbacks, since those callbacks run on the same thread that drains the queue.
+     */
+    BLOCK,
+
+    /**
+     * The new message is not queued, and its callback is executed with {@link IotHubStatusCode#MESSAGE_CANCELLED_QUEUE_FULL}.
+     */
+    FAIL_FAST,
+
+    /**
+     * The oldest queued telemetry messages are removed to make room for the new message, and their callbacks are
+     * executed with {@link IotHubStatusCode#MESSAGE_CANCELLED_QUEUE_FULL}.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,195 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs a client's send or receive work on an executor that is shared with other clients, instead of on a thread that
+ * waits for work.
+ * <p>
+ * The work is run each time that {@link #signal()} is called, which the transport does whenever it notifies the send
+ * or receive thread lock. Signals that arrive while a run is pending or in progress are coalesced into at most one more
+ * run, so the work never runs concurrently with itself and no signal is lost. If there is still work pending once a run
+ * finishes, the next run is scheduled one period later, just like the dedicated worker threads are scheduled with a
+ * fixed delay.
+ * </p>
+ */
+@Slf4j
+final class SharedExecutorWorker implements Runnable
+{
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int DELAYED = 2;
+    private static final int RUNNING = 3;
+    private static final int RUNNING_AND_SIGNALLED = 4;
+
+    // Set on a shared executor thread while it runs the work of any worker, so that the work can avoid blocking a
+    // thread that other clients' send work may be waiting for
+    private static final ThreadLocal<Boolean> RUNNING_WORK = new ThreadLocal<>();
+
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private final String name;
+    private final Runnable work;
+    private final BooleanSupplier hasPendingWork;
+    private final ScheduledExecutorService executor;
+
+    private volatile long periodInMilliseconds;
+    private volatile boolean stopped;
+    private volatile ScheduledFuture<?> delayedRun;
+
+    /**
+     * @param name the name of the work, for logging.
+     * @param work the work to run.
+     * @param hasPendingWork checked after each run to decide whether to run again after a period, without a signal.
+     * @param executor the shared executor to run the work on.
+     * @param periodInMilliseconds the delay before running the work again when there is still work pending.
+     */
+    SharedExecutorWorker(String name, Runnable work, BooleanSupplier hasPendingWork, ScheduledExecutorService executor, long periodInMilliseconds)
+    {
+        this.name = name;
+        this.work = work;
+        this.hasPendingWork = hasPendingWork;
+        this.executor = executor;
+        this.periodInMilliseconds = periodInMilliseconds;
+    }
+
+    /**
+     * Run the work as soon as possible, unless a run that has not started yet is already queued.
+     */
+    void signal()
+    {
+        while (!this.stopped)
+        {
+            int currentState = this.state.get();
+            if (currentState == IDLE || currentState == DELAYED)
+            {
+                if (this.state.compareAndSet(currentState, SCHEDULED))
+                {
+                    // A delayed run that fires after this one started finds the worker busy and returns right away
+                    submit(0);
+                    return;
+                }
+            }
+            else if (currentState == RUNNING)
+            {
+                if (this.state.compareAndSet(RUNNING, RUNNING_AND_SIGNALLED))
+                {
+                    return;
+                }
+            }
+            else
+            {
+                // A run that hasn't started yet, or a run that will be repeated, will see the new work
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the calling thread is a shared executor thread that is running the work of a worker.
+     */
+    static boolean isRunningWorkOnCurrentThread()
+    {
+        return RUNNING_WORK.get() != null;
+    }
+
+    /**
+     * Stop running the work. A run that is in progress is allowed to finish.
+     */
+    void stop()
+    {
+        this.stopped = true;
+
+        ScheduledFuture<?> delayedRun = this.delayedRun;
+        if (delayedRun != null)
+        {
+            delayedRun.cancel(false);
+        }
+
+        // A run that was queued but has not started yet may never start, for instance if the executor is shut down, so
+        // it must not leave the worker looking busy. If it does start, it finds the worker idle and returns right away
+        this.state.compareAndSet(SCHEDULED, IDLE);
+        this.state.compareAndSet(DELAYED, IDLE);
+    }
+
+    void setPeriodInMilliseconds(long periodInMilliseconds)
+    {
+        this.periodInMilliseconds = periodInMilliseconds;
+    }
+
+    @Override
+    public void run()
+    {
+        if (!this.state.compareAndSet(SCHEDULED, RUNNING) && !this.state.compareAndSet(DELAYED, RUNNING))
+        {
+            // Another run of this worker already took care of the signal that queued this run
+            return;
+        }
+
+        boolean hasPendingWork = false;
+        try
+        {
+            if (!this.stopped)
+            {
+                RUNNING_WORK.set(Boolean.TRUE);
+                this.work.run();
+                hasPendingWork = this.hasPendingWork.getAsBoolean();
+            }
+        }
+        catch (Throwable e)
+        {
+            log.warn("{} encountered exception while running on the shared executor", this.name, e);
+        }
+        finally
+        {
+            RUNNING_WORK.remove();
+        }
+
+        if (this.stopped)
+        {
+            this.state.set(IDLE);
+        }
+        else if (this.state.compareAndSet(RUNNING, hasPendingWork ? DELAYED : IDLE))
+        {
+            if (hasPendingWork)
+            {
+                submit(this.periodInMilliseconds);
+            }
+        }
+        else
+        {
+            // signalled while running, so run again right away
+            this.state.set(SCHEDULED);
+            submit(0);
+        }
+    }
+
+    private void submit(long delayInMilliseconds)
+    {
+        try
+        {
+            if (delayInMilliseconds > 0)
+            {
+                this.delayedRun = this.executor.schedule(this, delayInMilliseconds, TimeUnit.MILLISECONDS);
+            }
+            else
+            {
+                this.executor.execute(this);
+            }
+        }
+        catch (RejectedExecutionException e)
+        {
+            log.warn("The shared executor rejected {}. It will not run again until it is signalled", this.name, e);
+            this.state.set(IDLE);
+        }
+    }
+}
@@ -47,8 +47,11 @@ public class IotHubTransport implements IotHubListener
 
     private IotHubTransportConnection iotHubTransportConnection;
 
-    // Messages waiting to be sent to the IoT Hub.
-    private final Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+    // Messages waiting to be sent to the IoT Hub. Twin and method messages are always sent ahead of telemetry.
+    private final OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
+
+    // Expiry deadlines of the waiting and in progress messages that have an expiry time
+    private final PacketExpiryIndex expiringPackets = new PacketExpiryIndex();
 
     // Messages which are sent to the IoT Hub but did not receive ack yet.
     private final Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
@@ -90,6 +93,18 @@ public class IotHubTransport implements IotHubListener
 
     private ScheduledExecutorService taskScheduler;
 
+    // False when the task scheduler is an executor shared with other clients, which this transport must not shut down
+    private boolean ownsTaskScheduler;
+
+    // Null unless the client was opened with a received message dispatch thread count. Kept after close so that its
+    // statistics can still be read, but it no longer accepts messages by then.
+    private volatile ReceivedMessageDispatcher receivedMessageDispatcher;
+
+    // Lock on acknowledging received messages. The dispatcher executes message callbacks on several threads at once, but
+    // the connections can't send acknowledgements concurrently. Over AMQP, acknowledging settles a proton-j delivery,
+    // which changes link and connection state that proton-j does not guard.
+    final private Object acknowledgementLock = new Object();
+
     // state lock to prevent simultaneous close and reconnect operations. Also prevents multiple reconnect threads from executing at once
     final private Object reconnectionLock = new Object();
 
@@ -101,6 +116,11 @@ public class IotHubTransport implements IotHubListener
     // layer's responsibility to notify that task each time a message is received.
     private final Object receiveThreadLock = new Object();
 
+    // Invoked each time that the send or receive thread lock is notified, for send and receive tasks that run on an
+    // executor shared with other clients instead of waiting on those locks.
+    private volatile Runnable sendWorkListener;
+    private volatile Runnable receiveWorkListener;
+
     private final IotHubClientProtocol protocol;
     private final String hostName;
     private final ProxySettings proxySettings;
@@ -139,6 +159,14 @@ public class IotHubTransport implements IotHubListener
 
         this.deviceIOConnectionStatusChangeCallback = deviceIOConnectionStatusChangeCallback;
         this.keepAliveInterval = defaultConfig.getKeepAliveInterval();
+
+        if (defaultConfig.getMaxOutboundQueueMessageCount() > 0 || defaultConfig.getMaxOutboundQueueSizeInBytes() > 0)
+        {
+            this.setOutboundQueueLimits(
+                    defaultConfig.getMaxOutboundQueueMessageCount(),
+                    defaultConfig.getMaxOutboundQueueSizeInBytes(),
+                    defaultConfig.getOutboundQueueOverflowPolicy());
+        }
     }
 
     public IotHubTransport(
@@ -169,6 +197,19 @@ public class IotHubTransport implements IotHubListener
         return this.receiveThreadLock;
     }
 
+    /**
+     * Set the listeners to invoke whenever there is new work for the send task or the receive task, in addition to
+     * notifying the send and receive thread locks.
+     *
+     * @param sendWorkListener invoked when a message is queued to be sent or a callback is queued to be invoked. May be null.
+     * @param receiveWorkListener invoked when a received message is queued to be handled. May be null.
+     */
+    public void setWorkListeners(Runnable sendWorkListener, Runnable receiveWorkListener)
+    {
+        this.sendWorkListener = sendWorkListener;
+        this.receiveWorkListener = receiveWorkListener;
+    }
+
     public boolean hasMessagesToSend()
     {
         synchronized (sendThreadLock)
@@ -432,7 +473,24 @@ public class IotHubTransport implements IotHubListener
             }
         }
 
-        this.taskScheduler = Executors.newScheduledThreadPool(1);
+        ScheduledExecutorService sharedWorkerExecutor = this.getDefaultConfig() != null ? this.getDefaultConfig().getSharedWorkerExecutor() : null;
+        this.ownsTaskScheduler = sharedWorkerExecutor == null;
+        this.taskScheduler = this.ownsTaskScheduler ? Executors.newScheduledThreadPool(1) : sharedWorkerExecutor;
+
+        int receivedMessageDispatchThreadCount = !this.isMultiplexing && this.getDefaultConfig() != null ? this.getDefaultConfig().getReceivedMessageDispatchThreadCount() : 0;
+        if (receivedMessageDispatchThreadCount > 0)
+        {
+            if (this.receivedMessageDispatcher != null)
+            {
+                this.requeueUndispatchedMessages(this.receivedMessageDispatcher.shutdown());
+            }
+
+            this.receivedMessageDispatcher = new ReceivedMessageDispatcher(
+                receivedMessageDispatchThreadCount,
+                this.getDeviceClientUniqueIdentifier() + "-ReceivedMessageDispatcher",
+                receivedMessage -> this.acknowledgeReceivedMessage(receivedMessage, false),
+                this::addToReceivedMessagesQueue);
+        }
 
         if (withRetry)
         {
@@ -506,6 +564,10 @@ public class IotHubTransport implements IotHubListener
         // it waits for the reconnection logic to end before it starts.
         this.isClosing = true;
 
+        // Any threads blocked waiting for room in the outbound queue would otherwise queue their message after
+        // the pending packets were cancelled below
+        this.waitingPacketsQueue.abortBlockedOffers();
+
         // Wait until no reconnection logic is taking place
         synchronized (this.reconnectionLock)
         {
@@ -513,11 +575,17 @@ public class IotHubTransport implements IotHubListener
 
             this.invokeCallbacks();
 
-            if (this.taskScheduler != null)
+            if (this.taskScheduler != null && this.ownsTaskScheduler)
             {
                 this.taskScheduler.shutdown();
             }
 
+            if (this.receivedMessageDispatcher != null)
+            {
+                // Callbacks that are already executing are left to finish on their own
+                this.requeueUndispatchedMessages(this.receivedMessageDispatcher.shutdown());
+            }
+
             try
             {
                 if (this.iotHubTransportConnection != null)
@@ -541,6 +609,9 @@ public class IotHubTransport implements IotHubListener
                     this.receiveThreadLock.notifyAll();
                 }
 
+                this.notifySendWorkListener();
+                this.notifyReceiveWorkListener();
+
                 log.debug("Client connection closed successfully");
             }
         }
@@ -557,29 +628,34 @@ public class IotHubTransport implements IotHubListener
      * invoked.
      */
     public void addMessage(Message message, IotHubEventCallback callback, Object callbackContext, String deviceId)
+    {
+        this.addMessage(message, callback, callbackContext, deviceId, true);
+    }
+
+    /**
+     * Adds a message to the transport queue.
+     *
+     * @param message the message to be sent.
+     * @param callback the callback to be invoked when a response for the
+     * message is received.
+     * @param callbackContext the context to be passed in when the callback is
+     * invoked.
+     * @param deviceId the Id of the device that is sending this message.
+     * @param mayBlock false if the calling thread must not wait for room in a full queue, even when the overflow policy
+     * is {@link com.microsoft.azure.sdk.iot.device.OutboundQueueOverflowPolicy#BLOCK}. The message is then completed with
+     * {@link IotHubStatusCode#MESSAGE_CANCELLED_QUEUE_FULL} instead.
+     */
+    public void addMessage(Message message, IotHubEventCallback callback, Object callbackContext, String deviceId, boolean mayBlock)
     {
         if (this.connectionStatus == IotHubConnectionStatus.DISCONNECTED)
         {
             throw new IllegalStateException("Cannot add a message when the transport is closed.");
         }
 
-        // We will get the nested messages and queue them normally if this is a batch message but the protocol is not HTTPS
-        // Currently only HTTPS is supports batch message events.
-        if (message instanceof BatchMessage && !(this.iotHubTransportConnection instanceof HttpsIotHubConnection))
-        {
-            for (Message singleMessage : ((BatchMessage) message).getNestedMessages())
-            {
-                this.addToWaitingQueue(new IotHubTransportPacket(singleMessage, callback, callbackContext, null, System.currentTimeMillis(), deviceId));
-                log.info("Messages were queued to be sent later ({})", singleMessage);
-            }
-
-            return;
-        }
-
+        // Batch messages are queued as a single packet for all protocols. Each connection type sends the batch as a unit
+        // and reports it as sent once all of its nested messages have been acknowledged.
         IotHubTransportPacket packet = new IotHubTransportPacket(message, callback, callbackContext, null, System.currentTimeMillis(), deviceId);
-        this.addToWaitingQueue(packet);
-
-        log.info("Message was queued to be sent later ({})", message);
+        this.addNewPacketToWaitingQueue(packet, mayBlock);
     }
 
     public IotHubClientProtocol getProtocol()
@@ -652,43 +728,22 @@ public class IotHubTransport implements IotHubListener
 
     private void checkForExpiredMessages()
     {
-        //Check waiting packets, remove any that have expired.
-        IotHubTransportPacket packet = this.waitingPacketsQueue.poll();
-        Queue<IotHubTransportPacket> packetsToAddBackIntoWaitingPacketsQueue = new LinkedBlockingQueue<>();
-        while (packet != null)
+        // Only the packets that have expired are visited, rather than every waiting and in progress packet
+        for (IotHubTransportPacket expiredPacket : this.expiringPackets.pollExpired())
         {
-            if (packet.getMessage().isExpired())
-            {
-                packet.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
-                this.addToCallbackQueue(packet);
-            }
-            else
+            boolean removed;
+            synchronized (this.inProgressMessagesLock)
             {
-                //message not expired, requeue it
-                packetsToAddBackIntoWaitingPacketsQueue.add(packet);
+                String messageId = expiredPacket.getMessage().getMessageId();
+                removed = (messageId != null && this.inProgressPackets.remove(messageId, expiredPacket))
+                    || this.waitingPacketsQueue.remove(expiredPacket);
             }
 
-            packet = this.waitingPacketsQueue.poll();
-        }
-
-        //Requeue all the non-expired messages.
-        this.waitingPacketsQueue.addAll(packetsToAddBackIntoWaitingPacketsQueue);
-
-        //Check in progress messages
-        synchronized (this.inProgressMessagesLock)
-        {
-            List<String> expiredPacketMessageIds = new ArrayList<>();
-            for (String messageId : this.inProgressPackets.keySet())
+            // If the packet is in neither collection, then it is being sent or is waiting to be retried. It stays in the
+            // expiry index, so it will be expired by a later check or before it is sent again.
+            if (removed)
             {
-                if (this.inProgressPackets.get(messageId).getMessage().isExpired())
-                {
-                    expiredPacketMessageIds.add(messageId);
-                }
-            }
-
-            for (String messageId : expiredPacketMessageIds)
-            {
-                IotHubTransportPacket expiredPacket = this.inProgressPackets.remove(messageId);
+                log.warn("The message with correlation id {} expired", expiredPacket.getMessage().getCorrelationId());
                 expiredPacket.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
                 this.addToCallbackQueue(expiredPacket);
             }
@@ -735,6 +790,13 @@ public class IotHubTransport implements IotHubListener
                 addReceivedMessagesOverHttpToReceivedQueue();
             }
 
+            ReceivedMessageDispatcher dispatcher = this.receivedMessageDispatcher;
+            if (dispatcher != null)
+            {
+                this.dispatchReceivedMessages(dispatcher);
+                return;
+            }
+
             IotHubTransportMessage receivedMessage = this.receivedMessagesQueue.poll();
             if (receivedMessage != null)
             {
@@ -743,6 +805,65 @@ public class IotHubTransport implements IotHubListener
         }
     }
 
+    /**
+     * Getter for the statistics of the received message dispatcher.
+     *
+     * @return a snapshot of the statistics of the received message dispatcher since the transport was last opened, or
+     * null if received messages are not dispatched to a pool of threads.
+     */
+    public ReceivedMessageDispatchStatistics getReceivedMessageDispatchStatistics()
+    {
+        ReceivedMessageDispatcher dispatcher = this.receivedMessageDispatcher;
+        return dispatcher == null ? null : dispatcher.getStatistics();
+    }
+
+    /**
+     * Hands all of the received messages over to the dispatcher, which executes their callbacks on its own threads.
+     *
+     * @param dispatcher the dispatcher to hand the messages to.
+     */
+    private void dispatchReceivedMessages(ReceivedMessageDispatcher dispatcher)
+    {
+        // Acknowledgements that failed are retried once per receive pass, ahead of the later messages of their stream
+        dispatcher.retryFailedMessages();
+
+        IotHubTransportMessage receivedMessage;
+        while ((receivedMessage = this.receivedMessagesQueue.poll()) != null)
+        {
+            if (!dispatcher.dispatch(receivedMessage))
+            {
+                // The transport is closing. Keep the message so that it is handled once the transport is opened again.
+                this.receivedMessagesQueue.add(receivedMessage);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Puts the messages that a dispatcher was shut down with back in the received messages queue, ahead of any
+     * message that was received after them.
+     *
+     * @param undispatchedMessages the messages whose callbacks were not executed yet.
+     */
+    private void requeueUndispatchedMessages(List<IotHubTransportMessage> undispatchedMessages)
+    {
+        if (undispatchedMessages.isEmpty())
+        {
+            return;
+        }
+
+        synchronized (this.receiveThreadLock)
+        {
+            IotHubTransportMessage receivedMessage;
+            while ((receivedMessage = this.receivedMessagesQueue.poll()) != null)
+            {
+                undispatchedMessages.add(receivedMessage);
+            }
+
+            this.receivedMessagesQueue.addAll(undispatchedMessages);
+        }
+    }
+
     /**
      * Returns {@code true} if the transport has no more messages to handle,
      * and {@code false} otherwise.
@@ -937,6 +1058,19 @@ public class IotHubTransport implements IotHubListener
         this.maxNumberOfMessagesToSendPerThread = maxNumberOfMessagesSentPerSendThread;
     }
 
+    /**
+     * Limit the number of telemetry messages and the total size of the telemetry payloads that can wait in the outbound
+     * queue. Twin and method messages are not subject to these limits.
+     *
+     * @param maxMessageCount the maximum number of queued telemetry messages, or 0 for no limit.
+     * @param maxSizeInBytes the maximum total size of the queued telemetry payloads, or 0 for no limit.
+     * @param overflowPolicy what to do when a telemetry message is queued while either limit has been reached.
+     */
+    public void setOutboundQueueLimits(int maxMessageCount, long maxSizeInBytes, OutboundQueueOverflowPolicy overflowPolicy)
+    {
+        this.waitingPacketsQueue.setLimits(maxMessageCount, maxSizeInBytes, overflowPolicy);
+    }
+
     /**
      * Moves all packets from waiting queue and in progress map into callbacks queue with status MESSAGE_CANCELLED_ONCLOSE
      */
@@ -964,15 +1098,24 @@ public class IotHubTransport implements IotHubListener
         }
     }
 
+    // Used by the receive thread when received messages are not dispatched to a pool of threads
+    private void acknowledgeReceivedMessage(IotHubTransportMessage receivedMessage) throws TransportException
+    {
+        this.acknowledgeReceivedMessage(receivedMessage, true);
+    }
+
     /**
      * If the provided received message has a saved callback, this function shall execute that callback and send the ack
      * to the service
      *
      * @param receivedMessage the message to acknowledge
+     * @param requeueOnFailure true if the message should be added back to the received messages queue when the
+     * acknowledgement fails. The received message dispatcher puts it back in its own queue instead, so that it stays
+     * ahead of the later messages of its stream.
      *
      * @throws TransportException if any exception is encountered while sending the acknowledgement
      */
-    private void acknowledgeReceivedMessage(IotHubTransportMessage receivedMessage) throws TransportException
+    private void acknowledgeReceivedMessage(IotHubTransportMessage receivedMessage, boolean requeueOnFailure) throws TransportException
     {
         MessageCallback messageCallback = receivedMessage.getMessageCallback();
         Object messageCallbackContext = receivedMessage.getMessageCallbackContext();
@@ -985,7 +1128,10 @@ public class IotHubTransport implements IotHubListener
             try
             {
                 log.debug("Sending acknowledgement for received cloud to device message ({})", receivedMessage);
-                this.iotHubTransportConnection.sendMessageResult(receivedMessage, result);
+                synchronized (this.acknowledgementLock)
+                {
+                    this.iotHubTransportConnection.sendMessageResult(receivedMessage, result);
+                }
 
                 try
                 {
@@ -1005,7 +1151,10 @@ public class IotHubTransport implements IotHubListener
             catch (TransportException e)
             {
                 log.warn("Sending acknowledgement for received cloud to device message failed, adding it back to the queue ({})", receivedMessage, e);
-                this.addToReceivedMessagesQueue(receivedMessage);
+                if (requeueOnFailure)
+                {
+                    this.addToReceivedMessagesQueue(receivedMessage);
+                }
 
                 try
                 {
@@ -1370,12 +1519,19 @@ public class IotHubTransport implements IotHubListener
         final IotHubTransportPacket transportPacket;
         final Queue<IotHubTransportPacket> waitingPacketsQueue;
         final Object sendThreadLock;
+        final Runnable sendWorkListener;
 
         public MessageRetryRunnable(Queue<IotHubTransportPacket> waitingPacketsQueue, IotHubTransportPacket transportPacket, Object sendThreadLock)
+        {
+            this(waitingPacketsQueue, transportPacket, sendThreadLock, null);
+        }
+
+        MessageRetryRunnable(Queue<IotHubTransportPacket> waitingPacketsQueue, IotHubTransportPacket transportPacket, Object sendThreadLock, Runnable sendWorkListener)
         {
             this.waitingPacketsQueue = waitingPacketsQueue;
             this.transportPacket = transportPacket;
             this.sendThreadLock = sendThreadLock;
+            this.sendWorkListener = sendWorkListener;
         }
 
         @Override
@@ -1388,6 +1544,11 @@ public class IotHubTransport implements IotHubListener
             {
                 this.sendThreadLock.notifyAll();
             }
+
+            if (this.sendWorkListener != null)
+            {
+                this.sendWorkListener.run();
+            }
         }
     }
 
@@ -1418,7 +1579,7 @@ public class IotHubTransport implements IotHubListener
                 RetryDecision retryDecision = config.getRetryPolicy().getRetryDecision(packet.getCurrentRetryAttempt(), transportException);
                 if (retryDecision.shouldRetry())
                 {
-                    this.taskScheduler.schedule(new MessageRetryRunnable(this.waitingPacketsQueue, packet, this), retryDecision.getDuration(), MILLISECONDS);
+                    this.taskScheduler.schedule(new MessageRetryRunnable(this.waitingPacketsQueue, packet, this.sendThreadLock, this::notifySendWorkListener), retryDecision.getDuration(), MILLISECONDS);
                     return;
                 }
                 else
@@ -1733,6 +1894,9 @@ public class IotHubTransport implements IotHubListener
      */
     private void addToCallbackQueue(IotHubTransportPacket packet)
     {
+        // The packet is complete, so it can no longer expire
+        this.expiringPackets.remove(packet);
+
         if (packet.getCallback() != null)
         {
             synchronized (this.sendThreadLock)
@@ -1742,6 +1906,8 @@ public class IotHubTransport implements IotHubListener
                 //Wake up send messages thread so that it can process this new callback if it was asleep
                 this.sendThreadLock.notifyAll();
             }
+
+            this.notifySendWorkListener();
         }
     }
 
@@ -1757,7 +1923,90 @@ public class IotHubTransport implements IotHubListener
         return null;
     }
 
+    /**
+     * Adds a packet that has not been queued before to the waiting queue, applying the outbound queue limits. Packets
+     * that are rejected by those limits, or that are evicted from the queue to make room, are completed with
+     * MESSAGE_CANCELLED_QUEUE_FULL.
+     *
+     * @param packet the packet to add
+     */
+    private void addNewPacketToWaitingQueue(IotHubTransportPacket packet, boolean mayBlock)
+    {
+        notifyRequestQueued(packet);
+
+        // Tracked before it is queued, since the send thread may complete it, and stop tracking it, as soon as it is queued
+        this.expiringPackets.add(packet);
+
+        // When the queue is full, this may block until the send thread makes room, so the send thread lock must not be held here
+        long maxBlockMillis = this.getDefaultConfig() != null ? this.getDefaultConfig().getOperationTimeout() : 0;
+        List<IotHubTransportPacket> cancelledPackets;
+        try
+        {
+            cancelledPackets = this.waitingPacketsQueue.offerWithinLimits(packet, maxBlockMillis, mayBlock);
+        }
+        catch (IllegalStateException e)
+        {
+            // The transport is closing, so the packet was never queued. The caller gets the exception instead of a callback
+            this.expiringPackets.remove(packet);
+            throw e;
+        }
+
+        if (!cancelledPackets.contains(packet))
+        {
+            log.info("Message was queued to be sent later ({})", packet.getMessage());
+
+            synchronized (this.sendThreadLock)
+            {
+                // Wake up IotHubSendTask so it can send this message
+                this.sendThreadLock.notifyAll();
+            }
+
+            this.notifySendWorkListener();
+        }
+
+        for (IotHubTransportPacket cancelledPacket : cancelledPackets)
+        {
+            log.warn("Outbound queue is full, so the message has been abandoned ({})", cancelledPacket.getMessage());
+            cancelledPacket.setStatus(IotHubStatusCode.MESSAGE_CANCELLED_QUEUE_FULL);
+            this.addToCallbackQueue(cancelledPacket);
+        }
+    }
+
     private void addToWaitingQueue(IotHubTransportPacket packet)
+    {
+        notifyRequestQueued(packet);
+        this.expiringPackets.add(packet);
+
+        synchronized (this.sendThreadLock)
+        {
+            this.waitingPacketsQueue.add(packet);
+
+            // Wake up IotHubSendTask so it can send this message
+            this.sendThreadLock.notifyAll();
+        }
+
+        this.notifySendWorkListener();
+    }
+
+    private void notifySendWorkListener()
+    {
+        Runnable sendWorkListener = this.sendWorkListener;
+        if (sendWorkListener != null)
+        {
+            sendWorkListener.run();
+        }
+    }
+
+    private void notifyReceiveWorkListener()
+    {
+        Runnable receiveWorkListener = this.receiveWorkListener;
+        if (receiveWorkListener != null)
+        {
+            receiveWorkListener.run();
+        }
+    }
+
+    private void notifyRequestQueued(IotHubTransportPacket packet)
     {
         try
         {
@@ -1785,14 +2034,6 @@ public class IotHubTransport implements IotHubListener
         {
             log.warn("Exception thrown while calling the onQueueRequest callback in addToWaitingQueue", ex);
         }
-
-        synchronized (this.sendThreadLock)
-        {
-            this.waitingPacketsQueue.add(packet);
-
-            // Wake up IotHubSendTask so it can send this message
-            this.sendThreadLock.notifyAll();
-        }
     }
 
     private void addToReceivedMessagesQueue(IotHubTransportMessage message)
@@ -1804,6 +2045,8 @@ public class IotHubTransport implements IotHubListener
             // Wake up IotHubReceiveTask so it can handle receiving this message
             this.receiveThreadLock.notifyAll();
         }
+
+        this.notifyReceiveWorkListener();
     }
 
     /**
@@ -29,6 +29,22 @@ public class IotHubTransportMessage extends Message
     private MessageCallback messageCallback;
     private Object messageCallbackContext;
 
+    /**
+     * <b>For internal use by the SDK's transports only. Not for application use.</b> This method is only public so
+     * that the protocol specific transport packages can reach it, and it may change or be removed in any release.
+     * Applications should use {@link Message#getBytes()} or {@link Message#getByteBuffer()} instead.
+     * <p>
+     * The byte content of the body of a message, without copying it, so that the body isn't copied on each send. The
+     * returned array is the message's own body, so it must not be modified.
+     * </p>
+     * @param message the message to get the body of.
+     * @return The body of the message, as a byte array.
+     */
+    public static byte[] getBytesWithoutCopy(Message message)
+    {
+        return Message.getBodyWithoutCopy(message);
+    }
+
     /**
      * Constructor with binary data and message type
      * @param data The byte array of the message.
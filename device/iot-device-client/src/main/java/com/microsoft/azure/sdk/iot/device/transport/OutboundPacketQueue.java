@@ -0,0 +1,408 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.BatchMessage;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.OutboundQueueOverflowPolicy;
+
+import java.util.*;
+
+/**
+ * The queue of packets waiting to be sent to the IoT Hub.
+ * <p>
+ * Twin and method packets are kept in their own lane which is always polled before the telemetry lane, so a large
+ * backlog of telemetry never delays a twin or method response. Only the telemetry lane can be bounded, by message
+ * count and by total payload size. New telemetry packets must be queued through {@link #offerWithinLimits(IotHubTransportPacket, long)}
+ * so that the configured {@link OutboundQueueOverflowPolicy} is applied. The plain {@link Queue} methods always
+ * accept the packet, since they are used to re-queue packets that were already admitted once (retries and packets
+ * that were in flight when the connection was lost).
+ * </p>
+ */
+final class OutboundPacketQueue extends AbstractQueue<IotHubTransportPacket>
+{
+    private final Object lock = new Object();
+
+    private final Deque<IotHubTransportPacket> twinAndMethodPackets = new ArrayDeque<>();
+    private final Deque<IotHubTransportPacket> telemetryPackets = new ArrayDeque<>();
+
+    private int queuedTelemetryMessageCount;
+    private long queuedTelemetryBytes;
+
+    // 0 means no limit
+    private int maxTelemetryMessageCount;
+    private long maxTelemetryBytes;
+    private OutboundQueueOverflowPolicy overflowPolicy = OutboundQueueOverflowPolicy.BLOCK;
+
+    // Incremented each time that blocked offers are aborted so that waiting threads can tell that they should give up
+    private long abortCount;
+
+    /**
+     * Set the limits of the telemetry lane of this queue.
+     *
+     * @param maxTelemetryMessageCount the maximum number of queued telemetry messages, or 0 for no limit.
+     * @param maxTelemetryBytes the maximum total size of the queued telemetry payloads, or 0 for no limit.
+     * @param overflowPolicy what to do with new telemetry packets once either limit has been reached.
+     */
+    void setLimits(int maxTelemetryMessageCount, long maxTelemetryBytes, OutboundQueueOverflowPolicy overflowPolicy)
+    {
+        if (maxTelemetryMessageCount < 0 || maxTelemetryBytes < 0)
+        {
+            throw new IllegalArgumentException("Outbound queue limits cannot be negative");
+        }
+
+        if (overflowPolicy == null)
+        {
+            throw new IllegalArgumentException("Outbound queue overflow policy cannot be null");
+        }
+
+        synchronized (this.lock)
+        {
+            this.maxTelemetryMessageCount = maxTelemetryMessageCount;
+            this.maxTelemetryBytes = maxTelemetryBytes;
+            this.overflowPolicy = overflowPolicy;
+
+            // wake any blocked producers so they re-evaluate their room against the new limits
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Queue a newly sent packet, applying the configured limits and overflow policy.
+     *
+     * @param packet the packet to queue.
+     * @param maxBlockMillis the maximum amount of time to wait for room in the queue when the overflow policy is
+     * {@link OutboundQueueOverflowPolicy#BLOCK}. 0 or less means to wait until room is made.
+     * @return the packets that were not queued or were removed from the queue to make room, and that should be
+     * completed with {@link com.microsoft.azure.sdk.iot.device.IotHubStatusCode#MESSAGE_CANCELLED_QUEUE_FULL}. This
+     * contains the provided packet if it was not queued. Never null.
+     * @throws IllegalStateException if {@link #abortBlockedOffers()} was called while this call was blocked.
+     */
+    List<IotHubTransportPacket> offerWithinLimits(IotHubTransportPacket packet, long maxBlockMillis)
+    {
+        return offerWithinLimits(packet, maxBlockMillis, true);
+    }
+
+    /**
+     * Queue a newly sent packet, applying the configured limits and overflow policy.
+     *
+     * @param packet the packet to queue.
+     * @param maxBlockMillis the maximum amount of time to wait for room in the queue when the overflow policy is
+     * {@link OutboundQueueOverflowPolicy#BLOCK}. 0 or less means to wait until room is made.
+     * @param mayBlock false if the calling thread must not wait for room, such as a thread of a shared executor that the
+     * send work which makes room may be queued on. The packet is then not queued if there is no room for it, as with
+     * {@link OutboundQueueOverflowPolicy#FAIL_FAST}.
+     * @return the packets that were not queued or were removed from the queue to make room, and that should be
+     * completed with {@link com.microsoft.azure.sdk.iot.device.IotHubStatusCode#MESSAGE_CANCELLED_QUEUE_FULL}. This
+     * contains the provided packet if it was not queued. Never null.
+     * @throws IllegalStateException if {@link #abortBlockedOffers()} was called while this call was blocked.
+     */
+    List<IotHubTransportPacket> offerWithinLimits(IotHubTransportPacket packet, long maxBlockMillis, boolean mayBlock)
+    {
+        synchronized (this.lock)
+        {
+            if (isTwinOrMethodPacket(packet) || !isBounded())
+            {
+                enqueue(packet);
+                return Collections.emptyList();
+            }
+
+            int messageCount = getMessageCount(packet.getMessage());
+            long sizeInBytes = getSizeInBytes(packet.getMessage());
+
+            if (!fitsInEmptyQueue(messageCount, sizeInBytes))
+            {
+                return Collections.singletonList(packet);
+            }
+
+            List<IotHubTransportPacket> removedPackets = Collections.emptyList();
+            switch (this.overflowPolicy)
+            {
+                case FAIL_FAST:
+                    if (!hasRoomFor(messageCount, sizeInBytes))
+                    {
+                        return Collections.singletonList(packet);
+                    }
+
+                    break;
+
+                case DROP_OLDEST:
+                    if (!hasRoomFor(messageCount, sizeInBytes))
+                    {
+                        removedPackets = new ArrayList<>();
+                        while (!hasRoomFor(messageCount, sizeInBytes))
+                        {
+                            removedPackets.add(pollTelemetryPacket());
+                        }
+                    }
+
+                    break;
+
+                case BLOCK:
+                default:
+                    if (!mayBlock)
+                    {
+                        if (!hasRoomFor(messageCount, sizeInBytes))
+                        {
+                            return Collections.singletonList(packet);
+                        }
+
+                        break;
+                    }
+
+                    if (!waitForRoom(messageCount, sizeInBytes, maxBlockMillis))
+                    {
+                        return Collections.singletonList(packet);
+                    }
+            }
+
+            enqueue(packet);
+            return removedPackets;
+        }
+    }
+
+    /**
+     * Make all calls to {@link #offerWithinLimits(IotHubTransportPacket, long)} that are currently blocked waiting for
+     * room in the queue throw an {@link IllegalStateException}. Used when the transport is closing.
+     */
+    void abortBlockedOffers()
+    {
+        synchronized (this.lock)
+        {
+            this.abortCount++;
+            this.lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean offer(IotHubTransportPacket packet)
+    {
+        if (packet == null)
+        {
+            throw new NullPointerException("Packet cannot be null");
+        }
+
+        synchronized (this.lock)
+        {
+            enqueue(packet);
+            return true;
+        }
+    }
+
+    @Override
+    public IotHubTransportPacket poll()
+    {
+        synchronized (this.lock)
+        {
+            IotHubTransportPacket packet = this.twinAndMethodPackets.poll();
+            if (packet == null)
+            {
+                packet = pollTelemetryPacket();
+            }
+
+            return packet;
+        }
+    }
+
+    @Override
+    public IotHubTransportPacket peek()
+    {
+        synchronized (this.lock)
+        {
+            IotHubTransportPacket packet = this.twinAndMethodPackets.peek();
+            return packet != null ? packet : this.telemetryPackets.peek();
+        }
+    }
+
+    /**
+     * Remove the provided packet from this queue. This takes time proportional to the number of packets queued ahead
+     * of it in its lane, so it is intended for removing the few packets that expire while queued.
+     *
+     * @param o the packet to remove.
+     * @return true if the packet was in this queue.
+     */
+    @Override
+    public boolean remove(Object o)
+    {
+        if (!(o instanceof IotHubTransportPacket))
+        {
+            return false;
+        }
+
+        IotHubTransportPacket packet = (IotHubTransportPacket) o;
+        synchronized (this.lock)
+        {
+            if (isTwinOrMethodPacket(packet))
+            {
+                return this.twinAndMethodPackets.removeFirstOccurrence(packet);
+            }
+
+            if (!this.telemetryPackets.removeFirstOccurrence(packet))
+            {
+                return false;
+            }
+
+            this.queuedTelemetryMessageCount -= getMessageCount(packet.getMessage());
+            this.queuedTelemetryBytes -= getSizeInBytes(packet.getMessage());
+
+            if (isBounded())
+            {
+                // wake any producers blocked waiting for room in the queue
+                this.lock.notifyAll();
+            }
+
+            return true;
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        synchronized (this.lock)
+        {
+            return this.twinAndMethodPackets.size() + this.telemetryPackets.size();
+        }
+    }
+
+    /**
+     * @return an iterator over a snapshot of this queue, in the order that packets would be polled. The iterator does
+     * not support removal.
+     */
+    @Override
+    public Iterator<IotHubTransportPacket> iterator()
+    {
+        synchronized (this.lock)
+        {
+            List<IotHubTransportPacket> snapshot = new ArrayList<>(this.twinAndMethodPackets.size() + this.telemetryPackets.size());
+            snapshot.addAll(this.twinAndMethodPackets);
+            snapshot.addAll(this.telemetryPackets);
+            return Collections.unmodifiableList(snapshot).iterator();
+        }
+    }
+
+    // must be called while holding the lock
+    private void enqueue(IotHubTransportPacket packet)
+    {
+        if (isTwinOrMethodPacket(packet))
+        {
+            this.twinAndMethodPackets.add(packet);
+        }
+        else
+        {
+            this.telemetryPackets.add(packet);
+            this.queuedTelemetryMessageCount += getMessageCount(packet.getMessage());
+            this.queuedTelemetryBytes += getSizeInBytes(packet.getMessage());
+        }
+    }
+
+    // must be called while holding the lock
+    private IotHubTransportPacket pollTelemetryPacket()
+    {
+        IotHubTransportPacket packet = this.telemetryPackets.poll();
+        if (packet != null)
+        {
+            this.queuedTelemetryMessageCount -= getMessageCount(packet.getMessage());
+            this.queuedTelemetryBytes -= getSizeInBytes(packet.getMessage());
+
+            if (isBounded())
+            {
+                // wake any producers blocked waiting for room in the queue
+                this.lock.notifyAll();
+            }
+        }
+
+        return packet;
+    }
+
+    // must be called while holding the lock
+    private boolean waitForRoom(int messageCount, long sizeInBytes, long maxBlockMillis)
+    {
+        long abortCountAtStart = this.abortCount;
+        long deadline = System.currentTimeMillis() + maxBlockMillis;
+
+        try
+        {
+            while (!hasRoomFor(messageCount, sizeInBytes))
+            {
+                if (this.abortCount != abortCountAtStart)
+                {
+                    throw new IllegalStateException("Cannot add a message when the transport is closed.");
+                }
+
+                if (maxBlockMillis > 0)
+                {
+                    long remainingMillis = deadline - System.currentTimeMillis();
+                    if (remainingMillis <= 0)
+                    {
+                        return false;
+                    }
+
+                    this.lock.wait(remainingMillis);
+                }
+                else
+                {
+                    this.lock.wait();
+                }
+            }
+
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean isBounded()
+    {
+        return this.maxTelemetryMessageCount > 0 || this.maxTelemetryBytes > 0;
+    }
+
+    private boolean hasRoomFor(int messageCount, long sizeInBytes)
+    {
+        return (this.maxTelemetryMessageCount <= 0 || this.queuedTelemetryMessageCount + messageCount <= this.maxTelemetryMessageCount)
+                && (this.maxTelemetryBytes <= 0 || this.queuedTelemetryBytes + sizeInBytes <= this.maxTelemetryBytes);
+    }
+
+    private boolean fitsInEmptyQueue(int messageCount, long sizeInBytes)
+    {
+        return (this.maxTelemetryMessageCount <= 0 || messageCount <= this.maxTelemetryMessageCount)
+                && (this.maxTelemetryBytes <= 0 || sizeInBytes <= this.maxTelemetryBytes);
+    }
+
+    private static boolean isTwinOrMethodPacket(IotHubTransportPacket packet)
+    {
+        MessageType messageType = packet.getMessage().getMessageType();
+        return messageType == MessageType.DEVICE_TWIN || messageType == MessageType.DEVICE_METHODS;
+    }
+
+    private static int getMessageCount(Message message)
+    {
+        if (message instanceof BatchMessage)
+        {
+            return ((BatchMessage) message).getNestedMessages().size();
+        }
+
+        return 1;
+    }
+
+    private static long getSizeInBytes(Message message)
+    {
+        if (message instanceof BatchMessage)
+        {
+            long sizeInBytes = 0;
+            for (Message nestedMessage : ((BatchMessage) message).getNestedMessages())
+            {
+                sizeInBytes += getSizeInBytes(nestedMessage);
+            }
+
+            return sizeInBytes;
+        }
+
+        byte[] body = IotHubTransportMessage.getBytesWithoutCopy(message);
+        return body != null ? body.length : 0;
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import java.util.*;
+
+/**
+ * Deadline ordered index over the outgoing packets whose message has an expiry time, so that the transport can find
+ * the expired packets without scanning every queued and in progress packet.
+ * <p>
+ * Packets are added when they are first queued and removed when they are completed. Removing a packet does not
+ * remove its deadline from the heap right away. Instead, stale deadlines are skipped when they are polled, and the
+ * heap is rebuilt once stale deadlines outnumber the live ones, so each operation costs O(log n) amortized.
+ * </p>
+ */
+final class PacketExpiryIndex
+{
+    // Stale deadlines are only compacted once there are more than this many of them, so small heaps are never rebuilt
+    private static final int MIN_STALE_DEADLINES_BEFORE_COMPACTION = 64;
+
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>();
+
+    // Identity based since packets don't override equals and a packet must be tracked at most once
+    private final Set<IotHubTransportPacket> trackedPackets = Collections.newSetFromMap(new IdentityHashMap<IotHubTransportPacket, Boolean>());
+
+    // Tracked packets that have expired but have not been removed yet. Their deadlines are no longer in the heap.
+    private final List<IotHubTransportPacket> overduePackets = new ArrayList<>();
+
+    /**
+     * Start tracking the expiry time of the provided packet. Does nothing if the packet's message never expires, or if
+     * the packet is already tracked.
+     *
+     * @param packet the packet to track.
+     */
+    synchronized void add(IotHubTransportPacket packet)
+    {
+        long expiryTime = packet.getMessage().getAbsoluteExpiryTime();
+        if (expiryTime != 0 && this.trackedPackets.add(packet))
+        {
+            this.deadlines.add(new Deadline(expiryTime, packet));
+        }
+    }
+
+    /**
+     * Stop tracking the provided packet, for instance because it was acknowledged or cancelled.
+     *
+     * @param packet the packet to stop tracking.
+     */
+    synchronized void remove(IotHubTransportPacket packet)
+    {
+        if (this.trackedPackets.remove(packet) && this.deadlines.size() - this.trackedPackets.size() > Math.max(this.trackedPackets.size(), MIN_STALE_DEADLINES_BEFORE_COMPACTION))
+        {
+            compact();
+        }
+    }
+
+    /**
+     * Return all the tracked packets whose message has expired. The returned packets stay tracked, and are returned
+     * again by later calls, until they are {@link #remove(IotHubTransportPacket) removed}. This lets the caller skip a
+     * packet that it cannot complete yet, such as one that is waiting to be retried, without losing track of it.
+     *
+     * @return the expired packets. Never null.
+     */
+    synchronized List<IotHubTransportPacket> pollExpired()
+    {
+        if (!this.overduePackets.isEmpty())
+        {
+            // drop the overdue packets that were completed since the last call
+            Iterator<IotHubTransportPacket> iterator = this.overduePackets.iterator();
+            while (iterator.hasNext())
+            {
+                if (!this.trackedPackets.contains(iterator.next()))
+                {
+                    iterator.remove();
+                }
+            }
+        }
+
+        List<Deadline> movedDeadlines = null;
+        long now = System.currentTimeMillis();
+
+        Deadline deadline = this.deadlines.peek();
+        while (deadline != null && deadline.expiryTime < now)
+        {
+            this.deadlines.poll();
+
+            if (this.trackedPackets.contains(deadline.packet))
+            {
+                long currentExpiryTime = deadline.packet.getMessage().getAbsoluteExpiryTime();
+                if (currentExpiryTime == deadline.expiryTime || (currentExpiryTime != 0 && currentExpiryTime < now))
+                {
+                    this.overduePackets.add(deadline.packet);
+                }
+                else if (currentExpiryTime != 0)
+                {
+                    // The message's expiry time was moved after it was queued, so re-index it once the loop is done
+                    if (movedDeadlines == null)
+                    {
+                        movedDeadlines = new ArrayList<>();
+                    }
+
+                    movedDeadlines.add(new Deadline(currentExpiryTime, deadline.packet));
+                }
+                else
+                {
+                    this.trackedPackets.remove(deadline.packet);
+                }
+            }
+
+            deadline = this.deadlines.peek();
+        }
+
+        if (movedDeadlines != null)
+        {
+            this.deadlines.addAll(movedDeadlines);
+        }
+
+        return this.overduePackets.isEmpty() ? Collections.<IotHubTransportPacket>emptyList() : new ArrayList<>(this.overduePackets);
+    }
+
+    /**
+     * @return the number of packets currently tracked.
+     */
+    synchronized int size()
+    {
+        return this.trackedPackets.size();
+    }
+
+    private void compact()
+    {
+        Iterator<Deadline> iterator = this.deadlines.iterator();
+        List<Deadline> liveDeadlines = new ArrayList<>(this.trackedPackets.size());
+        while (iterator.hasNext())
+        {
+            Deadline deadline = iterator.next();
+            if (this.trackedPackets.contains(deadline.packet))
+            {
+                liveDeadlines.add(deadline);
+            }
+        }
+
+        this.deadlines.clear();
+        this.deadlines.addAll(liveDeadlines);
+    }
+
+    private static final class Deadline implements Comparable<Deadline>
+    {
+        private final long expiryTime;
+        private final IotHubTransportPacket packet;
+
+        private Deadline(long expiryTime, IotHubTransportPacket packet)
+        {
+            this.expiryTime = expiryTime;
+            this.packet = packet;
+        }
+
+        @Override
+        public int compareTo(Deadline other)
+        {
+            return Long.compare(this.expiryTime, other.expiryTime);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import lombok.Getter;
+
+/**
+ * A snapshot of the counters of the received message dispatcher of a client, which is enabled by setting
+ * {@link com.microsoft.azure.sdk.iot.device.ClientOptions#setReceivedMessageDispatchThreadCount(int)}.
+ */
+public final class ReceivedMessageDispatchStatistics
+{
+    /**
+     * The number of received messages that are waiting for their callback to be executed.
+     */
+    @Getter
+    private final int queuedMessageCount;
+
+    /**
+     * The highest number of received messages that were waiting for their callback to be executed at once.
+     */
+    @Getter
+    private final int maxQueuedMessageCount;
+
+    /**
+     * The number of received messages whose callback has been executed.
+     */
+    @Getter
+    private final long handledMessageCount;
+
+    /**
+     * The total time, in milliseconds, that received messages spent waiting for their callback to be executed.
+     */
+    @Getter
+    private final long totalQueueTimeMillis;
+
+    /**
+     * The total time, in milliseconds, spent executing the callbacks of received messages and acknowledging them.
+     */
+    @Getter
+    private final long totalHandlerTimeMillis;
+
+    /**
+     * The longest time, in milliseconds, spent executing the callback of a single received message and acknowledging it.
+     */
+    @Getter
+    private final long maxHandlerTimeMillis;
+
+    ReceivedMessageDispatchStatistics(
+        int queuedMessageCount,
+        int maxQueuedMessageCount,
+        long handledMessageCount,
+        long totalQueueTimeMillis,
+        long totalHandlerTimeMillis,
+        long maxHandlerTimeMillis)
+    {
+        this.queuedMessageCount = queuedMessageCount;
+        this.maxQueuedMessageCount = maxQueuedMessageCount;
+        this.handledMessageCount = handledMessageCount;
+        this.totalQueueTimeMillis = totalQueueTimeMillis;
+        this.totalHandlerTimeMillis = totalHandlerTimeMillis;
+        this.maxHandlerTimeMillis = maxHandlerTimeMillis;
+    }
+
+    /**
+     * @return the average time, in milliseconds, spent executing the callback of a received message and acknowledging
+     * it, or 0 if no message has been handled yet.
+     */
+    public double getAverageHandlerTimeMillis()
+    {
+        return this.handledMessageCount == 0 ? 0 : (double) this.totalHandlerTimeMillis / this.handledMessageCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "queued=" + this.queuedMessageCount
+            + ", maxQueued=" + this.maxQueuedMessageCount
+            + ", handled=" + this.handledMessageCount
+            + ", averageHandlerTimeMillis=" + this.getAverageHandlerTimeMillis()
+            + ", maxHandlerTimeMillis=" + this.maxHandlerTimeMillis;
+    }
+}
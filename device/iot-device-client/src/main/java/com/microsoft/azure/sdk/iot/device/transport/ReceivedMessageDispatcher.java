@@ -0,0 +1,394 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Executes the callbacks of received messages on a bounded pool of threads instead of on the single receive thread of
+ * the client, so that one slow callback doesn't hold up the messages of other streams.
+ * <p>
+ * Messages are ordered within their stream and run in parallel across streams. Cloud to device messages form one
+ * stream per device and input name, and twin messages form one stream per device. Each method invocation is a stream
+ * of its own, since method requests are independent of each other. The streams take turns on the pool one message at
+ * a time, so a stream with a large backlog doesn't starve the others.
+ * </p>
+ * <p>
+ * A message whose acknowledgement fails is put back at the head of its stream, which then waits for
+ * {@link #retryFailedMessages()} before handling it again, so that the later messages of the stream are not handled
+ * before it and a lost connection isn't retried in a busy loop.
+ * </p>
+ */
+@Slf4j
+final class ReceivedMessageDispatcher
+{
+    /**
+     * Executes the callback of a received message and acknowledges it.
+     */
+    interface Handler
+    {
+        void handle(IotHubTransportMessage message) throws TransportException;
+    }
+
+    // Device ids can't contain a '/', so the keys returned by getStreamKey never start with this prefix
+    private static final String UNORDERED_STREAM_KEY_PREFIX = "/methods/";
+
+    private final Object lock = new Object();
+
+    private final ExecutorService executor;
+    private final Handler handler;
+    private final Consumer<IotHubTransportMessage> shutdownMessageHandler;
+
+    // Keys are stream keys, see getStreamKey. Only holds the streams that have messages waiting or running.
+    private final Map<String, Stream> streams = new HashMap<>();
+
+    // The streams whose first message failed to be acknowledged, waiting for retryFailedMessages
+    private final List<Stream> pausedStreams = new ArrayList<>();
+
+    // Used to give each message that isn't ordered relative to any other message a stream of its own
+    private long nextUnorderedStreamId;
+
+    private boolean isShutdown;
+
+    private int queuedMessageCount;
+    private int maxQueuedMessageCount;
+    private long handledMessageCount;
+    private long totalQueueTimeNanos;
+    private long totalHandlerTimeNanos;
+    private long maxHandlerTimeNanos;
+
+    /**
+     * @param threadCount the number of threads to execute the callbacks on.
+     * @param threadNamePrefix the prefix of the names of the threads.
+     * @param handler executes the callback of a received message and acknowledges it.
+     * @param shutdownMessageHandler takes back a message whose acknowledgement failed after this dispatcher was shut
+     * down, since it is no longer among the messages that {@link #shutdown()} returned.
+     */
+    ReceivedMessageDispatcher(int threadCount, final String threadNamePrefix, Handler handler, Consumer<IotHubTransportMessage> shutdownMessageHandler)
+    {
+        if (threadCount <= 0)
+        {
+            throw new IllegalArgumentException("Received message dispatch thread count must be greater than 0");
+        }
+
+        if (handler == null || shutdownMessageHandler == null)
+        {
+            throw new IllegalArgumentException("Handlers cannot be null");
+        }
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threadCount, runnable ->
+        {
+            Thread thread = new Thread(runnable, threadNamePrefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.handler = handler;
+        this.shutdownMessageHandler = shutdownMessageHandler;
+    }
+
+    /**
+     * Queue a received message to have its callback executed after the earlier messages of its stream.
+     *
+     * @param message the received message.
+     * @return false if this dispatcher has been shut down, in which case the message was not queued.
+     */
+    boolean dispatch(IotHubTransportMessage message)
+    {
+        String streamKey = getStreamKey(message);
+        Stream stream;
+        synchronized (this.lock)
+        {
+            if (this.isShutdown)
+            {
+                return false;
+            }
+
+            if (streamKey == null)
+            {
+                streamKey = UNORDERED_STREAM_KEY_PREFIX + this.nextUnorderedStreamId++;
+            }
+
+            stream = this.streams.get(streamKey);
+            if (stream == null)
+            {
+                stream = new Stream(streamKey);
+                this.streams.put(streamKey, stream);
+            }
+
+            stream.messages.add(new QueuedMessage(message, System.nanoTime()));
+            this.queuedMessageCount++;
+            this.maxQueuedMessageCount = Math.max(this.maxQueuedMessageCount, this.queuedMessageCount);
+
+            if (stream.isScheduled || stream.isPaused)
+            {
+                // the stream will pick this message up once it's done with the ones before it
+                return true;
+            }
+
+            stream.isScheduled = true;
+        }
+
+        this.schedule(stream);
+        return true;
+    }
+
+    /**
+     * Resume the streams whose first message failed to be acknowledged, handling that message again.
+     */
+    void retryFailedMessages()
+    {
+        List<Stream> streamsToRetry;
+        synchronized (this.lock)
+        {
+            if (this.isShutdown || this.pausedStreams.isEmpty())
+            {
+                return;
+            }
+
+            streamsToRetry = new ArrayList<>(this.pausedStreams);
+            this.pausedStreams.clear();
+            for (Stream stream : streamsToRetry)
+            {
+                stream.isPaused = false;
+                stream.isScheduled = true;
+            }
+        }
+
+        for (Stream stream : streamsToRetry)
+        {
+            this.schedule(stream);
+        }
+    }
+
+    /**
+     * Stop accepting messages. Callbacks that are already executing are allowed to finish.
+     *
+     * @return the messages that were queued and whose callback was not executed yet, in the order that they were
+     * dispatched within each stream.
+     */
+    List<IotHubTransportMessage> shutdown()
+    {
+        List<IotHubTransportMessage> undispatchedMessages = new ArrayList<>();
+        synchronized (this.lock)
+        {
+            this.isShutdown = true;
+            for (Stream stream : this.streams.values())
+            {
+                for (QueuedMessage queuedMessage : stream.messages)
+                {
+                    undispatchedMessages.add(queuedMessage.message);
+                }
+
+                stream.messages.clear();
+            }
+
+            this.pausedStreams.clear();
+            this.queuedMessageCount = 0;
+        }
+
+        // Streams that are still scheduled find no messages left and return right away
+        this.executor.shutdown();
+        return undispatchedMessages;
+    }
+
+    /**
+     * Wait for the callbacks that are executing to finish. Only meant to be called after {@link #shutdown()}.
+     *
+     * @param timeoutMillis the maximum amount of time to wait.
+     * @return true if all of the callbacks finished in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    boolean awaitTermination(long timeoutMillis) throws InterruptedException
+    {
+        return this.executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return a snapshot of the counters of this dispatcher.
+     */
+    ReceivedMessageDispatchStatistics getStatistics()
+    {
+        synchronized (this.lock)
+        {
+            return new ReceivedMessageDispatchStatistics(
+                this.queuedMessageCount,
+                this.maxQueuedMessageCount,
+                this.handledMessageCount,
+                TimeUnit.NANOSECONDS.toMillis(this.totalQueueTimeNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.totalHandlerTimeNanos),
+                TimeUnit.NANOSECONDS.toMillis(this.maxHandlerTimeNanos));
+        }
+    }
+
+    /**
+     * @return the key of the stream that the message has to be ordered within, or null if it doesn't have to be
+     * ordered relative to any other message.
+     */
+    static String getStreamKey(IotHubTransportMessage message)
+    {
+        MessageType messageType = message.getMessageType();
+        if (messageType == MessageType.DEVICE_METHODS)
+        {
+            return null;
+        }
+
+        String deviceId = message.getConnectionDeviceId() == null ? "" : message.getConnectionDeviceId();
+        if (messageType == MessageType.DEVICE_TWIN)
+        {
+            return deviceId + "/twin";
+        }
+
+        String inputName = message.getInputName() == null ? "" : message.getInputName();
+        return deviceId + "/messages/" + inputName;
+    }
+
+    private void schedule(Stream stream)
+    {
+        try
+        {
+            this.executor.execute(stream);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Only happens once shutdown has started, which collects the messages that were still queued in this stream
+            log.trace("Received message dispatcher was shut down before a stream could be scheduled", e);
+        }
+    }
+
+    /**
+     * @return false if the acknowledgement of the message failed, in which case it was put back at the head of its
+     * stream, or handed to the shutdown message handler if this dispatcher has been shut down.
+     */
+    private boolean handle(Stream stream, QueuedMessage queuedMessage)
+    {
+        long startNanos = System.nanoTime();
+        boolean isAcknowledged = true;
+        try
+        {
+            this.handler.handle(queuedMessage.message);
+        }
+        catch (TransportException e)
+        {
+            log.warn("Failed to acknowledge received message, it will be handled again before the rest of its stream ({})", queuedMessage.message, e);
+            isAcknowledged = false;
+        }
+        catch (Throwable e)
+        {
+            log.error("Exception thrown while handling received message ({})", queuedMessage.message, e);
+        }
+
+        long handlerTimeNanos = System.nanoTime() - startNanos;
+        boolean isShutdownBeforeRetry = false;
+        synchronized (this.lock)
+        {
+            this.handledMessageCount++;
+            this.totalQueueTimeNanos += startNanos - queuedMessage.queuedNanos;
+            this.totalHandlerTimeNanos += handlerTimeNanos;
+            this.maxHandlerTimeNanos = Math.max(this.maxHandlerTimeNanos, handlerTimeNanos);
+
+            if (!isAcknowledged)
+            {
+                if (this.isShutdown)
+                {
+                    isShutdownBeforeRetry = true;
+                }
+                else
+                {
+                    stream.messages.addFirst(new QueuedMessage(queuedMessage.message, System.nanoTime()));
+                    this.queuedMessageCount++;
+                    stream.isScheduled = false;
+                    stream.isPaused = true;
+                    this.pausedStreams.add(stream);
+                }
+            }
+        }
+
+        if (isShutdownBeforeRetry)
+        {
+            this.shutdownMessageHandler.accept(queuedMessage.message);
+        }
+
+        return isAcknowledged;
+    }
+
+    private static final class QueuedMessage
+    {
+        private final IotHubTransportMessage message;
+        private final long queuedNanos;
+
+        private QueuedMessage(IotHubTransportMessage message, long queuedNanos)
+        {
+            this.message = message;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    /**
+     * The messages of one stream. At most one task per stream is scheduled on the executor at a time, and it handles
+     * one message before scheduling itself again, which is what keeps the messages of a stream in order.
+     */
+    private final class Stream implements Runnable
+    {
+        private final String key;
+
+        // Guarded by the lock of the dispatcher
+        private final Deque<QueuedMessage> messages = new ArrayDeque<>();
+        private boolean isScheduled;
+
+        // Set while the first message waits for retryFailedMessages, during which the stream is not scheduled
+        private boolean isPaused;
+
+        private Stream(String key)
+        {
+            this.key = key;
+        }
+
+        @Override
+        public void run()
+        {
+            QueuedMessage queuedMessage;
+            synchronized (lock)
+            {
+                queuedMessage = this.messages.poll();
+                if (queuedMessage == null)
+                {
+                    // shutdown took the remaining messages of this stream
+                    this.isScheduled = false;
+                    return;
+                }
+
+                queuedMessageCount--;
+            }
+
+            if (!handle(this, queuedMessage))
+            {
+                return;
+            }
+
+            synchronized (lock)
+            {
+                if (this.messages.isEmpty())
+                {
+                    this.isScheduled = false;
+                    streams.remove(this.key);
+                    return;
+                }
+            }
+
+            schedule(this);
+        }
+    }
+}
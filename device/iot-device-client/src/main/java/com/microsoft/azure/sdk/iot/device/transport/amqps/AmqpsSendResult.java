@@ -28,4 +28,10 @@ public class AmqpsSendResult
         this.deliverySuccessful = true;
         this.deliveryTag = Integer.parseInt(new String(deliveryTag, StandardCharsets.UTF_8));
     }
+
+    AmqpsSendResult(int deliveryTag)
+    {
+        this.deliverySuccessful = true;
+        this.deliveryTag = deliveryTag;
+    }
 }
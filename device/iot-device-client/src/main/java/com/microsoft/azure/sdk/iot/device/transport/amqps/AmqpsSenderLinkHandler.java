@@ -3,9 +3,11 @@
 
 package com.microsoft.azure.sdk.iot.device.transport.amqps;
 
+import com.microsoft.azure.sdk.iot.device.BatchMessage;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.exceptions.ProtocolException;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.qpid.proton.Proton;
@@ -18,8 +20,9 @@ import org.apache.qpid.proton.message.impl.MessageImpl;
 import org.apache.qpid.proton.reactor.FlowController;
 
 import java.nio.BufferOverflowException;
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -29,6 +32,20 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
     static final String VERSION_IDENTIFIER_KEY = "com.microsoft:client-version";
     private static final String API_VERSION_KEY = "com.microsoft:api-version";
     private static final String PNP_MODEL_ID_KEY = "com.microsoft:model-id";
+
+    // The message format of a delivery whose body is a sequence of data sections that each hold a complete encoded message.
+    // IoT Hub accepts this format on the telemetry sender link so that many messages can be sent as a single delivery.
+    static final int AMQP_BATCH_MESSAGE_FORMAT = 0x80013700;
+
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024;
+
+    // Room left for the header, properties and annotations of a message on top of its body when sizing the encode
+    // buffer, so that most messages are encoded on the first attempt
+    private static final int ENCODE_BUFFER_HEADROOM = 512;
+
+    // The largest encoded size of a data section's descriptor and length prefix
+    private static final int DATA_SECTION_OVERHEAD = 8;
+
     final Map<Integer, Message> inProgressMessages = new ConcurrentHashMap<>();
     final Map<Symbol, Object> amqpProperties;
     final String linkCorrelationId;
@@ -37,6 +54,12 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
     private long nextTag = 0;
     private final AmqpsLinkStateCallback amqpsLinkStateCallback;
 
+    // Messages are encoded into these buffers, which only ever grow, so that steady state sends don't allocate a new
+    // buffer per message. Proton copies the bytes out of the buffer when they are sent, so it can be reused right away.
+    // Both are only used from the reactor thread.
+    private byte[] encodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
+    private byte[] batchEncodeBuffer;
+
     AmqpsSenderLinkHandler(Sender sender, AmqpsLinkStateCallback amqpsLinkStateCallback, String linkCorrelationId, String modelId)
     {
         this.amqpProperties = new HashMap<>();
@@ -79,7 +102,7 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
         //Safe to cast here because this callback will only ever fire for acknowledgements received on this sender link
         Delivery delivery = event.getDelivery();
 
-        int deliveryTag = Integer.parseInt(new String(event.getDelivery().getTag(), StandardCharsets.UTF_8));
+        int deliveryTag = decodeDeliveryTag(delivery.getTag());
 
         Message acknowledgedIotHubMessage = this.inProgressMessages.remove(deliveryTag);
         if (acknowledgedIotHubMessage == null)
@@ -155,8 +178,17 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
 
     AmqpsSendResult sendMessageAndGetDeliveryTag(Message iotHubMessage)
     {
-        MessageImpl protonMessage = this.iotHubMessageToProtonMessage(iotHubMessage);
-        AmqpsSendResult sendResult = this.sendMessageAndGetDeliveryTag(protonMessage);
+        AmqpsSendResult sendResult;
+        if (iotHubMessage instanceof BatchMessage)
+        {
+            sendResult = this.sendBatchMessageAndGetDeliveryTag((BatchMessage) iotHubMessage);
+        }
+        else
+        {
+            MessageImpl protonMessage = this.iotHubMessageToProtonMessage(iotHubMessage);
+            sendResult = this.sendMessageAndGetDeliveryTag(protonMessage);
+        }
+
         inProgressMessages.put(sendResult.getDeliveryTag(), iotHubMessage);
         return sendResult;
     }
@@ -165,38 +197,112 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
     {
         //Callers of this method are responsible for putting the returned delivery tag into the inProgressMessages map
         // so that this link can respond to this message being acknowledged appropriately
+        int length = this.encode(protonMessage);
+        return this.sendEncodedMessageAndGetDeliveryTag(this.encodeBuffer, length, 0);
+    }
 
-        //want to avoid negative delivery tags since -1 is the designated failure value
-        if (this.nextTag == Integer.MAX_VALUE || this.nextTag < 0)
+    /**
+     * Send all the nested messages of the provided batch as a single delivery, so that the service acknowledges the
+     * whole batch at once.
+     *
+     * @param batchMessage the batch to send.
+     * @return the result of sending the batch.
+     */
+    private AmqpsSendResult sendBatchMessageAndGetDeliveryTag(BatchMessage batchMessage)
+    {
+        if (this.batchEncodeBuffer == null)
         {
-            this.nextTag = 0;
+            this.batchEncodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
         }
-        else
+
+        int batchLength = 0;
+
+        for (Message nestedMessage : batchMessage.getNestedMessages())
         {
-            this.nextTag++;
+            MessageImpl nestedProtonMessage = this.iotHubMessageToProtonMessage(nestedMessage);
+            if (nestedProtonMessage == null)
+            {
+                log.warn("Failed to send a batch over {} sender link with link correlation id {} because it contains a message that this link cannot send ({})", getLinkInstanceType(), this.linkCorrelationId, nestedMessage);
+                return new AmqpsSendResult();
+            }
+
+            int nestedLength = this.encode(nestedProtonMessage);
+
+            // Each encoded message becomes one data section of the batch delivery's body. The binary wraps the
+            // encode buffer rather than copying it, which is fine since it is encoded into the batch right away.
+            MessageImpl dataSectionMessage = (MessageImpl) Proton.message();
+            dataSectionMessage.setBody(new Data(new Binary(this.encodeBuffer, 0, nestedLength)));
+
+            int requiredLength = batchLength + nestedLength + DATA_SECTION_OVERHEAD;
+            if (requiredLength > this.batchEncodeBuffer.length)
+            {
+                this.batchEncodeBuffer = Arrays.copyOf(this.batchEncodeBuffer, Math.max(this.batchEncodeBuffer.length * 2, requiredLength));
+            }
+
+            batchLength += dataSectionMessage.encode(this.batchEncodeBuffer, batchLength, this.batchEncodeBuffer.length - batchLength);
         }
 
-        byte[] msgData = new byte[1024];
-        int length;
+        log.trace("Encoded a batch of {} messages for {} sender link with link correlation id {}", batchMessage.getNestedMessages().size(), getLinkInstanceType(), this.linkCorrelationId);
+        return this.sendEncodedMessageAndGetDeliveryTag(this.batchEncodeBuffer, batchLength, AMQP_BATCH_MESSAGE_FORMAT);
+    }
+
+    /**
+     * Encode the provided message into this link's encode buffer, growing the buffer first if the message's body
+     * alone would not fit in it.
+     *
+     * @param protonMessage the message to encode.
+     * @return the number of bytes at the start of the encode buffer that hold the encoded message.
+     */
+    private int encode(MessageImpl protonMessage)
+    {
+        Section body = protonMessage.getBody();
+        if (body instanceof Data)
+        {
+            int estimatedLength = ((Data) body).getValue().getLength() + ENCODE_BUFFER_HEADROOM;
+            if (estimatedLength > this.encodeBuffer.length)
+            {
+                this.encodeBuffer = new byte[Math.max(this.encodeBuffer.length * 2, estimatedLength)];
+            }
+        }
 
         while (true)
         {
             try
             {
-                length = protonMessage.encode(msgData, 0, msgData.length);
-                break;
+                return protonMessage.encode(this.encodeBuffer, 0, this.encodeBuffer.length);
             }
             catch (BufferOverflowException e)
             {
-                msgData = new byte[msgData.length * 2];
+                this.encodeBuffer = new byte[this.encodeBuffer.length * 2];
             }
         }
+    }
 
-        byte[] deliveryTag = String.valueOf(this.nextTag).getBytes(StandardCharsets.UTF_8);
+    private AmqpsSendResult sendEncodedMessageAndGetDeliveryTag(byte[] msgData, int length, int messageFormat)
+    {
+        //want to avoid negative delivery tags since -1 is the designated failure value
+        if (this.nextTag == Integer.MAX_VALUE || this.nextTag < 0)
+        {
+            this.nextTag = 0;
+        }
+        else
+        {
+            this.nextTag++;
+        }
+
+        int deliveryTagValue = (int) this.nextTag;
+
+        // Proton keeps a reference to the tag until the delivery is freed, so each delivery needs its own array
+        byte[] deliveryTag = encodeDeliveryTag(deliveryTagValue);
 
         Delivery delivery = this.senderLink.delivery(deliveryTag);
         try
         {
+            if (messageFormat != 0)
+            {
+                delivery.setMessageFormat(messageFormat);
+            }
+
             log.trace("Sending {} bytes over the amqp {} sender link with link correlation id {}", length, getLinkInstanceType(), this.linkCorrelationId);
             int bytesSent = this.senderLink.send(msgData, 0, length);
             log.trace("{} bytes sent over the amqp {} sender link with link correlation id {}", bytesSent, getLinkInstanceType(), this.linkCorrelationId);
@@ -213,8 +319,8 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
                 throw new ProtocolException(String.format("Failed to advance the senderLink after sending a message on %s sender link with link correlation id %s, retrying to send the message", getLinkInstanceType(), this.linkCorrelationId));
             }
 
-            log.trace("Message was sent over {} sender link with delivery tag {} and hash {}", getLinkInstanceType(), new String(deliveryTag, StandardCharsets.UTF_8), delivery.hashCode());
-            return new AmqpsSendResult(deliveryTag);
+            log.trace("Message was sent over {} sender link with delivery tag {} and hash {}", getLinkInstanceType(), deliveryTagValue, delivery.hashCode());
+            return new AmqpsSendResult(deliveryTagValue);
         }
         catch (Exception e)
         {
@@ -225,6 +331,64 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
         }
     }
 
+    /**
+     * Encode the provided delivery tag as its decimal digits in ASCII, which is the format that IoT Hub expects. This is
+     * equivalent to {@code String.valueOf(deliveryTag).getBytes(StandardCharsets.UTF_8)} without the intermediate string.
+     *
+     * @param deliveryTag the non-negative delivery tag to encode.
+     * @return the encoded delivery tag.
+     */
+    static byte[] encodeDeliveryTag(int deliveryTag)
+    {
+        int digitCount = 1;
+        for (int remaining = deliveryTag / 10; remaining > 0; remaining /= 10)
+        {
+            digitCount++;
+        }
+
+        byte[] encodedDeliveryTag = new byte[digitCount];
+        int remaining = deliveryTag;
+        for (int i = digitCount - 1; i >= 0; i--)
+        {
+            encodedDeliveryTag[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+
+        return encodedDeliveryTag;
+    }
+
+    /**
+     * Decode a delivery tag that was encoded by {@link #encodeDeliveryTag(int)}.
+     *
+     * @param encodedDeliveryTag the encoded delivery tag.
+     * @return the delivery tag.
+     * @throws NumberFormatException if the provided bytes are not a valid delivery tag.
+     */
+    static int decodeDeliveryTag(byte[] encodedDeliveryTag)
+    {
+        if (encodedDeliveryTag == null || encodedDeliveryTag.length == 0)
+        {
+            throw new NumberFormatException("Delivery tag cannot be empty");
+        }
+
+        long deliveryTag = 0;
+        for (byte digit : encodedDeliveryTag)
+        {
+            if (digit < '0' || digit > '9')
+            {
+                throw new NumberFormatException("Delivery tag must only contain decimal digits");
+            }
+
+            deliveryTag = deliveryTag * 10 + (digit - '0');
+            if (deliveryTag > Integer.MAX_VALUE)
+            {
+                throw new NumberFormatException("Delivery tag is out of range");
+            }
+        }
+
+        return (int) deliveryTag;
+    }
+
     MessageImpl iotHubMessageToProtonMessage(Message message)
     {
         log.trace("Converting IoT Hub message to proton message for {} sender link with link correlation id {}. IoT Hub message correlationId {}", getLinkInstanceType(), this.linkCorrelationId, message.getCorrelationId());
@@ -254,14 +418,13 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
         outgoingMessage.setProperties(properties);
 
         Map<String, Object> userProperties = new HashMap<>();
-        if (message.getProperties().length > 0)
+        List<MessageProperty> messageProperties = message.getPropertiesView();
+        for (int i = 0; i < messageProperties.size(); i++)
         {
-            for (MessageProperty messageProperty : message.getProperties())
+            MessageProperty messageProperty = messageProperties.get(i);
+            if (!MessageProperty.RESERVED_PROPERTY_NAMES.contains(messageProperty.getName()))
             {
-                if (!MessageProperty.RESERVED_PROPERTY_NAMES.contains(messageProperty.getName()))
-                {
-                    userProperties.put(messageProperty.getName(), messageProperty.getValue());
-                }
+                userProperties.put(messageProperty.getName(), messageProperty.getValue());
             }
         }
 
@@ -297,7 +460,7 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
         MessageAnnotations messageAnnotations = new MessageAnnotations(messageAnnotationsMap);
         outgoingMessage.setMessageAnnotations(messageAnnotations);
 
-        Binary binary = new Binary(message.getBytes());
+        Binary binary = new Binary(IotHubTransportMessage.getBytesWithoutCopy(message));
         Section section = new Data(binary);
         outgoingMessage.setBody(section);
         return outgoingMessage;
@@ -285,7 +285,7 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
                 Message message = httpsMsg.toMessage();
 
                 //callbacks are always for telemetry as HTTPS does not support Twin or Methods
-                transportMessage = new IotHubTransportMessage(message.getBytes(), message.getMessageType(), message.getMessageId(), message.getCorrelationId(), message.getProperties());
+                transportMessage = new IotHubTransportMessage(IotHubTransportMessage.getBytesWithoutCopy(message), message.getMessageType(), message.getMessageId(), message.getCorrelationId(), message.getProperties());
                 transportMessage.setMessageCallback(this.config.getDeviceTelemetryMessageCallback(message.getInputName()));
                 transportMessage.setMessageCallbackContext(this.config.getDeviceTelemetryMessageContext(message.getInputName()));
 
@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
+import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageType;
@@ -21,6 +22,7 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Queue;
+import java.util.function.IntConsumer;
 
 @Slf4j
 abstract public class Mqtt implements MqttCallback
@@ -32,11 +34,10 @@ abstract public class Mqtt implements MqttCallback
     private static final int QOS = 1;
     private static final int MAX_SUBSCRIBE_ACK_WAIT_TIME = 15 * 1000;
 
-    // relatively arbitrary, but only because Paho doesn't have any particular recommendations here. Just a high enough
-    // value that users who are building a gateway type solution don't find this value to be a bottleneck.
-    static final int MAX_IN_FLIGHT_COUNT = 65000;
-
     private MqttAsyncClient mqttAsyncClient;
+
+    // Shared by the messaging, twin and method subclients of a connection since they publish over the same client
+    private MqttInFlightWindow inFlightWindow = new MqttInFlightWindow(DeviceClientConfig.DEFAULT_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT);
     private final MqttConnectOptions connectOptions;
     private final MqttMessageListener messageListener;
     private final Map<Integer, Message> unacknowledgedSentMessages;
@@ -164,6 +165,10 @@ abstract public class Mqtt implements MqttCallback
         }
         finally
         {
+            // Publishes that were never acknowledged will not give their permits back, so this window can't be reused.
+            // Closing it also releases any publisher that is waiting for room in it.
+            this.inFlightWindow.close();
+
             try
             {
                 this.mqttAsyncClient.close();
@@ -186,6 +191,21 @@ abstract public class Mqtt implements MqttCallback
      * for any other reason
      */
     void publish(String publishTopic, Message message) throws TransportException
+    {
+        this.publish(publishTopic, message, null);
+    }
+
+    /**
+     * Method to publish to mqtt broker connection.
+     *
+     * @param publishTopic the topic to publish on mqtt broker connection.
+     * @param message the message to publish.
+     * @param publishedCallback executed with the mqtt message id of the publish before its acknowledgement can be
+     * handled, or null.
+     * @throws TransportException if sas token has expired, if connection hasn't been established yet, or if Paho throws
+     * for any other reason
+     */
+    void publish(String publishTopic, Message message, IntConsumer publishedCallback) throws TransportException
     {
         try
         {
@@ -196,38 +216,47 @@ abstract public class Mqtt implements MqttCallback
                 throw transportException;
             }
 
-            if (message == null || publishTopic == null || publishTopic.length() == 0 || message.getBytes() == null)
+            if (message == null || publishTopic == null || publishTopic.length() == 0 || IotHubTransportMessage.getBytesWithoutCopy(message) == null)
             {
                 throw new IllegalArgumentException("Cannot publish on null or empty publish topic");
             }
 
-            byte[] payload = message.getBytes();
+            byte[] payload = IotHubTransportMessage.getBytesWithoutCopy(message);
 
             // Wait until either the number of in flight messages is below the limit before publishing another message
             // Or wait until the connection is lost so the message can be requeued for later
-            while (this.mqttAsyncClient.getPendingDeliveryTokens().length >= MAX_IN_FLIGHT_COUNT)
+            MqttInFlightWindow inFlightWindow = this.inFlightWindow;
+            if (!inFlightWindow.acquire())
             {
-                //noinspection BusyWait
-                Thread.sleep(10);
-
-                if (!this.mqttAsyncClient.isConnected())
-                {
-                    TransportException transportException = new TransportException("Cannot publish when mqtt client is holding " + MAX_IN_FLIGHT_COUNT + " tokens and is disconnected");
-                    transportException.setRetryable(true);
-                    throw transportException;
-                }
+                TransportException transportException = new TransportException("Cannot publish when mqtt client is disconnected");
+                transportException.setRetryable(true);
+                throw transportException;
             }
 
             MqttMessage mqttMessage = (payload.length == 0) ? new MqttMessage() : new MqttMessage(payload);
 
             mqttMessage.setQos(QOS);
 
-            synchronized (this.unacknowledgedSentMessagesLock)
+            try
+            {
+                synchronized (this.unacknowledgedSentMessagesLock)
+                {
+                    log.trace("Publishing message ({}) to MQTT topic {}", message, publishTopic);
+                    IMqttDeliveryToken publishToken = this.mqttAsyncClient.publish(publishTopic, mqttMessage);
+                    unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
+                    if (publishedCallback != null)
+                    {
+                        publishedCallback.accept(publishToken.getMessageId());
+                    }
+
+                    log.trace("Message published to MQTT topic {}. Mqtt message id {} added to list of messages to wait for acknowledgement ({})", publishTopic, publishToken.getMessageId(), message);
+                }
+            }
+            catch (MqttException | RuntimeException e)
             {
-                log.trace("Publishing message ({}) to MQTT topic {}", message, publishTopic);
-                IMqttDeliveryToken publishToken = this.mqttAsyncClient.publish(publishTopic, mqttMessage);
-                unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
-                log.trace("Message published to MQTT topic {}. Mqtt message id {} added to list of messages to wait for acknowledgement ({})", publishTopic, publishToken.getMessageId(), message);
+                // This publish will never be acknowledged, so its place in the window must be given back here
+                inFlightWindow.release();
+                throw e;
             }
         }
         catch (MqttException e)
@@ -375,6 +404,10 @@ abstract public class Mqtt implements MqttCallback
     {
         Message deliveredMessage = null;
         log.trace("Mqtt message with message id {} was acknowledge by service", iMqttDeliveryToken.getMessageId());
+
+        // Wakes up a publisher that is waiting for room in the window, if there is one
+        this.inFlightWindow.release();
+
         synchronized (this.unacknowledgedSentMessagesLock)
         {
             if (unacknowledgedSentMessages.containsKey(iMqttDeliveryToken.getMessageId()))
@@ -400,6 +433,16 @@ abstract public class Mqtt implements MqttCallback
             }
         }
 
+        this.onMessageDelivered(iMqttDeliveryToken.getMessageId(), deliveredMessage);
+    }
+
+    /**
+     * Notify the listener that the service acknowledged the provided message.
+     * @param mqttMessageId the mqtt message id of the publish that was acknowledged.
+     * @param deliveredMessage the message that was acknowledged.
+     */
+    void onMessageDelivered(int mqttMessageId, Message deliveredMessage)
+    {
         if (this.listener != null)
         {
             this.listener.onMessageSent(deliveredMessage, this.deviceId, null);
@@ -541,4 +584,10 @@ abstract public class Mqtt implements MqttCallback
         // mqttAsyncClients are single use, so this setter is used when the MqttIotHubConnection layer needs to open a new connection
         this.mqttAsyncClient = mqttAsyncClient;
     }
+
+    void setInFlightWindow(MqttInFlightWindow inFlightWindow)
+    {
+        // in flight windows are single use, like mqttAsyncClients, so a new one is set each time a new connection is opened
+        this.inFlightWindow = inFlightWindow;
+    }
 }
@@ -76,7 +76,7 @@ public class MqttDeviceMethod extends Mqtt
      */
     public void send(final IotHubTransportMessage message) throws TransportException, IllegalArgumentException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || IotHubTransportMessage.getBytesWithoutCopy(message) == null)
         {
             throw new IllegalArgumentException("Message cannot be null");
         }
@@ -169,7 +169,7 @@ public class MqttDeviceTwin extends Mqtt
      */
     public void send(final IotHubTransportMessage message) throws TransportException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || IotHubTransportMessage.getBytesWithoutCopy(message) == null)
         {
             throw new IllegalArgumentException("Message cannot be null");
         }
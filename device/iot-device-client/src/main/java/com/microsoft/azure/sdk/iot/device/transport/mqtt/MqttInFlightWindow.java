@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of QoS 1 publishes that are waiting to be acknowledged by the service. A permit is taken before
+ * each publish and given back when its PUBACK arrives, so a publisher that is waiting for room in the window wakes up
+ * as soon as the service acknowledges an earlier publish.
+ * <p>
+ * A window belongs to a single MQTT connection. Publishes that are unacknowledged when the connection is lost never
+ * give their permits back, so the window is closed at that point and the next connection gets a new one.
+ * </p>
+ */
+final class MqttInFlightWindow
+{
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    MqttInFlightWindow(int size)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("MQTT in flight window size must be greater than 0");
+        }
+
+        this.permits = new Semaphore(size);
+    }
+
+    /**
+     * Wait until there is room in the window for one more publish.
+     *
+     * @return true if a permit was taken, or false if the window was closed before or while waiting.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean acquire() throws InterruptedException
+    {
+        if (this.closed)
+        {
+            return false;
+        }
+
+        this.permits.acquire();
+
+        if (this.closed)
+        {
+            // pass the permit along so that the next waiting publisher also sees that the window was closed
+            this.permits.release();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Give back a permit, either because a publish was acknowledged or because it failed to be sent.
+     */
+    void release()
+    {
+        this.permits.release();
+    }
+
+    /**
+     * Close this window, waking all the publishers that are waiting for room in it.
+     */
+    void close()
+    {
+        if (!this.closed)
+        {
+            this.closed = true;
+            this.permits.release();
+        }
+    }
+
+    /**
+     * @return the number of publishes that can currently be sent without waiting.
+     */
+    int availablePermits()
+    {
+        return this.permits.availablePermits();
+    }
+}
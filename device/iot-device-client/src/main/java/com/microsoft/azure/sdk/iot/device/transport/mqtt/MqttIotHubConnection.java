@@ -29,7 +29,6 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_METHODS;
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_TWIN;
-import static com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt.MAX_IN_FLIGHT_COUNT;
 
 @Slf4j
 public class MqttIotHubConnection implements IotHubTransportConnection, MqttMessageListener
@@ -183,7 +182,7 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
         connectOptions.setCleanSession(SET_CLEAN_SESSION);
         connectOptions.setMqttVersion(MQTT_VERSION);
         connectOptions.setUserName(iotHubUserName);
-        connectOptions.setMaxInflight(MAX_IN_FLIGHT_COUNT);
+        connectOptions.setMaxInflight(config.getMqttMaxInFlightMessageCount());
         ProxySettings proxySettings = config.getProxySettings();
         if (proxySettings != null)
         {
@@ -282,6 +281,11 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
             this.deviceTwin.setMqttAsyncClient(mqttAsyncClient);
             this.deviceMethod.setMqttAsyncClient(mqttAsyncClient);
 
+            MqttInFlightWindow inFlightWindow = new MqttInFlightWindow(this.config.getMqttMaxInFlightMessageCount());
+            this.deviceMessaging.setInFlightWindow(inFlightWindow);
+            this.deviceTwin.setInFlightWindow(inFlightWindow);
+            this.deviceMethod.setInFlightWindow(inFlightWindow);
+
             this.deviceMessaging.start();
             this.state = IotHubConnectionStatus.CONNECTED;
 
@@ -339,10 +343,17 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
     @Override
     public IotHubStatusCode sendMessage(Message message) throws TransportException
     {
-        if (message == null || message.getBytes() == null ||
+        if (message instanceof BatchMessage)
+        {
+            if (((BatchMessage) message).getNestedMessages().isEmpty())
+            {
+                return IotHubStatusCode.BAD_FORMAT;
+            }
+        }
+        else if (message == null || IotHubTransportMessage.getBytesWithoutCopy(message) == null ||
             ((message.getMessageType() != DEVICE_TWIN
                     && message.getMessageType() != DEVICE_METHODS)
-                    && message.getBytes().length == 0))
+                    && IotHubTransportMessage.getBytesWithoutCopy(message).length == 0))
         {
             return IotHubStatusCode.BAD_FORMAT;
         }
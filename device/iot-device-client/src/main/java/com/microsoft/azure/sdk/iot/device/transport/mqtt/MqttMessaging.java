@@ -3,21 +3,34 @@
 
 package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
+import com.microsoft.azure.sdk.iot.device.BatchMessage;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+@Slf4j
 public class MqttMessaging extends Mqtt
 {
     private final String moduleId;
+
+    // The batches that have been published, but not yet acknowledged, keyed by the mqtt message id of each publish of
+    // their nested messages. A retried batch is published again under new ids, so a late acknowledgement of an earlier
+    // attempt can never count towards it
+    private final Map<Integer, InProgressBatch> inProgressBatches = new ConcurrentHashMap<>();
+
     private final String eventsSubscribeTopic;
     private final String inputsSubscribeTopic;
     private final String publishTopic;
@@ -75,6 +88,21 @@ public class MqttMessaging extends Mqtt
         this.disconnect();
     }
 
+    @Override
+    void disconnect()
+    {
+        super.disconnect();
+
+        // The publishes of this connection will never be acknowledged, and their mqtt message ids will be reused by the
+        // next connection
+        for (InProgressBatch inProgressBatch : this.inProgressBatches.values())
+        {
+            inProgressBatch.abandoned = true;
+        }
+
+        this.inProgressBatches.clear();
+    }
+
     /**
      * Sends the provided telemetry message over the mqtt connection
      *
@@ -83,11 +111,22 @@ public class MqttMessaging extends Mqtt
      */
     public void send(Message message) throws TransportException
     {
-        if (message == null || message.getBytes() == null)
+        if (message instanceof BatchMessage)
+        {
+            this.sendBatch((BatchMessage) message);
+            return;
+        }
+
+        if (message == null || IotHubTransportMessage.getBytesWithoutCopy(message) == null)
         {
             throw new IllegalArgumentException("Message cannot be null");
         }
 
+        this.publish(this.buildPublishTopic(message), message);
+    }
+
+    private String buildPublishTopic(Message message) throws TransportException
+    {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append(this.publishTopic);
 
@@ -113,8 +152,10 @@ public class MqttMessaging extends Mqtt
             separatorNeeded = appendPropertyIfPresent(stringBuilder, separatorNeeded, COMPONENT_ID, message.getComponentName(), false);
         }
 
-        for (MessageProperty property : message.getProperties())
+        List<MessageProperty> properties = message.getPropertiesView();
+        for (int i = 0; i < properties.size(); i++)
         {
+            MessageProperty property = properties.get(i);
             separatorNeeded = appendPropertyIfPresent(stringBuilder, separatorNeeded, property.getName(), property.getValue(), true);
         }
 
@@ -123,9 +164,79 @@ public class MqttMessaging extends Mqtt
             stringBuilder.append("/");
         }
 
-        String messagePublishTopic = stringBuilder.toString();
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Publishes each nested message of the provided batch without waiting for any of them to be acknowledged. The
+     * batch is reported as sent once the service has acknowledged all of its nested messages.
+     *
+     * @param batchMessage the batch to send
+     * @throws TransportException if any nested message could not be published. In that case, the batch will never be
+     * reported as sent, even if the nested messages that were already published are acknowledged.
+     */
+    private void sendBatch(BatchMessage batchMessage) throws TransportException
+    {
+        List<Message> nestedMessages = batchMessage.getNestedMessages();
+        final InProgressBatch inProgressBatch = new InProgressBatch(batchMessage, nestedMessages.size());
 
-        this.publish(messagePublishTopic, message);
+        try
+        {
+            for (Message nestedMessage : nestedMessages)
+            {
+                if (nestedMessage == null || IotHubTransportMessage.getBytesWithoutCopy(nestedMessage) == null)
+                {
+                    throw new IllegalArgumentException("Message cannot be null");
+                }
+
+                // Tracked before the acknowledgement of the publish can be handled, since it may arrive before the
+                // last nested message has been published
+                this.publish(
+                    this.buildPublishTopic(nestedMessage),
+                    nestedMessage,
+                    mqttMessageId -> this.inProgressBatches.put(mqttMessageId, inProgressBatch));
+            }
+        }
+        catch (TransportException | RuntimeException e)
+        {
+            // The nested messages that were already published stay tracked until they are acknowledged or the
+            // connection is lost, so that their acknowledgements are ignored rather than reported as unknown messages
+            inProgressBatch.abandoned = true;
+            throw e;
+        }
+    }
+
+    @Override
+    void onMessageDelivered(int mqttMessageId, Message deliveredMessage)
+    {
+        InProgressBatch inProgressBatch = this.inProgressBatches.remove(mqttMessageId);
+        if (inProgressBatch == null)
+        {
+            super.onMessageDelivered(mqttMessageId, deliveredMessage);
+            return;
+        }
+
+        if (inProgressBatch.abandoned)
+        {
+            log.trace("Ignoring the acknowledgement of a message from a batch that failed to publish ({})", deliveredMessage);
+        }
+        else if (inProgressBatch.remainingMessageCount.decrementAndGet() == 0)
+        {
+            super.onMessageDelivered(mqttMessageId, inProgressBatch.batchMessage);
+        }
+    }
+
+    private static final class InProgressBatch
+    {
+        private final BatchMessage batchMessage;
+        private final AtomicInteger remainingMessageCount;
+        private volatile boolean abandoned;
+
+        private InProgressBatch(BatchMessage batchMessage, int messageCount)
+        {
+            this.batchMessage = batchMessage;
+            this.remainingMessageCount = new AtomicInteger(messageCount);
+        }
     }
 
     /**
@@ -0,0 +1,213 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for DesiredPropertySubscriptions.
+ */
+public class DesiredPropertySubscriptionsTest
+{
+    private static final String PATCH_JSON =
+        "{\"config\":{\"sensors\":{\"temperature\":{\"interval\":10},\"humidity\":{\"interval\":20}},\"mode\":\"eco\"},"
+            + "\"firmware\":\"1.0\",\"$version\":5,"
+            + "\"$metadata\":{\"config\":{\"$lastUpdated\":\"2021-01-01T00:00:00.0000000Z\",\"$lastUpdatedVersion\":5,"
+            + "\"mode\":{\"$lastUpdated\":\"2021-01-01T00:00:00.0000000Z\",\"$lastUpdatedVersion\":4}}}}";
+
+    /**
+     * Records the key and value of every call, in the order of the calls.
+     */
+    private static class RecordingCallback implements PropertyCallBack<String, Object>
+    {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void PropertyCall(String propertyKey, Object propertyValue, Object context)
+        {
+            this.calls.add(propertyKey + "=" + propertyValue);
+        }
+    }
+
+    private static TwinCollection createPatch()
+    {
+        return TwinState.createFromDesiredPropertyJson(PATCH_JSON).getDesiredProperty();
+    }
+
+    private static boolean executeAll(DesiredPropertySubscriptions subscriptions, TwinCollection patch)
+    {
+        boolean executed = false;
+        for (String key : patch.keySet())
+        {
+            executed |= subscriptions.execute(patch, key);
+        }
+
+        return executed;
+    }
+
+    @Test
+    public void topLevelSubscriptionReceivesTheTopLevelProperty()
+    {
+        //arrange
+        RecordingCallback callback = new RecordingCallback();
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setPropertyCallback("firmware", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+        TwinCollection patch = createPatch();
+
+        //act
+        boolean firmwareExecuted = subscriptions.execute(patch, "firmware");
+        boolean configExecuted = subscriptions.execute(patch, "config");
+
+        //assert
+        assertTrue(firmwareExecuted);
+        assertFalse(configExecuted);
+        assertEquals(Collections.singletonList("firmware=1.0"), callback.calls);
+    }
+
+    @Test
+    public void nestedPathSubscriptionReceivesTheNestedPropertyWithItsPath()
+    {
+        //arrange
+        RecordingCallback callback = new RecordingCallback();
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setPropertyCallback("config.sensors.humidity.interval", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+        subscriptions.setPropertyCallback("config.missing", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+
+        //act
+        boolean executed = executeAll(subscriptions, createPatch());
+
+        //assert
+        assertTrue(executed);
+        assertEquals(Collections.singletonList("config.sensors.humidity.interval=20.0"), callback.calls);
+    }
+
+    @Test
+    public void wildcardMatchesEveryPropertyDirectlyBelowItsParent()
+    {
+        //arrange
+        RecordingCallback callback = new RecordingCallback();
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setPropertyCallback("config.sensors.*", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+
+        //act
+        executeAll(subscriptions, createPatch());
+
+        //assert
+        Collections.sort(callback.calls);
+        assertEquals(Arrays.asList("config.sensors.humidity={\"interval\":20.0}", "config.sensors.temperature={\"interval\":10.0}"), callback.calls);
+    }
+
+    @Test
+    public void wildcardInTheMiddleOfAPathMatchesAnyName()
+    {
+        //arrange
+        RecordingCallback callback = new RecordingCallback();
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setPropertyCallback("config.sensors.*.interval", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+
+        //act
+        executeAll(subscriptions, createPatch());
+
+        //assert
+        Collections.sort(callback.calls);
+        assertEquals(Arrays.asList("config.sensors.humidity.interval=20.0", "config.sensors.temperature.interval=10.0"), callback.calls);
+    }
+
+    @Test
+    public void parentAndChildSubscriptionsAreBothExecuted()
+    {
+        //arrange
+        RecordingCallback callback = new RecordingCallback();
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setPropertyCallback("config", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+        subscriptions.setPropertyCallback("config.mode", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+
+        //act
+        subscriptions.execute(createPatch(), "config");
+
+        //assert
+        assertEquals(2, callback.calls.size());
+        assertTrue(callback.calls.get(0).startsWith("config={"));
+        assertEquals("config.mode=eco", callback.calls.get(1));
+    }
+
+    @Test
+    public void twinPropertyCallbackReceivesThePathVersionAndNestedMetadata()
+    {
+        //arrange
+        final List<Property> properties = new ArrayList<>();
+        TwinPropertyCallBack callback = new TwinPropertyCallBack()
+        {
+            @Override
+            public void TwinPropertyCallBack(Property property, Object context)
+            {
+                properties.add(property);
+            }
+        };
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setTwinPropertyCallback("config.mode", new Pair<TwinPropertyCallBack, Object>(callback, null));
+
+        //act
+        executeAll(subscriptions, createPatch());
+
+        //assert
+        assertEquals(1, properties.size());
+        Property property = properties.get(0);
+        assertEquals("config.mode", property.getKey());
+        assertEquals("eco", property.getValue());
+        assertEquals(Integer.valueOf(5), property.getVersion());
+        assertEquals(Integer.valueOf(4), property.getLastUpdatedVersion());
+        assertFalse(property.getIsReported());
+    }
+
+    @Test
+    public void subscribingAgainReplacesTheCallbackOfTheSameType()
+    {
+        //arrange
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setPropertyCallback("config.mode", new Pair<PropertyCallBack<String, Object>, Object>(first, null));
+
+        //act
+        subscriptions.setPropertyCallback("config.mode", new Pair<PropertyCallBack<String, Object>, Object>(second, null));
+        executeAll(subscriptions, createPatch());
+
+        //assert
+        assertTrue(first.calls.isEmpty());
+        assertEquals(Collections.singletonList("config.mode=eco"), second.calls);
+        assertEquals(second, subscriptions.getPropertyCallback("config.mode").getKey());
+        assertNull(subscriptions.getTwinPropertyCallback("config.mode"));
+        assertNull(subscriptions.getPropertyCallback("config"));
+    }
+
+    @Test
+    public void malformedPathNeverMatches()
+    {
+        //arrange
+        RecordingCallback callback = new RecordingCallback();
+        DesiredPropertySubscriptions subscriptions = new DesiredPropertySubscriptions();
+        subscriptions.setPropertyCallback("config..mode", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+        subscriptions.setPropertyCallback("firmware.", new Pair<PropertyCallBack<String, Object>, Object>(callback, null));
+
+        //act
+        boolean executed = executeAll(subscriptions, createPatch());
+
+        //assert
+        assertFalse(executed);
+        assertTrue(callback.calls.isEmpty());
+    }
+}
@@ -17,7 +17,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListMap;
 
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -666,12 +665,10 @@ public class DeviceTwinTest
         testTwin.subscribeDesiredPropertiesNotification(desiredMap);
 
         // assert
-        final ConcurrentSkipListMap<String, Pair<PropertyCallBack<String, Object>, Object>> actualMap = Deencapsulation.getField(testTwin, "onDesiredPropertyChangeMap");
+        final DesiredPropertySubscriptions actualSubscriptions = Deencapsulation.getField(testTwin, "desiredPropertySubscriptions");
 
-        assertNotNull(actualMap);
-        assertFalse(actualMap.isEmpty());
-        assertTrue(actualMap.containsKey("DesiredProp"));
-        assertEquals(actualMap.get("DesiredProp").getKey(), mockedDesiredCB );
+        assertNotNull(actualSubscriptions.getPropertyCallback("DesiredProp"));
+        assertEquals(actualSubscriptions.getPropertyCallback("DesiredProp").getKey(), mockedDesiredCB );
 
         new Verifications()
         {
@@ -705,12 +702,10 @@ public class DeviceTwinTest
         testTwin.subscribeDesiredPropertiesTwinPropertyNotification(desiredMap);
 
         // assert
-        final ConcurrentSkipListMap<String, Pair<TwinPropertyCallBack, Object>> actualMap = Deencapsulation.getField(testTwin, "onDesiredTwinPropertyChangeMap");
+        final DesiredPropertySubscriptions actualSubscriptions = Deencapsulation.getField(testTwin, "desiredPropertySubscriptions");
 
-        assertNotNull(actualMap);
-        assertFalse(actualMap.isEmpty());
-        assertTrue(actualMap.containsKey("DesiredProp"));
-        assertEquals(actualMap.get("DesiredProp").getKey(), mockedDesiredCB );
+        assertNotNull(actualSubscriptions.getTwinPropertyCallback("DesiredProp"));
+        assertEquals(actualSubscriptions.getTwinPropertyCallback("DesiredProp").getKey(), mockedDesiredCB );
 
         new Verifications()
         {
@@ -750,13 +745,11 @@ public class DeviceTwinTest
         testTwin.subscribeDesiredPropertiesNotification(desiredMap);
 
         // assert
-        final ConcurrentSkipListMap<String, Pair<PropertyCallBack<String, Object>, Object>> actualMap = Deencapsulation.getField(testTwin, "onDesiredPropertyChangeMap");
+        final DesiredPropertySubscriptions actualSubscriptions = Deencapsulation.getField(testTwin, "desiredPropertySubscriptions");
 
-        assertNotNull(actualMap);
-        assertFalse(actualMap.isEmpty());
-        assertTrue(actualMap.containsKey("DesiredProp1"));
-        assertTrue(actualMap.containsKey("DesiredProp2"));
-        assertEquals(actualMap.get("DesiredProp2").getKey(), mockedDesiredCB );
+        assertNotNull(actualSubscriptions.getPropertyCallback("DesiredProp1"));
+        assertNotNull(actualSubscriptions.getPropertyCallback("DesiredProp2"));
+        assertEquals(actualSubscriptions.getPropertyCallback("DesiredProp2").getKey(), mockedDesiredCB );
 
         new Verifications()
         {
@@ -796,13 +789,11 @@ public class DeviceTwinTest
         testTwin.subscribeDesiredPropertiesTwinPropertyNotification(desiredMap);
 
         // assert
-        final ConcurrentSkipListMap<String, Pair<TwinPropertyCallBack, Object>> actualMap = Deencapsulation.getField(testTwin, "onDesiredTwinPropertyChangeMap");
+        final DesiredPropertySubscriptions actualSubscriptions = Deencapsulation.getField(testTwin, "desiredPropertySubscriptions");
 
-        assertNotNull(actualMap);
-        assertFalse(actualMap.isEmpty());
-        assertTrue(actualMap.containsKey("DesiredProp1"));
-        assertTrue(actualMap.containsKey("DesiredProp2"));
-        assertEquals(actualMap.get("DesiredProp2").getKey(), mockedDesiredCB );
+        assertNotNull(actualSubscriptions.getTwinPropertyCallback("DesiredProp1"));
+        assertNotNull(actualSubscriptions.getTwinPropertyCallback("DesiredProp2"));
+        assertEquals(actualSubscriptions.getTwinPropertyCallback("DesiredProp2").getKey(), mockedDesiredCB );
 
         new Verifications()
         {
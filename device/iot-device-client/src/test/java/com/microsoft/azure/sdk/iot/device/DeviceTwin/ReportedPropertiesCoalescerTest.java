@@ -0,0 +1,311 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.device.IotHubEventCallback;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for ReportedPropertiesCoalescer.
+ */
+public class ReportedPropertiesCoalescerTest
+{
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Keeps the patches it is asked to send along with their callbacks, so that tests can complete them.
+     */
+    private static class RecordingSender implements ReportedPropertiesCoalescer.Sender
+    {
+        private final List<TwinCollection> sentReportedProperties = new CopyOnWriteArrayList<>();
+        private final List<IotHubEventCallback> sentCallbacks = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(TwinCollection reportedProperties, IotHubEventCallback callback, Object callbackContext)
+        {
+            this.sentReportedProperties.add(reportedProperties);
+            this.sentCallbacks.add(callback);
+        }
+
+        void awaitSent(int count) throws InterruptedException
+        {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (this.sentReportedProperties.size() < count)
+            {
+                assertTrue("Timed out waiting for a patch to be sent", System.currentTimeMillis() < deadline);
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private static TwinCollection createPatch(String key, Object value)
+    {
+        TwinCollection patch = new TwinCollection();
+        patch.putFinal(key, value);
+        return patch;
+    }
+
+    @Test
+    public void patchesWithinTheFlushIntervalAreSentAsOne() throws Exception
+    {
+        //arrange
+        RecordingSender sender = new RecordingSender();
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(100, 0, null, sender);
+
+        //act
+        for (int i = 0; i < 10; i++)
+        {
+            coalescer.add(createPatch("temperature", i), null, null);
+        }
+
+        coalescer.add(createPatch("humidity", 50), null, null);
+        sender.awaitSent(1);
+        Thread.sleep(150);
+
+        //assert
+        assertEquals(1, sender.sentReportedProperties.size());
+        TwinCollection sent = sender.sentReportedProperties.get(0);
+        assertEquals(2, sent.size());
+        assertEquals(9, sent.get("temperature"));
+        assertEquals(50, sent.get("humidity"));
+    }
+
+    @Test
+    public void mapValuesAreMergedKeyByKey()
+    {
+        //arrange
+        RecordingSender sender = new RecordingSender();
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(60000, 0, null, sender);
+        Map<String, Object> firstLocation = new HashMap<>();
+        firstLocation.put("latitude", 47.6);
+        firstLocation.put("longitude", -122.3);
+        Map<String, Object> firstInner = new HashMap<>();
+        firstInner.put("accuracy", 10);
+        firstInner.put("source", "gps");
+        firstLocation.put("details", firstInner);
+
+        Map<String, Object> secondLocation = new HashMap<>();
+        secondLocation.put("latitude", 47.7);
+        Map<String, Object> secondInner = new HashMap<>();
+        secondInner.put("accuracy", 5);
+        secondLocation.put("details", secondInner);
+
+        //act
+        coalescer.add(createPatch("location", firstLocation), null, null);
+        coalescer.add(createPatch("location", secondLocation), null, null);
+        coalescer.add(createPatch("firmware", "1.0"), null, null);
+        coalescer.add(createPatch("firmware", null), null, null);
+        coalescer.flush();
+
+        //assert
+        TwinCollection sent = sender.sentReportedProperties.get(0);
+        TwinCollection location = (TwinCollection) sent.get("location");
+        assertEquals(47.7, location.get("latitude"));
+        assertEquals(-122.3, location.get("longitude"));
+        TwinCollection details = (TwinCollection) location.get("details");
+        assertEquals(5, details.get("accuracy"));
+        assertEquals("gps", details.get("source"));
+        assertTrue(sent.containsKey("firmware"));
+        assertNull(sent.get("firmware"));
+
+        // the patches that were merged are not changed
+        assertEquals(47.6, firstLocation.get("latitude"));
+        assertEquals(10, firstInner.get("accuracy"));
+    }
+
+    @Test
+    public void scalarValueReplacesAMapAndTheOtherWayAround()
+    {
+        //arrange
+        RecordingSender sender = new RecordingSender();
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(60000, 0, null, sender);
+
+        //act
+        coalescer.add(createPatch("state", Collections.singletonMap("mode", "auto")), null, null);
+        coalescer.add(createPatch("state", "off"), null, null);
+        coalescer.add(createPatch("config", "default"), null, null);
+        coalescer.add(createPatch("config", Collections.singletonMap("level", 3)), null, null);
+        coalescer.flush();
+
+        //assert
+        // the map can't be merged into the pending scalar, so the pending patch was sent before it
+        assertEquals(2, sender.sentReportedProperties.size());
+        TwinCollection first = sender.sentReportedProperties.get(0);
+        assertEquals("off", first.get("state"));
+        assertEquals("default", first.get("config"));
+        TwinCollection second = sender.sentReportedProperties.get(1);
+        assertEquals(1, second.size());
+        assertEquals(3, ((TwinCollection) second.get("config")).get("level"));
+    }
+
+    @Test
+    public void mapAfterAnExplicitNullIsSentInItsOwnPatch()
+    {
+        //arrange
+        RecordingSender sender = new RecordingSender();
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(60000, 0, null, sender);
+        List<Object> completedContexts = new ArrayList<>();
+        IotHubEventCallback callback = (responseStatus, callbackContext) -> completedContexts.add(callbackContext);
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("a", null);
+
+        //act
+        coalescer.add(createPatch("a", null), callback, "removed");
+        coalescer.add(createPatch("b", 1), callback, "other");
+        coalescer.add(createPatch("a", Collections.singletonMap("c", 1)), callback, "replaced");
+        coalescer.add(createPatch("parent", nested), null, null);
+        coalescer.add(createPatch("parent", Collections.singletonMap("a", Collections.singletonMap("c", 1))), null, null);
+        coalescer.flush();
+        sender.sentCallbacks.get(0).execute(IotHubStatusCode.OK_EMPTY, null);
+
+        //assert
+        // sending {a:null} then {a:{c:1}} leaves a == {c:1} on the service, while {a:{c:1}} alone would keep the old a.b
+        assertEquals(3, sender.sentReportedProperties.size());
+        TwinCollection first = sender.sentReportedProperties.get(0);
+        assertTrue(first.containsKey("a"));
+        assertNull(first.get("a"));
+        assertEquals(1, first.get("b"));
+        TwinCollection second = sender.sentReportedProperties.get(1);
+        assertEquals(1, ((TwinCollection) second.get("a")).get("c"));
+        TwinCollection secondParent = (TwinCollection) second.get("parent");
+        assertTrue(secondParent.containsKey("a"));
+        assertNull(secondParent.get("a"));
+        TwinCollection third = sender.sentReportedProperties.get(2);
+        assertEquals(1, ((TwinCollection) ((TwinCollection) third.get("parent")).get("a")).get("c"));
+        assertEquals(Arrays.<Object>asList("removed", "other"), completedContexts);
+    }
+
+    @Test
+    public void reachingTheMaxPropertyCountSendsRightAway()
+    {
+        //arrange
+        RecordingSender sender = new RecordingSender();
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(60000, 3, null, sender);
+
+        //act
+        coalescer.add(createPatch("a", 1), null, null);
+        coalescer.add(createPatch("b", 1), null, null);
+        coalescer.add(createPatch("a", 2), null, null);
+        assertTrue(sender.sentReportedProperties.isEmpty());
+        coalescer.add(createPatch("c", 1), null, null);
+
+        //assert
+        assertEquals(1, sender.sentReportedProperties.size());
+        assertEquals(3, sender.sentReportedProperties.get(0).size());
+        assertEquals(2, sender.sentReportedProperties.get(0).get("a"));
+    }
+
+    @Test
+    public void everyMergedCallbackIsExecutedWithTheStatusOfTheMergedPatch()
+    {
+        //arrange
+        RecordingSender sender = new RecordingSender();
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(60000, 0, null, sender);
+        List<Object> completedContexts = new ArrayList<>();
+        List<IotHubStatusCode> completedStatuses = new ArrayList<>();
+        IotHubEventCallback callback = (responseStatus, callbackContext) ->
+        {
+            completedContexts.add(callbackContext);
+            completedStatuses.add(responseStatus);
+        };
+        IotHubEventCallback failingCallback = (responseStatus, callbackContext) ->
+        {
+            throw new IllegalStateException("callback failed");
+        };
+
+        coalescer.add(createPatch("a", 1), callback, "first");
+        coalescer.add(createPatch("a", 2), failingCallback, null);
+        coalescer.add(createPatch("b", 1), null, null);
+        coalescer.add(createPatch("a", 3), callback, "third");
+        coalescer.flush();
+
+        //act
+        sender.sentCallbacks.get(0).execute(IotHubStatusCode.OK_EMPTY, null);
+
+        //assert
+        assertEquals(Arrays.<Object>asList("first", "third"), completedContexts);
+        assertEquals(Arrays.asList(IotHubStatusCode.OK_EMPTY, IotHubStatusCode.OK_EMPTY), completedStatuses);
+    }
+
+    @Test
+    public void callbacksAreExecutedWithAnErrorWhenTheMergedPatchCannotBeSent() throws Exception
+    {
+        //arrange
+        ReportedPropertiesCoalescer.Sender failingSender = (reportedProperties, callback, callbackContext) ->
+        {
+            throw new IllegalStateException("client is closed");
+        };
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(10, 0, null, failingSender);
+        BlockingQueue<Object> completedContexts = new LinkedBlockingQueue<>();
+        List<IotHubStatusCode> completedStatuses = new CopyOnWriteArrayList<>();
+        IotHubEventCallback callback = (responseStatus, callbackContext) ->
+        {
+            completedStatuses.add(responseStatus);
+            completedContexts.add(callbackContext);
+        };
+
+        //act
+        coalescer.add(createPatch("a", 1), callback, "first");
+        coalescer.add(createPatch("a", 2), callback, "second");
+        Object firstCompleted = completedContexts.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        Object secondCompleted = completedContexts.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        coalescer.add(createPatch("a", 3), callback, "third");
+        coalescer.flush();
+
+        //assert
+        assertEquals("first", firstCompleted);
+        assertEquals("second", secondCompleted);
+        assertEquals("third", completedContexts.poll());
+        assertEquals(Arrays.asList(IotHubStatusCode.ERROR, IotHubStatusCode.ERROR, IotHubStatusCode.ERROR), completedStatuses);
+    }
+
+    @Test
+    public void flushAfterAFlushSendsNothing()
+    {
+        //arrange
+        RecordingSender sender = new RecordingSender();
+        ReportedPropertiesCoalescer coalescer = new ReportedPropertiesCoalescer(60000, 0, null, sender);
+        coalescer.add(createPatch("a", 1), null, null);
+
+        //act
+        coalescer.flush();
+        coalescer.flush();
+        coalescer.add(createPatch("a", 2), null, null);
+        coalescer.flush();
+
+        //assert
+        assertEquals(2, sender.sentReportedProperties.size());
+        assertEquals(1, sender.sentReportedProperties.get(0).get("a"));
+        assertEquals(2, sender.sentReportedProperties.get(1).get("a"));
+        assertFalse(sender.sentReportedProperties.get(0) == sender.sentReportedProperties.get(1));
+    }
+
+    @Test
+    public void constructorThrowsOnInvalidArguments()
+    {
+        RecordingSender sender = new RecordingSender();
+        assertThrows(IllegalArgumentException.class, () -> new ReportedPropertiesCoalescer(0, 0, null, sender));
+        assertThrows(IllegalArgumentException.class, () -> new ReportedPropertiesCoalescer(100, -1, null, sender));
+        assertThrows(IllegalArgumentException.class, () -> new ReportedPropertiesCoalescer(100, 0, null, null));
+    }
+}
@@ -0,0 +1,192 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.DeviceTwin;
+
+import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
+import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for TwinCache, using files in a temporary directory.
+ */
+public class TwinCacheTest
+{
+    private static final String TWIN_JSON =
+        "{\"desired\":{\"temperature\":20,\"schedule\":{\"start\":\"08:00\",\"end\":\"18:00\"},\"$version\":4,"
+            + "\"$metadata\":{\"$lastUpdated\":\"2021-01-01T00:00:00.0000000Z\",\"$lastUpdatedVersion\":4}},"
+            + "\"reported\":{\"firmware\":\"1.0\",\"$version\":7}}";
+
+    private static Path createCacheFile() throws Exception
+    {
+        return Files.createTempDirectory("twincache").resolve("twin.json");
+    }
+
+    @Test
+    public void loadReturnsFalseWhenThereIsNoFile() throws Exception
+    {
+        //arrange
+        TwinCache cache = new TwinCache(createCacheFile());
+
+        //act
+        boolean loaded = cache.load();
+
+        //assert
+        assertFalse(loaded);
+        assertNull(cache.getSnapshot());
+    }
+
+    @Test
+    public void reconciledTwinIsLoadedByTheNextCache() throws Exception
+    {
+        //arrange
+        Path file = createCacheFile();
+        new TwinCache(file).reconcile(TwinState.createFromPropertiesJson(TWIN_JSON));
+        TwinCache cache = new TwinCache(file);
+
+        //act
+        boolean loaded = cache.load();
+        TwinState snapshot = cache.getSnapshot();
+
+        //assert
+        assertTrue(loaded);
+        assertEquals(20, ((Number) snapshot.getDesiredProperty().get("temperature")).intValue());
+        assertEquals("18:00", ((TwinCollection) snapshot.getDesiredProperty().get("schedule")).get("end"));
+        assertEquals(Integer.valueOf(4), snapshot.getDesiredProperty().getVersionFinal());
+        assertEquals("1.0", snapshot.getReportedProperty().get("firmware"));
+        assertEquals(Integer.valueOf(7), snapshot.getReportedProperty().getVersionFinal());
+        assertFalse(Files.exists(file.resolveSibling("twin.json.tmp")));
+    }
+
+    @Test
+    public void reconcileOnlyReturnsPropertiesWhoseVersionChanged() throws Exception
+    {
+        //arrange
+        TwinCache cache = new TwinCache(createCacheFile());
+        cache.reconcile(TwinState.createFromPropertiesJson(TWIN_JSON));
+
+        //act
+        TwinState unchanged = cache.reconcile(TwinState.createFromPropertiesJson(TWIN_JSON));
+        TwinState changed = cache.reconcile(TwinState.createFromPropertiesJson(
+            "{\"desired\":{\"temperature\":22,\"$version\":5},\"reported\":{\"firmware\":\"1.0\",\"$version\":7}}"));
+
+        //assert
+        assertNull(unchanged);
+        assertNotNull(changed);
+        assertEquals(22, ((Number) changed.getDesiredProperty().get("temperature")).intValue());
+        assertNull(changed.getReportedProperty());
+        assertTrue(changed.getDesiredProperty().containsKey("schedule"));
+        assertNull(changed.getDesiredProperty().get("schedule"));
+        assertFalse(cache.getSnapshot().getDesiredProperty().containsKey("schedule"));
+    }
+
+    @Test
+    public void patchReceivedBeforeTheTwinIsNotAppliedAndDoesNotHideTheTwin() throws Exception
+    {
+        //arrange
+        TwinCache cache = new TwinCache(createCacheFile());
+        TwinCollection patch = TwinState.createFromDesiredPropertyJson("{\"mode\":\"eco\",\"$version\":4}").getDesiredProperty();
+
+        //act
+        boolean applied = cache.applyDesiredPropertiesPatch(patch);
+        TwinState snapshotAfterPatch = cache.getSnapshot();
+        TwinState changed = cache.reconcile(TwinState.createFromPropertiesJson(TWIN_JSON));
+
+        //assert
+        assertTrue(applied);
+        assertNull(snapshotAfterPatch);
+        assertNotNull(changed);
+        assertEquals(20, ((Number) changed.getDesiredProperty().get("temperature")).intValue());
+        assertFalse(cache.getSnapshot().getDesiredProperty().containsKey("mode"));
+    }
+
+    @Test
+    public void patchReceivedBeforeTheTwinIsNotAppliedToALoadedSnapshot() throws Exception
+    {
+        //arrange
+        Path file = createCacheFile();
+        new TwinCache(file).reconcile(TwinState.createFromPropertiesJson(TWIN_JSON));
+        TwinCache cache = new TwinCache(file);
+        cache.load();
+        TwinCollection patch = TwinState.createFromDesiredPropertyJson("{\"mode\":\"eco\",\"$version\":6}").getDesiredProperty();
+
+        //act
+        boolean applied = cache.applyDesiredPropertiesPatch(patch);
+        Integer versionAfterPatch = cache.getSnapshot().getDesiredProperty().getVersionFinal();
+        TwinState changed = cache.reconcile(TwinState.createFromPropertiesJson(
+            "{\"desired\":{\"temperature\":20,\"mode\":\"eco\",\"$version\":6},\"reported\":{\"firmware\":\"1.0\",\"$version\":7}}"));
+
+        //assert
+        assertTrue(applied);
+        assertEquals(Integer.valueOf(4), versionAfterPatch);
+        assertNotNull(changed);
+        assertEquals("eco", changed.getDesiredProperty().get("mode"));
+    }
+
+    @Test
+    public void desiredPropertiesPatchIsMergedIntoTheSnapshot() throws Exception
+    {
+        //arrange
+        Path file = createCacheFile();
+        TwinCache cache = new TwinCache(file);
+        cache.reconcile(TwinState.createFromPropertiesJson(TWIN_JSON));
+        TwinCollection patch = TwinState.createFromDesiredPropertyJson(
+            "{\"temperature\":null,\"schedule\":{\"end\":\"20:00\"},\"mode\":\"eco\",\"$version\":5}").getDesiredProperty();
+
+        //act
+        boolean applied = cache.applyDesiredPropertiesPatch(patch);
+
+        //assert
+        assertTrue(applied);
+        TwinCache reloadedCache = new TwinCache(file);
+        reloadedCache.load();
+        TwinCollection desired = reloadedCache.getSnapshot().getDesiredProperty();
+        assertFalse(desired.containsKey("temperature"));
+        assertEquals("08:00", ((TwinCollection) desired.get("schedule")).get("start"));
+        assertEquals("20:00", ((TwinCollection) desired.get("schedule")).get("end"));
+        assertEquals("eco", desired.get("mode"));
+        assertEquals(Integer.valueOf(5), desired.getVersionFinal());
+    }
+
+    @Test
+    public void desiredPropertiesPatchThatIsNotNewerIsIgnored() throws Exception
+    {
+        //arrange
+        TwinCache cache = new TwinCache(createCacheFile());
+        cache.reconcile(TwinState.createFromPropertiesJson(TWIN_JSON));
+        TwinCollection patch = TwinState.createFromDesiredPropertyJson("{\"temperature\":30,\"$version\":4}").getDesiredProperty();
+
+        //act
+        boolean applied = cache.applyDesiredPropertiesPatch(patch);
+
+        //assert
+        assertFalse(applied);
+        assertEquals(20, ((Number) cache.getSnapshot().getDesiredProperty().get("temperature")).intValue());
+    }
+
+    @Test
+    public void unreadableFileIsIgnored() throws Exception
+    {
+        //arrange
+        Path file = createCacheFile();
+        Files.write(file, "{not json".getBytes(StandardCharsets.UTF_8));
+        TwinCache cache = new TwinCache(file);
+
+        //act
+        boolean loaded = cache.load();
+
+        //assert
+        assertFalse(loaded);
+        assertNull(cache.getSnapshot());
+    }
+}
@@ -9,10 +9,12 @@ import mockit.NonStrictExpectations;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -423,4 +425,184 @@ public class MessageTest
         assertTrue(msg.isSecurityMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void byteBufferConstructorUsesWholeHeapBufferWithoutCopy()
+    {
+        //arrange
+        final byte[] body = { 1, 2, 3 };
+
+        //act
+        Message msg = new Message(ByteBuffer.wrap(body));
+
+        //assert
+        assertSame(body, Message.getBodyWithoutCopy(msg));
+    }
+
+    @Test
+    public void byteBufferConstructorCopiesRemainingBytesOfPartialBuffer()
+    {
+        //arrange
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 });
+        buffer.position(1);
+        buffer.limit(3);
+
+        //act
+        Message msg = new Message(buffer);
+
+        //assert
+        assertArrayEquals(new byte[] { 2, 3 }, msg.getBytes());
+        assertEquals(1, buffer.position());
+        assertEquals(3, buffer.limit());
+    }
+
+    @Test
+    public void byteBufferConstructorCopiesReadOnlyAndDirectBuffers()
+    {
+        //arrange
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(2);
+        directBuffer.put((byte) 5).put((byte) 6).flip();
+        ByteBuffer readOnlyBuffer = ByteBuffer.wrap(new byte[] { 7, 8 }).asReadOnlyBuffer();
+
+        //act
+        Message directMessage = new Message(directBuffer);
+        Message readOnlyMessage = new Message(readOnlyBuffer);
+
+        //assert
+        assertArrayEquals(new byte[] { 5, 6 }, directMessage.getBytes());
+        assertArrayEquals(new byte[] { 7, 8 }, readOnlyMessage.getBytes());
+    }
+
+    @Test
+    public void byteBufferConstructorRejectsNullBody()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new Message((ByteBuffer) null));
+    }
+
+    @Test
+    public void getByteBufferReturnsReadOnlyViewOfBody()
+    {
+        //arrange
+        final byte[] body = { 1, 2, 3 };
+        Message msg = new Message(body);
+
+        //act
+        ByteBuffer bodyBuffer = msg.getByteBuffer();
+
+        //assert
+        assertTrue(bodyBuffer.isReadOnly());
+        assertEquals(ByteBuffer.wrap(body), bodyBuffer);
+        body[0] = 9;
+        assertEquals(9, bodyBuffer.get(0));
+    }
+
+    @Test
+    public void getByteBufferReturnsNullWithoutBody()
+    {
+        //arrange
+        Message msg = new Message();
+
+        //act
+        //assert
+        assertNull(msg.getByteBuffer());
+    }
+
+    @Test
+    public void getPropertyIsCaseInsensitive()
+    {
+        //arrange
+        Message msg = new Message("body");
+        msg.setProperty("Test-Name", "test-value");
+
+        //act
+        //assert
+        assertEquals("test-value", msg.getProperty("test-name"));
+        assertEquals("test-value", msg.getProperty("TEST-NAME"));
+        assertNull(msg.getProperty(null));
+    }
+
+    @Test
+    public void setPropertyReplacesExistingPropertyInPlace()
+    {
+        //arrange
+        Message msg = new Message("body");
+        msg.setProperty("first", "1");
+        msg.setProperty("second", "2");
+
+        //act
+        msg.setProperty("FIRST", "3");
+
+        //assert
+        MessageProperty[] properties = msg.getProperties();
+        assertEquals(2, properties.length);
+        assertEquals("FIRST", properties[0].getName());
+        assertEquals("3", properties[0].getValue());
+        assertEquals("second", properties[1].getName());
+        assertEquals("3", msg.getProperty("first"));
+    }
+
+    @Test
+    public void getPropertiesViewReflectsPropertiesWithoutCopying()
+    {
+        //arrange
+        Message msg = new Message("body");
+        List<MessageProperty> propertiesView = msg.getPropertiesView();
+
+        //act
+        msg.setProperty("name", "value");
+
+        //assert
+        assertSame(propertiesView, msg.getPropertiesView());
+        assertEquals(1, propertiesView.size());
+        assertEquals("name", propertiesView.get(0).getName());
+        assertThrows(UnsupportedOperationException.class, () -> propertiesView.add(new MessageProperty("other", "value")));
+    }
+
+    @Test
+    public void creationTimeUTCStringUsesIotHubFormat()
+    {
+        //arrange
+        Message message = new Message();
+        message.setCreationTimeUTC(new Date(1538413472123L));
+
+        //act
+        String creationTimeUtcString = message.getCreationTimeUTCString();
+
+        //assert
+        assertEquals("2018-10-01T17:04:32.0000123Z", creationTimeUtcString);
+    }
+
+    @Test
+    public void creationTimeUTCStringReflectsChangesToCreationTime()
+    {
+        //arrange
+        Date creationTime = new Date(1538413472123L);
+        Message message = new Message();
+        message.setCreationTimeUTC(creationTime);
+        message.getCreationTimeUTCString();
+
+        //act
+        creationTime.setTime(1538413473000L);
+        String mutatedCreationTimeUtcString = message.getCreationTimeUTCString();
+        message.setCreationTimeUTC(new Date(0));
+        String replacedCreationTimeUtcString = message.getCreationTimeUTCString();
+
+        //assert
+        assertEquals("2018-10-01T17:04:33.0000000Z", mutatedCreationTimeUtcString);
+        assertEquals("1970-01-01T00:00:00.0000000Z", replacedCreationTimeUtcString);
+    }
+
+    @Test
+    public void creationTimeUTCStringIsOnlyFormattedOnce()
+    {
+        //arrange
+        Message message = new Message();
+        message.setCreationTimeUTC(new Date(1538413472123L));
+        String firstCreationTimeUtcString = message.getCreationTimeUTCString();
+
+        //act
+        String secondCreationTimeUtcString = message.getCreationTimeUTCString();
+
+        //assert
+        assertSame(firstCreationTimeUtcString, secondCreationTimeUtcString);
+    }
+}
@@ -0,0 +1,238 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import mockit.Deencapsulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for SharedExecutorWorker.
+ */
+public class SharedExecutorWorkerTest
+{
+    private static final long LONG_PERIOD_MILLISECONDS = 60 * 1000;
+
+    @Test
+    public void signalRunsWork() throws InterruptedException
+    {
+        //arrange
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(2);
+        final CountDownLatch ran = new CountDownLatch(1);
+        SharedExecutorWorker worker = new SharedExecutorWorker("test", ran::countDown, () -> false, executor, LONG_PERIOD_MILLISECONDS);
+
+        try
+        {
+            //act
+            worker.signal();
+
+            //assert
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void signalsWhileRunningAreCoalescedAndNeverOverlap() throws InterruptedException
+    {
+        //arrange
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(4);
+        final CountDownLatch firstRunStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstRun = new CountDownLatch(1);
+        final AtomicInteger runCount = new AtomicInteger();
+        final AtomicInteger concurrentRuns = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        SharedExecutorWorker worker = new SharedExecutorWorker(
+            "test",
+            () ->
+            {
+                if (concurrentRuns.incrementAndGet() > 1)
+                {
+                    overlapped.set(true);
+                }
+
+                if (runCount.incrementAndGet() == 1)
+                {
+                    firstRunStarted.countDown();
+                    try
+                    {
+                        releaseFirstRun.await(5, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                concurrentRuns.decrementAndGet();
+            },
+            () -> false,
+            executor,
+            LONG_PERIOD_MILLISECONDS);
+
+        try
+        {
+            worker.signal();
+            assertTrue(firstRunStarted.await(5, TimeUnit.SECONDS));
+
+            //act
+            for (int i = 0; i < 10; i++)
+            {
+                worker.signal();
+            }
+
+            releaseFirstRun.countDown();
+            Thread.sleep(200);
+
+            //assert
+            assertEquals(2, runCount.get());
+            assertFalse(overlapped.get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void workRunsAgainAfterPeriodWhileWorkIsPending() throws InterruptedException
+    {
+        //arrange
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(2);
+        final CountDownLatch ranThreeTimes = new CountDownLatch(3);
+        SharedExecutorWorker worker = new SharedExecutorWorker("test", ranThreeTimes::countDown, () -> true, executor, 10);
+
+        try
+        {
+            //act
+            worker.signal();
+
+            //assert
+            assertTrue(ranThreeTimes.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            worker.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stoppedWorkerDoesNotRun() throws InterruptedException
+    {
+        //arrange
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(2);
+        final AtomicInteger runCount = new AtomicInteger();
+        SharedExecutorWorker worker = new SharedExecutorWorker("test", runCount::incrementAndGet, () -> true, executor, 10);
+
+        try
+        {
+            //act
+            worker.stop();
+            worker.signal();
+            Thread.sleep(100);
+
+            //assert
+            assertEquals(0, runCount.get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stoppingAWorkerWhoseRunIsQueuedMakesItIdle() throws InterruptedException
+    {
+        //arrange
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        final CountDownLatch releaseExecutor = new CountDownLatch(1);
+        final AtomicInteger runCount = new AtomicInteger();
+        SharedExecutorWorker worker = new SharedExecutorWorker("test", runCount::incrementAndGet, () -> false, executor, LONG_PERIOD_MILLISECONDS);
+
+        try
+        {
+            // keeps the only executor thread busy so that the signalled run stays queued
+            executor.execute(() ->
+            {
+                try
+                {
+                    releaseExecutor.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            worker.signal();
+
+            //act
+            worker.stop();
+            AtomicInteger state = Deencapsulation.getField(worker, "state");
+            int stateAfterStop = state.get();
+            releaseExecutor.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            //assert
+            assertEquals(0, stateAfterStop);
+            assertEquals(0, state.get());
+            assertEquals(0, runCount.get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void workKnowsThatItRunsOnASharedExecutorThread() throws InterruptedException
+    {
+        //arrange
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+        final AtomicBoolean runningWorkDuringWork = new AtomicBoolean();
+        final AtomicBoolean runningWorkAfterWork = new AtomicBoolean(true);
+        SharedExecutorWorker worker = new SharedExecutorWorker(
+            "test",
+            () -> runningWorkDuringWork.set(SharedExecutorWorker.isRunningWorkOnCurrentThread()),
+            () -> false,
+            executor,
+            LONG_PERIOD_MILLISECONDS);
+
+        try
+        {
+            //act
+            worker.signal();
+            executor.execute(() ->
+            {
+                runningWorkAfterWork.set(SharedExecutorWorker.isRunningWorkOnCurrentThread());
+                ran.countDown();
+            });
+
+            //assert
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            assertTrue(runningWorkDuringWork.get());
+            assertFalse(runningWorkAfterWork.get());
+            assertFalse(SharedExecutorWorker.isRunningWorkOnCurrentThread());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.IotHubMessageResult;
+import com.microsoft.azure.sdk.iot.device.IotHubStatusCode;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageType;
+import mockit.Deencapsulation;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the acknowledgement of received messages by IotHubTransport, run against a stub connection rather
+ * than mocks.
+ */
+public class IotHubTransportAcknowledgementTest
+{
+    private static final int STREAM_COUNT = 4;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    // How long each acknowledgement waits for the others to overlap with it
+    private static final long OVERLAP_WAIT_MILLIS = 50;
+
+    /**
+     * Records the highest number of acknowledgements that were being sent at the same time. Each acknowledgement waits
+     * a little while for the acknowledgements of the other streams, so that they overlap if nothing prevents it.
+     */
+    private static class StubConnection implements IotHubTransportConnection
+    {
+        private final CountDownLatch allAcknowledging = new CountDownLatch(STREAM_COUNT);
+        private final AtomicInteger acknowledgingCount = new AtomicInteger();
+        private final AtomicInteger maxAcknowledgingCount = new AtomicInteger();
+        private final AtomicInteger acknowledgedCount = new AtomicInteger();
+
+        @Override
+        public boolean sendMessageResult(IotHubTransportMessage message, IotHubMessageResult result)
+        {
+            this.maxAcknowledgingCount.accumulateAndGet(this.acknowledgingCount.incrementAndGet(), Math::max);
+            this.allAcknowledging.countDown();
+            try
+            {
+                this.allAcknowledging.await(OVERLAP_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            this.acknowledgingCount.decrementAndGet();
+            this.acknowledgedCount.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void open()
+        {
+        }
+
+        @Override
+        public void setListener(IotHubListener listener)
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public IotHubStatusCode sendMessage(Message message)
+        {
+            return IotHubStatusCode.OK;
+        }
+
+        @Override
+        public String getConnectionId()
+        {
+            return "connection";
+        }
+    }
+
+    private static IotHubTransportMessage createMethodMessage(int number)
+    {
+        IotHubTransportMessage message = new IotHubTransportMessage(Integer.toString(number).getBytes(StandardCharsets.UTF_8), MessageType.DEVICE_METHODS);
+        message.setMessageCallback((receivedMessage, callbackContext) -> IotHubMessageResult.COMPLETE);
+        return message;
+    }
+
+    @Test
+    public void acknowledgementsFromSeveralStreamsAreNeverSentConcurrently() throws Exception
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport("test.azure-devices.net", IotHubClientProtocol.AMQPS, null, null, null, 0);
+        StubConnection connection = new StubConnection();
+        Deencapsulation.setField(transport, "iotHubTransportConnection", connection);
+
+        // Each method invocation is a stream of its own, so the dispatcher acknowledges them on all of its threads at once
+        ReceivedMessageDispatcher dispatcher = new ReceivedMessageDispatcher(
+            STREAM_COUNT,
+            "test",
+            message -> Deencapsulation.invoke(transport, "acknowledgeReceivedMessage", message, false),
+            message -> { });
+
+        try
+        {
+            //act
+            for (int i = 0; i < STREAM_COUNT; i++)
+            {
+                dispatcher.dispatch(createMethodMessage(i));
+            }
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (connection.acknowledgedCount.get() < STREAM_COUNT)
+            {
+                assertTrue("Timed out waiting for the messages to be acknowledged", System.currentTimeMillis() < deadline);
+                Thread.sleep(5);
+            }
+
+            //assert
+            assertEquals(1, connection.maxAcknowledgingCount.get());
+        }
+        finally
+        {
+            dispatcher.shutdown();
+        }
+    }
+}
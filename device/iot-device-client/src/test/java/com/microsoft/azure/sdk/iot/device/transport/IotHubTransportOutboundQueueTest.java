@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.IotHubClientProtocol;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.OutboundQueueOverflowPolicy;
+import mockit.Deencapsulation;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the queueing of new messages by IotHubTransport when the outbound queue is bounded, run without
+ * mocks or a connection.
+ */
+public class IotHubTransportOutboundQueueTest
+{
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private static Message createExpiringMessage()
+    {
+        Message message = new Message("message");
+        message.setExpiryTime(60 * 1000);
+        return message;
+    }
+
+    @Test
+    public void messageWhoseBlockedOfferIsAbortedIsNoLongerTrackedForExpiry() throws Exception
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport("test.azure-devices.net", IotHubClientProtocol.AMQPS, null, null, null, 0);
+        Deencapsulation.setField(transport, "connectionStatus", IotHubConnectionStatus.CONNECTED);
+        transport.setOutboundQueueLimits(1, 0, OutboundQueueOverflowPolicy.BLOCK);
+        transport.addMessage(createExpiringMessage(), null, null, null);
+
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread producer = new Thread(() ->
+        {
+            try
+            {
+                transport.addMessage(createExpiringMessage(), null, null, null);
+            }
+            catch (Throwable e)
+            {
+                thrown.set(e);
+            }
+        });
+        producer.start();
+
+        OutboundPacketQueue waitingPacketsQueue = Deencapsulation.getField(transport, "waitingPacketsQueue");
+        PacketExpiryIndex expiringPackets = Deencapsulation.getField(transport, "expiringPackets");
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (expiringPackets.size() < 2 || producer.getState() != Thread.State.WAITING)
+        {
+            assertTrue("Timed out waiting for the second message to block", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+
+        //act
+        waitingPacketsQueue.abortBlockedOffers();
+        producer.join(TIMEOUT_MILLIS);
+
+        //assert
+        assertFalse(producer.isAlive());
+        assertTrue(thrown.get() instanceof IllegalStateException);
+        assertEquals(1, expiringPackets.size());
+        assertEquals(1, waitingPacketsQueue.size());
+    }
+}
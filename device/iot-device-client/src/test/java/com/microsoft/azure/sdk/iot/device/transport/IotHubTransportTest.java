@@ -664,7 +664,7 @@ public class IotHubTransportTest
                 }
             }
         };
-        final Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        final OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         final Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
         final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
         waitingPacketsQueue.add(mockedPacket);
@@ -1116,7 +1116,7 @@ public class IotHubTransportTest
     public void isEmptyReturnsTrueIfAllQueuesEmpty()
     {
         //arrange
-        final Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        final OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         final Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
         final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
 
@@ -1145,7 +1145,7 @@ public class IotHubTransportTest
     public void isEmptyReturnsFalseIfWaitingQueueNotEmpty()
     {
         //arrange
-        final Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        final OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         final Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
         final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
         waitingPacketsQueue.add(mockedPacket);
@@ -1175,7 +1175,7 @@ public class IotHubTransportTest
     public void isEmptyReturnsFalseIfInProgressMapNotEmpty()
     {
         //arrange
-        final Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        final OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         final Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
         final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
         inProgressPackets.put("asdf", mockedPacket);
@@ -1204,7 +1204,7 @@ public class IotHubTransportTest
     public void isEmptyReturnsFalseIfCallbackQueueNotEmpty()
     {
         //arrange
-        final Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        final OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         final Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
         final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
         callbackPacketsQueue.add(mockedPacket);
@@ -1349,7 +1349,7 @@ public class IotHubTransportTest
         };
         IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback, false);
         Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
-        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
 
         new NonStrictExpectations()
@@ -1381,7 +1381,7 @@ public class IotHubTransportTest
         };
         IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback, false);
         Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED);
-        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         waitingPacketsQueue.add(mockedPacket);
         Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
 
@@ -1418,7 +1418,7 @@ public class IotHubTransportTest
         final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback, false);
         final int MAX_MESSAGES_TO_SEND_PER_THREAD = Deencapsulation.getField(transport, "DEFAULT_MAX_MESSAGES_TO_SEND_PER_THREAD");
         Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
-        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         for (int i = 0; i < MAX_MESSAGES_TO_SEND_PER_THREAD + 1; i++)
         {
             waitingPacketsQueue.add(mockedPacket);
@@ -3305,7 +3305,7 @@ public class IotHubTransportTest
         IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback, false);
         Map<String, IotHubTransportPacket> inProgressMessages = new HashMap<>();
         Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
-        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
         Deencapsulation.setField(transport, "inProgressPackets", inProgressMessages);
         Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
@@ -3353,7 +3353,7 @@ public class IotHubTransportTest
         IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback, false);
         Map<String, IotHubTransportPacket> inProgressMessages = new HashMap<>();
         Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
-        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        OutboundPacketQueue waitingPacketsQueue = new OutboundPacketQueue();
         Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
         Deencapsulation.setField(transport, "inProgressPackets", inProgressMessages);
         Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
@@ -0,0 +1,311 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.OutboundQueueOverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for OutboundPacketQueue.
+ */
+public class OutboundPacketQueueTest
+{
+    private static IotHubTransportPacket createPacket(int payloadSize, MessageType messageType)
+    {
+        Message message = new Message(new byte[payloadSize]);
+        message.setMessageType(messageType);
+        return new IotHubTransportPacket(message, null, null, null, System.currentTimeMillis(), null);
+    }
+
+    private static IotHubTransportPacket createTelemetryPacket(int payloadSize)
+    {
+        return createPacket(payloadSize, MessageType.DEVICE_TELEMETRY);
+    }
+
+    @Test
+    public void pollReturnsTwinAndMethodPacketsBeforeTelemetryPackets()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        IotHubTransportPacket telemetryPacket = createTelemetryPacket(1);
+        IotHubTransportPacket twinPacket = createPacket(1, MessageType.DEVICE_TWIN);
+        IotHubTransportPacket methodPacket = createPacket(1, MessageType.DEVICE_METHODS);
+        queue.add(telemetryPacket);
+        queue.add(twinPacket);
+        queue.add(methodPacket);
+
+        //act
+        //assert
+        assertEquals(3, queue.size());
+        assertSame(twinPacket, queue.poll());
+        assertSame(methodPacket, queue.poll());
+        assertSame(telemetryPacket, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void offerWithinLimitsAcceptsAllPacketsWhenUnbounded()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+
+        //act
+        for (int i = 0; i < 100; i++)
+        {
+            assertTrue(queue.offerWithinLimits(createTelemetryPacket(10), 0).isEmpty());
+        }
+
+        //assert
+        assertEquals(100, queue.size());
+    }
+
+    @Test
+    public void offerWithinLimitsFailFastRejectsPacketWhenCountLimitReached()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(2, 0, OutboundQueueOverflowPolicy.FAIL_FAST);
+        IotHubTransportPacket rejectedPacket = createTelemetryPacket(1);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(rejectedPacket, 0);
+
+        //assert
+        assertEquals(1, cancelledPackets.size());
+        assertSame(rejectedPacket, cancelledPackets.get(0));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void offerWithinLimitsFailFastRejectsPacketWhenSizeLimitReached()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(0, 100, OutboundQueueOverflowPolicy.FAIL_FAST);
+        queue.offerWithinLimits(createTelemetryPacket(60), 0);
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(createTelemetryPacket(60), 0);
+
+        //assert
+        assertEquals(1, cancelledPackets.size());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void offerWithinLimitsRejectsPacketLargerThanSizeLimit()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(0, 100, OutboundQueueOverflowPolicy.BLOCK);
+        IotHubTransportPacket oversizedPacket = createTelemetryPacket(101);
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(oversizedPacket, 0);
+
+        //assert
+        assertSame(oversizedPacket, cancelledPackets.get(0));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void offerWithinLimitsDropOldestEvictsOldestTelemetryPackets()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(2, 0, OutboundQueueOverflowPolicy.DROP_OLDEST);
+        IotHubTransportPacket oldestPacket = createTelemetryPacket(1);
+        IotHubTransportPacket secondPacket = createTelemetryPacket(1);
+        IotHubTransportPacket newestPacket = createTelemetryPacket(1);
+        queue.offerWithinLimits(oldestPacket, 0);
+        queue.offerWithinLimits(secondPacket, 0);
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(newestPacket, 0);
+
+        //assert
+        assertEquals(1, cancelledPackets.size());
+        assertSame(oldestPacket, cancelledPackets.get(0));
+        assertSame(secondPacket, queue.poll());
+        assertSame(newestPacket, queue.poll());
+    }
+
+    @Test
+    public void offerWithinLimitsNeverLimitsTwinAndMethodPackets()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(1, 0, OutboundQueueOverflowPolicy.FAIL_FAST);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(createPacket(1, MessageType.DEVICE_TWIN), 0);
+
+        //assert
+        assertTrue(cancelledPackets.isEmpty());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void offerWithinLimitsBlockTimesOutWhenNoRoomIsMade()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(1, 0, OutboundQueueOverflowPolicy.BLOCK);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+        IotHubTransportPacket blockedPacket = createTelemetryPacket(1);
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(blockedPacket, 10);
+
+        //assert
+        assertSame(blockedPacket, cancelledPackets.get(0));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void offerWithinLimitsBlockDoesNotWaitWhenTheCallerMayNotBlock()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(1, 0, OutboundQueueOverflowPolicy.BLOCK);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+        IotHubTransportPacket rejectedPacket = createTelemetryPacket(1);
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(rejectedPacket, 0, false);
+
+        //assert
+        assertEquals(1, cancelledPackets.size());
+        assertSame(rejectedPacket, cancelledPackets.get(0));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void offerWithinLimitsBlockReturnsOnceRoomIsMade() throws InterruptedException
+    {
+        //arrange
+        final OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(1, 0, OutboundQueueOverflowPolicy.BLOCK);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                queue.poll();
+            }
+        });
+        consumer.start();
+
+        //act
+        List<IotHubTransportPacket> cancelledPackets = queue.offerWithinLimits(createTelemetryPacket(1), 0);
+        consumer.join();
+
+        //assert
+        assertTrue(cancelledPackets.isEmpty());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void abortBlockedOffersUnblocksWaitingProducers() throws InterruptedException
+    {
+        //arrange
+        final OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(1, 0, OutboundQueueOverflowPolicy.BLOCK);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+        final Throwable[] thrown = new Throwable[1];
+        Thread producer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    queue.offerWithinLimits(createTelemetryPacket(1), 0);
+                }
+                catch (IllegalStateException e)
+                {
+                    thrown[0] = e;
+                }
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+
+        //act
+        queue.abortBlockedOffers();
+        producer.join(1000);
+
+        //assert
+        assertFalse(producer.isAlive());
+        assertTrue(thrown[0] instanceof IllegalStateException);
+    }
+
+    @Test
+    public void offerBypassesLimits()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(1, 0, OutboundQueueOverflowPolicy.FAIL_FAST);
+        queue.offerWithinLimits(createTelemetryPacket(1), 0);
+
+        //act
+        boolean offered = queue.offer(createTelemetryPacket(1));
+
+        //assert
+        assertTrue(offered);
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void removeReleasesRoomInTheQueue()
+    {
+        //arrange
+        OutboundPacketQueue queue = new OutboundPacketQueue();
+        queue.setLimits(1, 0, OutboundQueueOverflowPolicy.FAIL_FAST);
+        IotHubTransportPacket queuedPacket = createTelemetryPacket(1);
+        queue.offerWithinLimits(queuedPacket, 0);
+
+        //act
+        boolean removed = queue.remove(queuedPacket);
+
+        //assert
+        assertTrue(removed);
+        assertTrue(queue.offerWithinLimits(createTelemetryPacket(1), 0).isEmpty());
+        assertFalse(queue.remove(queuedPacket));
+    }
+
+    @Test
+    public void setLimitsThrowsForNegativeLimits()
+    {
+        //arrange
+        final OutboundPacketQueue queue = new OutboundPacketQueue();
+
+        //act
+        //assert
+        assertThrows(IllegalArgumentException.class, () -> queue.setLimits(-1, 0, OutboundQueueOverflowPolicy.BLOCK));
+    }
+}
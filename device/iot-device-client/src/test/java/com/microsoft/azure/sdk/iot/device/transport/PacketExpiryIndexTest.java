@@ -0,0 +1,138 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for PacketExpiryIndex.
+ */
+public class PacketExpiryIndexTest
+{
+    private static IotHubTransportPacket createPacket(long absoluteExpiryTime)
+    {
+        Message message = new Message(new byte[0]);
+        if (absoluteExpiryTime != 0)
+        {
+            message.setAbsoluteExpiryTime(absoluteExpiryTime);
+        }
+
+        return new IotHubTransportPacket(message, null, null, null, System.currentTimeMillis(), null);
+    }
+
+    @Test
+    public void addIgnoresPacketsThatNeverExpire()
+    {
+        //arrange
+        PacketExpiryIndex index = new PacketExpiryIndex();
+
+        //act
+        index.add(createPacket(0));
+
+        //assert
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void pollExpiredReturnsOnlyExpiredPackets()
+    {
+        //arrange
+        PacketExpiryIndex index = new PacketExpiryIndex();
+        long now = System.currentTimeMillis();
+        IotHubTransportPacket expiredPacket = createPacket(now - 1000);
+        IotHubTransportPacket unexpiredPacket = createPacket(now + 60000);
+        index.add(unexpiredPacket);
+        index.add(expiredPacket);
+
+        //act
+        List<IotHubTransportPacket> expiredPackets = index.pollExpired();
+
+        //assert
+        assertEquals(1, expiredPackets.size());
+        assertSame(expiredPacket, expiredPackets.get(0));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void pollExpiredReturnsExpiredPacketsUntilTheyAreRemoved()
+    {
+        //arrange
+        PacketExpiryIndex index = new PacketExpiryIndex();
+        IotHubTransportPacket expiredPacket = createPacket(System.currentTimeMillis() - 1000);
+        index.add(expiredPacket);
+        index.pollExpired();
+
+        //act
+        List<IotHubTransportPacket> expiredPacketsBeforeRemoval = index.pollExpired();
+        index.remove(expiredPacket);
+        List<IotHubTransportPacket> expiredPacketsAfterRemoval = index.pollExpired();
+
+        //assert
+        assertSame(expiredPacket, expiredPacketsBeforeRemoval.get(0));
+        assertTrue(expiredPacketsAfterRemoval.isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void pollExpiredSkipsRemovedPackets()
+    {
+        //arrange
+        PacketExpiryIndex index = new PacketExpiryIndex();
+        IotHubTransportPacket expiredPacket = createPacket(System.currentTimeMillis() - 1000);
+        index.add(expiredPacket);
+
+        //act
+        index.remove(expiredPacket);
+
+        //assert
+        assertTrue(index.pollExpired().isEmpty());
+    }
+
+    @Test
+    public void pollExpiredReindexesPacketsWhoseExpiryTimeWasExtended()
+    {
+        //arrange
+        PacketExpiryIndex index = new PacketExpiryIndex();
+        IotHubTransportPacket packet = createPacket(System.currentTimeMillis() - 1000);
+        index.add(packet);
+        packet.getMessage().setAbsoluteExpiryTime(System.currentTimeMillis() + 60000);
+
+        //act
+        List<IotHubTransportPacket> expiredPackets = index.pollExpired();
+
+        //assert
+        assertTrue(expiredPackets.isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void removeKeepsLivePacketsWhenCompacting()
+    {
+        //arrange
+        PacketExpiryIndex index = new PacketExpiryIndex();
+        long now = System.currentTimeMillis();
+        IotHubTransportPacket expiredPacket = createPacket(now - 1000);
+        index.add(expiredPacket);
+        for (int i = 0; i < 1000; i++)
+        {
+            IotHubTransportPacket completedPacket = createPacket(now + 60000);
+            index.add(completedPacket);
+            index.remove(completedPacket);
+        }
+
+        //act
+        List<IotHubTransportPacket> expiredPackets = index.pollExpired();
+
+        //assert
+        assertEquals(1, expiredPackets.size());
+        assertSame(expiredPacket, expiredPackets.get(0));
+    }
+}
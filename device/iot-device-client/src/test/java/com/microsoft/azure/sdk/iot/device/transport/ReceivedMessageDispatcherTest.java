@@ -0,0 +1,397 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for ReceivedMessageDispatcher.
+ */
+public class ReceivedMessageDispatcherTest
+{
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private static IotHubTransportMessage createMessage(MessageType messageType, String body, String inputName)
+    {
+        IotHubTransportMessage message = new IotHubTransportMessage(body.getBytes(StandardCharsets.UTF_8), messageType);
+        if (inputName != null)
+        {
+            message.setInputName(inputName);
+        }
+
+        return message;
+    }
+
+    private static String getBody(IotHubTransportMessage message)
+    {
+        return new String(message.getBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static ReceivedMessageDispatcher createDispatcher(int threadCount, ReceivedMessageDispatcher.Handler handler)
+    {
+        return new ReceivedMessageDispatcher(threadCount, "test", handler, message -> { });
+    }
+
+    private static void awaitHandled(ReceivedMessageDispatcher dispatcher, long handledMessageCount) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (dispatcher.getStatistics().getHandledMessageCount() < handledMessageCount)
+        {
+            assertTrue("Timed out waiting for messages to be handled", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void messagesOfTheSameStreamAreHandledInOrder() throws Exception
+    {
+        //arrange
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        ReceivedMessageDispatcher dispatcher = createDispatcher(4, message -> handled.add(getBody(message)));
+
+        //act
+        for (int i = 0; i < 100; i++)
+        {
+            dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, Integer.toString(i), null));
+        }
+
+        awaitHandled(dispatcher, 100);
+
+        //assert
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(Integer.toString(i), handled.get(i));
+        }
+    }
+
+    @Test
+    public void slowMethodCallbackDoesNotHoldUpOtherStreams() throws Exception
+    {
+        //arrange
+        CountDownLatch releaseMethod = new CountDownLatch(1);
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        ReceivedMessageDispatcher dispatcher = createDispatcher(2, message ->
+        {
+            if (message.getMessageType() == MessageType.DEVICE_METHODS)
+            {
+                awaitUninterruptibly(releaseMethod);
+            }
+
+            handled.add(getBody(message));
+        });
+
+        //act
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_METHODS, "method", null));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TWIN, "twin1", null));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "c2d", null));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TWIN, "twin2", null));
+        awaitHandled(dispatcher, 3);
+
+        //assert
+        assertFalse(handled.contains("method"));
+        assertTrue(handled.indexOf("twin1") < handled.indexOf("twin2"));
+        assertTrue(handled.contains("c2d"));
+
+        releaseMethod.countDown();
+        awaitHandled(dispatcher, 4);
+        assertEquals("method", handled.get(3));
+    }
+
+    @Test
+    public void methodInvocationsAreHandledInParallel() throws Exception
+    {
+        //arrange
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ReceivedMessageDispatcher dispatcher = createDispatcher(2, message ->
+        {
+            bothStarted.countDown();
+            awaitUninterruptibly(bothStarted);
+        });
+
+        //act
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_METHODS, "method1", null));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_METHODS, "method2", null));
+
+        //assert
+        assertTrue(bothStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        awaitHandled(dispatcher, 2);
+    }
+
+    @Test
+    public void eachInputNameIsAStreamOfItsOwn() throws Exception
+    {
+        //arrange
+        CountDownLatch releaseInput1 = new CountDownLatch(1);
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        ReceivedMessageDispatcher dispatcher = createDispatcher(2, message ->
+        {
+            if ("input1".equals(message.getInputName()))
+            {
+                awaitUninterruptibly(releaseInput1);
+            }
+
+            handled.add(getBody(message));
+        });
+
+        //act
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "input1-a", "input1"));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "input1-b", "input1"));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "input2-a", "input2"));
+        awaitHandled(dispatcher, 1);
+        releaseInput1.countDown();
+        awaitHandled(dispatcher, 3);
+
+        //assert
+        assertEquals(Arrays.asList("input2-a", "input1-a", "input1-b"), handled);
+    }
+
+    @Test
+    public void streamKeysSeparateDevicesAndOnlyLeaveMethodsUnordered()
+    {
+        //arrange
+        IotHubTransportMessage twinMessage = createMessage(MessageType.DEVICE_TWIN, "twin", null);
+        twinMessage.setConnectionDeviceId("device1");
+        IotHubTransportMessage otherDeviceTwinMessage = createMessage(MessageType.DEVICE_TWIN, "twin", null);
+        otherDeviceTwinMessage.setConnectionDeviceId("device2");
+
+        //act
+        //assert
+        assertEquals("device1/twin", ReceivedMessageDispatcher.getStreamKey(twinMessage));
+        assertEquals("device2/twin", ReceivedMessageDispatcher.getStreamKey(otherDeviceTwinMessage));
+        assertEquals("/messages/input1", ReceivedMessageDispatcher.getStreamKey(createMessage(MessageType.DEVICE_TELEMETRY, "c2d", "input1")));
+        assertEquals("/messages/", ReceivedMessageDispatcher.getStreamKey(createMessage(MessageType.DEVICE_TELEMETRY, "c2d", null)));
+        assertNull(ReceivedMessageDispatcher.getStreamKey(createMessage(MessageType.DEVICE_METHODS, "method", null)));
+    }
+
+    @Test
+    public void statisticsReportQueueDepthAndHandlerTime() throws Exception
+    {
+        //arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReceivedMessageDispatcher dispatcher = createDispatcher(1, message ->
+        {
+            started.countDown();
+            awaitUninterruptibly(release);
+            sleepUninterruptibly(20);
+        });
+
+        //act
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "0", null));
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        for (int i = 1; i < 4; i++)
+        {
+            dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, Integer.toString(i), null));
+        }
+
+        ReceivedMessageDispatchStatistics queuedStatistics = dispatcher.getStatistics();
+        release.countDown();
+        awaitHandled(dispatcher, 4);
+        ReceivedMessageDispatchStatistics handledStatistics = dispatcher.getStatistics();
+
+        //assert
+        assertEquals(3, queuedStatistics.getQueuedMessageCount());
+        assertEquals(0, queuedStatistics.getHandledMessageCount());
+        assertEquals(0, handledStatistics.getQueuedMessageCount());
+        assertEquals(3, handledStatistics.getMaxQueuedMessageCount());
+        assertEquals(4, handledStatistics.getHandledMessageCount());
+        assertTrue(handledStatistics.getMaxHandlerTimeMillis() >= 20);
+        assertTrue(handledStatistics.getAverageHandlerTimeMillis() >= 20);
+        assertTrue(handledStatistics.getTotalQueueTimeMillis() >= 20);
+    }
+
+    @Test
+    public void failingCallbackDoesNotStopItsStream() throws Exception
+    {
+        //arrange
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        ReceivedMessageDispatcher dispatcher = createDispatcher(1, message ->
+        {
+            handled.add(getBody(message));
+            if ("1".equals(getBody(message)) || "2".equals(getBody(message)))
+            {
+                throw new IllegalStateException("callback failed");
+            }
+        });
+
+        //act
+        for (int i = 0; i < 4; i++)
+        {
+            dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, Integer.toString(i), null));
+        }
+
+        awaitHandled(dispatcher, 4);
+
+        //assert
+        assertEquals(Arrays.asList("0", "1", "2", "3"), handled);
+    }
+
+    @Test
+    public void messageWhoseAcknowledgementFailedIsRetriedBeforeTheRestOfItsStream() throws Exception
+    {
+        //arrange
+        List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+        final boolean[] isAcknowledgementFailing = { true };
+        ReceivedMessageDispatcher dispatcher = createDispatcher(2, message ->
+        {
+            handled.add(getBody(message));
+            if ("1".equals(getBody(message)) && isAcknowledgementFailing[0])
+            {
+                isAcknowledgementFailing[0] = false;
+                throw new TransportException("acknowledgement failed");
+            }
+        });
+
+        for (int i = 0; i < 3; i++)
+        {
+            dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, Integer.toString(i), null));
+        }
+
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "other", "input"));
+        awaitHandled(dispatcher, 3);
+        List<String> handledBeforeRetry = new ArrayList<>(handled);
+        int queuedBeforeRetry = dispatcher.getStatistics().getQueuedMessageCount();
+
+        //act
+        dispatcher.retryFailedMessages();
+        awaitHandled(dispatcher, 5);
+
+        //assert
+        handledBeforeRetry.remove("other");
+        assertEquals(Arrays.asList("0", "1"), handledBeforeRetry);
+        assertEquals(2, queuedBeforeRetry);
+        handled.remove("other");
+        assertEquals(Arrays.asList("0", "1", "1", "2"), handled);
+    }
+
+    @Test
+    public void shutdownReturnsTheMessageWhoseAcknowledgementFailedAheadOfTheRestOfItsStream() throws Exception
+    {
+        //arrange
+        ReceivedMessageDispatcher dispatcher = createDispatcher(1, message ->
+        {
+            throw new TransportException("acknowledgement failed");
+        });
+
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "0", null));
+        awaitHandled(dispatcher, 1);
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "1", null));
+
+        //act
+        List<IotHubTransportMessage> undispatchedMessages = dispatcher.shutdown();
+
+        //assert
+        assertEquals(2, undispatchedMessages.size());
+        assertEquals("0", getBody(undispatchedMessages.get(0)));
+        assertEquals("1", getBody(undispatchedMessages.get(1)));
+    }
+
+    @Test
+    public void messageWhoseAcknowledgementFailedAfterShutdownIsHandedBack() throws Exception
+    {
+        //arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<IotHubTransportMessage> handedBack = Collections.synchronizedList(new ArrayList<IotHubTransportMessage>());
+        ReceivedMessageDispatcher dispatcher = new ReceivedMessageDispatcher(1, "test", message ->
+        {
+            started.countDown();
+            awaitUninterruptibly(release);
+            throw new TransportException("acknowledgement failed");
+        }, handedBack::add);
+
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "0", null));
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        //act
+        List<IotHubTransportMessage> undispatchedMessages = dispatcher.shutdown();
+        release.countDown();
+        assertTrue(dispatcher.awaitTermination(TIMEOUT_MILLIS));
+
+        //assert
+        assertTrue(undispatchedMessages.isEmpty());
+        assertEquals(1, handedBack.size());
+        assertEquals("0", getBody(handedBack.get(0)));
+    }
+
+    @Test
+    public void shutdownReturnsTheMessagesThatWereNotHandledYet() throws Exception
+    {
+        //arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReceivedMessageDispatcher dispatcher = createDispatcher(1, message ->
+        {
+            started.countDown();
+            awaitUninterruptibly(release);
+        });
+
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "0", null));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "1", null));
+        dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "2", null));
+        assertTrue(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        //act
+        List<IotHubTransportMessage> undispatchedMessages = dispatcher.shutdown();
+        boolean dispatchedAfterShutdown = dispatcher.dispatch(createMessage(MessageType.DEVICE_TELEMETRY, "3", null));
+        release.countDown();
+
+        //assert
+        assertFalse(dispatchedAfterShutdown);
+        assertEquals(2, undispatchedMessages.size());
+        assertEquals("1", getBody(undispatchedMessages.get(0)));
+        assertEquals("2", getBody(undispatchedMessages.get(1)));
+        assertTrue(dispatcher.awaitTermination(TIMEOUT_MILLIS));
+        assertEquals(1, dispatcher.getStatistics().getHandledMessageCount());
+        assertEquals(0, dispatcher.getStatistics().getQueuedMessageCount());
+    }
+
+    @Test
+    public void constructorThrowsOnInvalidArguments()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new ReceivedMessageDispatcher(0, "test", message -> { }, message -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new ReceivedMessageDispatcher(1, "test", null, message -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new ReceivedMessageDispatcher(1, "test", message -> { }, null));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepUninterruptibly(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
+import com.microsoft.azure.sdk.iot.device.IotHubConnectionString;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import mockit.Deencapsulation;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+import org.apache.qpid.proton.codec.ReadableBuffer;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for AmqpsTelemetrySenderLinkHandler. These run against a proton sender link that is never bound to a
+ * transport, so the sent bytes can be read back from the link's delivery.
+ */
+public class AmqpsTelemetrySenderLinkHandlerTest
+{
+    private static final String CONNECTION_STRING = "HostName=test.azure-devices.net;DeviceId=test-device;SharedAccessKey=AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=";
+
+    private static AmqpsTelemetrySenderLinkHandler createLinkHandler(Sender sender) throws Exception
+    {
+        DeviceClientConfig config = new DeviceClientConfig(new IotHubConnectionString(CONNECTION_STRING));
+        return new AmqpsTelemetrySenderLinkHandler(sender, new NoOpLinkStateCallback(), config, "test-link-correlation-id");
+    }
+
+    private static Message createBatchMessage(List<Message> nestedMessages) throws Exception
+    {
+        // BatchMessage's constructor is only visible within the device package
+        Class<?> batchMessageClass = Class.forName("com.microsoft.azure.sdk.iot.device.BatchMessage");
+        Constructor<?> constructor = batchMessageClass.getDeclaredConstructor(List.class);
+        constructor.setAccessible(true);
+        return (Message) constructor.newInstance(nestedMessages);
+    }
+
+    @Test
+    public void sendBatchMessageSendsSingleDeliveryInBatchFormat() throws Exception
+    {
+        //arrange
+        Sender sender = Proton.connection().session().sender("test-sender");
+        AmqpsTelemetrySenderLinkHandler linkHandler = createLinkHandler(sender);
+        List<String> payloads = new ArrayList<>();
+        List<Message> nestedMessages = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            String payload = "message " + i;
+            payloads.add(payload);
+            Message nestedMessage = new Message(payload);
+            nestedMessage.setProperty("index", String.valueOf(i));
+            nestedMessages.add(nestedMessage);
+        }
+
+        Message batchMessage = createBatchMessage(nestedMessages);
+
+        //act
+        AmqpsSendResult sendResult = linkHandler.sendMessageAndGetDeliveryTag(batchMessage);
+
+        //assert
+        assertTrue(sendResult.isDeliverySuccessful());
+        assertEquals(batchMessage, linkHandler.inProgressMessages.get(sendResult.getDeliveryTag()));
+
+        Delivery delivery = sender.head();
+        assertEquals(AmqpsSenderLinkHandler.AMQP_BATCH_MESSAGE_FORMAT, delivery.getMessageFormat());
+
+        int batchLength = delivery.pending();
+        byte[] batchBytes = new byte[batchLength];
+        ReadableBuffer sentData = Deencapsulation.invoke(delivery, "getData");
+        sentData.get(batchBytes);
+
+        // the batch body is a sequence of data sections, each holding one encoded message
+        DecoderImpl decoder = new DecoderImpl();
+        AMQPDefinedTypes.registerAllTypes(decoder, new EncoderImpl(decoder));
+        ByteBuffer batchBuffer = ByteBuffer.wrap(batchBytes);
+        decoder.setByteBuffer(batchBuffer);
+        for (String payload : payloads)
+        {
+            Binary nestedBytes = ((Data) decoder.readObject()).getValue();
+
+            MessageImpl nestedMessage = (MessageImpl) Proton.message();
+            nestedMessage.decode(nestedBytes.getArray(), nestedBytes.getArrayOffset(), nestedBytes.getLength());
+            Binary nestedBody = ((Data) nestedMessage.getBody()).getValue();
+            assertEquals(payload, new String(nestedBody.getArray(), nestedBody.getArrayOffset(), nestedBody.getLength(), StandardCharsets.UTF_8));
+        }
+
+        assertFalse(batchBuffer.hasRemaining());
+    }
+
+    @Test
+    public void sendMessageUsesDefaultMessageFormat() throws Exception
+    {
+        //arrange
+        Sender sender = Proton.connection().session().sender("test-sender");
+        AmqpsTelemetrySenderLinkHandler linkHandler = createLinkHandler(sender);
+
+        //act
+        AmqpsSendResult sendResult = linkHandler.sendMessageAndGetDeliveryTag(new Message("payload"));
+
+        //assert
+        assertTrue(sendResult.isDeliverySuccessful());
+        assertEquals(0, sender.head().getMessageFormat());
+    }
+
+    @Test
+    public void sendLargeMessageSendsWholeMessage() throws Exception
+    {
+        //arrange
+        Sender sender = Proton.connection().session().sender("test-sender");
+        AmqpsTelemetrySenderLinkHandler linkHandler = createLinkHandler(sender);
+        byte[] payload = new byte[200 * 1024];
+        for (int i = 0; i < payload.length; i++)
+        {
+            payload[i] = (byte) i;
+        }
+
+        //act
+        AmqpsSendResult sendResult = linkHandler.sendMessageAndGetDeliveryTag(new Message(payload));
+
+        //assert
+        assertTrue(sendResult.isDeliverySuccessful());
+
+        Delivery delivery = sender.head();
+        byte[] sentBytes = new byte[delivery.pending()];
+        ReadableBuffer sentData = Deencapsulation.invoke(delivery, "getData");
+        sentData.get(sentBytes);
+
+        MessageImpl sentMessage = (MessageImpl) Proton.message();
+        sentMessage.decode(sentBytes, 0, sentBytes.length);
+        Binary sentBody = ((Data) sentMessage.getBody()).getValue();
+        assertArrayEquals(payload, Arrays.copyOfRange(sentBody.getArray(), sentBody.getArrayOffset(), sentBody.getArrayOffset() + sentBody.getLength()));
+    }
+
+    @Test
+    public void sendMessageReusesEncodeBuffer() throws Exception
+    {
+        //arrange
+        Sender sender = Proton.connection().session().sender("test-sender");
+        AmqpsTelemetrySenderLinkHandler linkHandler = createLinkHandler(sender);
+        linkHandler.sendMessageAndGetDeliveryTag(new Message("first"));
+        byte[] encodeBuffer = Deencapsulation.getField(linkHandler, "encodeBuffer");
+
+        //act
+        AmqpsSendResult sendResult = linkHandler.sendMessageAndGetDeliveryTag(new Message("second"));
+
+        //assert
+        assertTrue(sendResult.isDeliverySuccessful());
+        assertSame(encodeBuffer, Deencapsulation.getField(linkHandler, "encodeBuffer"));
+    }
+
+    @Test
+    public void sendMessageUsesConsecutiveDeliveryTags() throws Exception
+    {
+        //arrange
+        Sender sender = Proton.connection().session().sender("test-sender");
+        AmqpsTelemetrySenderLinkHandler linkHandler = createLinkHandler(sender);
+
+        //act
+        AmqpsSendResult firstSendResult = linkHandler.sendMessageAndGetDeliveryTag(new Message("first"));
+        AmqpsSendResult secondSendResult = linkHandler.sendMessageAndGetDeliveryTag(new Message("second"));
+
+        //assert
+        assertEquals(firstSendResult.getDeliveryTag() + 1, secondSendResult.getDeliveryTag());
+        assertEquals(String.valueOf(firstSendResult.getDeliveryTag()), new String(sender.head().getTag(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void encodeDeliveryTagMatchesDecimalString()
+    {
+        for (int deliveryTag : new int[] {0, 7, 10, 99, 12345, Integer.MAX_VALUE})
+        {
+            //act
+            byte[] encodedDeliveryTag = AmqpsSenderLinkHandler.encodeDeliveryTag(deliveryTag);
+
+            //assert
+            assertArrayEquals(String.valueOf(deliveryTag).getBytes(StandardCharsets.UTF_8), encodedDeliveryTag);
+            assertEquals(deliveryTag, AmqpsSenderLinkHandler.decodeDeliveryTag(encodedDeliveryTag));
+        }
+    }
+
+    @Test
+    public void decodeDeliveryTagThrowsForInvalidTag()
+    {
+        assertThrows(NumberFormatException.class, () -> AmqpsSenderLinkHandler.decodeDeliveryTag("12a".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(NumberFormatException.class, () -> AmqpsSenderLinkHandler.decodeDeliveryTag(new byte[0]));
+        assertThrows(NumberFormatException.class, () -> AmqpsSenderLinkHandler.decodeDeliveryTag("2147483648".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static class NoOpLinkStateCallback implements AmqpsLinkStateCallback
+    {
+        @Override
+        public void onLinkOpened(BaseHandler linkHandler)
+        {
+        }
+
+        @Override
+        public void onMessageAcknowledged(Message message, int deliveryTag, DeliveryState deliveryState)
+        {
+        }
+
+        @Override
+        public void onMessageReceived(IotHubTransportMessage message)
+        {
+        }
+
+        @Override
+        public void onLinkClosedUnexpectedly(ErrorCondition errorCondition)
+        {
+        }
+    }
+}
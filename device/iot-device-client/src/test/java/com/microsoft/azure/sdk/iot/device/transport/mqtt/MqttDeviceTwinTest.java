@@ -117,7 +117,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -135,7 +135,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                 times = 1;
@@ -158,7 +158,7 @@ public class MqttDeviceTwinTest
                 new NonStrictExpectations()
                 {
                     {
-                        mockMessage.getBytes();
+                        IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                         result = actualPayload;
                         mockMessage.getMessageType();
                         result = MessageType.DEVICE_TWIN;
@@ -178,7 +178,7 @@ public class MqttDeviceTwinTest
                 new Verifications()
                 {
                     {
-                        mockMessage.getBytes();
+                        IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                         times = 1;
                         Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                         times = 0;
@@ -202,7 +202,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -222,7 +222,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                 times = 1;
@@ -245,7 +245,7 @@ public class MqttDeviceTwinTest
                 new NonStrictExpectations()
                 {
                     {
-                        mockMessage.getBytes();
+                        IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                         result = actualPayload;
                         mockMessage.getMessageType();
                         result = MessageType.DEVICE_TWIN;
@@ -265,7 +265,7 @@ public class MqttDeviceTwinTest
                 new Verifications()
                 {
                     {
-                        mockMessage.getBytes();
+                        IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                         times = 1;
                         Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                         times = 0;
@@ -289,7 +289,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -307,7 +307,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", expectedTopic);
                 times = 1;
@@ -329,7 +329,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -350,7 +350,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
                 times = 0;
@@ -381,7 +381,7 @@ public class MqttDeviceTwinTest
                 result = DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST;
                 mockMessage.getVersion();
                 result = mockVersion;
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 result = actualPayload;
             }
         };
@@ -393,7 +393,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", expectedSubscribeTopic);
                 times = 1;
@@ -423,7 +423,7 @@ public class MqttDeviceTwinTest
                 new Verifications()
                 {
                     {
-                        mockMessage.getBytes();
+                        IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                         times = 0;
                         Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                         times = 0;
@@ -445,7 +445,7 @@ public class MqttDeviceTwinTest
             new NonStrictExpectations()
             {
                 {
-                    mockMessage.getBytes();
+                    IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                     result = actualPayload;
                     mockMessage.getMessageType();
                     result = MessageType.DEVICE_TWIN;
@@ -464,7 +464,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    IotHubTransportMessage.getBytesWithoutCopy(mockMessage);
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                     times = 1;
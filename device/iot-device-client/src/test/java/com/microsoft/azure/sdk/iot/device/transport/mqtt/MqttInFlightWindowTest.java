@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for MqttInFlightWindow.
+ */
+public class MqttInFlightWindowTest
+{
+    @Test
+    public void constructorThrowsForNonPositiveSize()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new MqttInFlightWindow(0));
+    }
+
+    @Test
+    public void acquireTakesPermitsUntilWindowIsFull() throws InterruptedException
+    {
+        //arrange
+        MqttInFlightWindow window = new MqttInFlightWindow(2);
+
+        //act
+        boolean firstAcquired = window.acquire();
+        boolean secondAcquired = window.acquire();
+
+        //assert
+        assertTrue(firstAcquired);
+        assertTrue(secondAcquired);
+        assertEquals(0, window.availablePermits());
+    }
+
+    @Test
+    public void releaseWakesWaitingPublisher() throws InterruptedException
+    {
+        //arrange
+        final MqttInFlightWindow window = new MqttInFlightWindow(1);
+        window.acquire();
+        final AtomicBoolean acquired = new AtomicBoolean();
+        Thread publisher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    acquired.set(window.acquire());
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        publisher.start();
+
+        //act
+        window.release();
+        publisher.join(1000);
+
+        //assert
+        assertFalse(publisher.isAlive());
+        assertTrue(acquired.get());
+    }
+
+    @Test
+    public void closeWakesAllWaitingPublishers() throws InterruptedException
+    {
+        //arrange
+        final MqttInFlightWindow window = new MqttInFlightWindow(1);
+        window.acquire();
+        final AtomicBoolean anyAcquired = new AtomicBoolean();
+        Thread[] publishers = new Thread[3];
+        for (int i = 0; i < publishers.length; i++)
+        {
+            publishers[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        if (window.acquire())
+                        {
+                            anyAcquired.set(true);
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            publishers[i].start();
+        }
+
+        //act
+        window.close();
+        for (Thread publisher : publishers)
+        {
+            publisher.join(1000);
+        }
+
+        //assert
+        for (Thread publisher : publishers)
+        {
+            assertFalse(publisher.isAlive());
+        }
+
+        assertFalse(anyAcquired.get());
+    }
+
+    @Test
+    public void acquireReturnsFalseAfterClose() throws InterruptedException
+    {
+        //arrange
+        MqttInFlightWindow window = new MqttInFlightWindow(5);
+        window.close();
+
+        //act
+        boolean acquired = window.acquire();
+
+        //assert
+        assertFalse(acquired);
+    }
+}
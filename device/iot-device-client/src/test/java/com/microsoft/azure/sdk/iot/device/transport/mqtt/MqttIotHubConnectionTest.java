@@ -467,7 +467,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = msgBody;
                 mockDeviceMessaging.send(mockedMessage);
             }
@@ -517,7 +517,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = msgBody;
             }
         };
@@ -541,7 +541,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = new byte[0];
             }
         };
@@ -564,7 +564,7 @@ public class MqttIotHubConnectionTest
             new NonStrictExpectations()
             {
                 {
-                    mockedMessage.getBytes();
+                    IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                     result = msgBody;
                 }
             };
@@ -584,7 +584,7 @@ public class MqttIotHubConnectionTest
             new NonStrictExpectations()
             {
                 {
-                    mockedMessage.getBytes();
+                    IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                     result = msgBody;
                 }
             };
@@ -608,7 +608,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockDeviceTwinMsg.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockDeviceTwinMsg);
                 result = msgBody;
                 mockDeviceTwinMsg.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -1155,7 +1155,7 @@ public class MqttIotHubConnectionTest
                 mockedProductInfo.getUserAgentString();
                 result = "someUserAgentString";
 
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = expectedMessageBody;
 
                 mockedMessage.getMessageType();
@@ -0,0 +1,247 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.BatchMessage;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import mockit.Deencapsulation;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the batch sending of MqttMessaging, run against a stub Paho client rather than mocks.
+ */
+public class MqttMessagingBatchTest
+{
+    /**
+     * Accepts every publish and hands out mqtt message ids from 1, like a new Paho client does.
+     */
+    private static class StubMqttAsyncClient extends MqttAsyncClient
+    {
+        private final int failingPublishNumber;
+        private int publishCount;
+        private boolean connected = true;
+
+        private StubMqttAsyncClient(int failingPublishNumber) throws MqttException
+        {
+            super("tcp://localhost:1883", "test", new MemoryPersistence());
+            this.failingPublishNumber = failingPublishNumber;
+        }
+
+        @Override
+        public boolean isConnected()
+        {
+            return this.connected;
+        }
+
+        @Override
+        public IMqttDeliveryToken publish(String topic, MqttMessage message) throws MqttException
+        {
+            this.publishCount++;
+            if (this.publishCount == this.failingPublishNumber)
+            {
+                throw new MqttException(MqttException.REASON_CODE_CLIENT_NOT_CONNECTED);
+            }
+
+            return createToken(this.publishCount);
+        }
+
+        @Override
+        public IMqttToken disconnect()
+        {
+            this.connected = false;
+            return null;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private static class RecordingListener implements IotHubListener
+    {
+        private final List<Message> sentMessages = Collections.synchronizedList(new ArrayList<Message>());
+
+        @Override
+        public void onMessageSent(Message message, String deviceId, Throwable e)
+        {
+            this.sentMessages.add(message);
+        }
+
+        @Override
+        public void onMessageReceived(IotHubTransportMessage transportMessage, Throwable e)
+        {
+        }
+
+        @Override
+        public void onConnectionLost(Throwable e, String connectionId)
+        {
+        }
+
+        @Override
+        public void onConnectionEstablished(String connectionId)
+        {
+        }
+
+        @Override
+        public void onMultiplexedDeviceSessionEstablished(String connectionId, String deviceId)
+        {
+        }
+
+        @Override
+        public void onMultiplexedDeviceSessionLost(Throwable e, String connectionId, String deviceId)
+        {
+        }
+
+        @Override
+        public void onMultiplexedDeviceSessionRegistrationFailed(String connectionId, String deviceId, Exception e)
+        {
+        }
+    }
+
+    private static MqttDeliveryToken createToken(int mqttMessageId)
+    {
+        MqttDeliveryToken token = new MqttDeliveryToken("test");
+        token.internalTok.setMessageID(mqttMessageId);
+        return token;
+    }
+
+    private static MqttMessaging createMessaging(RecordingListener listener, MqttAsyncClient client)
+    {
+        MqttMessaging messaging = new MqttMessaging(
+            "device",
+            null,
+            null,
+            false,
+            new MqttConnectOptions(),
+            new ConcurrentHashMap<Integer, Message>(),
+            new ConcurrentLinkedQueue<>());
+        messaging.setListener(listener);
+        connect(messaging, client);
+        return messaging;
+    }
+
+    private static void connect(MqttMessaging messaging, MqttAsyncClient client)
+    {
+        messaging.setMqttAsyncClient(client);
+        messaging.setInFlightWindow(new MqttInFlightWindow(10));
+    }
+
+    private static BatchMessage createBatch(int messageCount)
+    {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++)
+        {
+            messages.add(new Message("message" + i));
+        }
+
+        return Deencapsulation.newInstance(BatchMessage.class, new Class<?>[] { List.class }, messages);
+    }
+
+    @Test
+    public void batchIsReportedOnceAllOfItsNestedMessagesAreAcknowledged() throws Exception
+    {
+        //arrange
+        RecordingListener listener = new RecordingListener();
+        MqttMessaging messaging = createMessaging(listener, new StubMqttAsyncClient(0));
+        BatchMessage batch = createBatch(3);
+        messaging.send(batch);
+
+        //act
+        messaging.deliveryComplete(createToken(1));
+        messaging.deliveryComplete(createToken(3));
+        int sentCountBeforeLastAcknowledgement = listener.sentMessages.size();
+        messaging.deliveryComplete(createToken(2));
+
+        //assert
+        assertEquals(0, sentCountBeforeLastAcknowledgement);
+        assertEquals(Collections.singletonList(batch), listener.sentMessages);
+    }
+
+    @Test
+    public void retriedBatchOnANewConnectionOnlyCountsAcknowledgementsOfItsOwnPublishes() throws Exception
+    {
+        //arrange
+        RecordingListener listener = new RecordingListener();
+        MqttMessaging messaging = createMessaging(listener, new StubMqttAsyncClient(0));
+        BatchMessage batch = createBatch(2);
+        messaging.send(batch);
+        messaging.deliveryComplete(createToken(1));
+
+        //act
+        messaging.stop();
+        Map<Integer, ?> inProgressBatchesAfterStop = Deencapsulation.getField(messaging, "inProgressBatches");
+        int trackedPublishesAfterStop = inProgressBatchesAfterStop.size();
+        connect(messaging, new StubMqttAsyncClient(0));
+        messaging.send(batch);
+        messaging.deliveryComplete(createToken(2));
+        int sentCountAfterFirstAcknowledgement = listener.sentMessages.size();
+        messaging.deliveryComplete(createToken(1));
+
+        //assert
+        assertEquals(0, trackedPublishesAfterStop);
+        assertEquals(0, sentCountAfterFirstAcknowledgement);
+        assertEquals(Collections.singletonList(batch), listener.sentMessages);
+    }
+
+    @Test
+    public void batchThatFailsToPublishIsNeverReportedAndItsAcknowledgementsAreIgnored() throws Exception
+    {
+        //arrange
+        RecordingListener listener = new RecordingListener();
+        final MqttMessaging messaging = createMessaging(listener, new StubMqttAsyncClient(2));
+        final BatchMessage batch = createBatch(3);
+
+        //act
+        assertThrows(TransportException.class, () -> messaging.send(batch));
+        messaging.deliveryComplete(createToken(1));
+
+        //assert
+        assertTrue(listener.sentMessages.isEmpty());
+        Map<Integer, ?> inProgressBatches = Deencapsulation.getField(messaging, "inProgressBatches");
+        assertTrue(inProgressBatches.isEmpty());
+    }
+
+    @Test
+    public void singleMessagesAreReportedByThemselves() throws Exception
+    {
+        //arrange
+        RecordingListener listener = new RecordingListener();
+        MqttMessaging messaging = createMessaging(listener, new StubMqttAsyncClient(0));
+        Message first = new Message("first");
+        Message second = new Message("second");
+        messaging.send(first);
+        messaging.send(second);
+
+        //act
+        messaging.deliveryComplete(createToken(2));
+        messaging.deliveryComplete(createToken(1));
+
+        //assert
+        assertEquals(Arrays.asList(second, first), listener.sentMessages);
+    }
+}
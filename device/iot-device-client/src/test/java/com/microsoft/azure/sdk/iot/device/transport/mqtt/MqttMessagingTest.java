@@ -8,6 +8,7 @@ import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import mockit.*;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
@@ -18,6 +19,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -253,7 +255,7 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[] {String.class, Message.class}, anyString, (Message) any);
             }
@@ -266,7 +268,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[]{String.class, Message.class}, anyString, mockedMessage);
                 times = 1;
@@ -283,7 +285,7 @@ public class MqttMessagingTest
             new NonStrictExpectations()
             {
                 {
-                    mockedMessage.getBytes();
+                    IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                     result = messageBody;
                 }
             };
@@ -294,7 +296,7 @@ public class MqttMessagingTest
             new Verifications()
             {
                 {
-                    mockedMessage.getBytes();
+                    IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                     times = 1;
@@ -316,7 +318,7 @@ public class MqttMessagingTest
             new Verifications()
             {
                 {
-                    mockedMessage.getBytes();
+                    IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                     times = 0;
                     Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                     times = 0;
@@ -342,10 +344,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
             }
         };
 
@@ -377,10 +379,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getMessageId();
                 result = messageId;
             }
@@ -413,10 +415,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getCorrelationId();
                 result = correlationId;
             }
@@ -448,10 +450,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getComponentName();
                 result = componentName;
             }
@@ -484,10 +486,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getUserId();
                 result = userId;
             }
@@ -520,10 +522,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getTo();
                 result = to;
             }
@@ -578,7 +580,7 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = messageBody;
                 mockedMessage.getMessageId();
                 result = messageId;
@@ -592,8 +594,8 @@ public class MqttMessagingTest
                 result = contentType;
                 mockedMessage.getContentEncoding();
                 result = contentEncoding;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getOutputName();
                 result = outputName;
                 mockedMessage.getCreationTimeUTC();
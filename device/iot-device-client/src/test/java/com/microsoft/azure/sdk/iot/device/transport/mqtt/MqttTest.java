@@ -145,7 +145,7 @@ public class MqttTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.getBytesWithoutCopy(mockedMessage);
                 result = payload;
                 mockMqttAsyncClient.isConnected();
                 result = true;
@@ -360,24 +360,21 @@ public class MqttTest
         assertThrows(TransportException.class, () -> {
             //arrange
             final byte[] payload = {0x61, 0x62, 0x63};
-            final IMqttDeliveryToken[] testTokens = {mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                    mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                    mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                    mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken
-            };
             new NonStrictExpectations()
             {
                 {
                     mockMqttAsyncClient.isConnected();
                     result = true;
-                    mockMqttAsyncClient.getPendingDeliveryTokens();
-                    result = testTokens;
-                    mockMqttAsyncClient.isConnected();
-                    result = false;
                 }
             };
             Mqtt mockMqtt = instantiateMqtt(true);
 
+            // the connection was lost while waiting for room in a full in flight window
+            MqttInFlightWindow inFlightWindow = new MqttInFlightWindow(1);
+            inFlightWindow.acquire();
+            inFlightWindow.close();
+            Deencapsulation.invoke(mockMqtt, "setInFlightWindow", inFlightWindow);
+
             //act
             Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
         });
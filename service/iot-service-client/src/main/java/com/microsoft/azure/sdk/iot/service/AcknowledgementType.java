@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+/**
+ * How to settle a feedback message or file upload notification that was handed to a streaming receive callback.
+ */
+public enum AcknowledgementType
+{
+    /**
+     * The message was processed, and the service can delete it.
+     */
+    COMPLETE,
+
+    /**
+     * The message was not processed. The service will deliver it again later.
+     */
+    ABANDON
+}
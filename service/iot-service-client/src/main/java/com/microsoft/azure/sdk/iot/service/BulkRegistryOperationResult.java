@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a bulk registry operation, such as {@link RegistryManager#addDevices(java.util.Collection)}, for each
+ * of its devices. Every device is either in the succeeded device ids or in the errors, but not both.
+ */
+public final class BulkRegistryOperationResult
+{
+    /**
+     * The ids of the devices the operation succeeded for, in the order they were passed in.
+     */
+    @Getter
+    private final List<String> succeededDeviceIds;
+
+    /**
+     * The errors for the devices the operation failed for, keyed by device id, in the order they were passed in.
+     */
+    @Getter
+    private final Map<String, DeviceRegistryOperationError> errors;
+
+    /**
+     * The warnings returned by the service about devices the operation succeeded for.
+     */
+    @Getter
+    private final List<DeviceRegistryOperationWarning> warnings;
+
+    BulkRegistryOperationResult(
+        List<String> succeededDeviceIds,
+        Map<String, DeviceRegistryOperationError> errors,
+        List<DeviceRegistryOperationWarning> warnings)
+    {
+        this.succeededDeviceIds = Collections.unmodifiableList(succeededDeviceIds);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.warnings = Collections.unmodifiableList(warnings);
+    }
+
+    /**
+     * @return true if the operation succeeded for every device.
+     */
+    public boolean isSuccessful()
+    {
+        return this.errors.isEmpty();
+    }
+}
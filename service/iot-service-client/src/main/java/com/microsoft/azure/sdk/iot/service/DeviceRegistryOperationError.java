@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import lombok.Getter;
+
+/**
+ * The failure of a bulk registry operation, such as {@link RegistryManager#addDevices(java.util.Collection)}, for one
+ * of its devices. Either the service rejected this device, in which case the error code and status are set, or the
+ * request that carried this device failed as a whole, in which case the exception is set.
+ */
+public final class DeviceRegistryOperationError
+{
+    /**
+     * The id of the device the operation failed for.
+     */
+    @Getter
+    private final String deviceId;
+
+    /**
+     * The error code returned by the service for this device, for instance "DeviceAlreadyExists". Null if the request
+     * that carried this device failed as a whole.
+     */
+    @Getter
+    private final String errorCode;
+
+    /**
+     * The description of the error returned by the service for this device. Null if the request that carried this
+     * device failed as a whole.
+     */
+    @Getter
+    private final String errorStatus;
+
+    /**
+     * The exception thrown when sending the request that carried this device. Null if the service rejected this device
+     * only.
+     */
+    @Getter
+    private final Exception exception;
+
+    DeviceRegistryOperationError(String deviceId, String errorCode, String errorStatus, Exception exception)
+    {
+        this.deviceId = deviceId;
+        this.errorCode = errorCode;
+        this.errorStatus = errorStatus;
+        this.exception = exception;
+    }
+}
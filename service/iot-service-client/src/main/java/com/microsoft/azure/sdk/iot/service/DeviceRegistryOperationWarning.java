@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import lombok.Getter;
+
+/**
+ * A warning returned by the service about a device that a bulk registry operation succeeded for.
+ */
+public final class DeviceRegistryOperationWarning
+{
+    /**
+     * The id of the device the warning is about.
+     */
+    @Getter
+    private final String deviceId;
+
+    /**
+     * The warning code returned by the service, for instance "DeviceRegisteredWithoutTwin".
+     */
+    @Getter
+    private final String warningCode;
+
+    /**
+     * The description of the warning returned by the service.
+     */
+    @Getter
+    private final String warningStatus;
+
+    DeviceRegistryOperationWarning(String deviceId, String warningCode, String warningStatus)
+    {
+        this.deviceId = deviceId;
+        this.warningCode = warningCode;
+        this.warningStatus = warningStatus;
+    }
+}
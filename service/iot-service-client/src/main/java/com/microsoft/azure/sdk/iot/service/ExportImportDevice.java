@@ -6,10 +6,12 @@
 package com.microsoft.azure.sdk.iot.service;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.*;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 import com.microsoft.azure.sdk.iot.service.auth.AuthenticationMechanism;
 import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
 
+import java.util.List;
 import java.util.UUID;
 
 public class ExportImportDevice
@@ -26,6 +28,9 @@ public class ExportImportDevice
     private TwinCollection tags = null;
     private TwinCollection reportedProperties = null;
     private TwinCollection desiredProperties = null;
+    private DeviceCapabilities capabilities = null;
+    private String deviceScope = null;
+    private List<String> parentScopes = null;
 
     /**
      * Default constructor for an ExportImportDevice object. Randomly generates a device ID and uses a randomly generated shared access signature for authentication
@@ -223,7 +228,62 @@ public class ExportImportDevice
 	 */
 	public void setDesiredProperties(TwinCollection desiredProperties) {
 		this.desiredProperties = desiredProperties;
-	}    
+	}
+
+    /**
+     * Getter for the capabilities of the device, such as whether it is an IoT Edge device.
+     * @return The device capabilities, or null if they are not set.
+     */
+    public DeviceCapabilities getCapabilities()
+    {
+        return capabilities;
+    }
+
+    /**
+     * Setter for the capabilities of the device.
+     * @param capabilities The device capabilities.
+     */
+    public void setCapabilities(DeviceCapabilities capabilities)
+    {
+        this.capabilities = capabilities;
+    }
+
+    /**
+     * Getter for the scope of the device.
+     * @return The device scope, or null if it is not set.
+     */
+    public String getDeviceScope()
+    {
+        return deviceScope;
+    }
+
+    /**
+     * Setter for the scope of the device. See {@link Device#setScope(String)} for details.
+     * @param deviceScope The device scope.
+     */
+    public void setDeviceScope(String deviceScope)
+    {
+        this.deviceScope = deviceScope;
+    }
+
+    /**
+     * Getter for the scopes of the upper level edge devices of the device.
+     * @return The parent scopes, or null if they are not set.
+     */
+    public List<String> getParentScopes()
+    {
+        return parentScopes;
+    }
+
+    /**
+     * Setter for the scopes of the upper level edge devices of the device. See {@link Device#getParentScopes()} for
+     * details.
+     * @param parentScopes The parent scopes.
+     */
+    public void setParentScopes(List<String> parentScopes)
+    {
+        this.parentScopes = parentScopes;
+    }
     
     @Override
     public boolean equals(Object other)
@@ -283,6 +343,14 @@ public class ExportImportDevice
         this.eTag = parser.getETag();
         this.id = parser.getIdFinal();
         this.statusReason = parser.getStatusReason();
+        this.deviceScope = parser.getScope();
+        this.parentScopes = parser.getParentScopes();
+
+        if (parser.getCapabilities() != null)
+        {
+            this.capabilities = new DeviceCapabilities();
+            this.capabilities.setIotEdge(parser.getCapabilities().getIotEdge());
+        }
 
         if (parser.getImportMode() != null)
         {
@@ -406,6 +474,15 @@ public class ExportImportDevice
         
         parser.setTags(this.tags);
 
+        if (this.capabilities != null)
+        {
+            parser.setCapabilities(new DeviceCapabilitiesParser());
+            parser.getCapabilities().setIotEdge(this.capabilities.isIotEdge());
+        }
+
+        parser.setScope(this.deviceScope);
+        parser.setParentScopes(this.parentScopes);
+
         return parser;
     }
 }
\ No newline at end of file
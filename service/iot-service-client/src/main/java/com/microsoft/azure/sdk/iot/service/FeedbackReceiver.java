@@ -16,6 +16,7 @@ import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 /**
  * FeedbackReceiver is a specialized receiver whose ReceiveAsync
@@ -25,6 +26,7 @@ import java.util.concurrent.Executors;
 public class FeedbackReceiver extends Receiver
 {
     private final long DEFAULT_TIMEOUT_MS = 60000;
+    private static final int DEFAULT_PREFETCH_COUNT = 10;
     private final ExecutorService executor = Executors.newFixedThreadPool(10);
 
     private final AmqpReceive amqpReceive;
@@ -256,6 +258,63 @@ public class FeedbackReceiver extends Receiver
         return this.amqpReceive.receive(timeoutMs);
     }
 
+    /**
+     * Start handing every feedback batch that the service sends to the provided callback, with a prefetch count of
+     * {@value #DEFAULT_PREFETCH_COUNT}. See {@link #startReceiving(Function, int)} for details.
+     *
+     * @param feedbackBatchCallback the callback to hand each received FeedbackBatch to.
+     * @throws IOException if this receiver has not been opened, or if the connection could not be opened
+     */
+    public void startReceiving(Function<FeedbackBatch, AcknowledgementType> feedbackBatchCallback) throws IOException
+    {
+        startReceiving(feedbackBatchCallback, DEFAULT_PREFETCH_COUNT);
+    }
+
+    /**
+     * Start handing every feedback batch that the service sends to the provided callback, over a single AMQP
+     * connection that stays open until {@link #stopReceiving()} or {@link #close()} is called. Unlike
+     * {@link #receive(long)}, which opens a new connection for every feedback batch, this pays for the TLS handshake and
+     * authentication once. If the service closes the connection, a new one is opened.
+     *
+     * The callback is executed on the connection's thread, one feedback batch at a time. Its return value decides
+     * whether the feedback batch is completed or abandoned, in which case the service delivers it again later. If
+     * the callback throws, the feedback batch is abandoned. A feedback batch that can't be parsed is completed without being
+     * handed to the callback, since the service would only deliver it again.
+     *
+     * @param feedbackBatchCallback the callback to hand each received FeedbackBatch to.
+     * @param prefetchCount the maximum number of feedback batches that the service may send ahead of the one that
+     * the callback is handling. Must be greater than 0.
+     * @throws IOException if this receiver has not been opened, or if the connection could not be opened
+     * @throws IllegalStateException if this receiver is already receiving
+     */
+    public void startReceiving(Function<FeedbackBatch, AcknowledgementType> feedbackBatchCallback, int prefetchCount) throws IOException
+    {
+        if (this.amqpReceive == null)
+        {
+            throw new IOException("AMQP receiver is not initialized");
+        }
+
+        log.info("Starting to receive on FeedbackReceiver with a prefetch count of {}", prefetchCount);
+        this.amqpReceive.startReceiving(feedbackBatchCallback, prefetchCount);
+    }
+
+    /**
+     * Stop handing feedback batches to the callback provided to {@link #startReceiving(Function, int)}, and close
+     * its connection. Does nothing if this receiver is not receiving.
+     *
+     * @throws IOException This exception is thrown if the input AmqpReceive object is null
+     */
+    public void stopReceiving() throws IOException
+    {
+        if (this.amqpReceive == null)
+        {
+            throw new IOException("AMQP receiver is not initialized");
+        }
+
+        log.info("Stopping to receive on FeedbackReceiver");
+        this.amqpReceive.stopReceiving();
+    }
+
     /**
      * Async wrapper for open() operation
      *
@@ -16,11 +16,13 @@ import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 @Slf4j
 public class FileUploadNotificationReceiver extends Receiver
 {
     private final long DEFAULT_TIMEOUT_MS = 60000;
+    private static final int DEFAULT_PREFETCH_COUNT = 10;
     private final ExecutorService executor = Executors.newFixedThreadPool(3);
     private final AmqpFileUploadNotificationReceive amqpFileUploadNotificationReceive;
 
@@ -179,6 +181,63 @@ public class FileUploadNotificationReceiver extends Receiver
         return this.amqpFileUploadNotificationReceive.receive(timeoutMs);
     }
 
+    /**
+     * Start handing every file upload notification that the service sends to the provided callback, with a prefetch count of
+     * {@value #DEFAULT_PREFETCH_COUNT}. See {@link #startReceiving(Function, int)} for details.
+     *
+     * @param fileUploadNotificationCallback the callback to hand each received FileUploadNotification to.
+     * @throws IOException if this receiver has not been opened, or if the connection could not be opened
+     */
+    public void startReceiving(Function<FileUploadNotification, AcknowledgementType> fileUploadNotificationCallback) throws IOException
+    {
+        startReceiving(fileUploadNotificationCallback, DEFAULT_PREFETCH_COUNT);
+    }
+
+    /**
+     * Start handing every file upload notification that the service sends to the provided callback, over a single AMQP
+     * connection that stays open until {@link #stopReceiving()} or {@link #close()} is called. Unlike
+     * {@link #receive(long)}, which opens a new connection for every file upload notification, this pays for the TLS handshake and
+     * authentication once. If the service closes the connection, a new one is opened.
+     *
+     * The callback is executed on the connection's thread, one file upload notification at a time. Its return value decides
+     * whether the file upload notification is completed or abandoned, in which case the service delivers it again later. If
+     * the callback throws, the file upload notification is abandoned. A file upload notification that can't be parsed is completed without being
+     * handed to the callback, since the service would only deliver it again.
+     *
+     * @param fileUploadNotificationCallback the callback to hand each received FileUploadNotification to.
+     * @param prefetchCount the maximum number of file upload notifications that the service may send ahead of the one that
+     * the callback is handling. Must be greater than 0.
+     * @throws IOException if this receiver has not been opened, or if the connection could not be opened
+     * @throws IllegalStateException if this receiver is already receiving
+     */
+    public void startReceiving(Function<FileUploadNotification, AcknowledgementType> fileUploadNotificationCallback, int prefetchCount) throws IOException
+    {
+        if (this.amqpFileUploadNotificationReceive == null)
+        {
+            throw new IOException("AMQP receiver is not initialized");
+        }
+
+        log.info("Starting to receive on FileUploadNotificationReceiver with a prefetch count of {}", prefetchCount);
+        this.amqpFileUploadNotificationReceive.startReceiving(fileUploadNotificationCallback, prefetchCount);
+    }
+
+    /**
+     * Stop handing file upload notifications to the callback provided to {@link #startReceiving(Function, int)}, and close
+     * its connection. Does nothing if this receiver is not receiving.
+     *
+     * @throws IOException This exception is thrown if the input AmqpReceive object is null
+     */
+    public void stopReceiving() throws IOException
+    {
+        if (this.amqpFileUploadNotificationReceive == null)
+        {
+            throw new IOException("AMQP receiver is not initialized");
+        }
+
+        log.info("Stopping to receive on FileUploadNotificationReceiver");
+        this.amqpFileUploadNotificationReceive.stopReceiving();
+    }
+
     /**
      * Async wrapper for open() operation
      *
@@ -737,6 +737,24 @@ public class IotHubConnectionString extends IotHubConnectionStringBuilder
         return new URL(stringBuilder);
     }
 
+    /**
+     * Create url for creating, updating or deleting devices in bulk
+     *
+     * @param hostName The hostname of the IoT Hub
+     * @return The bulk registry operation Url in the following format: "https:hostname/devices?api-version=201X-XX-XX"
+     * @throws MalformedURLException This exception is thrown if the URL creation failed due to malformed string
+     */
+    public static URL getUrlBulkRegistryOperation(String hostName) throws MalformedURLException
+    {
+        String stringBuilder = URL_HTTPS +
+                hostName +
+                URL_SEPARATOR_0 +
+                URL_PATH_DEVICES +
+                URL_SEPARATOR_1 +
+                URL_API_VERSION;
+        return new URL(stringBuilder);
+    }
+
     /**
      * Create url for requesting device statistics
      *
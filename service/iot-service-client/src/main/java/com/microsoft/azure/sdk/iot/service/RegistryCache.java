@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A size and time bounded cache of registry entries, keyed by device id for devices and by device id and module id,
+ * separated by a '/', for modules. Device ids can't contain a '/', so the two kinds of keys never collide.
+ * <p>
+ * A lookup that misses the cache starts a {@link Load}. Its result is only cached if nothing invalidated or replaced
+ * the entry while the request was in flight, so that a slow lookup can't overwrite a more recent update with the
+ * state it read before the update.
+ * </p>
+ *
+ * @param <V> The type of the cached entries.
+ */
+final class RegistryCache<V>
+{
+    private static final char MODULE_KEY_SEPARATOR = '/';
+
+    /**
+     * A lookup that is being sent to the service because the cache had no fresh entry for it.
+     */
+    static final class Load<V>
+    {
+        private final String key;
+        private final Entry<V> staleEntry;
+
+        private Load(String key, Entry<V> staleEntry)
+        {
+            this.key = key;
+            this.staleEntry = staleEntry;
+        }
+
+        /**
+         * @return the eTag of the expired entry for this key, or null if there is none. If the service reports that
+         * this eTag is still current, the expired entry can be used again.
+         */
+        String getStaleETag()
+        {
+            return this.staleEntry == null ? null : this.staleEntry.eTag;
+        }
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final String eTag;
+        private final long expiresAtNanos;
+
+        private Entry(V value, String eTag, long expiresAtNanos)
+        {
+            this.value = value;
+            this.eTag = eTag;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+
+    // Guarded by this
+    private final LinkedHashMap<String, Entry<V>> entries;
+    private final Map<String, Load<V>> pendingLoads = new HashMap<>();
+    private long hitCount;
+    private long revalidationCount;
+    private long missCount;
+    private long evictionCount;
+
+    RegistryCache(RegistryCacheOptions options)
+    {
+        this(options, System::nanoTime);
+    }
+
+    RegistryCache(RegistryCacheOptions options, LongSupplier nanoClock)
+    {
+        if (options.getMaxEntries() <= 0)
+        {
+            throw new IllegalArgumentException("maxEntries must be a positive value");
+        }
+
+        if (options.getTimeToLiveMillis() <= 0)
+        {
+            throw new IllegalArgumentException("timeToLiveMillis must be a positive value");
+        }
+
+        final int maxEntries = options.getMaxEntries();
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(options.getTimeToLiveMillis());
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest)
+            {
+                if (size() > maxEntries)
+                {
+                    evictionCount++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    static String moduleKey(String deviceId, String moduleId)
+    {
+        return deviceId + MODULE_KEY_SEPARATOR + moduleId;
+    }
+
+    /**
+     * @return the cached value for this key if it hasn't expired, or null otherwise.
+     */
+    synchronized V getIfFresh(String key)
+    {
+        Entry<V> entry = this.entries.get(key);
+        if (entry != null && this.nanoClock.getAsLong() - entry.expiresAtNanos < 0)
+        {
+            this.hitCount++;
+            return entry.value;
+        }
+
+        return null;
+    }
+
+    /**
+     * Start loading this key from the service. Any load of the same key that is still in flight won't be cached.
+     */
+    synchronized Load<V> startLoad(String key)
+    {
+        Load<V> load = new Load<>(key, this.entries.get(key));
+        this.pendingLoads.put(key, load);
+        return load;
+    }
+
+    /**
+     * Complete a load for which the service returned a new value.
+     */
+    synchronized void completeLoad(Load<V> load, V value, String eTag)
+    {
+        this.missCount++;
+        if (this.pendingLoads.get(load.key) == load)
+        {
+            this.pendingLoads.remove(load.key);
+            this.entries.put(load.key, new Entry<>(value, eTag, this.nanoClock.getAsLong() + this.timeToLiveNanos));
+        }
+    }
+
+    /**
+     * Complete a load for which the service reported that the stale eTag is still current.
+     *
+     * @return the value of the stale entry.
+     */
+    synchronized V completeRevalidation(Load<V> load)
+    {
+        this.revalidationCount++;
+        if (this.pendingLoads.get(load.key) == load)
+        {
+            this.pendingLoads.remove(load.key);
+            this.entries.put(load.key, new Entry<>(load.staleEntry.value, load.staleEntry.eTag, this.nanoClock.getAsLong() + this.timeToLiveNanos));
+        }
+
+        return load.staleEntry.value;
+    }
+
+    /**
+     * Give up on a load that failed, leaving the cache as it is.
+     */
+    synchronized void abandonLoad(Load<V> load)
+    {
+        if (this.pendingLoads.get(load.key) == load)
+        {
+            this.pendingLoads.remove(load.key);
+        }
+    }
+
+    /**
+     * Cache the value that the service returned for a write, replacing any entry or load in flight for this key.
+     */
+    synchronized void put(String key, V value, String eTag)
+    {
+        this.pendingLoads.remove(key);
+        this.entries.put(key, new Entry<>(value, eTag, this.nanoClock.getAsLong() + this.timeToLiveNanos));
+    }
+
+    /**
+     * Drop the entry for this key, and make sure that no load in flight for it is cached.
+     */
+    synchronized void invalidate(String key)
+    {
+        this.pendingLoads.remove(key);
+        this.entries.remove(key);
+    }
+
+    /**
+     * Drop the entries for these devices and for all of their modules, and make sure that no load in flight for them
+     * is cached.
+     */
+    synchronized void invalidateDevices(Collection<String> deviceIds)
+    {
+        Set<String> deviceIdSet = new HashSet<>(deviceIds);
+        removeDeviceKeys(this.entries.keySet().iterator(), deviceIdSet);
+        removeDeviceKeys(this.pendingLoads.keySet().iterator(), deviceIdSet);
+    }
+
+    synchronized RegistryCacheStatistics getStatistics()
+    {
+        return new RegistryCacheStatistics(this.hitCount, this.revalidationCount, this.missCount, this.evictionCount, this.entries.size());
+    }
+
+    private static void removeDeviceKeys(Iterator<String> keys, Set<String> deviceIds)
+    {
+        while (keys.hasNext())
+        {
+            String key = keys.next();
+            int separatorIndex = key.indexOf(MODULE_KEY_SEPARATOR);
+            if (deviceIds.contains(separatorIndex < 0 ? key : key.substring(0, separatorIndex)))
+            {
+                keys.remove();
+            }
+        }
+    }
+}
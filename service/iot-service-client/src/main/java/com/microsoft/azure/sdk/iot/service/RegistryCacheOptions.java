@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Configurable options for the cache of devices and modules that a {@link RegistryManager} reads through. See
+ * the cache options of {@link RegistryManagerOptions}.
+ */
+@Builder
+public class RegistryCacheOptions
+{
+    protected static final int DEFAULT_MAX_ENTRIES = 10000;
+    protected static final long DEFAULT_TIME_TO_LIVE_MILLIS = 60000; // 1 minute
+
+    /**
+     * The maximum number of devices and modules to cache. Once the cache is full, the least recently used entry is
+     * evicted to make room for a new one. By default, this value is {@link #DEFAULT_MAX_ENTRIES}. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /**
+     * How long, in milliseconds, a cached device or module is returned without asking the service. Once this expires,
+     * the next lookup asks the service whether the device or module changed, and only downloads it again if it did.
+     * By default, this value is {@link #DEFAULT_TIME_TO_LIVE_MILLIS}. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final long timeToLiveMillis = DEFAULT_TIME_TO_LIVE_MILLIS;
+}
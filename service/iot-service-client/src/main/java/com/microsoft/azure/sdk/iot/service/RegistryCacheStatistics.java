@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import lombok.Getter;
+
+/**
+ * A snapshot of the counters of the cache of devices and modules that a {@link RegistryManager} reads through.
+ */
+public final class RegistryCacheStatistics
+{
+    /**
+     * The number of lookups that were served from the cache without sending a request.
+     */
+    @Getter
+    private final long hitCount;
+
+    /**
+     * The number of lookups for an expired entry that the service confirmed was unchanged, so that it was served from
+     * the cache without downloading it again.
+     */
+    @Getter
+    private final long revalidationCount;
+
+    /**
+     * The number of lookups that downloaded the device or module from the service.
+     */
+    @Getter
+    private final long missCount;
+
+    /**
+     * The number of entries that were evicted because the cache was full.
+     */
+    @Getter
+    private final long evictionCount;
+
+    /**
+     * The number of entries in the cache, including expired ones.
+     */
+    @Getter
+    private final int size;
+
+    RegistryCacheStatistics(long hitCount, long revalidationCount, long missCount, long evictionCount, int size)
+    {
+        this.hitCount = hitCount;
+        this.revalidationCount = revalidationCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /**
+     * @return the fraction of lookups that were served from the cache without sending a request, or 0 if there were no
+     * lookups.
+     */
+    public double getHitRate()
+    {
+        long lookupCount = this.hitCount + this.revalidationCount + this.missCount;
+        return lookupCount == 0 ? 0 : (double) this.hitCount / lookupCount;
+    }
+}
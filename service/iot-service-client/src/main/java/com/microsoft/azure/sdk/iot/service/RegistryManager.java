@@ -8,14 +8,16 @@ package com.microsoft.azure.sdk.iot.service;
 import com.azure.core.credential.AzureSasCredential;
 import com.azure.core.credential.TokenCredential;
 import com.google.gson.JsonSyntaxException;
+import com.microsoft.azure.sdk.iot.deps.serializer.BulkRegistryOperationResultParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.ConfigurationParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.JobPropertiesParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.RegistryStatisticsParser;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
@@ -24,17 +26,29 @@ import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
 import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * Use the RegistryManager client to manage the identity registry in IoT hubs.
@@ -43,6 +57,10 @@ import java.util.concurrent.Executors;
 public class RegistryManager
 {
     private static final int EXECUTOR_THREAD_POOL_SIZE = 10;
+    private static final int MAX_DEVICES_PER_BULK_REQUEST = 100;
+    private static final int DEFAULT_BULK_REGISTRY_OPERATION_CONCURRENCY = 4;
+    private static final int BULK_REGISTRY_OPERATION_FAILED_STATUS = 400;
+    private static final int NOT_MODIFIED_STATUS = 304;
     private ExecutorService executor;
     private final String hostName;
     private TokenCredentialCache credentialCache;
@@ -51,6 +69,9 @@ public class RegistryManager
 
     private final RegistryManagerOptions options;
 
+    // Caches the json of devices and modules, so that callers can't change the cached entries through the objects they get
+    private final RegistryCache<String> registryCache;
+
     /**
      * Previously was the java default constructor, should not be used.
      *
@@ -63,6 +84,7 @@ public class RegistryManager
         // This constructor was previously a default constructor that users could use because there was no other constructor declared.
         // However, we still prefer users use the createFromConnectionString method to build their clients.
         options = RegistryManagerOptions.builder().build();
+        registryCache = null;
 
         // we don't use hostname in this constructor, so assign it an empty value to satisfy the field being marked final
         hostName = "";
@@ -136,6 +158,7 @@ public class RegistryManager
 
         this.hostName = iotHubConnectionString.getHostName();
         this.options = options;
+        this.registryCache = createRegistryCache(options);
         this.executor = Executors.newFixedThreadPool(EXECUTOR_THREAD_POOL_SIZE);
     }
 
@@ -170,6 +193,7 @@ public class RegistryManager
 
         this.executor = Executors.newFixedThreadPool(EXECUTOR_THREAD_POOL_SIZE);
         this.options = options;
+        this.registryCache = createRegistryCache(options);
         this.credentialCache = new TokenCredentialCache(credential);
         this.hostName = hostName;
     }
@@ -203,6 +227,7 @@ public class RegistryManager
 
         this.executor = Executors.newFixedThreadPool(EXECUTOR_THREAD_POOL_SIZE);
         this.options = options;
+        this.registryCache = createRegistryCache(options);
         this.azureSasCredential = azureSasCredential;
         this.hostName = hostName;
     }
@@ -254,8 +279,10 @@ public class RegistryManager
         IotHubExceptionManager.httpResponseVerification(response);
 
         String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
+        DeviceParser deviceParser = new DeviceParser(bodyStr);
+        cacheRegistryEntry(device.getDeviceId(), bodyStr, deviceParser);
 
-        return new Device(new DeviceParser(bodyStr));
+        return new Device(deviceParser);
     }
 
     /**
@@ -310,15 +337,7 @@ public class RegistryManager
 
         URL url = IotHubConnectionString.getUrlDevice(this.hostName, deviceId);
 
-        HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0]);
-
-        HttpResponse response = request.send();
-
-        IotHubExceptionManager.httpResponseVerification(response);
-
-        String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
-
-        return new Device(new DeviceParser(bodyStr));
+        return new Device(getRegistryEntry(deviceId, url));
     }
 
     /**
@@ -383,21 +402,13 @@ public class RegistryManager
 
         IotHubExceptionManager.httpResponseVerification(response);
 
-        String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
-        try (JsonReader jsonReader = Json.createReader(new StringReader(bodyStr)))
+        ArrayList<Device> deviceList = new ArrayList<>();
+        for (DeviceParser deviceParser : DeviceParser.fromJsonArray(createBodyReader(response)))
         {
-            ArrayList<Device> deviceList = new ArrayList<>();
-            JsonArray deviceArray = jsonReader.readArray();
-
-            for (int i = 0; i < deviceArray.size(); i++)
-            {
-                JsonObject jsonObject = deviceArray.getJsonObject(i);
-                Device iotHubDevice = new Device(new DeviceParser(jsonObject.toString()));
-                deviceList.add(iotHubDevice);
-            }
-
-            return deviceList;
+            deviceList.add(new Device(deviceParser));
         }
+
+        return deviceList;
     }
 
     /**
@@ -511,13 +522,16 @@ public class RegistryManager
 
         request.setHeaderField("If-Match", "*");
 
+        invalidateCacheEntry(device.getDeviceId());
         HttpResponse response = request.send();
 
         IotHubExceptionManager.httpResponseVerification(response);
 
         String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
+        DeviceParser deviceParser = new DeviceParser(bodyStr);
+        cacheRegistryEntry(device.getDeviceId(), bodyStr, deviceParser);
 
-        return new Device(new DeviceParser(bodyStr));
+        return new Device(deviceParser);
     }
 
     /**
@@ -642,9 +656,13 @@ public class RegistryManager
         HttpRequest request = CreateRequest(url, HttpMethod.DELETE, new byte[0]);
         request.setHeaderField("If-Match", etag);
 
+        invalidateCachedDevices(Collections.singleton(deviceId));
         HttpResponse response = request.send();
 
         IotHubExceptionManager.httpResponseVerification(response);
+
+        // A lookup sent while the device was being removed may have read it before it was removed
+        invalidateCachedDevices(Collections.singleton(deviceId));
     }
 
     /**
@@ -683,6 +701,300 @@ public class RegistryManager
         return future;
     }
 
+    /**
+     * Create the provided devices, sending up to 100 of them per request. Devices that already exist are not changed,
+     * and are reported as errors in the returned result.
+     * <p>
+     * Up to 4 requests are sent at a time. See
+     * {@link #addDevices(Collection, int)} to change this limit.
+     * </p>
+     *
+     * @param devices The devices to create. Each device id must appear only once.
+     * @return The outcome of the operation for each device.
+     * @throws InterruptedException If this thread is interrupted while waiting for the requests to complete.
+     * @throws IllegalArgumentException If devices is null or contains null or duplicate devices.
+     */
+    public BulkRegistryOperationResult addDevices(Collection<Device> devices) throws InterruptedException
+    {
+        return addDevices(devices, DEFAULT_BULK_REGISTRY_OPERATION_CONCURRENCY);
+    }
+
+    /**
+     * Create the provided devices, sending up to 100 of them per request and up to maxConcurrency requests at a time.
+     * Devices that already exist are not changed, and are reported as errors in the returned result.
+     * <p>
+     * A request that fails as a whole, for instance because it was throttled, does not stop the other requests. Each
+     * device it carried is reported as an error with the exception that was thrown.
+     * </p>
+     *
+     * @param devices The devices to create. Each device id must appear only once.
+     * @param maxConcurrency The maximum number of requests to send at a time. Must be a positive value.
+     * @return The outcome of the operation for each device.
+     * @throws InterruptedException If this thread is interrupted while waiting for the requests to complete.
+     * @throws IllegalArgumentException If devices is null or contains null or duplicate devices, or if maxConcurrency
+     * is not positive.
+     */
+    public BulkRegistryOperationResult addDevices(Collection<Device> devices, int maxConcurrency) throws InterruptedException
+    {
+        return bulkRegistryOperation(devices, maxConcurrency, device -> ImportMode.Create);
+    }
+
+    /**
+     * Update the provided devices, sending up to 100 of them per request. Like {@link #updateDevice(Device)}, each
+     * device is updated regardless of its eTag.
+     * <p>
+     * Up to 4 requests are sent at a time. See
+     * {@link #updateDevices(Collection, int)} to change this limit.
+     * </p>
+     *
+     * @param devices The devices to update. Each device id must appear only once.
+     * @return The outcome of the operation for each device.
+     * @throws InterruptedException If this thread is interrupted while waiting for the requests to complete.
+     * @throws IllegalArgumentException If devices is null or contains null or duplicate devices.
+     */
+    public BulkRegistryOperationResult updateDevices(Collection<Device> devices) throws InterruptedException
+    {
+        return updateDevices(devices, DEFAULT_BULK_REGISTRY_OPERATION_CONCURRENCY);
+    }
+
+    /**
+     * Update the provided devices, sending up to 100 of them per request and up to maxConcurrency requests at a time.
+     * Like {@link #updateDevice(Device)}, each device is updated regardless of its eTag.
+     * <p>
+     * A request that fails as a whole, for instance because it was throttled, does not stop the other requests. Each
+     * device it carried is reported as an error with the exception that was thrown.
+     * </p>
+     *
+     * @param devices The devices to update. Each device id must appear only once.
+     * @param maxConcurrency The maximum number of requests to send at a time. Must be a positive value.
+     * @return The outcome of the operation for each device.
+     * @throws InterruptedException If this thread is interrupted while waiting for the requests to complete.
+     * @throws IllegalArgumentException If devices is null or contains null or duplicate devices, or if maxConcurrency
+     * is not positive.
+     */
+    public BulkRegistryOperationResult updateDevices(Collection<Device> devices, int maxConcurrency) throws InterruptedException
+    {
+        return bulkRegistryOperation(devices, maxConcurrency, device -> ImportMode.Update);
+    }
+
+    /**
+     * Remove the provided devices, sending up to 100 of them per request. Like {@link #removeDevice(Device)}, a device
+     * with an eTag is only removed if its eTag still matches. A device with no eTag, or with the "*" eTag, is removed
+     * unconditionally.
+     * <p>
+     * Up to 4 requests are sent at a time. See
+     * {@link #removeDevices(Collection, int)} to change this limit.
+     * </p>
+     *
+     * @param devices The devices to remove. Each device id must appear only once.
+     * @return The outcome of the operation for each device.
+     * @throws InterruptedException If this thread is interrupted while waiting for the requests to complete.
+     * @throws IllegalArgumentException If devices is null or contains null or duplicate devices.
+     */
+    public BulkRegistryOperationResult removeDevices(Collection<Device> devices) throws InterruptedException
+    {
+        return removeDevices(devices, DEFAULT_BULK_REGISTRY_OPERATION_CONCURRENCY);
+    }
+
+    /**
+     * Remove the provided devices, sending up to 100 of them per request and up to maxConcurrency requests at a time.
+     * Like {@link #removeDevice(Device)}, a device with an eTag is only removed if its eTag still matches. A device
+     * with no eTag, or with the "*" eTag, is removed unconditionally.
+     * <p>
+     * A request that fails as a whole, for instance because it was throttled, does not stop the other requests. Each
+     * device it carried is reported as an error with the exception that was thrown.
+     * </p>
+     *
+     * @param devices The devices to remove. Each device id must appear only once.
+     * @param maxConcurrency The maximum number of requests to send at a time. Must be a positive value.
+     * @return The outcome of the operation for each device.
+     * @throws InterruptedException If this thread is interrupted while waiting for the requests to complete.
+     * @throws IllegalArgumentException If devices is null or contains null or duplicate devices, or if maxConcurrency
+     * is not positive.
+     */
+    public BulkRegistryOperationResult removeDevices(Collection<Device> devices, int maxConcurrency) throws InterruptedException
+    {
+        return bulkRegistryOperation(
+            devices,
+            maxConcurrency,
+            device -> Tools.isNullOrEmpty(device.geteTag()) || "*".equals(device.geteTag()) ? ImportMode.Delete : ImportMode.DeleteIfMatchETag);
+    }
+
+    private BulkRegistryOperationResult bulkRegistryOperation(
+        Collection<Device> devices,
+        int maxConcurrency,
+        Function<Device, ImportMode> importModeSelector) throws InterruptedException
+    {
+        if (devices == null)
+        {
+            throw new IllegalArgumentException("devices cannot be null");
+        }
+
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("maxConcurrency must be a positive value");
+        }
+
+        // Serialize every device before sending anything, so that an invalid device doesn't leave the operation half done
+        List<String> deviceIds = new ArrayList<>(devices.size());
+        List<String> deviceJsons = new ArrayList<>(devices.size());
+        Set<String> uniqueDeviceIds = new HashSet<>();
+        for (Device device : devices)
+        {
+            if (device == null)
+            {
+                throw new IllegalArgumentException("devices cannot contain null");
+            }
+
+            if (!uniqueDeviceIds.add(device.getDeviceId()))
+            {
+                throw new IllegalArgumentException("devices contains the device " + device.getDeviceId() + " more than once");
+            }
+
+            ExportImportDevice exportImportDevice = new ExportImportDevice(device.getDeviceId(), device.getAuthenticationType());
+            if (device.authentication != null)
+            {
+                exportImportDevice.setAuthentication(device.authentication);
+            }
+
+            exportImportDevice.seteTag(device.geteTag());
+            exportImportDevice.setStatus(device.getStatus());
+            exportImportDevice.setStatusReason(device.getStatusReason());
+            exportImportDevice.setCapabilities(device.getCapabilities());
+            exportImportDevice.setDeviceScope(device.getScope());
+            exportImportDevice.setParentScopes(device.getParentScopes());
+            exportImportDevice.setImportMode(importModeSelector.apply(device));
+
+            deviceIds.add(device.getDeviceId());
+            deviceJsons.add(exportImportDevice.toExportImportDeviceParser().toJson());
+        }
+
+        int requestCount = (deviceIds.size() + MAX_DEVICES_PER_BULK_REQUEST - 1) / MAX_DEVICES_PER_BULK_REQUEST;
+        List<Future<BulkRegistryOperationResultParser>> responses = new ArrayList<>(requestCount);
+        ExecutorService bulkExecutor = null;
+        if (requestCount > 0)
+        {
+            bulkExecutor = Executors.newFixedThreadPool(Math.min(maxConcurrency, requestCount), runnable ->
+            {
+                Thread thread = new Thread(runnable, "azure-iot-sdk-RegistryManager-bulk");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        Map<String, DeviceRegistryOperationError> errors = new LinkedHashMap<>();
+        List<DeviceRegistryOperationWarning> warnings = new ArrayList<>();
+
+        // The responses don't carry the devices, so the cached entries for them are dropped rather than updated
+        invalidateCachedDevices(deviceIds);
+        try
+        {
+            for (int i = 0; i < requestCount; i++)
+            {
+                List<String> requestDeviceJsons = deviceJsons.subList(
+                    i * MAX_DEVICES_PER_BULK_REQUEST,
+                    Math.min((i + 1) * MAX_DEVICES_PER_BULK_REQUEST, deviceJsons.size()));
+
+                byte[] body = ("[" + String.join(",", requestDeviceJsons) + "]").getBytes(StandardCharsets.UTF_8);
+                responses.add(bulkExecutor.submit(() -> sendBulkRegistryRequest(body)));
+            }
+
+            for (int i = 0; i < requestCount; i++)
+            {
+                try
+                {
+                    BulkRegistryOperationResultParser response = responses.get(i).get();
+                    for (BulkRegistryOperationResultParser.DeviceRegistryOperationErrorParser error : response.getErrors())
+                    {
+                        errors.put(error.getDeviceId(), new DeviceRegistryOperationError(error.getDeviceId(), error.getErrorCode(), error.getErrorStatus(), null));
+                    }
+
+                    for (BulkRegistryOperationResultParser.DeviceRegistryOperationWarningParser warning : response.getWarnings())
+                    {
+                        warnings.add(new DeviceRegistryOperationWarning(warning.getDeviceId(), warning.getWarningCode(), warning.getWarningStatus()));
+                    }
+                }
+                catch (ExecutionException e)
+                {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    List<String> requestDeviceIds = deviceIds.subList(
+                        i * MAX_DEVICES_PER_BULK_REQUEST,
+                        Math.min((i + 1) * MAX_DEVICES_PER_BULK_REQUEST, deviceIds.size()));
+
+                    for (String deviceId : requestDeviceIds)
+                    {
+                        errors.put(deviceId, new DeviceRegistryOperationError(deviceId, null, null, cause));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            if (bulkExecutor != null)
+            {
+                bulkExecutor.shutdownNow();
+            }
+
+            invalidateCachedDevices(deviceIds);
+        }
+
+        // Report the errors in the order the devices were passed in, regardless of the order the requests completed in
+        List<String> succeededDeviceIds = new ArrayList<>(deviceIds.size() - errors.size());
+        Map<String, DeviceRegistryOperationError> orderedErrors = new LinkedHashMap<>();
+        for (String deviceId : deviceIds)
+        {
+            DeviceRegistryOperationError error = errors.get(deviceId);
+            if (error == null)
+            {
+                succeededDeviceIds.add(deviceId);
+            }
+            else
+            {
+                orderedErrors.put(deviceId, error);
+            }
+        }
+
+        return new BulkRegistryOperationResult(succeededDeviceIds, orderedErrors, warnings);
+    }
+
+    private BulkRegistryOperationResultParser sendBulkRegistryRequest(byte[] body) throws IOException, IotHubException
+    {
+        URL url = IotHubConnectionString.getUrlBulkRegistryOperation(this.hostName);
+        HttpRequest request = CreateRequest(url, HttpMethod.POST, body);
+
+        HttpResponse response = request.send();
+
+        if (response.getStatus() == BULK_REGISTRY_OPERATION_FAILED_STATUS)
+        {
+            // The service rejects a request with this status both when it is malformed and when it failed for some of
+            // its devices. Only the latter carries a result with the errors for each device.
+            try
+            {
+                return new BulkRegistryOperationResultParser(new String(response.getErrorReason(), StandardCharsets.UTF_8));
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Not a bulk registry operation result, so surface it the same way as for any other request
+            }
+        }
+
+        IotHubExceptionManager.httpResponseVerification(response);
+
+        return new BulkRegistryOperationResultParser(new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the counters of the cache that {@link #getDevice(String)} and {@link #getModule(String, String)} read
+     * through.
+     *
+     * @return a snapshot of the cache counters, or null if these options don't enable the cache. See
+     * the cache options of {@link RegistryManagerOptions}.
+     */
+    public RegistryCacheStatistics getCacheStatistics()
+    {
+        return this.registryCache == null ? null : this.registryCache.getStatistics();
+    }
+
     /**
      * Get device statistics
      *
@@ -1082,8 +1394,10 @@ public class RegistryManager
         IotHubExceptionManager.httpResponseVerification(response);
 
         String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
+        DeviceParser moduleParser = new DeviceParser(bodyStr);
+        cacheRegistryEntry(RegistryCache.moduleKey(module.getDeviceId(), module.getId()), bodyStr, moduleParser);
 
-        return new Module(new DeviceParser(bodyStr));
+        return new Module(moduleParser);
     }
 
     /**
@@ -1109,15 +1423,7 @@ public class RegistryManager
 
         URL url = IotHubConnectionString.getUrlModule(this.hostName, deviceId, moduleId);
 
-        HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0]);
-
-        HttpResponse response = request.send();
-
-        IotHubExceptionManager.httpResponseVerification(response);
-
-        String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
-
-        return new Module(new DeviceParser(bodyStr));
+        return new Module(getRegistryEntry(RegistryCache.moduleKey(deviceId, moduleId), url));
     }
 
     /**
@@ -1143,20 +1449,13 @@ public class RegistryManager
 
         IotHubExceptionManager.httpResponseVerification(response);
 
-        String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
-        try (JsonReader jsonReader = Json.createReader(new StringReader(bodyStr)))
+        List<Module> moduleList = new ArrayList<>();
+        for (DeviceParser deviceParser : DeviceParser.fromJsonArray(createBodyReader(response)))
         {
-            List<Module> moduleList = new ArrayList<>();
-            JsonArray deviceArray = jsonReader.readArray();
-
-            for (int i = 0; i < deviceArray.size(); i++)
-            {
-                JsonObject jsonObject = deviceArray.getJsonObject(i);
-                Module iotHubModule = new Module(new DeviceParser(jsonObject.toString()));
-                moduleList.add(iotHubModule);
-            }
-            return moduleList;
+            moduleList.add(new Module(deviceParser));
         }
+
+        return moduleList;
     }
 
     /**
@@ -1202,13 +1501,17 @@ public class RegistryManager
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, module.toDeviceParser().toJson().getBytes(StandardCharsets.UTF_8));
         request.setHeaderField("If-Match", "*");
 
+        String cacheKey = RegistryCache.moduleKey(module.getDeviceId(), module.getId());
+        invalidateCacheEntry(cacheKey);
         HttpResponse response = request.send();
 
         IotHubExceptionManager.httpResponseVerification(response);
 
         String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
+        DeviceParser moduleParser = new DeviceParser(bodyStr);
+        cacheRegistryEntry(cacheKey, bodyStr, moduleParser);
 
-        return new Module(new DeviceParser(bodyStr));
+        return new Module(moduleParser);
     }
 
     /**
@@ -1274,9 +1577,14 @@ public class RegistryManager
         HttpRequest request = CreateRequest(url, HttpMethod.DELETE, new byte[0]);
         request.setHeaderField("If-Match", etag);
 
+        String cacheKey = RegistryCache.moduleKey(deviceId, moduleId);
+        invalidateCacheEntry(cacheKey);
         HttpResponse response = request.send();
 
         IotHubExceptionManager.httpResponseVerification(response);
+
+        // A lookup sent while the module was being removed may have read it before it was removed
+        invalidateCacheEntry(cacheKey);
     }
 
     /**
@@ -1541,6 +1849,93 @@ public class RegistryManager
         return new JobProperties(new JobPropertiesParser(bodyStr));
     }
 
+    private static RegistryCache<String> createRegistryCache(RegistryManagerOptions options)
+    {
+        return options.getCacheOptions() == null ? null : new RegistryCache<>(options.getCacheOptions());
+    }
+
+    /**
+     * Get a device or module, from the cache if it holds a fresh copy of it. An expired copy is revalidated with its
+     * eTag, so that it is only downloaded again if it changed.
+     */
+    private DeviceParser getRegistryEntry(String cacheKey, URL url) throws IOException, IotHubException
+    {
+        if (this.registryCache == null)
+        {
+            HttpResponse response = CreateRequest(url, HttpMethod.GET, new byte[0]).send();
+            IotHubExceptionManager.httpResponseVerification(response);
+            return new DeviceParser(new String(response.getBody(), StandardCharsets.UTF_8));
+        }
+
+        String cachedJson = this.registryCache.getIfFresh(cacheKey);
+        if (cachedJson != null)
+        {
+            return new DeviceParser(cachedJson);
+        }
+
+        RegistryCache.Load<String> load = this.registryCache.startLoad(cacheKey);
+        try
+        {
+            HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0]);
+            if (load.getStaleETag() != null)
+            {
+                request.setHeaderField("If-None-Match", load.getStaleETag());
+            }
+
+            HttpResponse response = request.send();
+            if (load.getStaleETag() != null && response.getStatus() == NOT_MODIFIED_STATUS)
+            {
+                return new DeviceParser(this.registryCache.completeRevalidation(load));
+            }
+
+            IotHubExceptionManager.httpResponseVerification(response);
+
+            String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
+            DeviceParser parser = new DeviceParser(bodyStr);
+            this.registryCache.completeLoad(load, bodyStr, parser.geteTag());
+            return parser;
+        }
+        catch (IotHubNotFoundException e)
+        {
+            this.registryCache.invalidate(cacheKey);
+            throw e;
+        }
+        finally
+        {
+            this.registryCache.abandonLoad(load);
+        }
+    }
+
+    private void cacheRegistryEntry(String cacheKey, String json, DeviceParser parser)
+    {
+        if (this.registryCache != null)
+        {
+            this.registryCache.put(cacheKey, json, parser.geteTag());
+        }
+    }
+
+    private void invalidateCacheEntry(String cacheKey)
+    {
+        if (this.registryCache != null)
+        {
+            this.registryCache.invalidate(cacheKey);
+        }
+    }
+
+    private void invalidateCachedDevices(Collection<String> deviceIds)
+    {
+        if (this.registryCache != null)
+        {
+            this.registryCache.invalidateDevices(deviceIds);
+        }
+    }
+
+    private static Reader createBodyReader(HttpResponse response)
+    {
+        // Lets list responses be parsed straight from the response bytes, rather than from a copy decoded into a string
+        return new InputStreamReader(new ByteArrayInputStream(response.getBody()), StandardCharsets.UTF_8);
+    }
+
     private HttpRequest CreateRequest(URL url, HttpMethod method, byte[] payload)
             throws IOException
     {
@@ -1550,7 +1945,7 @@ public class RegistryManager
             proxy = this.options.getProxyOptions().getProxy();
         }
 
-        HttpRequest request = new HttpRequest(url, method, payload, proxy);
+        HttpRequest request = new HttpRequest(url, method, payload, proxy, this.options.getHttpTransport());
         request.setReadTimeoutMillis(options.getHttpReadTimeout());
         request.setConnectTimeoutMillis(options.getHttpConnectTimeout());
 
@@ -1576,6 +1971,6 @@ public class RegistryManager
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.microsoft.azure.sdk.iot.service;
 
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -37,4 +38,21 @@ public class RegistryManagerOptions
     @Getter
     @Builder.Default
     private final int httpConnectTimeout = DEFAULT_HTTP_CONNECT_TIMEOUT_MS;
+
+    /**
+     * The transport to send http requests through. Set the same {@link com.microsoft.azure.sdk.iot.service.transport.http.PooledHttpTransport}
+     * on the options of several clients to have them share its connections. If null, each request is sent over a new
+     * connection.
+     */
+    @Getter
+    private final HttpTransport httpTransport;
+
+    /**
+     * The options of the cache that {@link RegistryManager#getDevice(String)} and
+     * {@link RegistryManager#getModule(String, String)} read through. Writes made through the same registry manager
+     * update or invalidate the cached entries, but changes made by other clients are only seen once an entry expires.
+     * If null, no cache is used and every lookup sends a request.
+     */
+    @Getter
+    private final RegistryCacheOptions cacheOptions;
 }
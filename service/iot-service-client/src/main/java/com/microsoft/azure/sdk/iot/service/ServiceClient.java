@@ -288,8 +288,12 @@ public class ServiceClient
     }
 
     /**
-     * Open AMQP sender
-     * @throws IOException This exception is thrown if the AmqpSender object is not initialized
+     * Open a long lived AMQP connection that all sends from this client share until {@link #close()} is called. Sends
+     * made over an open client do not wait for each other, so many threads can send at the same time, and
+     * {@link #sendAsync(String, Message)} does not tie up a thread per message. If the service closes the connection,
+     * the next send reopens it.
+     * @throws IOException This exception is thrown if the AmqpSender object is not initialized, or if the connection
+     * could not be opened
      */
     public void open() throws IOException
     {
@@ -305,7 +309,7 @@ public class ServiceClient
     }
 
     /**
-     * Close AMQP sender
+     * Close the AMQP connection opened by {@link #open()}
      * @throws IOException This exception is thrown if the AmqpSender object is not initialized
      */
     public void close() throws IOException
@@ -321,8 +325,9 @@ public class ServiceClient
     }
 
     /**
-     * Send a one-way message to the specified device. This function is synchronized internally so that only one send operation
-     * is allowed at a time. In order to do more send operations at a time, you will need to instantiate another service client instance.
+     * Send a one-way message to the specified device. If this client has not been opened, this function is synchronized internally
+     * so that only one send operation is allowed at a time, since each send opens a connection of its own. Once this
+     * client has been opened with {@link #open()}, any number of send operations can share its connection at a time.
      *
      * @param deviceId The device identifier for the target device
      * @param message The message for the device
@@ -335,8 +340,9 @@ public class ServiceClient
     }
 
     /**
-     * Send a one-way message to the specified module. This function is synchronized internally so that only one send operation
-     * is allowed at a time. In order to do more send operations at a time, you will need to instantiate another service client instance.
+     * Send a one-way message to the specified module. If this client has not been opened, this function is synchronized internally
+     * so that only one send operation is allowed at a time, since each send opens a connection of its own. Once this
+     * client has been opened with {@link #open()}, any number of send operations can share its connection at a time.
      *
      * @param deviceId The device identifier for the target device
      * @param moduleId The module identifier for the target device
@@ -407,23 +413,45 @@ public class ServiceClient
     }
 
     /**
-     * Provide asynchronous access to send()
+     * Send a one-way message to the specified device without waiting for it to be acknowledged.
+     * <p>
+     * Once this client has been opened with {@link #open()}, the message is queued on the client's connection and
+     * the returned future completes when the service acknowledges it, so any number of these sends can be in flight
+     * at a time. The future is completed on the connection's thread, so stages that depend on it should not block.
+     * If this client has not been opened, the synchronous {@link #send(String, Message)} is run on a thread of this
+     * client instead.
+     * </p>
      *
      * @param deviceId The device identifier for the target device
      * @param message The message for the device
      * @return The future object for the requested operation
-     * @deprecated Use the synchronous version of this API {@link #send(String, Message)}. This asynchronous
-     * API only spawned a thread to run the synchronous API, so users are advised to do this themselves
-     * in order to have control over the spawned threads.
      */
-    @Deprecated
     public CompletableFuture<Void> sendAsync(String deviceId, Message message)
     {
+        return this.sendAsync(deviceId, null, message);
+    }
+
+    /**
+     * Send a one-way message to the specified module without waiting for it to be acknowledged. See
+     * {@link #sendAsync(String, Message)} for details.
+     *
+     * @param deviceId The device identifier for the target device
+     * @param moduleId The module identifier for the target device
+     * @param message The message for the module
+     * @return The future object for the requested operation
+     */
+    public CompletableFuture<Void> sendAsync(String deviceId, String moduleId, Message message)
+    {
+        if (this.amqpMessageSender != null && this.amqpMessageSender.isOpen())
+        {
+            return this.amqpMessageSender.sendAsync(deviceId, moduleId, message);
+        }
+
         final CompletableFuture<Void> future = new CompletableFuture<>();
         executor.submit(() -> {
             try
             {
-                send(deviceId, message);
+                send(deviceId, moduleId, message);
                 future.complete(null);
             }
             catch (Exception e)
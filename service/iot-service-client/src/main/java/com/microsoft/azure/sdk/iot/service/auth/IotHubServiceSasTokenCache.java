@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.auth;
+
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe cache of the SAS tokens that are built from connection strings, so that each request doesn't need to sign
+ * a new token. A cached token is reused until the configured fraction of its lifetime has passed, after which the next
+ * request for it signs a new one.
+ * <p>
+ * Tokens are cached per IoT Hub host name, shared access key name and shared access key, so clients that were created
+ * from equivalent connection strings share tokens. RegistryManager, DeviceTwin, DeviceMethod, JobClient and the query
+ * APIs all use {@link #getSharedInstance()} when they were created from a connection string.
+ * </p>
+ */
+public final class IotHubServiceSasTokenCache
+{
+    /**
+     * The default fraction of a token's lifetime that it will be reused for.
+     */
+    public static final double DEFAULT_RENEWAL_FRACTION = 0.5;
+
+    private static final IotHubServiceSasTokenCache SHARED_INSTANCE = new IotHubServiceSasTokenCache();
+
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private volatile double renewalFraction;
+
+    /**
+     * Construct a new cache that reuses tokens for {@link #DEFAULT_RENEWAL_FRACTION} of their lifetime.
+     */
+    public IotHubServiceSasTokenCache()
+    {
+        this(DEFAULT_RENEWAL_FRACTION);
+    }
+
+    /**
+     * Construct a new cache.
+     * @param renewalFraction the fraction of a token's lifetime that it will be reused for. Must be greater than 0 and
+     * no greater than 1.
+     */
+    public IotHubServiceSasTokenCache(double renewalFraction)
+    {
+        setRenewalFraction(renewalFraction);
+    }
+
+    /**
+     * @return the cache that the service clients use for tokens built from their connection strings.
+     */
+    public static IotHubServiceSasTokenCache getSharedInstance()
+    {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Get a SAS token for the provided connection string. This may be the same as a previously returned token if less
+     * than the renewal fraction of its lifetime has passed. Otherwise, a new token is signed and cached.
+     * @param iotHubConnectionString the connection string to build the token from.
+     * @return a valid SAS token string.
+     */
+    public String getSasToken(IotHubConnectionString iotHubConnectionString)
+    {
+        if (iotHubConnectionString == null)
+        {
+            throw new IllegalArgumentException("iotHubConnectionString cannot be null");
+        }
+
+        String key = iotHubConnectionString.getHostName()
+            + "\n" + iotHubConnectionString.getSharedAccessKeyName()
+            + "\n" + iotHubConnectionString.getSharedAccessKey();
+
+        CachedToken cachedToken = this.tokens.get(key);
+        if (cachedToken != null && System.currentTimeMillis() < cachedToken.renewAtMillis)
+        {
+            this.hitCount.increment();
+            return cachedToken.token;
+        }
+
+        // Concurrent misses for the same key may each sign a token. Any of them is valid, so the last one cached wins.
+        this.missCount.increment();
+        IotHubServiceSasToken sasToken = new IotHubServiceSasToken(iotHubConnectionString);
+        long lifespanMillis = sasToken.getTokenLifespanSeconds() * 1000;
+        long renewAtMillis = sasToken.getExpiryTimeMillis() - (long) (lifespanMillis * (1 - this.renewalFraction));
+        String token = sasToken.toString();
+        this.tokens.put(key, new CachedToken(token, renewAtMillis));
+        return token;
+    }
+
+    /**
+     * @return the fraction of a token's lifetime that it will be reused for.
+     */
+    public double getRenewalFraction()
+    {
+        return this.renewalFraction;
+    }
+
+    /**
+     * Set the fraction of a token's lifetime that it will be reused for. This applies to tokens that are already
+     * cached only once they are renewed.
+     * @param renewalFraction the fraction of a token's lifetime that it will be reused for. Must be greater than 0 and
+     * no greater than 1.
+     */
+    public void setRenewalFraction(double renewalFraction)
+    {
+        if (!(renewalFraction > 0 && renewalFraction <= 1))
+        {
+            throw new IllegalArgumentException("renewalFraction must be greater than 0 and no greater than 1");
+        }
+
+        this.renewalFraction = renewalFraction;
+    }
+
+    /**
+     * @return the number of times that a cached token was returned.
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * @return the number of times that a new token had to be signed.
+     */
+    public long getMissCount()
+    {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Remove all cached tokens, so that the next request for each connection string signs a new token. This does not
+     * reset the hit and miss counts.
+     */
+    public void clear()
+    {
+        this.tokens.clear();
+    }
+
+    private static final class CachedToken
+    {
+        private final String token;
+        private final long renewAtMillis;
+
+        private CachedToken(String token, long renewAtMillis)
+        {
+            this.token = token;
+            this.renewAtMillis = renewAtMillis;
+        }
+    }
+}
@@ -14,13 +14,13 @@ import java.util.Objects;
 
 /**
  * This class generates AAD authentication tokens from a TokenCredential but caches previous tokens when they aren't near
- * expiry.
+ * expiry. This class is thread safe, so a single instance can be shared by concurrent requests.
  */
 public class TokenCredentialCache
 {
     private final static int MINUTES_BEFORE_PROACTIVE_RENEWAL = 9;
     private final TokenCredential tokenCredential;
-    private AccessToken accessToken;
+    private volatile AccessToken accessToken;
 
     @SuppressFBWarnings("MS_MUTABLE_ARRAY") // Can't change this to an immutable list without a breaking change
     public static final String[] IOTHUB_PUBLIC_SCOPE = new String[]{"https://iothubs.azure.net/.default"};
@@ -45,12 +45,22 @@ public class TokenCredentialCache
      */
     public AccessToken getAccessToken()
     {
-        if (this.accessToken == null || isAccessTokenCloseToExpiry(this.accessToken))
+        AccessToken currentAccessToken = this.accessToken;
+        if (currentAccessToken != null && !isAccessTokenCloseToExpiry(currentAccessToken))
         {
-            this.accessToken = tokenCredential.getToken(new TokenRequestContext().addScopes(IOTHUB_PUBLIC_SCOPE)).block();
+            return currentAccessToken;
         }
 
-        return this.accessToken;
+        synchronized (this)
+        {
+            // Another thread may have renewed the token while this thread was waiting for the lock
+            if (this.accessToken == null || isAccessTokenCloseToExpiry(this.accessToken))
+            {
+                this.accessToken = tokenCredential.getToken(new TokenRequestContext().addScopes(IOTHUB_PUBLIC_SCOPE)).block();
+            }
+
+            return this.accessToken;
+        }
     }
 
     /**
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+/**
+ * Limits the number of requests in flight to a limit that adapts to throttling by the service. The limit is halved
+ * each time a request is throttled, and grows by one each time as many requests as the current limit have completed
+ * without being throttled, up to the maximum limit.
+ * <p>
+ * Requests that were sent before the limit was last lowered were sent under the old limit, so being throttled does not
+ * lower the limit again. This keeps a burst of throttled responses from collapsing the limit down to one.
+ * </p>
+ */
+final class AdaptiveConcurrencyLimiter
+{
+    private final int maxLimit;
+
+    private int limit;
+    private int inFlight;
+    private int successesSinceIncrease;
+
+    // Incremented each time the limit is lowered
+    private long generation;
+
+    AdaptiveConcurrencyLimiter(int maxLimit)
+    {
+        if (maxLimit <= 0)
+        {
+            throw new IllegalArgumentException("maxLimit must be a positive value");
+        }
+
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Wait until the number of requests in flight is below the current limit, and count one more request in flight.
+     *
+     * @return the generation of the limit the request was admitted under, to pass to {@link #onThrottled(long)}.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    synchronized long acquire() throws InterruptedException
+    {
+        while (this.inFlight >= this.limit)
+        {
+            this.wait();
+        }
+
+        this.inFlight++;
+        return this.generation;
+    }
+
+    /**
+     * Record that a request completed without being throttled.
+     */
+    synchronized void onSuccess()
+    {
+        this.inFlight--;
+        if (this.limit < this.maxLimit && ++this.successesSinceIncrease >= this.limit)
+        {
+            this.limit++;
+            this.successesSinceIncrease = 0;
+        }
+
+        this.notifyAll();
+    }
+
+    /**
+     * Record that a request was throttled by the service.
+     *
+     * @param generation the generation returned by {@link #acquire()} when the request was admitted.
+     */
+    synchronized void onThrottled(long generation)
+    {
+        this.inFlight--;
+        if (generation == this.generation)
+        {
+            this.limit = Math.max(1, this.limit / 2);
+            this.successesSinceIncrease = 0;
+            this.generation++;
+        }
+
+        this.notifyAll();
+    }
+
+    /**
+     * Record that a request failed for a reason other than throttling. This does not change the limit.
+     */
+    synchronized void onFailure()
+    {
+        this.inFlight--;
+        this.notifyAll();
+    }
+
+    synchronized int getLimit()
+    {
+        return this.limit;
+    }
+
+    synchronized int getInFlight()
+    {
+        return this.inFlight;
+    }
+}
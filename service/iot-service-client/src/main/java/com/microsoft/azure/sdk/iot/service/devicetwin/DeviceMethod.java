@@ -10,31 +10,51 @@ import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
 import com.microsoft.azure.sdk.iot.service.Tools;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Use the DeviceMethod client to directly invoke methods on devices and modules in IoT hub.
  */
+@Slf4j
 public class DeviceMethod
 {
-    private Integer requestId = 0;
+    private static final int MAX_THROTTLED_ATTEMPTS = 10;
+    private static final long THROTTLED_BASE_BACKOFF_MILLIS = 100;
+    private static final long THROTTLED_MAX_BACKOFF_MILLIS = 10 * 1000; // 10 seconds
+
+    private final AtomicInteger requestId = new AtomicInteger();
 
     private final DeviceMethodClientOptions options;
     private final String hostName;
-    private TokenCredentialCache credentialCache;
-    private AzureSasCredential azureSasCredential;
-    private IotHubConnectionString iotHubConnectionString;
+    private final TokenCredentialCache credentialCache;
+    private final AzureSasCredential azureSasCredential;
+    private final IotHubConnectionString iotHubConnectionString;
 
     /**
      * Create a DeviceMethod instance from the information in the connection string.
@@ -108,6 +128,8 @@ public class DeviceMethod
         this.hostName = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString).getHostName();
         this.options = options;
         this.iotHubConnectionString = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        this.credentialCache = null;
+        this.azureSasCredential = null;
     }
 
     /**
@@ -142,6 +164,8 @@ public class DeviceMethod
         this.options = options;
         this.credentialCache = new TokenCredentialCache(credential);
         this.hostName = hostName;
+        this.azureSasCredential = null;
+        this.iotHubConnectionString = null;
     }
 
     /**
@@ -174,6 +198,8 @@ public class DeviceMethod
         this.options = options;
         this.azureSasCredential = azureSasCredential;
         this.hostName = hostName;
+        this.credentialCache = null;
+        this.iotHubConnectionString = null;
     }
 
     /**
@@ -188,7 +214,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed.
      * @throws IOException This exception is thrown if the IO operation failed.
      */
-    public synchronized MethodResult invoke(
+    public MethodResult invoke(
         String deviceId,
         String methodName,
         Long responseTimeoutInSeconds,
@@ -222,7 +248,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed.
      * @throws IOException This exception is thrown if the IO operation failed.
      */
-    public synchronized MethodResult invoke(
+    public MethodResult invoke(
         String deviceId,
         String moduleId,
         String methodName,
@@ -250,6 +276,213 @@ public class DeviceMethod
         return invokeMethod(url, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload);
     }
 
+    /**
+     * Invokes a method on each of the provided devices, with at most {@code maxConcurrency} invocations in flight at
+     * a time, and returns the result of each invocation once they have all completed.
+     * <p>
+     * Each time an invocation is throttled by the service, the number of invocations allowed in flight is halved and
+     * the throttled invocation is retried after a backoff. The number of invocations allowed in flight then grows back
+     * towards {@code maxConcurrency} as invocations complete without being throttled. An invocation that is throttled
+     * 10 times, or that fails for any other reason, is not retried and its exception is
+     * set in its {@link MethodInvocationResult}.
+     * </p>
+     *
+     * @param deviceIds the ids of the devices to invoke the method on. Duplicate ids are only invoked once.
+     * @param methodName is the name of the method that shall be invoked on each device.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from each device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for each device to be connected in seconds.
+     * @param payload is the the method parameter.
+     * @param maxConcurrency the maximum number of invocations in flight at a time. Must be a positive value.
+     * @return a future that completes with the result of each invocation, by device id. Cancelling it stops any
+     * invocations that have not been sent yet.
+     */
+    public CompletableFuture<Map<String, MethodInvocationResult>> invokeAll(
+        Collection<String> deviceIds,
+        String methodName,
+        Long responseTimeoutInSeconds,
+        Long connectTimeoutInSeconds,
+        Object payload,
+        int maxConcurrency)
+    {
+        return invokeAll(deviceIds, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload, maxConcurrency, null);
+    }
+
+    /**
+     * Invokes a method on each of the provided devices, with at most {@code maxConcurrency} invocations in flight at
+     * a time, and passes the result of each invocation to {@code resultCallback} as soon as it completes.
+     * <p>
+     * See {@link #invokeAll(Collection, String, Long, Long, Object, int)} for how throttling by the service is handled.
+     * </p>
+     *
+     * @param deviceIds the ids of the devices to invoke the method on. Duplicate ids are only invoked once.
+     * @param methodName is the name of the method that shall be invoked on each device.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from each device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for each device to be connected in seconds.
+     * @param payload is the the method parameter.
+     * @param maxConcurrency the maximum number of invocations in flight at a time. Must be a positive value.
+     * @param resultCallback called with the result of each invocation as it completes. It is called from several threads
+     * at once, so it must be thread safe. May be null.
+     * @return a future that completes with the result of each invocation, by device id. Cancelling it stops any
+     * invocations that have not been sent yet.
+     */
+    public CompletableFuture<Map<String, MethodInvocationResult>> invokeAll(
+        Collection<String> deviceIds,
+        String methodName,
+        Long responseTimeoutInSeconds,
+        Long connectTimeoutInSeconds,
+        Object payload,
+        int maxConcurrency,
+        Consumer<MethodInvocationResult> resultCallback)
+    {
+        if (deviceIds == null)
+        {
+            throw new IllegalArgumentException("deviceIds cannot be null.");
+        }
+
+        if (Tools.isNullOrEmpty(methodName))
+        {
+            throw new IllegalArgumentException("methodName is empty or null.");
+        }
+
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("maxConcurrency must be a positive value.");
+        }
+
+        for (String deviceId : deviceIds)
+        {
+            if (Tools.isNullOrEmpty(deviceId))
+            {
+                throw new IllegalArgumentException("deviceIds cannot contain an empty or null deviceId.");
+            }
+        }
+
+        Queue<String> pendingDeviceIds = new ConcurrentLinkedQueue<>(new LinkedHashSet<>(deviceIds));
+        Map<String, MethodInvocationResult> results = new ConcurrentHashMap<>();
+        CompletableFuture<Map<String, MethodInvocationResult>> invocations = new CompletableFuture<>();
+        if (pendingDeviceIds.isEmpty())
+        {
+            invocations.complete(Collections.unmodifiableMap(results));
+            return invocations;
+        }
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(maxConcurrency);
+        int workerCount = Math.min(maxConcurrency, pendingDeviceIds.size());
+        AtomicInteger workerId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, runnable ->
+        {
+            Thread thread = new Thread(runnable, "azure-iot-sdk-DeviceMethod-invokeAll-" + workerId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[workerCount];
+        for (int i = 0; i < workerCount; i++)
+        {
+            workers[i] = CompletableFuture.runAsync(() ->
+            {
+                String deviceId;
+                while (!invocations.isDone() && (deviceId = pendingDeviceIds.poll()) != null)
+                {
+                    MethodInvocationResult result;
+                    try
+                    {
+                        result = invokeWithThrottlingBackoff(deviceId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload, limiter);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        invocations.completeExceptionally(e);
+                        return;
+                    }
+
+                    results.put(deviceId, result);
+                    if (resultCallback != null)
+                    {
+                        try
+                        {
+                            resultCallback.accept(result);
+                        }
+                        catch (Exception e)
+                        {
+                            log.warn("Method invocation result callback threw an exception for device {}", deviceId, e);
+                        }
+                    }
+                }
+            }, executor);
+        }
+
+        CompletableFuture.allOf(workers).whenComplete((ignored, throwable) ->
+        {
+            if (throwable != null)
+            {
+                invocations.completeExceptionally(throwable);
+            }
+            else
+            {
+                invocations.complete(Collections.unmodifiableMap(results));
+            }
+        });
+
+        // Interrupts any worker that is still waiting on the service, for instance if the future was cancelled
+        invocations.whenComplete((ignored, throwable) -> executor.shutdownNow());
+
+        return invocations;
+    }
+
+    private MethodInvocationResult invokeWithThrottlingBackoff(
+        String deviceId,
+        String methodName,
+        Long responseTimeoutInSeconds,
+        Long connectTimeoutInSeconds,
+        Object payload,
+        AdaptiveConcurrencyLimiter limiter) throws InterruptedException
+    {
+        URL url;
+        try
+        {
+            url = IotHubConnectionString.getUrlMethod(this.hostName, deviceId);
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            return new MethodInvocationResult(deviceId, null, e);
+        }
+
+        for (int attempt = 1; ; attempt++)
+        {
+            long generation = limiter.acquire();
+            try
+            {
+                MethodResult methodResult = invokeMethod(url, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload);
+                limiter.onSuccess();
+                return new MethodInvocationResult(deviceId, methodResult, null);
+            }
+            catch (IotHubTooManyRequestsException e)
+            {
+                limiter.onThrottled(generation);
+                if (attempt >= MAX_THROTTLED_ATTEMPTS)
+                {
+                    return new MethodInvocationResult(deviceId, null, e);
+                }
+
+                log.debug("Method invocation on device {} was throttled, retrying in at most {} concurrent invocations", deviceId, limiter.getLimit());
+                Thread.sleep(getThrottledBackoffMillis(attempt));
+            }
+            catch (IotHubException | IOException | RuntimeException e)
+            {
+                limiter.onFailure();
+                return new MethodInvocationResult(deviceId, null, e);
+            }
+        }
+    }
+
+    private static long getThrottledBackoffMillis(int attempt)
+    {
+        // Exponential backoff with jitter, so that throttled invocations don't all retry at once
+        long backoff = Math.min(THROTTLED_MAX_BACKOFF_MILLIS, THROTTLED_BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
     /**
      * Directly invokes a method on the device and return its result.
      *
@@ -262,7 +495,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed.
      * @throws IOException This exception is thrown if the IO operation failed.
      */
-    private synchronized MethodResult invokeMethod(
+    private MethodResult invokeMethod(
         URL url,
         String methodName,
         Long responseTimeoutInSeconds,
@@ -284,10 +517,11 @@ public class DeviceMethod
             url,
             HttpMethod.POST,
             json.getBytes(StandardCharsets.UTF_8),
-            String.valueOf(requestId++),
+            String.valueOf(this.requestId.getAndIncrement()),
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         MethodParser methodParserResponse = new MethodParser();
         methodParserResponse.fromJson(new String(response.getBody(), StandardCharsets.UTF_8));
@@ -369,6 +603,6 @@ public class DeviceMethod
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
     }
 }
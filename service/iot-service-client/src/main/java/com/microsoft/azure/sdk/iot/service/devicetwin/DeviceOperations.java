@@ -5,13 +5,14 @@ package com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.Tools;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
 
 import java.io.IOException;
 import java.net.Proxy;
@@ -36,7 +37,10 @@ public class DeviceOperations
     private static final String CONTENT_LENGTH = "Content-Length";
     private static final String CONTENT_TYPE = "Content-Type";
     private static final Integer DEFAULT_HTTP_TIMEOUT_MS = 24000;
-    private static Map<String, String> headers = null;
+
+    // Set by setHeaders and consumed by the next request made on the same thread, so that concurrent requests made
+    // through clients that share this class never pick up each other's headers
+    private static final ThreadLocal<Map<String, String>> headers = new ThreadLocal<>();
 
     /**
      * Send a http request to the IoTHub using the Twin/Method standard, and return its response.
@@ -88,7 +92,7 @@ public class DeviceOperations
             throw new IllegalArgumentException("HTTP Request timeout shouldn't not exceed " + timeoutInMs + DEFAULT_HTTP_TIMEOUT_MS + " milliseconds");
         }
 
-        String sasTokenString = new IotHubServiceSasToken(iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
          if (Tools.isNullOrEmpty(sasTokenString))
         {
             throw new IllegalArgumentException("Illegal sasToken null or empty");
@@ -108,14 +112,15 @@ public class DeviceOperations
         request.setHeaderField(CONTENT_TYPE, ACCEPT_VALUE + "; " + ACCEPT_CHARSET);
         request.setHeaderField(CONTENT_LENGTH, String.valueOf(payload.length));
 
-        if (headers != null)
+        Map<String, String> customHeaders = headers.get();
+        if (customHeaders != null)
         {
-            for (Map.Entry<String, String> header : headers.entrySet())
+            for (Map.Entry<String, String> header : customHeaders.entrySet())
             {
                 request.setHeaderField(header.getKey(), header.getValue());
             }
 
-            headers = null;
+            headers.remove();
         }
 
         HttpResponse response = request.send();
@@ -148,6 +153,37 @@ public class DeviceOperations
             int readTimeout,
             Proxy proxy)
             throws IOException, IotHubException, IllegalArgumentException
+    {
+        return request(iotHubConnectionString, url, method, payload, requestId, connectTimeout, readTimeout, proxy, null);
+    }
+
+    /**
+     * Send a http request to the IoTHub using the Twin/Method standard, and return its response.
+     *
+     * @param iotHubConnectionString is the connection string for the IoTHub.
+     * @param url is the Twin URL for the device ID.
+     * @param method is the HTTP method (GET, POST, DELETE, PATCH, PUT).
+     * @param payload is the array of bytes that contains the payload.
+     * @param requestId is an unique number that identify the request.
+     * @param connectTimeout the http connect timeout to use, in milliseconds.
+     * @param readTimeout the http read timeout to use, in milliseconds.
+     * @param proxy the proxy to use, or null if no proxy will be used.
+     * @param httpTransport the transport to send the request through, or null if the request will be sent over a new connection.
+     * @return the result of the request.
+     * @throws IotHubException This exception is thrown if the response verification failed.
+     * @throws IOException This exception is thrown if the IO operation failed.
+     */
+    public static HttpResponse request(
+            IotHubConnectionString iotHubConnectionString,
+            URL url,
+            HttpMethod method,
+            byte[] payload,
+            String requestId,
+            int connectTimeout,
+            int readTimeout,
+            Proxy proxy,
+            HttpTransport httpTransport)
+            throws IOException, IotHubException, IllegalArgumentException
     {
         if (iotHubConnectionString == null)
         {
@@ -164,14 +200,18 @@ public class DeviceOperations
             throw new IllegalArgumentException("Http requests must provide a non-null http method");
         }
 
-        String sasTokenString = new IotHubServiceSasToken(iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
         if (Tools.isNullOrEmpty(sasTokenString))
         {
             throw new IllegalArgumentException("Illegal sasToken null or empty");
         }
 
         HttpRequest request;
-        if (proxy != null)
+        if (httpTransport != null)
+        {
+            request = new HttpRequest(url, method, payload, proxy, httpTransport);
+        }
+        else if (proxy != null)
         {
             request = new HttpRequest(url, method, payload, proxy);
         }
@@ -198,14 +238,15 @@ public class DeviceOperations
             request.setHeaderField(CONTENT_LENGTH, String.valueOf(payload.length));
         }
 
-        if (headers != null)
+        Map<String, String> customHeaders = headers.get();
+        if (customHeaders != null)
         {
-            for (Map.Entry<String, String> header : headers.entrySet())
+            for (Map.Entry<String, String> header : customHeaders.entrySet())
             {
                 request.setHeaderField(header.getKey(), header.getValue());
             }
 
-            headers = null;
+            headers.remove();
         }
 
         HttpResponse response = request.send();
@@ -238,6 +279,37 @@ public class DeviceOperations
             int readTimeout,
             Proxy proxy)
             throws IOException, IotHubException, IllegalArgumentException
+    {
+        return request(credentialToken, url, method, payload, requestId, connectTimeout, readTimeout, proxy, null);
+    }
+
+    /**
+     * Send a http request to the IoTHub using the Twin/Method standard, and return its response.
+     *
+     * @param credentialToken The authentication token that will be used to authorize the request
+     * @param url is the Twin URL for the device ID.
+     * @param method is the HTTP method (GET, POST, DELETE, PATCH, PUT).
+     * @param payload is the array of bytes that contains the payload.
+     * @param requestId is an unique number that identify the request.
+     * @param connectTimeout the http connect timeout to use, in milliseconds.
+     * @param readTimeout the http read timeout to use, in milliseconds.
+     * @param proxy the proxy to use, or null if no proxy will be used.
+     * @param httpTransport the transport to send the request through, or null if the request will be sent over a new connection.
+     * @return the result of the request.
+     * @throws IotHubException This exception is thrown if the response verification failed.
+     * @throws IOException This exception is thrown if the IO operation failed.
+     */
+    public static HttpResponse request(
+            String credentialToken,
+            URL url,
+            HttpMethod method,
+            byte[] payload,
+            String requestId,
+            int connectTimeout,
+            int readTimeout,
+            Proxy proxy,
+            HttpTransport httpTransport)
+            throws IOException, IotHubException, IllegalArgumentException
     {
         Objects.requireNonNull(credentialToken);
 
@@ -252,7 +324,11 @@ public class DeviceOperations
         }
 
         HttpRequest request;
-        if (proxy != null)
+        if (httpTransport != null)
+        {
+            request = new HttpRequest(url, method, payload, proxy, httpTransport);
+        }
+        else if (proxy != null)
         {
             request = new HttpRequest(url, method, payload, proxy);
         }
@@ -279,14 +355,15 @@ public class DeviceOperations
             request.setHeaderField(CONTENT_LENGTH, String.valueOf(payload.length));
         }
 
-        if (headers != null)
+        Map<String, String> customHeaders = headers.get();
+        if (customHeaders != null)
         {
-            for (Map.Entry<String, String> header : headers.entrySet())
+            for (Map.Entry<String, String> header : customHeaders.entrySet())
             {
                 request.setHeaderField(header.getKey(), header.getValue());
             }
 
-            headers = null;
+            headers.remove();
         }
 
         HttpResponse response = request.send();
@@ -295,7 +372,7 @@ public class DeviceOperations
     }
 
     /**
-     * Sets headers to be used on next HTTP request.
+     * Sets headers to be used on the next HTTP request made by the calling thread.
      * @param httpHeaders non null and non empty custom headers.
      * @throws IllegalArgumentException This exception is thrown if headers were null or empty.
      */
@@ -306,6 +383,6 @@ public class DeviceOperations
             throw new IllegalArgumentException("Null or Empty headers can't be set");
         }
 
-        headers = httpHeaders;
+        headers.set(httpHeaders);
     }
 }
@@ -13,7 +13,7 @@ import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
 import com.microsoft.azure.sdk.iot.service.Tools;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
@@ -30,20 +30,22 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Use the DeviceTwin class to manage the device twins in IoT hubs.
  */
 public class DeviceTwin
 {
-    private int requestId = 0;
+    private final AtomicInteger requestId = new AtomicInteger();
     private final int DEFAULT_PAGE_SIZE = 100;
 
     private final DeviceTwinClientOptions options;
     private final String hostName;
-    private TokenCredentialCache credentialCache;
-    private AzureSasCredential azureSasCredential;
-    private IotHubConnectionString iotHubConnectionString;
+    private final TokenCredentialCache credentialCache;
+    private final AzureSasCredential azureSasCredential;
+    private final IotHubConnectionString iotHubConnectionString;
 
     /**
      * Static constructor to create instance from connection string.
@@ -106,6 +108,8 @@ public class DeviceTwin
         this.options = options;
         this.iotHubConnectionString = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
         this.hostName = this.iotHubConnectionString.getHostName();
+        this.credentialCache = null;
+        this.azureSasCredential = null;
     }
 
     /**
@@ -140,6 +144,8 @@ public class DeviceTwin
         this.options = options;
         this.credentialCache = new TokenCredentialCache(credential);
         this.hostName = hostName;
+        this.azureSasCredential = null;
+        this.iotHubConnectionString = null;
     }
 
     /**
@@ -172,6 +178,8 @@ public class DeviceTwin
         this.options = options;
         this.azureSasCredential = azureSasCredential;
         this.hostName = hostName;
+        this.credentialCache = null;
+        this.iotHubConnectionString = null;
     }
 
     /**
@@ -210,10 +218,11 @@ public class DeviceTwin
                 url,
                 HttpMethod.GET,
                 new byte[0],
-                String.valueOf(requestId++),
+                String.valueOf(this.requestId.getAndIncrement()),
                 options.getHttpConnectTimeout(),
                 options.getHttpReadTimeout(),
-                proxy);
+                proxy,
+                options.getHttpTransport());
 
         String twin = new String(response.getBody(), StandardCharsets.UTF_8);
 
@@ -242,7 +251,7 @@ public class DeviceTwin
      * @throws IOException This exception is thrown if the IO operation failed.
      * @throws IotHubException This exception is thrown if the response verification failed.
      */
-    public synchronized void updateTwin(DeviceTwinDevice device) throws IotHubException, IOException
+    public void updateTwin(DeviceTwinDevice device) throws IotHubException, IOException
     {
         if (device == null || device.getDeviceId() == null || device.getDeviceId().length() == 0)
         {
@@ -275,10 +284,11 @@ public class DeviceTwin
                 url,
                 HttpMethod.PATCH,
                 twinJson.getBytes(StandardCharsets.UTF_8),
-                String.valueOf(requestId++),
+                String.valueOf(this.requestId.getAndIncrement()),
                 options.getHttpConnectTimeout(),
                 options.getHttpReadTimeout(),
-                proxy);
+                proxy,
+                options.getHttpTransport());
     }
 
     /**
@@ -361,10 +371,11 @@ public class DeviceTwin
             url,
             HttpMethod.PUT,
             twinJson.getBytes(StandardCharsets.UTF_8),
-            String.valueOf(requestId++),
+            String.valueOf(this.requestId.getAndIncrement()),
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         String responseTwinJson = new String(httpResponse.getBody(), StandardCharsets.UTF_8);
 
@@ -401,7 +412,7 @@ public class DeviceTwin
      * @throws IotHubException If query request was not successful at the Iot hub.
      * @throws IOException If input parameters are invalid.
      */
-    public synchronized Query queryTwin(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    public Query queryTwin(String sqlQuery, Integer pageSize) throws IotHubException, IOException
     {
         if (sqlQuery == null || sqlQuery.length() == 0)
         {
@@ -426,7 +437,8 @@ public class DeviceTwin
                 HttpMethod.POST,
                 options.getHttpConnectTimeout(),
                 options.getHttpReadTimeout(),
-                proxy);
+                proxy,
+                options.getHttpTransport());
 
         return deviceTwinQuery;
     }
@@ -439,11 +451,53 @@ public class DeviceTwin
      * @throws IotHubException If query request was not successful at the Iot hub.
      * @throws IOException If input parameters are invalid.
      */
-    public synchronized Query queryTwin(String sqlQuery) throws IotHubException, IOException
+    public Query queryTwin(String sqlQuery) throws IotHubException, IOException
     {
         return this.queryTwin(sqlQuery, DEFAULT_PAGE_SIZE);
     }
 
+    /**
+     * SQL-style query for twin, returned as a stream of twins. The following pages of results are fetched in the
+     * background while the current one is consumed, as bounded by the provided options.
+     * <p>
+     * The stream should be closed if it is not consumed to the end, so that no more pages are fetched. If a page can't
+     * be fetched, the stream throws a {@link java.util.concurrent.CompletionException} whose cause is the
+     * {@link IOException} or {@link IotHubException} that was thrown.
+     * </p>
+     *
+     * @param sqlQuery SQL-style query string to query Iot hub for Twin.
+     * @param pageSize Size to limit each page of the query response by.
+     * @param prefetchOptions The options that bound how far ahead pages are fetched.
+     * @return A stream of the twins that match the query.
+     * @throws IotHubException If the request for the first page was not successful at the Iot hub.
+     * @throws IOException If input parameters are invalid.
+     */
+    public Stream<DeviceTwinDevice> queryTwinStream(String sqlQuery, Integer pageSize, QueryPrefetchOptions prefetchOptions)
+        throws IotHubException, IOException
+    {
+        if (prefetchOptions == null)
+        {
+            throw new IllegalArgumentException("prefetchOptions cannot be null.");
+        }
+
+        Query deviceTwinQuery = this.queryTwin(sqlQuery, pageSize);
+        return new PrefetchingQueryIterator<>(deviceTwinQuery, this::jsonToDeviceTwinDevice, prefetchOptions).stream();
+    }
+
+    /**
+     * SQL-style query for twin, returned as a stream of twins. The following pages of results are fetched in the
+     * background while the current one is consumed, using the default {@link QueryPrefetchOptions}.
+     *
+     * @param sqlQuery SQL-style query string to query Iot hub for Twin.
+     * @return A stream of the twins that match the query.
+     * @throws IotHubException If the request for the first page was not successful at the Iot hub.
+     * @throws IOException If input parameters are invalid.
+     */
+    public Stream<DeviceTwinDevice> queryTwinStream(String sqlQuery) throws IotHubException, IOException
+    {
+        return this.queryTwinStream(sqlQuery, DEFAULT_PAGE_SIZE, QueryPrefetchOptions.builder().build());
+    }
+
     /**
      * Create a {@link QueryCollection} object that can be used to query whole pages of results at a time.
      * QueryCollection objects also allow you to provide a continuation token for the query to pick up from.
@@ -452,7 +506,7 @@ public class DeviceTwin
      * @return The created {@link QueryCollection} object that can be used to query the service.
      * @throws MalformedURLException If twin query URL is not correct.
      */
-    public synchronized QueryCollection queryTwinCollection(String sqlQuery) throws MalformedURLException
+    public QueryCollection queryTwinCollection(String sqlQuery) throws MalformedURLException
     {
         return this.queryTwinCollection(sqlQuery, DEFAULT_PAGE_SIZE);
     }
@@ -466,14 +520,16 @@ public class DeviceTwin
      * @return The created QueryCollection object that can be used to query the service.
      * @throws MalformedURLException If twin query URL is not correct.
      */
-    public synchronized QueryCollection queryTwinCollection(String sqlQuery, Integer pageSize) throws MalformedURLException
+    public QueryCollection queryTwinCollection(String sqlQuery, Integer pageSize) throws MalformedURLException
     {
         ProxyOptions proxyOptions = options.getProxyOptions();
         Proxy proxy = proxyOptions != null ? proxyOptions.getProxy() : null;
 
+        QueryCollection queryCollection;
+
         if (this.credentialCache != null)
         {
-            return new QueryCollection(
+            queryCollection = new QueryCollection(
                     sqlQuery,
                     pageSize,
                     QueryType.TWIN,
@@ -486,7 +542,7 @@ public class DeviceTwin
         }
         else if (this.azureSasCredential != null)
         {
-            return new QueryCollection(
+            queryCollection = new QueryCollection(
                     sqlQuery,
                     pageSize,
                     QueryType.TWIN,
@@ -499,7 +555,7 @@ public class DeviceTwin
         }
         else
         {
-            return new QueryCollection(
+            queryCollection = new QueryCollection(
                     sqlQuery,
                     pageSize,
                     QueryType.TWIN,
@@ -510,6 +566,9 @@ public class DeviceTwin
                     options.getHttpReadTimeout(),
                     proxy);
         }
+
+        queryCollection.setHttpTransport(options.getHttpTransport());
+        return queryCollection;
     }
 
     /**
@@ -522,14 +581,18 @@ public class DeviceTwin
      * @throws IotHubException If Iot hub could not respond back to the query successfully.
      * @throws IOException If input parameter is incorrect.
      */
-    public synchronized boolean hasNextDeviceTwin(Query deviceTwinQuery) throws IotHubException, IOException
+    public boolean hasNextDeviceTwin(Query deviceTwinQuery) throws IotHubException, IOException
     {
         if (deviceTwinQuery == null)
         {
             throw new IllegalArgumentException("Query cannot be null.");
         }
 
-        return deviceTwinQuery.hasNext();
+        // Query keeps its page and continuation token without locking, so threads that share one take turns on it
+        synchronized (deviceTwinQuery)
+        {
+            return deviceTwinQuery.hasNext();
+        }
     }
 
     /**
@@ -541,7 +604,7 @@ public class DeviceTwin
      * @throws IotHubException If an unsuccessful response from IoT Hub is received.
      * @throws NoSuchElementException If no additional element was found.
      */
-    public synchronized DeviceTwinDevice getNextDeviceTwin(Query deviceTwinQuery)
+    public DeviceTwinDevice getNextDeviceTwin(Query deviceTwinQuery)
             throws IOException, IotHubException, NoSuchElementException
     {
         if (deviceTwinQuery == null)
@@ -549,7 +612,11 @@ public class DeviceTwin
             throw new IllegalArgumentException("Query cannot be null.");
         }
 
-        Object nextObject = deviceTwinQuery.next();
+        Object nextObject;
+        synchronized (deviceTwinQuery)
+        {
+            nextObject = deviceTwinQuery.next();
+        }
 
         if (nextObject instanceof String)
         {
@@ -568,14 +635,18 @@ public class DeviceTwin
      * @return {@code True} if the provided deviceTwinQueryCollection has a next page to query, {@code false} otherwise.
      * @throws IllegalArgumentException if the provided deviceTwinQueryCollection is null.
      */
-    public synchronized boolean hasNext(QueryCollection deviceTwinQueryCollection)
+    public boolean hasNext(QueryCollection deviceTwinQueryCollection)
     {
         if (deviceTwinQueryCollection == null)
         {
             throw new IllegalArgumentException("deviceTwinQueryCollection cannot be null.");
         }
 
-        return deviceTwinQueryCollection.hasNext();
+        // QueryCollection keeps its continuation token without locking, so threads that share one take turns on it
+        synchronized (deviceTwinQueryCollection)
+        {
+            return deviceTwinQueryCollection.hasNext();
+        }
     }
 
     /**
@@ -591,7 +662,7 @@ public class DeviceTwin
      * @throws IOException If an {@link IotHubException} occurs when querying the service or if the results of that
      * query doesn't match expectations.
      */
-    public synchronized QueryCollectionResponse<DeviceTwinDevice> next(
+    public QueryCollectionResponse<DeviceTwinDevice> next(
             QueryCollection deviceTwinQueryCollection) throws IOException, IotHubException
     {
         QueryOptions options = new QueryOptions();
@@ -617,7 +688,7 @@ public class DeviceTwin
      * @throws IOException If an {@link IotHubException} occurs when querying the service or if the results of that
      * query doesn't match expectations.
      */
-    public synchronized QueryCollectionResponse<DeviceTwinDevice> next(
+    public QueryCollectionResponse<DeviceTwinDevice> next(
             QueryCollection deviceTwinQueryCollection,
             QueryOptions options) throws IOException, IotHubException
     {
@@ -626,12 +697,17 @@ public class DeviceTwin
             throw new IllegalArgumentException("Query cannot be null");
         }
 
-        if (!this.hasNext(deviceTwinQueryCollection))
+        QueryCollectionResponse<String> queryResults;
+        synchronized (deviceTwinQueryCollection)
         {
-            return null;
+            if (!deviceTwinQueryCollection.hasNext())
+            {
+                return null;
+            }
+
+            queryResults = deviceTwinQueryCollection.next(options);
         }
 
-        QueryCollectionResponse<String> queryResults = deviceTwinQueryCollection.next(options);
         Iterator<String> jsonCollectionIterator = queryResults.getCollection().iterator();
         Collection<DeviceTwinDevice> deviceTwinDeviceList = new ArrayList<>();
 
@@ -643,6 +719,27 @@ public class DeviceTwin
         return new QueryCollectionResponse<>(deviceTwinDeviceList, queryResults.getContinuationToken());
     }
 
+    /**
+     * Returns the remaining results of the given query collection as a stream of twins. The following pages of results
+     * are fetched in the background while the current one is consumed, as bounded by the provided options.
+     * <p>The query continues from the continuation token saved in the query collection, if any. The query collection
+     * must not be used by anything else once the stream is created. The stream should be closed if it is not consumed
+     * to the end, so that no more pages are fetched.</p>
+     *
+     * @param deviceTwinQueryCollection The query to run.
+     * @param prefetchOptions The options that bound how far ahead pages are fetched.
+     * @return A stream of the twins that match the query.
+     */
+    public Stream<DeviceTwinDevice> stream(QueryCollection deviceTwinQueryCollection, QueryPrefetchOptions prefetchOptions)
+    {
+        if (deviceTwinQueryCollection == null)
+        {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+
+        return new PrefetchingQueryIterator<>(deviceTwinQueryCollection, this::jsonToDeviceTwinDevice, prefetchOptions).stream();
+    }
+
     /**
      * Creates a new Job to update twin tags and desired properties on one or multiple devices.
      *
@@ -734,6 +831,6 @@ public class DeviceTwin
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
     }
 }
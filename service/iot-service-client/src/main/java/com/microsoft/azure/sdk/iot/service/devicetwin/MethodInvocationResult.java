@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import lombok.Getter;
+
+/**
+ * The outcome of invoking a method on one of the devices passed to
+ * {@link DeviceMethod#invokeAll(java.util.Collection, String, Long, Long, Object, int)}. Either the method result or
+ * the exception that prevented the method from being invoked is set, but not both.
+ */
+public final class MethodInvocationResult
+{
+    /**
+     * The id of the device the method was invoked on.
+     */
+    @Getter
+    private final String deviceId;
+
+    /**
+     * The status and payload returned by the device. Null if the method could not be invoked.
+     */
+    @Getter
+    private final MethodResult methodResult;
+
+    /**
+     * The exception that was thrown when invoking the method on the device. Null if the method was invoked.
+     */
+    @Getter
+    private final Exception exception;
+
+    MethodInvocationResult(String deviceId, MethodResult methodResult, Exception exception)
+    {
+        this.deviceId = deviceId;
+        this.methodResult = methodResult;
+        this.exception = exception;
+    }
+
+    /**
+     * @return true if the method was invoked on the device and returned a result, regardless of the status it returned.
+     */
+    public boolean isSuccessful()
+    {
+        return this.exception == null;
+    }
+}
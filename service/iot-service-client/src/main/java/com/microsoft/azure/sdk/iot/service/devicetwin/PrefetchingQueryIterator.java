@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a {@link Query} or {@link QueryCollection}, fetching the following pages of results in
+ * the background while the caller consumes the current one.
+ * <p>
+ * Each page of a query can only be requested once the continuation token returned with the previous page is known, so
+ * pages are still fetched one after the other. Without prefetching, though, the latency of each request is added to the
+ * time spent consuming the results, since the next page is only requested once the current one is exhausted. With
+ * prefetching, the next page is requested as soon as the current one has been received. How far ahead pages are fetched
+ * is bounded by the {@link QueryPrefetchOptions}.
+ * </p>
+ * <p>
+ * Results are parsed on the background thread too. If fetching or parsing a page fails, the results received before
+ * the failure are still returned, and then {@link #hasNext()} throws a {@link CompletionException} whose cause is the
+ * {@link IOException}, {@link IotHubException} or runtime exception that was thrown.
+ * </p>
+ * <p>
+ * This class is not thread safe. Call {@link #close()}, or close the stream returned by {@link #stream()}, to stop
+ * fetching pages if the results are not consumed to the end.
+ * </p>
+ *
+ * @param <T> The type of the query results, once parsed.
+ */
+public final class PrefetchingQueryIterator<T> implements Iterator<T>, Closeable
+{
+    private static final String THREAD_NAME = "azure-iot-sdk-QueryPrefetch";
+
+    private interface PageSource
+    {
+        /**
+         * @return the next page of results as json strings, or null if there are no more pages.
+         */
+        List<String> nextPage() throws IOException, IotHubException;
+    }
+
+    private final PageSource pageSource;
+    private final Function<String, T> itemParser;
+    private final int prefetchDepth;
+    private final int maxBufferedItems;
+
+    // Guarded by this
+    private final Deque<List<T>> bufferedPages = new ArrayDeque<>();
+    private int bufferedItems;
+    private boolean finished;
+    private boolean closed;
+    private Throwable failure;
+
+    private final Thread fetchThread;
+    private Iterator<T> currentPage = Collections.emptyIterator();
+
+    /**
+     * Create an iterator over the results of a query. The query must have been sent already, for instance by
+     * {@link DeviceTwin#queryTwin(String, Integer)}. Pages are fetched in the background from the moment this
+     * iterator is created.
+     *
+     * @param query The query to iterate over. It must not be used by anything else once this iterator is created.
+     * @param itemParser Parses each result from its json.
+     * @param options The options that bound how far ahead pages are fetched.
+     */
+    public PrefetchingQueryIterator(Query query, Function<String, T> itemParser, QueryPrefetchOptions options)
+    {
+        this(createPageSource(query), itemParser, options);
+    }
+
+    /**
+     * Create an iterator over the results of a query collection, for instance one created by
+     * {@link DeviceTwin#queryTwinCollection(String, Integer)}. The query continues from the continuation token saved in
+     * the query collection, if any. Pages are fetched in the background from the moment this iterator is created.
+     *
+     * @param queryCollection The query collection to iterate over. It must not be used by anything else once this
+     * iterator is created.
+     * @param itemParser Parses each result from its json.
+     * @param options The options that bound how far ahead pages are fetched.
+     */
+    public PrefetchingQueryIterator(QueryCollection queryCollection, Function<String, T> itemParser, QueryPrefetchOptions options)
+    {
+        this(createPageSource(queryCollection), itemParser, options);
+    }
+
+    private PrefetchingQueryIterator(PageSource pageSource, Function<String, T> itemParser, QueryPrefetchOptions options)
+    {
+        if (itemParser == null)
+        {
+            throw new IllegalArgumentException("itemParser cannot be null");
+        }
+
+        if (options == null)
+        {
+            throw new IllegalArgumentException("options cannot be null");
+        }
+
+        if (options.getPrefetchDepth() <= 0)
+        {
+            throw new IllegalArgumentException("prefetchDepth must be a positive value");
+        }
+
+        if (options.getMaxBufferedItems() <= 0)
+        {
+            throw new IllegalArgumentException("maxBufferedItems must be a positive value");
+        }
+
+        this.pageSource = pageSource;
+        this.itemParser = itemParser;
+        this.prefetchDepth = options.getPrefetchDepth();
+        this.maxBufferedItems = options.getMaxBufferedItems();
+
+        this.fetchThread = new Thread(this::fetchPages, THREAD_NAME);
+        this.fetchThread.setDaemon(true);
+        this.fetchThread.start();
+    }
+
+    /**
+     * @return true if there is another result, waiting for the next page to be fetched if needed.
+     * @throws CompletionException if fetching or parsing the next page failed.
+     * @throws IllegalStateException if this iterator has been closed.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        while (!this.currentPage.hasNext())
+        {
+            List<T> page = takeNextPage();
+            if (page == null)
+            {
+                return false;
+            }
+
+            this.currentPage = page.iterator();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the next result, waiting for the next page to be fetched if needed.
+     * @throws NoSuchElementException if there are no more results.
+     * @throws CompletionException if fetching or parsing the next page failed.
+     * @throws IllegalStateException if this iterator has been closed.
+     */
+    @Override
+    public T next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException("There are no more results for this query");
+        }
+
+        return this.currentPage.next();
+    }
+
+    /**
+     * @return a sequential stream over the remaining results. Closing the stream closes this iterator.
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(this::close);
+    }
+
+    /**
+     * Stop fetching pages and release the pages that were fetched ahead. A request that is in flight is allowed to
+     * complete, but its results are discarded.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            this.closed = true;
+            this.bufferedPages.clear();
+            this.bufferedItems = 0;
+            this.notifyAll();
+        }
+
+        this.fetchThread.interrupt();
+    }
+
+    private synchronized List<T> takeNextPage()
+    {
+        while (!this.closed && this.bufferedPages.isEmpty() && !this.finished)
+        {
+            try
+            {
+                this.wait();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+
+        if (this.closed)
+        {
+            throw new IllegalStateException("This query iterator has been closed");
+        }
+
+        List<T> page = this.bufferedPages.poll();
+        if (page != null)
+        {
+            this.bufferedItems -= page.size();
+
+            // There is room for another page now
+            this.notifyAll();
+            return page;
+        }
+
+        if (this.failure != null)
+        {
+            throw new CompletionException(this.failure);
+        }
+
+        return null;
+    }
+
+    private void fetchPages()
+    {
+        try
+        {
+            while (true)
+            {
+                synchronized (this)
+                {
+                    while (!this.closed && (this.bufferedPages.size() >= this.prefetchDepth || this.bufferedItems >= this.maxBufferedItems))
+                    {
+                        this.wait();
+                    }
+
+                    if (this.closed)
+                    {
+                        return;
+                    }
+                }
+
+                List<String> page = this.pageSource.nextPage();
+                if (page == null)
+                {
+                    return;
+                }
+
+                List<T> parsedPage = new ArrayList<>(page.size());
+                for (String item : page)
+                {
+                    parsedPage.add(this.itemParser.apply(item));
+                }
+
+                synchronized (this)
+                {
+                    if (this.closed)
+                    {
+                        return;
+                    }
+
+                    this.bufferedPages.add(parsedPage);
+                    this.bufferedItems += parsedPage.size();
+                    this.notifyAll();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // Only interrupted when closed
+        }
+        catch (IOException | IotHubException | RuntimeException e)
+        {
+            synchronized (this)
+            {
+                this.failure = e;
+            }
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                this.finished = true;
+                this.notifyAll();
+            }
+        }
+    }
+
+    private static PageSource createPageSource(Query query)
+    {
+        if (query == null)
+        {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+
+        return () ->
+        {
+            // Query fetches its next page when its current one is exhausted, so reading a page worth of results at a
+            // time keeps one request per page
+            List<String> page = new ArrayList<>();
+            while (page.size() < query.getPageSize() && query.hasNext())
+            {
+                page.add(String.valueOf(query.next()));
+            }
+
+            return page.isEmpty() ? null : page;
+        };
+    }
+
+    private static PageSource createPageSource(QueryCollection queryCollection)
+    {
+        if (queryCollection == null)
+        {
+            throw new IllegalArgumentException("queryCollection cannot be null");
+        }
+
+        return () ->
+        {
+            QueryCollectionResponse<String> response = queryCollection.next();
+            return response == null ? null : new ArrayList<>(response.getCollection());
+        };
+    }
+}
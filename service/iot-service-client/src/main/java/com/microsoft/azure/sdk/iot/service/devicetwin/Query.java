@@ -9,11 +9,12 @@ import com.azure.core.credential.AzureSasCredential;
 import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
 import com.microsoft.azure.sdk.iot.deps.serializer.QueryRequestParser;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
 
 import java.io.IOException;
 import java.net.Proxy;
@@ -54,6 +55,7 @@ public class Query
     private int httpReadTimeout;
 
     private Proxy proxy;
+    private HttpTransport httpTransport;
 
     /**
      * Constructor for Query.
@@ -135,7 +137,8 @@ public class Query
                     this.httpMethod,
                     this.httpConnectTimeout,
                     this.httpReadTimeout,
-                    this.proxy);
+                    this.proxy,
+                    this.httpTransport);
     }
 
     /**
@@ -229,7 +232,7 @@ public class Query
             throw new IotHubException("Query response does not match query request");
         }
 
-        this.queryResponse = new QueryResponse(new String(httpResponse.getBody(), StandardCharsets.UTF_8));
+        this.queryResponse = new QueryResponse(httpResponse.getBody());
         return this.queryResponse;
     }
 
@@ -327,7 +330,7 @@ public class Query
             throw new IotHubException("Query response does not match query request");
         }
 
-        this.queryResponse = new QueryResponse(new String(httpResponse.getBody(), StandardCharsets.UTF_8));
+        this.queryResponse = new QueryResponse(httpResponse.getBody());
         return this.queryResponse;
     }
 
@@ -356,6 +359,37 @@ public class Query
             int httpReadTimeout,
             Proxy proxy)
             throws IOException, IotHubException
+    {
+        return sendQueryRequest(credentialCache, azureSasCredential, iotHubConnectionString, url, method, httpConnectTimeout, httpReadTimeout, proxy, null);
+    }
+
+    /**
+     * Sends request for the query to the IotHub.
+     *
+     * @param credentialCache The RBAC authorization token provider. May be null if azureSasCredential or iotHubConnectionString is not.
+     * @param azureSasCredential The SAS authorization token provider. May be null if credential or iotHubConnectionString is not.
+     * @param iotHubConnectionString The iot hub connection string that SAS tokens will be derived from. May be null if azureSasCredential or credential is not.
+     * @param url URL to Query on.
+     * @param method HTTP Method for the requesting a query.
+     * @param httpConnectTimeout the http connect timeout to use for this request.
+     * @param httpReadTimeout the http read timeout to use for this request.
+     * @param proxy the proxy to use, or null if no proxy should be used.
+     * @param httpTransport the transport to send the request through, or null if it should be sent over a new connection.
+     * @return QueryResponse object which holds the response Iterator.
+     * @throws IOException If any of the input parameters are not valid.
+     * @throws IotHubException If HTTP response other then status ok is received.
+     */
+    public QueryResponse sendQueryRequest(
+            TokenCredentialCache credentialCache,
+            AzureSasCredential azureSasCredential,
+            IotHubConnectionString iotHubConnectionString,
+            URL url,
+            HttpMethod method,
+            int httpConnectTimeout,
+            int httpReadTimeout,
+            Proxy proxy,
+            HttpTransport httpTransport)
+            throws IOException, IotHubException
     {
         this.url = url;
         this.httpMethod = method;
@@ -367,6 +401,7 @@ public class Query
         this.httpReadTimeout = httpReadTimeout;
 
         this.proxy = proxy;
+        this.httpTransport = httpTransport;
 
         byte[] payload;
         Map<String, String> queryHeaders = new HashMap<>();
@@ -400,7 +435,7 @@ public class Query
         }
         else
         {
-            authorizationToken = new IotHubServiceSasToken(iotHubConnectionString).toString();
+            authorizationToken = IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
         }
 
         HttpResponse httpResponse =
@@ -412,7 +447,8 @@ public class Query
                         null,
                         httpConnectTimeout,
                         httpReadTimeout,
-                        proxy);
+                        proxy,
+                        httpTransport);
 
         this.responseContinuationToken = null;
         Map<String, String> headers = httpResponse.getHeaderFields();
@@ -441,7 +477,7 @@ public class Query
             throw new IotHubException("Query response does not match query request");
         }
 
-        this.queryResponse = new QueryResponse(new String(httpResponse.getBody(), StandardCharsets.UTF_8));
+        this.queryResponse = new QueryResponse(httpResponse.getBody());
         return this.queryResponse;
     }
 
@@ -454,6 +490,15 @@ public class Query
         return this.responseContinuationToken;
     }
 
+    /**
+     * Getter for page size.
+     * @return the page size of this query.
+     */
+    int getPageSize()
+    {
+        return this.pageSize;
+    }
+
     /**
      * Returns the availability of next element in the query response.
      *
@@ -9,11 +9,12 @@ import com.azure.core.credential.AzureSasCredential;
 import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
 import com.microsoft.azure.sdk.iot.deps.serializer.QueryRequestParser;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
 
 import java.io.IOException;
 import java.net.Proxy;
@@ -49,6 +50,8 @@ public class QueryCollection
 
     private Proxy proxy;
 
+    private HttpTransport httpTransport;
+
     private boolean isInitialQuery;
 
     /**
@@ -239,7 +242,7 @@ public class QueryCollection
         this.httpReadTimeout = httpReadTimeout;
         this.proxy = proxy;
         this.url = url;
-        this.isSqlQuery = false;
+        this.isSqlQuery = query != null;
         this.isInitialQuery = true;
         this.credentialCache = credentialCache;
     }
@@ -265,11 +268,22 @@ public class QueryCollection
         this.httpReadTimeout = httpReadTimeout;
         this.proxy = proxy;
         this.url = url;
-        this.isSqlQuery = false;
+        this.isSqlQuery = query != null;
         this.isInitialQuery = true;
         this.azureSasCredential = azureSasCredential;
     }
 
+    /**
+     * Set the transport that the requests for the pages of this query are sent through.
+     *
+     * @param httpTransport the transport to send the requests through, or null if each request should be sent over a
+     * new connection.
+     */
+    void setHttpTransport(HttpTransport httpTransport)
+    {
+        this.httpTransport = httpTransport;
+    }
+
     /**
      * Retrieves a page of results for a query.
      *
@@ -305,7 +319,7 @@ public class QueryCollection
         }
         else
         {
-            authorizationToken = new IotHubServiceSasToken(iotHubConnectionString).toString();
+            authorizationToken = IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
         }
 
         HttpResponse httpResponse = DeviceOperations.request(
@@ -316,13 +330,13 @@ public class QueryCollection
                 null,
                 this.httpConnectTimeout,
                 this.httpReadTimeout,
-                this.proxy);
+                this.proxy,
+                this.httpTransport);
 
         handleQueryResponse(httpResponse);
 
         this.isInitialQuery = false;
-        return new QueryCollectionResponse<>(
-                new String(httpResponse.getBody(), StandardCharsets.UTF_8), this.responseContinuationToken);
+        return new QueryCollectionResponse<>(httpResponse.getBody(), this.responseContinuationToken);
     }
 
     /**
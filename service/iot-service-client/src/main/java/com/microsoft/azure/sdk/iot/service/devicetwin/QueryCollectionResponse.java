@@ -6,7 +6,12 @@
 package com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.QueryResponseParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.QueryResponseReader;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 
 public class QueryCollectionResponse<E>
@@ -38,6 +43,33 @@ public class QueryCollectionResponse<E>
         this.continuationToken = continuationToken;
     }
 
+    /**
+     * Constructor that takes a UTF-8 encoded json body and parses it into a Collection in a single pass, without first
+     * decoding the whole body into a string.
+     *
+     * @param body The UTF-8 encoded json array to parse into a Collection
+     * @param continuationToken The continuation token to save
+     * @throws IllegalArgumentException if the body is null, empty or does not contain a json array
+     */
+    @SuppressWarnings("unchecked")
+    QueryCollectionResponse(byte[] body, String continuationToken)
+    {
+        if (body == null || body.length == 0)
+        {
+            throw new IllegalArgumentException("response cannot be null or empty");
+        }
+
+        QueryResponseReader responseReader = new QueryResponseReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        Collection<String> responseElements = new ArrayList<>();
+        while (responseReader.hasNext())
+        {
+            responseElements.add(responseReader.next());
+        }
+
+        this.responseElementsCollection = (Collection<E>) responseElements;
+        this.continuationToken = continuationToken;
+    }
+
     /**
      * Constructor that takes a collection and a continuation token.
      *
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Configurable options for a {@link PrefetchingQueryIterator}.
+ */
+@Builder
+public class QueryPrefetchOptions
+{
+    protected static final int DEFAULT_PREFETCH_DEPTH = 2;
+    protected static final int DEFAULT_MAX_BUFFERED_ITEMS = 10000;
+
+    /**
+     * The number of pages of results to fetch ahead of the page being consumed. Each page is fetched as soon as the
+     * continuation token for it is known, so while the caller consumes one page, up to this many of the following pages
+     * are fetched in the background. By default, this value is {@link #DEFAULT_PREFETCH_DEPTH}. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
+
+    /**
+     * The maximum number of results to hold in pages that were fetched ahead of the page being consumed. No more pages
+     * are fetched ahead once this many results are buffered, even if fewer than the prefetch depth pages are buffered.
+     * This bounds the memory used by prefetching, regardless of the page size. By default, this value is
+     * {@link #DEFAULT_MAX_BUFFERED_ITEMS}. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxBufferedItems = DEFAULT_MAX_BUFFERED_ITEMS;
+}
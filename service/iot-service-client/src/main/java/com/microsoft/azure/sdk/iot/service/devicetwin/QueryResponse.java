@@ -6,8 +6,12 @@
 package com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.QueryResponseParser;
+import com.microsoft.azure.sdk.iot.deps.serializer.QueryResponseReader;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 
 /**
@@ -35,6 +39,22 @@ public class QueryResponse implements Iterator<Object>
         this.responseElementsIterator = responseParser.getJsonItems().iterator();
     }
 
+    /**
+     * Creates an object for the query response that reads its elements from the response body one at a time, as they
+     * are iterated, rather than parsing them all up front.
+     * @param body the UTF-8 encoded json response for the query
+     * @throws IllegalArgumentException If the body is null, empty or does not contain a json array
+     */
+    QueryResponse(byte[] body)
+    {
+        if (body == null || body.length == 0)
+        {
+            throw new IllegalArgumentException("response cannot be null or empty");
+        }
+
+        this.responseElementsIterator = new QueryResponseReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+    }
+
     /**
      * returns the availability of next response
      * @return true if present and false otherwise
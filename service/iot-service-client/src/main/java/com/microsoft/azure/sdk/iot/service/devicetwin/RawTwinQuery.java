@@ -17,6 +17,8 @@ import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import java.io.IOException;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class RawTwinQuery
 {
@@ -154,6 +156,29 @@ public class RawTwinQuery
         return this.query(sqlQuery, DEFAULT_PAGE_SIZE);
     }
 
+    /**
+     * Creates a query for this sql query and returns its results as a stream of json elements. The following pages of
+     * results are fetched in the background while the current one is consumed, as bounded by the provided options.
+     * The stream should be closed if it is not consumed to the end, so that no more pages are fetched.
+     * @param sqlQuery Sql style query for Raw data over twin
+     * @param pageSize Size to restrict each page of the response of query by
+     * @param prefetchOptions The options that bound how far ahead pages are fetched
+     * @return A stream of the json elements in the response to this query
+     * @throws IotHubException If IotHub did not respond successfully to the request for the first page
+     * @throws IOException If any of the input parameters are incorrect
+     */
+    public Stream<String> queryStream(String sqlQuery, Integer pageSize, QueryPrefetchOptions prefetchOptions)
+        throws IotHubException, IOException
+    {
+        if (prefetchOptions == null)
+        {
+            throw new IllegalArgumentException("prefetchOptions cannot be null");
+        }
+
+        Query rawQuery = this.query(sqlQuery, pageSize);
+        return new PrefetchingQueryIterator<>(rawQuery, Function.identity(), prefetchOptions).stream();
+    }
+
     /**
      * Returns the availability of next element in response. Sends the request again (if possible)
      * to retrieve response until no response is found.
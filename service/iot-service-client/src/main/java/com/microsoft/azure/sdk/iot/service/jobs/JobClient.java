@@ -13,12 +13,14 @@ import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
 import com.microsoft.azure.sdk.iot.service.Tools;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDevice;
 import com.microsoft.azure.sdk.iot.service.devicetwin.Pair;
+import com.microsoft.azure.sdk.iot.service.devicetwin.PrefetchingQueryIterator;
 import com.microsoft.azure.sdk.iot.service.devicetwin.Query;
+import com.microsoft.azure.sdk.iot.service.devicetwin.QueryPrefetchOptions;
 import com.microsoft.azure.sdk.iot.service.devicetwin.QueryType;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
@@ -33,6 +35,7 @@ import java.util.Date;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Use the JobClient to schedule and cancel jobs for a group of devices using IoT hub.
@@ -43,11 +46,11 @@ public class JobClient
 
     private final static byte[] EMPTY_JSON = "{}".getBytes(StandardCharsets.UTF_8);
 
-    private String hostName;
-    private TokenCredentialCache credentialCache;
-    private AzureSasCredential azureSasCredential;
-    private IotHubConnectionString iotHubConnectionString;
-    private JobClientOptions options;
+    private final String hostName;
+    private final TokenCredentialCache credentialCache;
+    private final AzureSasCredential azureSasCredential;
+    private final IotHubConnectionString iotHubConnectionString;
+    private final JobClientOptions options;
 
     /**
      * Static constructor to create instance from connection string
@@ -94,6 +97,8 @@ public class JobClient
         this.iotHubConnectionString = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
         this.hostName = this.iotHubConnectionString.getHostName();
         this.options = options;
+        this.credentialCache = null;
+        this.azureSasCredential = null;
     }
 
     /**
@@ -129,6 +134,8 @@ public class JobClient
         this.hostName = hostName;
         this.credentialCache = new TokenCredentialCache(credential);
         this.options = options;
+        this.azureSasCredential = null;
+        this.iotHubConnectionString = null;
     }
 
     /**
@@ -162,6 +169,8 @@ public class JobClient
         this.hostName = hostName;
         this.azureSasCredential = azureSasCredential;
         this.options = options;
+        this.credentialCache = null;
+        this.iotHubConnectionString = null;
     }
 
     /**
@@ -177,7 +186,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult scheduleUpdateTwin(
+    public JobResult scheduleUpdateTwin(
         String jobId,
         String queryCondition,
         DeviceTwinDevice updateTwin,
@@ -236,7 +245,8 @@ public class JobClient
             null,
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         return new JobResult(response.getBody());
     }
@@ -257,7 +267,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job, or the IO failed on request
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult scheduleDeviceMethod(
+    public JobResult scheduleDeviceMethod(
         String jobId,
         String queryCondition,
         String methodName,
@@ -326,7 +336,8 @@ public class JobClient
             null,
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         return new JobResult(response.getBody());
     }
@@ -340,7 +351,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job, or the IO failed on request
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult getJob(String jobId)
+    public JobResult getJob(String jobId)
         throws IllegalArgumentException, IOException, IotHubException
     {
         URL url;
@@ -369,7 +380,8 @@ public class JobClient
             null,
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         return new JobResult(response.getBody());
     }
@@ -383,7 +395,7 @@ public class JobClient
      * @throws IOException if the function cannot create a URL for the job, or the IO failed on request
      * @throws IotHubException if the http request failed
      */
-    public synchronized JobResult cancelJob(String jobId)
+    public JobResult cancelJob(String jobId)
         throws IllegalArgumentException, IOException, IotHubException
     {
         URL url;
@@ -411,7 +423,8 @@ public class JobClient
             null,
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         return new JobResult(response.getBody());
     }
@@ -479,7 +492,7 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException When any of the parameters are incorrect
      */
-    public synchronized Query queryDeviceJob(String sqlQuery, Integer pageSize) throws IotHubException, IOException
+    public Query queryDeviceJob(String sqlQuery, Integer pageSize) throws IotHubException, IOException
     {
         if (sqlQuery == null || sqlQuery.length() == 0)
         {
@@ -504,7 +517,8 @@ public class JobClient
             HttpMethod.POST,
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         return deviceJobQuery;
     }
@@ -517,11 +531,42 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException When any of the parameters are incorrect
      */
-    public synchronized Query queryDeviceJob(String sqlQuery) throws IotHubException, IOException
+    public Query queryDeviceJob(String sqlQuery) throws IotHubException, IOException
     {
         return queryDeviceJob(sqlQuery, DEFAULT_PAGE_SIZE);
     }
 
+    /**
+     * Query for device Job, returned as a stream of job results. The following pages of results are fetched in the
+     * background while the current one is consumed, as bounded by the provided options.
+     * <p>
+     * The stream should be closed if it is not consumed to the end, so that no more pages are fetched. If a page can't
+     * be fetched, the stream throws a {@link java.util.concurrent.CompletionException} whose cause is the
+     * {@link IOException} or {@link IotHubException} that was thrown.
+     * </p>
+     *
+     * @param sqlQuery sql style query over device.jobs
+     * @param pageSize the value per which to limit the size of each page of the query response by.
+     * @param prefetchOptions the options that bound how far ahead pages are fetched.
+     * @return a stream of the job results that match the query
+     * @throws IotHubException When IotHub fails to respond to the request for the first page
+     * @throws IOException When any of the parameters are incorrect
+     */
+    public Stream<JobResult> queryDeviceJobStream(String sqlQuery, Integer pageSize, QueryPrefetchOptions prefetchOptions)
+        throws IotHubException, IOException
+    {
+        if (prefetchOptions == null)
+        {
+            throw new IllegalArgumentException("prefetchOptions cannot be null");
+        }
+
+        Query deviceJobQuery = queryDeviceJob(sqlQuery, pageSize);
+        return new PrefetchingQueryIterator<>(
+            deviceJobQuery,
+            deviceJobJson -> new JobResult(deviceJobJson.getBytes(StandardCharsets.UTF_8)),
+            prefetchOptions).stream();
+    }
+
     /**
      * returns the availability of next job result in response. Query's further if page size has been met
      *
@@ -530,14 +575,18 @@ public class JobClient
      * @throws IotHubException When IotHub fails to respond
      * @throws IOException if any of the input parameters are incorrect
      */
-    public synchronized boolean hasNextJob(Query query) throws IotHubException, IOException
+    public boolean hasNextJob(Query query) throws IotHubException, IOException
     {
         if (query == null)
         {
             throw new IllegalArgumentException("Query cannot be null");
         }
 
-        return query.hasNext();
+        // Query keeps its page and continuation token without locking, so threads that share one take turns on it
+        synchronized (query)
+        {
+            return query.hasNext();
+        }
     }
 
     /**
@@ -549,13 +598,18 @@ public class JobClient
      * @throws IOException if any of the input parameters are incorrect
      * @throws NoSuchElementException if called when no further responses are left
      */
-    public synchronized JobResult getNextJob(Query query) throws IOException, IotHubException, NoSuchElementException
+    public JobResult getNextJob(Query query) throws IOException, IotHubException, NoSuchElementException
     {
         if (query == null)
         {
             throw new IllegalArgumentException("Query cannot be null");
         }
-        Object nextObject = query.next();
+
+        Object nextObject;
+        synchronized (query)
+        {
+            nextObject = query.next();
+        }
 
         if (nextObject instanceof String)
         {
@@ -578,7 +632,7 @@ public class JobClient
      * @throws IOException If any of the input parameters are incorrect
      * @throws IotHubException If IotHub failed to respond
      */
-    public synchronized Query queryJobResponse(JobType jobType, JobStatus jobStatus, Integer pageSize)
+    public Query queryJobResponse(JobType jobType, JobStatus jobStatus, Integer pageSize)
         throws IOException, IotHubException
     {
         if (pageSize <= 0)
@@ -601,7 +655,8 @@ public class JobClient
             HttpMethod.GET,
             options.getHttpConnectTimeout(),
             options.getHttpReadTimeout(),
-            proxy);
+            proxy,
+            options.getHttpTransport());
 
         return jobResponseQuery;
     }
@@ -615,7 +670,7 @@ public class JobClient
      * @throws IOException If any of the input parameters are incorrect
      * @throws IotHubException If IotHub failed to respond
      */
-    public synchronized Query queryJobResponse(JobType jobType, JobStatus jobStatus)
+    public Query queryJobResponse(JobType jobType, JobStatus jobStatus)
         throws IotHubException, IOException
     {
         return queryJobResponse(jobType, jobStatus, DEFAULT_PAGE_SIZE);
@@ -624,6 +679,11 @@ public class JobClient
     @SuppressWarnings("unused")
     protected JobClient()
     {
+        this.hostName = null;
+        this.credentialCache = null;
+        this.azureSasCredential = null;
+        this.iotHubConnectionString = null;
+        this.options = null;
     }
 
     private String getAuthenticationToken()
@@ -640,6 +700,6 @@ public class JobClient
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return IotHubServiceSasTokenCache.getSharedInstance().getSasToken(iotHubConnectionString);
     }
 }
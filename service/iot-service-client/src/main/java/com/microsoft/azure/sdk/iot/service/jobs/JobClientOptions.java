@@ -4,6 +4,7 @@
 package com.microsoft.azure.sdk.iot.service.jobs;
 
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -41,4 +42,12 @@ public class JobClientOptions
     @Getter
     @Builder.Default
     private final int httpConnectTimeout = DEFAULT_HTTP_CONNECT_TIMEOUT_MS;
+
+    /**
+     * The transport to send http requests through. Set the same {@link com.microsoft.azure.sdk.iot.service.transport.http.PooledHttpTransport}
+     * on the options of several clients to have them share its connections. If null, each request is sent over a new
+     * connection.
+     */
+    @Getter
+    private final HttpTransport httpTransport;
 }
@@ -9,12 +9,14 @@ import com.azure.core.credential.AzureSasCredential;
 import com.azure.core.credential.TokenCredential;
 import com.microsoft.azure.sdk.iot.deps.serializer.FileUploadNotificationParser;
 import com.microsoft.azure.sdk.iot.service.FileUploadNotification;
+import com.microsoft.azure.sdk.iot.service.AcknowledgementType;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.util.function.Function;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
@@ -35,6 +37,7 @@ public class AmqpFileUploadNotificationReceive implements AmqpFeedbackReceivedEv
     private final ProxyOptions proxyOptions;
     private final SSLContext sslContext;
     private boolean isOpen = false;
+    private AmqpStreamingReceiver streamingReceiver;
 
     /**
      * Constructor to set up connection parameters
@@ -177,6 +180,123 @@ public class AmqpFileUploadNotificationReceive implements AmqpFeedbackReceivedEv
     public synchronized void close()
     {
         isOpen = false;
+
+        if (this.streamingReceiver != null)
+        {
+            this.streamingReceiver.stop();
+            this.streamingReceiver = null;
+        }
+    }
+
+    /**
+     * Start receiving file upload notifications over a single AMQP connection that stays open until {@link #stopReceiving()} or
+     * {@link #close()} is called, instead of over a new connection per {@link #receive(long)} call. If the service
+     * closes the connection, a new one is opened.
+     * @param fileUploadNotificationCallback the callback to hand each received FileUploadNotification to. It is executed on the connection's
+     * thread, one file upload notification at a time, and returns whether the file upload notification should be completed or abandoned. If it
+     * throws, the file upload notification is abandoned.
+     * @param prefetchCount the maximum number of file upload notifications that the service may send ahead of the ones that
+     * the callback has finished with. Must be greater than 0.
+     * @throws IOException if the connection could not be opened
+     */
+    public synchronized void startReceiving(Function<FileUploadNotification, AcknowledgementType> fileUploadNotificationCallback, int prefetchCount) throws IOException
+    {
+        if (fileUploadNotificationCallback == null)
+        {
+            throw new IllegalArgumentException("fileUploadNotificationCallback cannot be null");
+        }
+
+        if (prefetchCount < 1)
+        {
+            throw new IllegalArgumentException("prefetchCount must be greater than 0");
+        }
+
+        if (!isOpen)
+        {
+            throw new IOException("receive handler is not initialized. call open before receiving");
+        }
+
+        if (this.streamingReceiver != null)
+        {
+            throw new IllegalStateException("Already receiving. Call stopReceiving before receiving again");
+        }
+
+        final Function<String, AcknowledgementType> messageCallback = body -> handleStreamedMessage(body, fileUploadNotificationCallback);
+        AmqpStreamingReceiver receiver = new AmqpStreamingReceiver(() -> createStreamingReceiveConnection(prefetchCount, messageCallback));
+        receiver.start();
+        this.streamingReceiver = receiver;
+    }
+
+    /**
+     * Stop the streaming receive started by {@link #startReceiving(Function, int)}, closing its connection. Does
+     * nothing if it was not started.
+     */
+    public synchronized void stopReceiving()
+    {
+        if (this.streamingReceiver != null)
+        {
+            this.streamingReceiver.stop();
+            this.streamingReceiver = null;
+        }
+    }
+
+    private static AcknowledgementType handleStreamedMessage(String body, Function<FileUploadNotification, AcknowledgementType> fileUploadNotificationCallback)
+    {
+        log.trace("Streamed file upload notification received: {}", body);
+
+        FileUploadNotification fileUploadNotification = parseFileUploadNotification(body);
+        if (fileUploadNotification == null)
+        {
+            // Abandoning a notification that can never be parsed would only have the service deliver it again
+            return AcknowledgementType.COMPLETE;
+        }
+
+        return fileUploadNotificationCallback.apply(fileUploadNotification);
+    }
+
+    private AmqpStreamingReceiveConnection createStreamingReceiveConnection(int prefetchCount, Function<String, AcknowledgementType> messageCallback)
+    {
+        if (this.credential != null)
+        {
+            return new AmqpStreamingReceiveConnection(
+                this.hostName,
+                this.credential,
+                this.iotHubServiceClientProtocol,
+                this.proxyOptions,
+                this.sslContext,
+                AmqpFileUploadNotificationReceivedHandler.FILE_NOTIFICATION_RECEIVE_TAG,
+                AmqpFileUploadNotificationReceivedHandler.FILENOTIFICATION_ENDPOINT,
+                "AmqpFileUploadNotificationStreamingReceiver",
+                prefetchCount,
+                messageCallback);
+        }
+        else if (this.sasTokenProvider != null)
+        {
+            return new AmqpStreamingReceiveConnection(
+                this.hostName,
+                this.sasTokenProvider,
+                this.iotHubServiceClientProtocol,
+                this.proxyOptions,
+                this.sslContext,
+                AmqpFileUploadNotificationReceivedHandler.FILE_NOTIFICATION_RECEIVE_TAG,
+                AmqpFileUploadNotificationReceivedHandler.FILENOTIFICATION_ENDPOINT,
+                "AmqpFileUploadNotificationStreamingReceiver",
+                prefetchCount,
+                messageCallback);
+        }
+
+        return new AmqpStreamingReceiveConnection(
+            this.hostName,
+            this.userName,
+            this.sasToken,
+            this.iotHubServiceClientProtocol,
+            this.proxyOptions,
+            this.sslContext,
+            AmqpFileUploadNotificationReceivedHandler.FILE_NOTIFICATION_RECEIVE_TAG,
+            AmqpFileUploadNotificationReceivedHandler.FILENOTIFICATION_ENDPOINT,
+            "AmqpFileUploadNotificationStreamingReceiver",
+            prefetchCount,
+            messageCallback);
     }
 
     /**
@@ -222,12 +342,21 @@ public class AmqpFileUploadNotificationReceive implements AmqpFeedbackReceivedEv
      * @param feedbackJson Received Json string to process
      */
     public synchronized void onFeedbackReceived(String feedbackJson)
+    {
+        FileUploadNotification parsedNotification = parseFileUploadNotification(feedbackJson);
+        if (parsedNotification != null)
+        {
+            fileUploadNotification = parsedNotification;
+        }
+    }
+
+    private static FileUploadNotification parseFileUploadNotification(String notificationJson)
     {
         try
         {
-            FileUploadNotificationParser notificationParser = new FileUploadNotificationParser(feedbackJson);
+            FileUploadNotificationParser notificationParser = new FileUploadNotificationParser(notificationJson);
 
-            fileUploadNotification = new FileUploadNotification(notificationParser.getDeviceId(),
+            return new FileUploadNotification(notificationParser.getDeviceId(),
                     notificationParser.getBlobUri(), notificationParser.getBlobName(), notificationParser.getLastUpdatedTime(),
                     notificationParser.getBlobSizeInBytesTag(), notificationParser.getEnqueuedTimeUtc());
         }
@@ -235,6 +364,7 @@ public class AmqpFileUploadNotificationReceive implements AmqpFeedbackReceivedEv
         {
             // this should never happen. However if it does, proton can't handle it. So guard against throwing it at proton.
             log.warn("Service gave feedback message with poorly formed json, message abandoned.");
+            return null;
         }
     }
 }
@@ -37,8 +37,8 @@ import java.util.Map;
 @Slf4j
 public class AmqpFileUploadNotificationReceivedHandler extends AmqpConnectionHandler
 {
-    private static final String FILE_NOTIFICATION_RECEIVE_TAG = "filenotificationreceiver";
-    private static final String FILENOTIFICATION_ENDPOINT = "/messages/serviceBound/filenotifications";
+    static final String FILE_NOTIFICATION_RECEIVE_TAG = "filenotificationreceiver";
+    static final String FILENOTIFICATION_ENDPOINT = "/messages/serviceBound/filenotifications";
 
     private final AmqpFeedbackReceivedEvent amqpFeedbackReceivedEvent;
     private Receiver fileUploadNotificationReceiverLink;
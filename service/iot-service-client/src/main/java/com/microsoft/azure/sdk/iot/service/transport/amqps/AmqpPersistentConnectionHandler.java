@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.azure.core.credential.AzureSasCredential;
+import com.azure.core.credential.TokenCredential;
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base handler for an AMQP connection with a single link that stays open until {@link #close()} is called or the
+ * service closes it, rather than for the duration of a single operation.
+ * <p>
+ * The reactor runs on a thread of its own from {@link #open(long)} until the connection is closed. Since the reactor
+ * is not thread safe, other threads never touch the connection directly. Instead, {@link #onPeriodicTimer()} fires on
+ * the reactor thread every {@link #PERIOD_MILLIS} milliseconds so that subclasses can pick up work queued by other
+ * threads, and {@link #close()} is carried out from the same timer.
+ * </p>
+ */
+@Slf4j
+abstract class AmqpPersistentConnectionHandler extends AmqpConnectionHandler
+{
+    static final int PERIOD_MILLIS = 50;
+
+    private final CountDownLatch openLatch = new CountDownLatch(1);
+    private final CountDownLatch reactorStoppedLatch = new CountDownLatch(1);
+
+    private ExecutorService reactorExecutor;
+
+    private volatile boolean linkOpened;
+    private volatile boolean closing;
+    private volatile boolean reactorStopped;
+
+    AmqpPersistentConnectionHandler(
+            String hostName,
+            String userName,
+            String sasToken,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext)
+    {
+        super(hostName, userName, sasToken, iotHubServiceClientProtocol, proxyOptions, sslContext);
+    }
+
+    AmqpPersistentConnectionHandler(
+            String hostName,
+            TokenCredential credential,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext)
+    {
+        super(hostName, credential, iotHubServiceClientProtocol, proxyOptions, sslContext);
+    }
+
+    AmqpPersistentConnectionHandler(
+            String hostName,
+            AzureSasCredential sasTokenProvider,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext)
+    {
+        super(hostName, sasTokenProvider, iotHubServiceClientProtocol, proxyOptions, sslContext);
+    }
+
+    /**
+     * @return the link that this connection exists for, or null if it has not been created yet.
+     */
+    protected abstract Link getLink();
+
+    /**
+     * @return the postfix of the reactor thread's name.
+     */
+    protected abstract String getThreadNamePostfix();
+
+    /**
+     * Executed on the reactor thread every {@link #PERIOD_MILLIS} milliseconds while the connection is not closing.
+     */
+    protected void onPeriodicTimer()
+    {
+    }
+
+    /**
+     * Executed on the reactor thread once the reactor has stopped, whether the connection was closed by the client or
+     * by the service. Nothing else runs on the reactor thread after this.
+     */
+    protected void onReactorStopped()
+    {
+    }
+
+    /**
+     * Open the connection, authenticate it and open its link. This blocks until the link is open, or until the
+     * connection fails to open.
+     *
+     * @param timeoutMilliseconds the maximum amount of time to wait for the link to open.
+     * @throws IOException if the connection could not be opened within the timeout.
+     */
+    void open(long timeoutMilliseconds) throws IOException
+    {
+        ReactorRunner reactorRunner = new ReactorRunner(this, this.hostName, getThreadNamePostfix());
+
+        this.reactorExecutor = Executors.newSingleThreadExecutor();
+        this.reactorExecutor.submit(() ->
+        {
+            try
+            {
+                reactorRunner.run();
+            }
+            finally
+            {
+                reactorStopped();
+            }
+        });
+
+        try
+        {
+            if (!this.openLatch.await(timeoutMilliseconds, TimeUnit.MILLISECONDS))
+            {
+                close();
+                throw new IOException("Amqp connection timed out waiting for service to respond");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IOException("Interrupted while waiting for the amqp connection to open", e);
+        }
+
+        if (!this.linkOpened)
+        {
+            close();
+            verifyConnectionWasOpened();
+
+            // verifyConnectionWasOpened should have thrown already, but the link never opened either way
+            throw new IOException("Amqp connection closed before its link was opened");
+        }
+    }
+
+    /**
+     * @return true if the connection and its link are open.
+     */
+    boolean isOpen()
+    {
+        return this.linkOpened && !this.closing && !this.reactorStopped;
+    }
+
+    /**
+     * @return true if {@link #close()} was called or the reactor has stopped.
+     */
+    boolean isClosed()
+    {
+        return this.closing || this.reactorStopped;
+    }
+
+    /**
+     * @return true once the reactor has stopped, whether the connection was closed by the client or by the service.
+     */
+    boolean isReactorStopped()
+    {
+        return this.reactorStopped;
+    }
+
+    /**
+     * Close the connection, waiting a bounded amount of time for the close to complete.
+     */
+    void close()
+    {
+        this.closing = true;
+
+        if (this.reactorExecutor == null)
+        {
+            return;
+        }
+
+        try
+        {
+            if (!this.reactorStoppedLatch.await(ReactorRunner.CLOSE_REACTOR_GRACEFULLY_TIMEOUT, TimeUnit.MILLISECONDS))
+            {
+                log.debug("Amqp {} connection failed to close gracefully in the expected time frame, forcefully closing it now", getThreadNamePostfix());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        this.reactorExecutor.shutdownNow();
+    }
+
+    @Override
+    public void onReactorInit(Event event)
+    {
+        super.onReactorInit(event);
+        event.getReactor().schedule(PERIOD_MILLIS, this);
+    }
+
+    @Override
+    public void onTimerTask(Event event)
+    {
+        if (this.closing)
+        {
+            closeConnection(event);
+            return;
+        }
+
+        onPeriodicTimer();
+        event.getReactor().schedule(PERIOD_MILLIS, this);
+    }
+
+    @Override
+    public void onLinkRemoteOpen(Event event)
+    {
+        super.onLinkRemoteOpen(event);
+
+        if (event.getLink() == getLink())
+        {
+            this.linkOpened = true;
+            this.openLatch.countDown();
+        }
+    }
+
+    @Override
+    public void onConnectionRemoteClose(Event event)
+    {
+        super.onConnectionRemoteClose(event);
+        event.getTransport().close_tail();
+    }
+
+    private void closeConnection(Event event)
+    {
+        Link link = getLink();
+        if (link != null && link.getLocalState() == EndpointState.ACTIVE)
+        {
+            // By closing the link locally, proton-j will fire an event onLinkLocalClose. Within ErrorLoggingBaseHandlerWithCleanup,
+            // onLinkLocalClose closes the session locally and eventually the connection and reactor
+            log.debug("Closing amqp {} link", getThreadNamePostfix());
+            link.close();
+        }
+        else if (this.connection != null && this.connection.getLocalState() == EndpointState.ACTIVE)
+        {
+            this.connection.close();
+        }
+        else
+        {
+            event.getReactor().stop();
+        }
+    }
+
+    private void reactorStopped()
+    {
+        log.trace("Amqp {} connection reactor stopped", getThreadNamePostfix());
+        this.reactorStopped = true;
+
+        // Unblocks open() if the connection failed before the link opened
+        this.openLatch.countDown();
+
+        try
+        {
+            onReactorStopped();
+        }
+        finally
+        {
+            this.reactorStoppedLatch.countDown();
+        }
+    }
+}
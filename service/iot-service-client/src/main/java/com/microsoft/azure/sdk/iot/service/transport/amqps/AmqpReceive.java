@@ -9,12 +9,14 @@ import com.azure.core.credential.AzureSasCredential;
 import com.azure.core.credential.TokenCredential;
 import com.microsoft.azure.sdk.iot.service.FeedbackBatch;
 import com.microsoft.azure.sdk.iot.service.FeedbackBatchMessage;
+import com.microsoft.azure.sdk.iot.service.AcknowledgementType;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.util.function.Function;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
@@ -35,6 +37,7 @@ public class AmqpReceive implements AmqpFeedbackReceivedEvent
     private final ProxyOptions proxyOptions;
     private final SSLContext sslContext;
     private boolean isOpen = false;
+    private AmqpStreamingReceiver streamingReceiver;
 
     /**
      * Constructor to set up connection parameters
@@ -173,9 +176,131 @@ public class AmqpReceive implements AmqpFeedbackReceivedEvent
     /**
      * Invalidate AmqpsReceiveHandler member variable
      */
-    public void close()
+    public synchronized void close()
     {
         isOpen = false;
+
+        if (this.streamingReceiver != null)
+        {
+            this.streamingReceiver.stop();
+            this.streamingReceiver = null;
+        }
+    }
+
+    /**
+     * Start receiving feedback batches over a single AMQP connection that stays open until {@link #stopReceiving()} or
+     * {@link #close()} is called, instead of over a new connection per {@link #receive(long)} call. If the service
+     * closes the connection, a new one is opened.
+     * @param feedbackBatchCallback the callback to hand each received FeedbackBatch to. It is executed on the connection's
+     * thread, one feedback batch at a time, and returns whether the feedback batch should be completed or abandoned. If it
+     * throws, the feedback batch is abandoned.
+     * @param prefetchCount the maximum number of feedback batches that the service may send ahead of the ones that
+     * the callback has finished with. Must be greater than 0.
+     * @throws IOException if the connection could not be opened
+     */
+    public synchronized void startReceiving(Function<FeedbackBatch, AcknowledgementType> feedbackBatchCallback, int prefetchCount) throws IOException
+    {
+        if (feedbackBatchCallback == null)
+        {
+            throw new IllegalArgumentException("feedbackBatchCallback cannot be null");
+        }
+
+        if (prefetchCount < 1)
+        {
+            throw new IllegalArgumentException("prefetchCount must be greater than 0");
+        }
+
+        if (!isOpen)
+        {
+            throw new IOException("receive handler is not initialized. call open before receiving");
+        }
+
+        if (this.streamingReceiver != null)
+        {
+            throw new IllegalStateException("Already receiving. Call stopReceiving before receiving again");
+        }
+
+        final Function<String, AcknowledgementType> messageCallback = body -> handleStreamedMessage(body, feedbackBatchCallback);
+        AmqpStreamingReceiver receiver = new AmqpStreamingReceiver(() -> createStreamingReceiveConnection(prefetchCount, messageCallback));
+        receiver.start();
+        this.streamingReceiver = receiver;
+    }
+
+    /**
+     * Stop the streaming receive started by {@link #startReceiving(Function, int)}, closing its connection. Does
+     * nothing if it was not started.
+     */
+    public synchronized void stopReceiving()
+    {
+        if (this.streamingReceiver != null)
+        {
+            this.streamingReceiver.stop();
+            this.streamingReceiver = null;
+        }
+    }
+
+    private static AcknowledgementType handleStreamedMessage(String body, Function<FeedbackBatch, AcknowledgementType> feedbackBatchCallback)
+    {
+        log.trace("Streamed feedback batch received: {}", body);
+
+        FeedbackBatch feedbackBatch;
+        try
+        {
+            feedbackBatch = FeedbackBatchMessage.parse(body);
+        }
+        catch (RuntimeException e)
+        {
+            // Abandoning a feedback batch that can never be parsed would only have the service deliver it again
+            log.warn("Service sent a feedback batch with poorly formed json, completing it", e);
+            return AcknowledgementType.COMPLETE;
+        }
+
+        return feedbackBatchCallback.apply(feedbackBatch);
+    }
+
+    private AmqpStreamingReceiveConnection createStreamingReceiveConnection(int prefetchCount, Function<String, AcknowledgementType> messageCallback)
+    {
+        if (this.credential != null)
+        {
+            return new AmqpStreamingReceiveConnection(
+                this.hostName,
+                this.credential,
+                this.iotHubServiceClientProtocol,
+                this.proxyOptions,
+                this.sslContext,
+                AmqpFeedbackReceivedHandler.RECEIVE_TAG,
+                AmqpFeedbackReceivedHandler.ENDPOINT,
+                "AmqpFeedbackStreamingReceiver",
+                prefetchCount,
+                messageCallback);
+        }
+        else if (this.sasTokenProvider != null)
+        {
+            return new AmqpStreamingReceiveConnection(
+                this.hostName,
+                this.sasTokenProvider,
+                this.iotHubServiceClientProtocol,
+                this.proxyOptions,
+                this.sslContext,
+                AmqpFeedbackReceivedHandler.RECEIVE_TAG,
+                AmqpFeedbackReceivedHandler.ENDPOINT,
+                "AmqpFeedbackStreamingReceiver",
+                prefetchCount,
+                messageCallback);
+        }
+
+        return new AmqpStreamingReceiveConnection(
+            this.hostName,
+            this.userName,
+            this.sasToken,
+            this.iotHubServiceClientProtocol,
+            this.proxyOptions,
+            this.sslContext,
+            AmqpFeedbackReceivedHandler.RECEIVE_TAG,
+            AmqpFeedbackReceivedHandler.ENDPOINT,
+            "AmqpFeedbackStreamingReceiver",
+            prefetchCount,
+            messageCallback);
     }
 
     /**
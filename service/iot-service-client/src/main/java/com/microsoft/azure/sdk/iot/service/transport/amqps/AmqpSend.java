@@ -17,6 +17,10 @@ import lombok.extern.slf4j.Slf4j;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
@@ -27,6 +31,9 @@ import java.util.Objects;
 @Slf4j
 public class AmqpSend
 {
+    private static final long OPEN_TIMEOUT_MILLISECONDS = 60 * 1000;
+    private static final long SEND_TIMEOUT_MILLISECONDS = 60 * 1000;
+
     protected final String hostName;
     protected String userName;
     protected String sasToken;
@@ -37,6 +44,14 @@ public class AmqpSend
     private final ProxyOptions proxyOptions;
     private final SSLContext sslContext;
 
+    // Only set between open() and close(). While set, messages are sent over this connection instead of over a new
+    // connection per message
+    private AmqpSendConnection amqpSendConnection;
+
+    // Held while the long lived connection is opened, instead of this object's lock, so that opening a connection
+    // doesn't block close() or the sends that open a connection per message
+    private final Object openConnectionLock = new Object();
+
     /**
      * Constructor to set up connection parameters
      * @param hostName The address string of the service (example: AAA.BBB.CCC)
@@ -155,25 +170,96 @@ public class AmqpSend
     }
 
     /**
-     * Create AmqpsSendHandler and store it in a member variable
+     * Open a long lived AMQP connection that all subsequent sends share until {@link #close()} is called. Sends
+     * made without opening first each open and close a connection of their own.
+     * @throws IOException if the connection could not be opened
+     */
+    public void open() throws IOException
+    {
+        synchronized (this.openConnectionLock)
+        {
+            AmqpSendConnection previousConnection;
+            synchronized (this)
+            {
+                if (this.amqpSendConnection != null && this.amqpSendConnection.isOpen())
+                {
+                    return;
+                }
+
+                previousConnection = this.amqpSendConnection;
+            }
+
+            if (previousConnection != null)
+            {
+                previousConnection.close();
+            }
+
+            AmqpSendConnection connection = openConnection();
+            synchronized (this)
+            {
+                this.amqpSendConnection = connection;
+            }
+        }
+    }
+
+    /**
+     * Close the long lived AMQP connection, if one was opened. Messages still waiting to be acknowledged complete
+     * exceptionally.
+     */
+    public synchronized void close()
+    {
+        if (this.amqpSendConnection != null)
+        {
+            this.amqpSendConnection.close();
+            this.amqpSendConnection = null;
+        }
+    }
+
+    /**
+     * @return true if {@link #open()} was called and {@link #close()} has not been called since.
      */
-    @SuppressWarnings("EmptyMethod")
-    public void open()
+    public synchronized boolean isOpen()
     {
+        return this.amqpSendConnection != null;
     }
 
     /**
-     * Invalidate AmqpsSendHandler member variable
+     * Send a message over the long lived AMQP connection without waiting for it to be acknowledged. Any number of
+     * these sends can be in flight at a time.
+     * @param deviceId The device name string
+     * @param moduleId The module name string. May be null if the message is for the device rather than a module.
+     * @param message The message to be sent
+     * @return a future that completes once the service acknowledges the message, or completes exceptionally with an
+     * {@link IotHubException} if the service rejected it or an {@link IOException} if it could not be sent. The
+     * future is completed on the connection's thread, so dependent stages should not block.
+     * @throws IllegalStateException if {@link #open()} has not been called.
      */
-    @SuppressWarnings("EmptyMethod")
-    public void close()
+    public CompletableFuture<Void> sendAsync(String deviceId, String moduleId, Message message)
     {
+        AmqpSendConnection connection;
+        try
+        {
+            connection = getOpenConnection();
+        }
+        catch (IOException e)
+        {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (connection == null)
+        {
+            throw new IllegalStateException("AmqpSend must be opened before sending asynchronously");
+        }
+
+        return connection.send(toProtonMessage(deviceId, moduleId, message));
     }
 
     /**
-     * Create binary message
-     * Initialize and start Proton reactor
-     * Send the created message
+     * Send a message and wait for the service to acknowledge it. If {@link #open()} was called, the message is sent
+     * over the long lived connection alongside any other messages being sent at the same time. Otherwise a connection
+     * is opened just for this message, and only one such send can run at a time.
      * @param deviceId The device name string
      * @param moduleId The module name string
      * @param message The message to be sent
@@ -182,6 +268,44 @@ public class AmqpSend
      */
     public void send(String deviceId, String moduleId, Message message) throws IOException, IotHubException
     {
+        AmqpSendConnection connection = getOpenConnection();
+        if (connection != null)
+        {
+            CompletableFuture<Void> future = connection.send(toProtonMessage(deviceId, moduleId, message));
+            try
+            {
+                future.get(SEND_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+
+                // Keeps the message from being sent later if it is still queued, since the caller is told that it failed
+                future.completeExceptionally(e);
+                throw new IOException("Interrupted while waiting for the cloud to device message to be acknowledged", e);
+            }
+            catch (TimeoutException e)
+            {
+                future.completeExceptionally(e);
+                throw new IOException("Timed out waiting for the cloud to device message to be acknowledged", e);
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof IotHubException)
+                {
+                    throw (IotHubException) e.getCause();
+                }
+
+                if (e.getCause() instanceof IOException)
+                {
+                    throw (IOException) e.getCause();
+                }
+
+                throw new IOException("Failed to send the cloud to device message", e.getCause());
+            }
+        }
+
         synchronized(this)
         {
             if (this.credential != null)
@@ -235,4 +359,81 @@ public class AmqpSend
             amqpSendHandler.verifySendSucceeded();
         }
     }
+
+    // Returns null if open() has not been called. Reopens the long lived connection if the service closed it. If the
+    // reopen fails, the closed connection is kept so that the next send tries to reopen it again.
+    private AmqpSendConnection getOpenConnection() throws IOException
+    {
+        synchronized (this)
+        {
+            if (this.amqpSendConnection == null || this.amqpSendConnection.isOpen())
+            {
+                return this.amqpSendConnection;
+            }
+        }
+
+        synchronized (this.openConnectionLock)
+        {
+            AmqpSendConnection lostConnection;
+            synchronized (this)
+            {
+                // another send may have reopened it, or close() may have been called, while waiting for the lock
+                if (this.amqpSendConnection == null || this.amqpSendConnection.isOpen())
+                {
+                    return this.amqpSendConnection;
+                }
+
+                lostConnection = this.amqpSendConnection;
+            }
+
+            log.debug("Amqp send connection was lost, opening a new one");
+            lostConnection.close();
+            AmqpSendConnection connection = openConnection();
+
+            synchronized (this)
+            {
+                if (this.amqpSendConnection == lostConnection)
+                {
+                    this.amqpSendConnection = connection;
+                    return connection;
+                }
+            }
+
+            // close() was called while the new connection was opening
+            connection.close();
+            return null;
+        }
+    }
+
+    // must be called while holding openConnectionLock, but not this object's lock
+    private AmqpSendConnection openConnection() throws IOException
+    {
+        AmqpSendConnection connection;
+        if (this.credential != null)
+        {
+            connection = new AmqpSendConnection(this.hostName, this.credential, this.iotHubServiceClientProtocol, this.proxyOptions, this.sslContext);
+        }
+        else if (this.sasTokenProvider != null)
+        {
+            connection = new AmqpSendConnection(this.hostName, this.sasTokenProvider, this.iotHubServiceClientProtocol, this.proxyOptions, this.sslContext);
+        }
+        else
+        {
+            connection = new AmqpSendConnection(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol, this.proxyOptions, this.sslContext);
+        }
+
+        log.info("Opening amqp connection for sending cloud to device messages");
+        connection.open(OPEN_TIMEOUT_MILLISECONDS);
+        return connection;
+    }
+
+    private static org.apache.qpid.proton.message.Message toProtonMessage(String deviceId, String moduleId, Message message)
+    {
+        if (moduleId == null)
+        {
+            return AmqpSendHandler.toProtonMessage(String.format(AmqpSendHandler.DEVICE_PATH_FORMAT, deviceId), message);
+        }
+
+        return AmqpSendHandler.toProtonMessage(String.format(AmqpSendHandler.MODULE_PATH_FORMAT, deviceId, moduleId), message);
+    }
 }
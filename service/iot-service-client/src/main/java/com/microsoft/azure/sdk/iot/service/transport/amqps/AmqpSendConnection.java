@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.azure.core.credential.AzureSasCredential;
+import com.azure.core.credential.TokenCredential;
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Session;
+import org.apache.qpid.proton.message.Message;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A long lived AMQP connection with a single cloud to device message sender link that any number of threads can send
+ * messages over at the same time.
+ * <p>
+ * Unlike {@link AmqpSendHandler}, which opens a connection for one message and closes it once that message is
+ * acknowledged, this connection stays open until {@link #close()} is called or the service closes it. Messages are
+ * queued by the sending threads and are sent from the reactor thread as soon as the link has credit for them, without
+ * waiting for the previous message to be acknowledged. Each message is sent with its own delivery tag so that its
+ * acknowledgement can complete the future that was returned when it was queued.
+ * </p>
+ */
+@Slf4j
+final class AmqpSendConnection extends AmqpPersistentConnectionHandler
+{
+    private static final String THREAD_POSTFIX = "AmqpSendConnection";
+
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024;
+
+    private final Queue<QueuedMessage> queuedMessages = new ConcurrentLinkedQueue<>();
+
+    // Only accessed from the reactor thread. Keys are the delivery tags of the sent messages.
+    private final Map<Integer, CompletableFuture<Void>> inProgressMessages = new HashMap<>();
+
+    private Sender cloudToDeviceMessageSendingLink;
+    private byte[] encodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
+    private int nextTag = 0;
+
+    AmqpSendConnection(
+            String hostName,
+            String userName,
+            String sasToken,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext)
+    {
+        super(hostName, userName, sasToken, iotHubServiceClientProtocol, proxyOptions, sslContext);
+    }
+
+    AmqpSendConnection(
+            String hostName,
+            TokenCredential credential,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext)
+    {
+        super(hostName, credential, iotHubServiceClientProtocol, proxyOptions, sslContext);
+    }
+
+    AmqpSendConnection(
+            String hostName,
+            AzureSasCredential sasTokenProvider,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext)
+    {
+        super(hostName, sasTokenProvider, iotHubServiceClientProtocol, proxyOptions, sslContext);
+    }
+
+    /**
+     * Queue a message to be sent over this connection.
+     *
+     * @param protonMessage the message to send.
+     * @return a future that completes once the service acknowledges the message, or completes exceptionally with an
+     * {@link IotHubException} if the service rejected the message, or with an {@link IOException} if the connection
+     * closed first. The future is completed on the reactor thread, so dependent stages should not block.
+     */
+    CompletableFuture<Void> send(Message protonMessage)
+    {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (isClosed())
+        {
+            future.completeExceptionally(new IOException("Cannot send a message over a closed amqp connection"));
+            return future;
+        }
+
+        this.queuedMessages.add(new QueuedMessage(protonMessage, future));
+
+        if (isReactorStopped())
+        {
+            // the reactor thread may have finished failing the queued messages before this one was queued
+            failQueuedMessages();
+        }
+
+        return future;
+    }
+
+    /**
+     * Close the connection, waiting a bounded amount of time for the close to complete. Any messages that are queued
+     * or waiting for their acknowledgement are completed with an {@link IOException}.
+     */
+    @Override
+    void close()
+    {
+        super.close();
+        failQueuedMessages();
+    }
+
+    @Override
+    protected Link getLink()
+    {
+        return this.cloudToDeviceMessageSendingLink;
+    }
+
+    @Override
+    protected String getThreadNamePostfix()
+    {
+        return THREAD_POSTFIX;
+    }
+
+    @Override
+    protected void onPeriodicTimer()
+    {
+        // Sends any queued messages that the link has credit for, in case they were queued after the last link flow
+        sendQueuedMessages();
+    }
+
+    @Override
+    public void onAuthenticationSucceeded()
+    {
+        // Only open the session and sending link if this authentication was for the first open. This callback
+        // will be executed again after every proactive renewal, but nothing needs to be done after a proactive renewal
+        if (this.cloudToDeviceMessageSendingLink == null)
+        {
+            Session cloudToDeviceMessageSession = this.connection.session();
+
+            Map<Symbol, Object> properties = new HashMap<>();
+            properties.put(Symbol.getSymbol(TransportUtils.versionIdentifierKey), TransportUtils.USER_AGENT_STRING);
+            cloudToDeviceMessageSession.open();
+
+            this.cloudToDeviceMessageSendingLink = cloudToDeviceMessageSession.sender(AmqpSendHandler.SEND_TAG);
+            this.cloudToDeviceMessageSendingLink.setProperties(properties);
+            Target target = new Target();
+            target.setAddress(AmqpSendHandler.ENDPOINT);
+            this.cloudToDeviceMessageSendingLink.setTarget(target);
+            this.cloudToDeviceMessageSendingLink.open();
+
+            log.debug("Opening sender link for amqp cloud to device messages");
+        }
+    }
+
+    @Override
+    public void onLinkFlow(Event event)
+    {
+        if (event.getLink() == this.cloudToDeviceMessageSendingLink)
+        {
+            sendQueuedMessages();
+        }
+    }
+
+    @Override
+    public void onDelivery(Event event)
+    {
+        Delivery delivery = event.getDelivery();
+        DeliveryState remoteState = delivery.getRemoteState();
+        if (remoteState == null && !delivery.remotelySettled())
+        {
+            // nothing has been decided about this delivery yet
+            return;
+        }
+
+        CompletableFuture<Void> future = this.inProgressMessages.remove(decodeDeliveryTag(delivery.getTag()));
+        delivery.settle();
+
+        if (future == null)
+        {
+            log.warn("Received an acknowledgement for a cloud to device message that was not sent over this connection");
+            return;
+        }
+
+        IotHubException exception = new AmqpResponseVerification(remoteState).getException();
+        if (exception != null)
+        {
+            future.completeExceptionally(exception);
+        }
+        else
+        {
+            future.complete(null);
+        }
+    }
+
+    // must be called from the reactor thread
+    private void sendQueuedMessages()
+    {
+        Sender link = this.cloudToDeviceMessageSendingLink;
+        if (link == null || link.getLocalState() != EndpointState.ACTIVE || link.getRemoteState() != EndpointState.ACTIVE)
+        {
+            return;
+        }
+
+        while (link.getCredit() > 0)
+        {
+            QueuedMessage queuedMessage = this.queuedMessages.poll();
+            if (queuedMessage == null)
+            {
+                return;
+            }
+
+            if (queuedMessage.future.isDone())
+            {
+                // the sender already gave up on this message, for instance because it timed out waiting for it
+                continue;
+            }
+
+            int deliveryTag = this.nextTag;
+
+            //want to avoid negative delivery tags since -1 is the designated failure value
+            this.nextTag = this.nextTag == Integer.MAX_VALUE ? 0 : this.nextTag + 1;
+
+            try
+            {
+                int length = encode(queuedMessage.message);
+                link.delivery(String.valueOf(deliveryTag).getBytes(StandardCharsets.UTF_8));
+                link.send(this.encodeBuffer, 0, length);
+                link.advance();
+                this.inProgressMessages.put(deliveryTag, queuedMessage.future);
+            }
+            catch (RuntimeException e)
+            {
+                log.warn("Encountered a problem while sending a cloud to device message", e);
+                queuedMessage.future.completeExceptionally(new IOException("Failed to send the cloud to device message", e));
+            }
+        }
+    }
+
+    // must be called from the reactor thread
+    private int encode(Message protonMessage)
+    {
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(this.encodeBuffer, 0, this.encodeBuffer.length);
+            }
+            catch (BufferOverflowException e)
+            {
+                this.encodeBuffer = new byte[this.encodeBuffer.length * 2];
+            }
+        }
+    }
+
+    @Override
+    protected void onReactorStopped()
+    {
+        for (CompletableFuture<Void> future : this.inProgressMessages.values())
+        {
+            future.completeExceptionally(new IOException("Amqp connection closed before the cloud to device message was acknowledged"));
+        }
+
+        this.inProgressMessages.clear();
+        failQueuedMessages();
+    }
+
+    private void failQueuedMessages()
+    {
+        QueuedMessage queuedMessage;
+        while ((queuedMessage = this.queuedMessages.poll()) != null)
+        {
+            queuedMessage.future.completeExceptionally(new IOException("Amqp connection closed before the cloud to device message was sent"));
+        }
+    }
+
+    static int decodeDeliveryTag(byte[] deliveryTag)
+    {
+        try
+        {
+            return Integer.parseInt(new String(deliveryTag, StandardCharsets.UTF_8));
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    private static final class QueuedMessage
+    {
+        private final Message message;
+        private final CompletableFuture<Void> future;
+
+        private QueuedMessage(Message message, CompletableFuture<Void> future)
+        {
+            this.message = message;
+            this.future = future;
+        }
+    }
+}
@@ -152,6 +152,17 @@ public class AmqpSendHandler extends AmqpConnectionHandler
     }
 
     private void populateProtonMessage(String targetPath, com.microsoft.azure.sdk.iot.service.Message message)
+    {
+        messageToBeSent = toProtonMessage(targetPath, message);
+    }
+
+    /**
+     * Convert a cloud to device message into the proton message to send for it
+     * @param targetPath The devicebound path of the device or module that the message is for
+     * @param message The message to be sent
+     * @return The proton message to send
+     */
+    static org.apache.qpid.proton.message.Message toProtonMessage(String targetPath, com.microsoft.azure.sdk.iot.service.Message message)
     {
         org.apache.qpid.proton.message.Message protonMessage = Proton.message();
 
@@ -190,7 +201,7 @@ public class AmqpSendHandler extends AmqpConnectionHandler
 
         Section section = new Data(binary);
         protonMessage.setBody(section);
-        messageToBeSent = protonMessage;
+        return protonMessage;
     }
 
     /**
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.azure.core.credential.AzureSasCredential;
+import com.azure.core.credential.TokenCredential;
+import com.microsoft.azure.sdk.iot.service.AcknowledgementType;
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Session;
+
+import javax.net.ssl.SSLContext;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A long lived AMQP connection with a single receiver link that hands every message it receives to a callback, rather
+ * than closing once a single message was received like {@link AmqpFeedbackReceivedHandler} and
+ * {@link AmqpFileUploadNotificationReceivedHandler} do.
+ * <p>
+ * The service is given enough link credit to have up to the prefetch count of messages in flight to this client.
+ * Each message is settled with the {@link AcknowledgementType} that the callback returned for it, and its link credit
+ * is returned to the service right after. The callback is executed on the reactor thread, one message at a time.
+ * </p>
+ */
+@Slf4j
+final class AmqpStreamingReceiveConnection extends AmqpPersistentConnectionHandler
+{
+    private final String linkName;
+    private final String endpoint;
+    private final String threadNamePostfix;
+    private final int prefetchCount;
+    private final Function<String, AcknowledgementType> messageCallback;
+
+    private Receiver receiverLink;
+
+    AmqpStreamingReceiveConnection(
+            String hostName,
+            String userName,
+            String sasToken,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext,
+            String linkName,
+            String endpoint,
+            String threadNamePostfix,
+            int prefetchCount,
+            Function<String, AcknowledgementType> messageCallback)
+    {
+        super(hostName, userName, sasToken, iotHubServiceClientProtocol, proxyOptions, sslContext);
+        this.linkName = linkName;
+        this.endpoint = endpoint;
+        this.threadNamePostfix = threadNamePostfix;
+        this.prefetchCount = prefetchCount;
+        this.messageCallback = messageCallback;
+    }
+
+    AmqpStreamingReceiveConnection(
+            String hostName,
+            TokenCredential credential,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext,
+            String linkName,
+            String endpoint,
+            String threadNamePostfix,
+            int prefetchCount,
+            Function<String, AcknowledgementType> messageCallback)
+    {
+        super(hostName, credential, iotHubServiceClientProtocol, proxyOptions, sslContext);
+        this.linkName = linkName;
+        this.endpoint = endpoint;
+        this.threadNamePostfix = threadNamePostfix;
+        this.prefetchCount = prefetchCount;
+        this.messageCallback = messageCallback;
+    }
+
+    AmqpStreamingReceiveConnection(
+            String hostName,
+            AzureSasCredential sasTokenProvider,
+            IotHubServiceClientProtocol iotHubServiceClientProtocol,
+            ProxyOptions proxyOptions,
+            SSLContext sslContext,
+            String linkName,
+            String endpoint,
+            String threadNamePostfix,
+            int prefetchCount,
+            Function<String, AcknowledgementType> messageCallback)
+    {
+        super(hostName, sasTokenProvider, iotHubServiceClientProtocol, proxyOptions, sslContext);
+        this.linkName = linkName;
+        this.endpoint = endpoint;
+        this.threadNamePostfix = threadNamePostfix;
+        this.prefetchCount = prefetchCount;
+        this.messageCallback = messageCallback;
+    }
+
+    @Override
+    protected Link getLink()
+    {
+        return this.receiverLink;
+    }
+
+    @Override
+    protected String getThreadNamePostfix()
+    {
+        return this.threadNamePostfix;
+    }
+
+    @Override
+    public void onAuthenticationSucceeded()
+    {
+        // Only open the session and receiver link if this authentication was for the first open. This callback
+        // will be executed again after every proactive renewal, but nothing needs to be done after a proactive renewal
+        if (this.receiverLink == null)
+        {
+            Session session = this.connection.session();
+
+            Map<Symbol, Object> properties = new HashMap<>();
+            properties.put(Symbol.getSymbol(TransportUtils.versionIdentifierKey), TransportUtils.USER_AGENT_STRING);
+            this.receiverLink = session.receiver(this.linkName);
+            this.receiverLink.setProperties(properties);
+
+            log.debug("Opening session and link for amqp {}", this.threadNamePostfix);
+            session.open();
+            this.receiverLink.open();
+            Source source = new Source();
+            source.setAddress(this.endpoint);
+            this.receiverLink.setSource(source);
+
+            this.receiverLink.flow(this.prefetchCount);
+        }
+    }
+
+    @Override
+    public void onDelivery(Event event)
+    {
+        if (event.getLink() != this.receiverLink)
+        {
+            return;
+        }
+
+        Delivery delivery = this.receiverLink.current();
+        if (delivery == null || !delivery.isReadable() || delivery.isPartial())
+        {
+            return;
+        }
+
+        byte[] buffer = new byte[delivery.pending()];
+        int read = this.receiverLink.recv(buffer, 0, buffer.length);
+        this.receiverLink.advance();
+
+        org.apache.qpid.proton.message.Message message = Proton.message();
+        message.decode(buffer, 0, read);
+
+        AcknowledgementType acknowledgementType;
+        if (!(message.getBody() instanceof Data))
+        {
+            // Feedback and file upload notifications are always sent as data sections, so this message can never be handled
+            log.warn("{} received a message without a data section, completing it since it can never be handled", this.threadNamePostfix);
+            acknowledgementType = AcknowledgementType.COMPLETE;
+        }
+        else
+        {
+            Binary body = ((Data) message.getBody()).getValue();
+            try
+            {
+                acknowledgementType = this.messageCallback.apply(new String(body.getArray(), body.getArrayOffset(), body.getLength(), StandardCharsets.UTF_8));
+            }
+            catch (RuntimeException e)
+            {
+                log.warn("{} callback threw an exception, abandoning the message so that the service delivers it again later", this.threadNamePostfix, e);
+                acknowledgementType = AcknowledgementType.ABANDON;
+            }
+        }
+
+        if (acknowledgementType == AcknowledgementType.ABANDON)
+        {
+            delivery.disposition(Released.getInstance());
+        }
+        else
+        {
+            delivery.disposition(Accepted.getInstance());
+        }
+
+        delivery.settle();
+
+        // Give the service back the credit that this message used so that it can keep up to prefetchCount messages in flight
+        this.receiverLink.flow(1);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps an {@link AmqpStreamingReceiveConnection} open from {@link #start()} until {@link #stop()}, opening a new one
+ * whenever the service closes the current one.
+ */
+@Slf4j
+final class AmqpStreamingReceiver
+{
+    private static final long OPEN_TIMEOUT_MILLISECONDS = 60 * 1000;
+    private static final long REOPEN_CHECK_PERIOD_MILLISECONDS = 5 * 1000;
+
+    private final Supplier<AmqpStreamingReceiveConnection> connectionFactory;
+
+    private AmqpStreamingReceiveConnection connection;
+    private ScheduledExecutorService reopenExecutor;
+
+    /**
+     * @param connectionFactory creates a new, unopened connection each time one needs to be opened.
+     */
+    AmqpStreamingReceiver(Supplier<AmqpStreamingReceiveConnection> connectionFactory)
+    {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Open the connection and start handing received messages to its callback.
+     *
+     * @throws IOException if the connection could not be opened.
+     * @throws IllegalStateException if this receiver was already started.
+     */
+    synchronized void start() throws IOException
+    {
+        if (isStarted())
+        {
+            throw new IllegalStateException("Already receiving. Stop receiving before starting again");
+        }
+
+        AmqpStreamingReceiveConnection newConnection = this.connectionFactory.get();
+        newConnection.open(OPEN_TIMEOUT_MILLISECONDS);
+        this.connection = newConnection;
+
+        this.reopenExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.reopenExecutor.scheduleWithFixedDelay(
+            this::reopenIfClosed,
+            REOPEN_CHECK_PERIOD_MILLISECONDS,
+            REOPEN_CHECK_PERIOD_MILLISECONDS,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Close the connection. Messages that were received but not yet handed to the callback are delivered again later.
+     */
+    synchronized void stop()
+    {
+        if (this.reopenExecutor != null)
+        {
+            this.reopenExecutor.shutdownNow();
+            this.reopenExecutor = null;
+        }
+
+        if (this.connection != null)
+        {
+            this.connection.close();
+            this.connection = null;
+        }
+    }
+
+    /**
+     * @return true if {@link #start()} was called and {@link #stop()} has not been called since.
+     */
+    synchronized boolean isStarted()
+    {
+        return this.connection != null;
+    }
+
+    private synchronized void reopenIfClosed()
+    {
+        if (this.connection == null || this.connection.isOpen())
+        {
+            return;
+        }
+
+        log.debug("Streaming amqp receive connection was closed, opening a new one");
+        this.connection.close();
+
+        AmqpStreamingReceiveConnection newConnection = this.connectionFactory.get();
+        try
+        {
+            newConnection.open(OPEN_TIMEOUT_MILLISECONDS);
+            this.connection = newConnection;
+        }
+        catch (IOException e)
+        {
+            // keep the closed connection so that the next check tries to reopen it again
+            log.warn("Failed to reopen the streaming amqp receive connection, will try again in {} milliseconds", REOPEN_CHECK_PERIOD_MILLISECONDS, e);
+        }
+    }
+}
@@ -10,14 +10,28 @@ import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
 import java.io.IOException;
 import java.net.Proxy;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class HttpRequest
 {
-    /** The underlying HTTPS connection stream. */
+    private static final String USER_AGENT = "User-Agent";
+
+    /** The underlying HTTPS connection stream. Null if the request is sent through an {@link HttpTransport}. */
     protected final HttpConnection connection;
 
+    // Only used if the request is sent through an HttpTransport rather than its own HttpConnection
+    private final HttpTransport transport;
+    private final URL url;
+    private final HttpMethod method;
+    private final byte[] body;
+    private final Proxy proxy;
+    private final Map<String, String> headers;
+    private int readTimeoutMillis;
+    private int connectTimeoutMillis;
+
     /**
      * Constructor. Takes a URL as an argument and returns an HTTPS request that
      * is ready to be sent.
@@ -52,13 +66,64 @@ public class HttpRequest
      */
     public HttpRequest(URL url, HttpMethod method, byte[] body, Proxy proxy) throws IOException
     {
-        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_001: [The function shall open a connection with the given URL as the endpoint.]
-        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_003: [The function shall use the given HTTPS method (i.e. GET) as the request method.]
-        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_004: [If an IOException occurs in setting up the HTTPS connection, the function shall throw an IOException.]
-        this.connection = new HttpConnection(url, method, proxy);
-        this.connection.setRequestHeader("User-Agent", TransportUtils.javaServiceClientIdentifier + TransportUtils.serviceVersion);
-        // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_002: [The function shall write the body to the connection.]
-        this.connection.writeOutput(body);
+        this(url, method, body, proxy, null);
+    }
+
+    /**
+     * Constructor. Takes a URL as an argument and returns an HTTPS request that
+     * is ready to be sent through the provided transport.
+     *
+     * @param url The URL for the request.
+     * @param method The HTTPS request method (i.e. GET).
+     * @param body The request body. Must be an array of size 0 if the request method is GET or DELETE.
+     * @param proxy The proxy to send the request through. May be null if no proxy should be used
+     * @param transport The transport to send the request through. May be null, in which case the request is sent over
+     * its own {@link HttpConnection} as with {@link #HttpRequest(URL, HttpMethod, byte[], Proxy)}.
+     *
+     * @throws IOException This exception thrown if an IOException occurs
+     * in setting up the HTTPS connection.
+     * @throws IllegalArgumentException This exception thrown if the endpoint
+     * given does not use the HTTPS protocol, or if the request has a body and is not a POST, PUT or PATCH request.
+     */
+    public HttpRequest(URL url, HttpMethod method, byte[] body, Proxy proxy, HttpTransport transport) throws IOException
+    {
+        if (transport == null)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_001: [The function shall open a connection with the given URL as the endpoint.]
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_003: [The function shall use the given HTTPS method (i.e. GET) as the request method.]
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_004: [If an IOException occurs in setting up the HTTPS connection, the function shall throw an IOException.]
+            this.connection = new HttpConnection(url, method, proxy);
+            this.connection.setRequestHeader(USER_AGENT, TransportUtils.javaServiceClientIdentifier + TransportUtils.serviceVersion);
+            // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_002: [The function shall write the body to the connection.]
+            this.connection.writeOutput(body);
+
+            this.transport = null;
+            this.url = null;
+            this.method = null;
+            this.body = null;
+            this.proxy = null;
+            this.headers = null;
+            return;
+        }
+
+        if (!url.getProtocol().equalsIgnoreCase("HTTPS"))
+        {
+            throw new IllegalArgumentException("Expected URL that uses iotHubServiceClientProtocol HTTPS but received one that uses iotHubServiceClientProtocol '" + url.getProtocol() + "'.");
+        }
+
+        if (body.length > 0 && method != HttpMethod.POST && method != HttpMethod.PUT && method != HttpMethod.PATCH)
+        {
+            throw new IllegalArgumentException("Cannot write a body to a request that is not a POST, PUT or PATCH request.");
+        }
+
+        this.connection = null;
+        this.transport = transport;
+        this.url = url;
+        this.method = method;
+        this.body = Arrays.copyOf(body, body.length);
+        this.proxy = proxy;
+        this.headers = new LinkedHashMap<>();
+        this.headers.put(USER_AGENT, TransportUtils.javaServiceClientIdentifier + TransportUtils.serviceVersion);
     }
 
     /**
@@ -71,6 +136,18 @@ public class HttpRequest
      */
     public HttpResponse send() throws IOException
     {
+        if (this.transport != null)
+        {
+            return this.transport.send(
+                this.url,
+                this.method,
+                this.body,
+                this.headers,
+                this.proxy,
+                this.connectTimeoutMillis,
+                this.readTimeoutMillis);
+        }
+
         int responseStatus;
         byte[] responseBody = new byte[0];
         byte[] errorReason = new byte[0];
@@ -118,6 +195,12 @@ public class HttpRequest
     public HttpRequest setHeaderField(String field, String value)
     {
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_009: [The function shall set the header field with the given name to the given value.]
+        if (this.transport != null)
+        {
+            this.headers.put(field, value);
+            return this;
+        }
+
         this.connection.setRequestHeader(field, value);
         return this;
     }
@@ -134,6 +217,12 @@ public class HttpRequest
     public HttpRequest setReadTimeoutMillis(int timeout)
     {
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPREQUEST_12_010: [The function shall set the read timeout for the request to the given value.]
+        if (this.transport != null)
+        {
+            this.readTimeoutMillis = timeout;
+            return this;
+        }
+
         this.connection.setReadTimeoutMillis(timeout);
         return this;
     }
@@ -146,6 +235,12 @@ public class HttpRequest
      */
     public HttpRequest setConnectTimeoutMillis(int timeout)
     {
+        if (this.transport != null)
+        {
+            this.connectTimeoutMillis = timeout;
+            return this;
+        }
+
         this.connection.setConnectTimeoutMillis(timeout);
         return this;
     }
@@ -153,5 +248,11 @@ public class HttpRequest
     protected HttpRequest()
     {
         this.connection = null;
+        this.transport = null;
+        this.url = null;
+        this.method = null;
+        this.body = null;
+        this.proxy = null;
+        this.headers = null;
     }
 }
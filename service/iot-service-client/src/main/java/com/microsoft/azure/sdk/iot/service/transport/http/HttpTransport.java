@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Sends the HTTPS requests built by {@link HttpRequest}. Implementations must be safe to use from multiple threads at
+ * once, since a single instance may be shared by several clients.
+ * <p>
+ * By default, each request is sent over its own {@link HttpConnection}. See {@link PooledHttpTransport} for an
+ * implementation that reuses connections across requests.
+ * </p>
+ */
+public interface HttpTransport
+{
+    /**
+     * Send a request and wait for its response.
+     *
+     * @param url The URL for the request. Must use the HTTPS protocol.
+     * @param method The HTTPS request method (i.e. GET).
+     * @param body The request body. Is an array of size 0 if the request has no body.
+     * @param headers The request header fields, by name.
+     * @param proxy The proxy to send the request through. May be null if no proxy should be used.
+     * @param connectTimeoutMillis The connect timeout, in milliseconds. Zero is interpreted as an infinite timeout.
+     * @param readTimeoutMillis The read timeout, in milliseconds. Zero is interpreted as an infinite timeout.
+     * @return The HTTPS response. As with {@link HttpConnection}, the body of a response with an error status code is
+     * returned as the error reason rather than as the body.
+     * @throws IOException if the request could not be sent or no response was received.
+     */
+    HttpResponse send(
+        URL url,
+        HttpMethod method,
+        byte[] body,
+        Map<String, String> headers,
+        Proxy proxy,
+        int connectTimeoutMillis,
+        int readTimeoutMillis) throws IOException;
+}
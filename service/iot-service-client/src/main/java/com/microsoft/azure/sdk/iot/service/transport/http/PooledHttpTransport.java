@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link HttpTransport} that keeps connections alive and reuses them across requests, rather than opening a new
+ * connection for each request.
+ * <p>
+ * A single instance is meant to be shared by all the clients that talk to the same IoT Hub, for instance by setting it
+ * in the {@link com.microsoft.azure.sdk.iot.service.RegistryManagerOptions},
+ * {@link com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinClientOptions},
+ * {@link com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethodClientOptions} and
+ * {@link com.microsoft.azure.sdk.iot.service.jobs.JobClientOptions} of each client. Connections use HTTP/1.1, so each
+ * connection carries one request at a time and requests are never pipelined. As configured by the
+ * {@link PooledHttpTransportOptions}, the number of requests in flight to each host is capped, connections are closed
+ * once they have been idle for too long, and TLS sessions are cached so that new connections can skip the full
+ * handshake.
+ * </p>
+ * <p>
+ * This class is thread safe. Call {@link #close()} once none of the clients that use it will send any more requests.
+ * </p>
+ */
+public final class PooledHttpTransport implements HttpTransport, Closeable
+{
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    // Clients normally use a handful of combinations of timeouts and proxy. Past this many, derived clients are built
+    // for each request instead of being cached, so that callers that vary their timeouts can't grow the cache forever
+    static final int MAX_CACHED_CLIENT_COUNT = 32;
+
+    private final OkHttpClient client;
+    private final ConnectionPool connectionPool;
+    private final int maxConnectionsPerHost;
+
+    // Clients derived from the base client for each combination of timeouts and proxy, up to MAX_CACHED_CLIENT_COUNT of
+    // them. They all share its connection pool
+    private final Map<List<Object>, OkHttpClient> clientsBySettings = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> permitsByHost = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeRequestCount = new AtomicInteger();
+    private final AtomicInteger waitingRequestCount = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * Construct a transport with the default {@link PooledHttpTransportOptions}.
+     */
+    public PooledHttpTransport()
+    {
+        this(PooledHttpTransportOptions.builder().build());
+    }
+
+    /**
+     * Construct a transport.
+     *
+     * @param options the options for the connection pool and TLS session cache.
+     */
+    public PooledHttpTransport(PooledHttpTransportOptions options)
+    {
+        if (options == null)
+        {
+            throw new IllegalArgumentException("options cannot be null");
+        }
+
+        if (options.getMaxConnectionsPerHost() <= 0)
+        {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be a positive value");
+        }
+
+        if (options.getMaxIdleConnections() < 0)
+        {
+            throw new IllegalArgumentException("maxIdleConnections must be a non-negative value");
+        }
+
+        if (options.getIdleConnectionTimeout() <= 0)
+        {
+            throw new IllegalArgumentException("idleConnectionTimeout must be a positive value");
+        }
+
+        if (options.getTlsSessionCacheSize() < 0 || options.getTlsSessionTimeoutSeconds() < 0)
+        {
+            throw new IllegalArgumentException("tlsSessionCacheSize and tlsSessionTimeoutSeconds must be non-negative values");
+        }
+
+        this.maxConnectionsPerHost = options.getMaxConnectionsPerHost();
+        this.connectionPool = new ConnectionPool(options.getMaxIdleConnections(), options.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS);
+
+        X509TrustManager trustManager;
+        SSLContext sslContext;
+        try
+        {
+            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+            trustManager = getX509TrustManager(trustManagerFactory.getTrustManagers());
+
+            // A dedicated context, so that the size and timeout of its session cache don't affect the rest of the process
+            sslContext = SSLContext.getInstance("TLSv1.2");
+            sslContext.init(null, new TrustManager[]{trustManager}, null);
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException("Failed to create the SSL context for the pooled http transport", e);
+        }
+
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(options.getTlsSessionCacheSize());
+        sessionContext.setSessionTimeout(options.getTlsSessionTimeoutSeconds());
+
+        this.client = new OkHttpClient.Builder()
+            .connectionPool(this.connectionPool)
+            .sslSocketFactory(sslContext.getSocketFactory(), trustManager)
+            .protocols(Collections.singletonList(Protocol.HTTP_1_1))
+            .followRedirects(false)
+            .build();
+    }
+
+    @Override
+    public HttpResponse send(
+        URL url,
+        HttpMethod method,
+        byte[] body,
+        Map<String, String> headers,
+        Proxy proxy,
+        int connectTimeoutMillis,
+        int readTimeoutMillis) throws IOException
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("Cannot send a request through a closed http transport");
+        }
+
+        Request request = buildRequest(url, method, body, headers);
+        OkHttpClient requestClient = getClient(proxy, connectTimeoutMillis, readTimeoutMillis);
+
+        Semaphore permits = this.permitsByHost.computeIfAbsent(
+            url.getHost() + ":" + url.getPort(),
+            host -> new Semaphore(this.maxConnectionsPerHost));
+
+        acquire(permits, url, connectTimeoutMillis);
+        this.activeRequestCount.incrementAndGet();
+        try (Response response = requestClient.newCall(request).execute())
+        {
+            ResponseBody responseBody = response.body();
+            byte[] responseBytes = responseBody == null ? EMPTY_BODY : responseBody.bytes();
+            Map<String, List<String>> responseHeaders = response.headers().toMultimap();
+
+            if (response.code() >= 400)
+            {
+                // Matches HttpRequest, where the body of an error response is read from the error stream
+                return new HttpResponse(response.code(), EMPTY_BODY, responseHeaders, responseBytes);
+            }
+
+            return new HttpResponse(response.code(), responseBytes, responseHeaders, EMPTY_BODY);
+        }
+        finally
+        {
+            this.activeRequestCount.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * @return the number of connections in the pool, whether they are in use or idle.
+     */
+    public int getConnectionCount()
+    {
+        return this.connectionPool.connectionCount();
+    }
+
+    /**
+     * @return the number of idle connections in the pool.
+     */
+    public int getIdleConnectionCount()
+    {
+        return this.connectionPool.idleConnectionCount();
+    }
+
+    /**
+     * @return the number of requests that are currently in flight.
+     */
+    public int getActiveRequestCount()
+    {
+        return this.activeRequestCount.get();
+    }
+
+    /**
+     * @return the number of requests that are waiting for the number of requests in flight to their host to drop
+     * below the maximum number of connections per host.
+     */
+    public int getWaitingRequestCount()
+    {
+        return this.waitingRequestCount.get();
+    }
+
+    /**
+     * Close all idle connections. Requests that are in flight are allowed to complete, and their connections are
+     * closed once they are idle. No new requests can be sent through this transport after it has been closed.
+     */
+    @Override
+    public void close()
+    {
+        this.closed = true;
+        this.connectionPool.evictAll();
+    }
+
+    private OkHttpClient getClient(Proxy proxy, int connectTimeoutMillis, int readTimeoutMillis)
+    {
+        List<Object> settings = Arrays.asList(proxy, connectTimeoutMillis, readTimeoutMillis);
+        OkHttpClient cachedClient = this.clientsBySettings.get(settings);
+        if (cachedClient != null)
+        {
+            return cachedClient;
+        }
+
+        // Derived clients are cheap to build, since they share the connection pool and dispatcher of the base client
+        OkHttpClient derivedClient = this.client.newBuilder()
+            .proxy(proxy)
+            .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+            .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+            .writeTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+            .build();
+
+        if (this.clientsBySettings.size() >= MAX_CACHED_CLIENT_COUNT)
+        {
+            return derivedClient;
+        }
+
+        cachedClient = this.clientsBySettings.putIfAbsent(settings, derivedClient);
+        return cachedClient != null ? cachedClient : derivedClient;
+    }
+
+    int getCachedClientCount()
+    {
+        return this.clientsBySettings.size();
+    }
+
+    private void acquire(Semaphore permits, URL url, int connectTimeoutMillis) throws IOException
+    {
+        if (permits.tryAcquire())
+        {
+            return;
+        }
+
+        this.waitingRequestCount.incrementAndGet();
+        try
+        {
+            if (connectTimeoutMillis > 0)
+            {
+                if (!permits.tryAcquire(connectTimeoutMillis, TimeUnit.MILLISECONDS))
+                {
+                    throw new IOException("Timed out waiting for one of the " + this.maxConnectionsPerHost + " connections to " + url.getHost() + " to become available");
+                }
+            }
+            else
+            {
+                permits.acquire();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + url.getHost() + " to become available", e);
+        }
+        finally
+        {
+            this.waitingRequestCount.decrementAndGet();
+        }
+    }
+
+    private static Request buildRequest(URL url, HttpMethod method, byte[] body, Map<String, String> headers)
+    {
+        RequestBody requestBody = null;
+        if (method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH)
+        {
+            // The content type is set by the caller through the headers
+            requestBody = RequestBody.create(null, body);
+        }
+
+        Request.Builder builder = new Request.Builder()
+            .url(url)
+            .method(method.name(), requestBody);
+
+        for (Map.Entry<String, String> header : headers.entrySet())
+        {
+            // The content length is derived from the body, and must not be sent on requests without one
+            if (!CONTENT_LENGTH.equalsIgnoreCase(header.getKey()))
+            {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static X509TrustManager getX509TrustManager(TrustManager[] trustManagers)
+    {
+        for (TrustManager trustManager : trustManagers)
+        {
+            if (trustManager instanceof X509TrustManager)
+            {
+                return (X509TrustManager) trustManager;
+            }
+        }
+
+        throw new IllegalStateException("No X509TrustManager is available for the pooled http transport");
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Configurable options for a {@link PooledHttpTransport}.
+ */
+@Builder
+public class PooledHttpTransportOptions
+{
+    protected static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+    protected static final int DEFAULT_MAX_IDLE_CONNECTIONS = 10;
+    protected static final long DEFAULT_IDLE_CONNECTION_TIMEOUT_MS = 60 * 1000; // 1 minute
+    protected static final int DEFAULT_TLS_SESSION_CACHE_SIZE = 100;
+    protected static final int DEFAULT_TLS_SESSION_TIMEOUT_SECONDS = 24 * 60 * 60; // 24 hours
+
+    /**
+     * The maximum number of requests that can be in flight to a single host at a time, and so the maximum number of
+     * connections that will be open to that host. Requests beyond this limit wait for an in flight request to complete.
+     * By default, this value is {@link #DEFAULT_MAX_CONNECTIONS_PER_HOST}. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+    /**
+     * The maximum number of idle connections that are kept open for reuse, across all hosts. By default, this value is
+     * {@link #DEFAULT_MAX_IDLE_CONNECTIONS}. Must be a non-negative value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+
+    /**
+     * The amount of time, in milliseconds, that a connection can be idle before it is closed and removed from the pool.
+     * By default, this value is {@link #DEFAULT_IDLE_CONNECTION_TIMEOUT_MS}. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT_MS;
+
+    /**
+     * The maximum number of TLS sessions to cache so that new connections to a host can resume a previous session
+     * rather than doing a full handshake. By default, this value is {@link #DEFAULT_TLS_SESSION_CACHE_SIZE}. Zero is
+     * interpreted as no limit. Must be a non-negative value.
+     */
+    @Getter
+    @Builder.Default
+    private final int tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+
+    /**
+     * The amount of time, in seconds, that a cached TLS session can be resumed for. By default, this value is
+     * {@link #DEFAULT_TLS_SESSION_TIMEOUT_SECONDS}. Zero is interpreted as no limit. Must be a non-negative value.
+     */
+    @Getter
+    @Builder.Default
+    private final int tlsSessionTimeoutSeconds = DEFAULT_TLS_SESSION_TIMEOUT_SECONDS;
+}
@@ -0,0 +1,284 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethodClientOptions;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwin;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinClientOptions;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceTwinDevice;
+import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
+import com.microsoft.azure.sdk.iot.service.devicetwin.Query;
+import com.microsoft.azure.sdk.iot.service.jobs.JobClient;
+import com.microsoft.azure.sdk.iot.service.jobs.JobClientOptions;
+import com.microsoft.azure.sdk.iot.service.jobs.JobResult;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
+import org.junit.jupiter.api.Test;
+
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Concurrency tests for the DeviceMethod, DeviceTwin and JobClient service clients. Each client is shared by several
+ * threads and sends its requests to a stub hub that only answers a request once a request from every thread is in
+ * flight. If the clients serialized their requests, no round of requests would ever be complete and the stub hub would
+ * give up waiting for it.
+ * <p>
+ * A query that is shared by several threads is iterated by one of them at a time instead, since it has no locking of
+ * its own.
+ * </p>
+ */
+public class ConcurrentServiceClientsTest
+{
+    private static final String CONNECTION_STRING = "HostName=test.azure-devices.net;SharedAccessKeyName=iothubowner;SharedAccessKey="
+        + encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+
+    private static final int THREAD_COUNT = 8;
+    private static final int REQUESTS_PER_THREAD = 3;
+    private static final long ROUND_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Stands in for the hub. Requests are answered in rounds of {@link #THREAD_COUNT}, each of which is only answered
+     * once all of its requests are in flight at the same time. The requests that gave up waiting for their round are
+     * counted.
+     */
+    private static class StubHub implements HttpTransport
+    {
+        private final CyclicBarrier round = new CyclicBarrier(THREAD_COUNT);
+        private final AtomicInteger incompleteRoundRequestCount = new AtomicInteger();
+        private final AtomicInteger requestCount = new AtomicInteger();
+
+        @Override
+        public HttpResponse send(URL url, HttpMethod method, byte[] body, Map<String, String> headers, Proxy proxy, int connectTimeoutMillis, int readTimeoutMillis)
+        {
+            this.requestCount.incrementAndGet();
+            try
+            {
+                this.round.await(ROUND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                this.incompleteRoundRequestCount.incrementAndGet();
+                Thread.currentThread().interrupt();
+            }
+            catch (BrokenBarrierException | TimeoutException e)
+            {
+                this.incompleteRoundRequestCount.incrementAndGet();
+            }
+
+            String responseBody;
+            String path = url.getPath();
+            if (path.contains("/methods"))
+            {
+                responseBody = "{\"status\":200,\"payload\":\"done\"}";
+            }
+            else if (path.contains("/jobs/"))
+            {
+                responseBody = "{\"jobId\":\"job\",\"type\":\"scheduleDeviceMethod\",\"status\":\"completed\"}";
+            }
+            else
+            {
+                responseBody = "{\"deviceId\":\"device\",\"etag\":\"AAAAAAAAAAE=\",\"properties\":{\"desired\":{\"$version\":1},\"reported\":{\"$version\":1}}}";
+            }
+
+            return new HttpResponse(200, responseBody.getBytes(StandardCharsets.UTF_8), new HashMap<>(), new byte[0]);
+        }
+    }
+
+    /**
+     * Stands in for the hub for a twin query with a page size of 1. Page {@code n} holds the twin of {@code device<n>}
+     * and its continuation token is {@code n + 1}, up to {@link #PAGE_COUNT} pages. The highest number of query
+     * requests that were in flight at the same time is recorded.
+     */
+    private static class PagingStubHub implements HttpTransport
+    {
+        private static final int PAGE_COUNT = 50;
+
+        private final AtomicInteger inFlightRequests = new AtomicInteger();
+        private final AtomicInteger maxInFlightRequests = new AtomicInteger();
+
+        @Override
+        public HttpResponse send(URL url, HttpMethod method, byte[] body, Map<String, String> headers, Proxy proxy, int connectTimeoutMillis, int readTimeoutMillis)
+        {
+            this.maxInFlightRequests.accumulateAndGet(this.inFlightRequests.incrementAndGet(), Math::max);
+            try
+            {
+                String continuationToken = headers.get("x-ms-continuation");
+                int page = continuationToken == null ? 0 : Integer.parseInt(continuationToken);
+
+                Map<String, List<String>> responseHeaders = new HashMap<>();
+                responseHeaders.put("x-ms-item-type", Collections.singletonList("twin"));
+                if (page + 1 < PAGE_COUNT)
+                {
+                    responseHeaders.put("x-ms-continuation", Collections.singletonList(Integer.toString(page + 1)));
+                }
+
+                String responseBody = "[{\"deviceId\":\"device" + page + "\",\"etag\":\"AAAAAAAAAAE=\"}]";
+                return new HttpResponse(200, responseBody.getBytes(StandardCharsets.UTF_8), responseHeaders, new byte[0]);
+            }
+            finally
+            {
+                this.inFlightRequests.decrementAndGet();
+            }
+        }
+    }
+
+    private static <T> void runConcurrently(Callable<T> request, List<T> results) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try
+        {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT * REQUESTS_PER_THREAD; i++)
+            {
+                futures.add(executor.submit(request));
+            }
+
+            for (Future<T> future : futures)
+            {
+                results.add(future.get(REQUESTS_PER_THREAD * ROUND_TIMEOUT_SECONDS * 2, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertAllThreadsWereInFlightAtOnce(StubHub hub)
+    {
+        assertEquals(THREAD_COUNT * REQUESTS_PER_THREAD, hub.requestCount.get());
+
+        // Every round only completes once a request from each of the threads is in flight
+        assertEquals(0, hub.incompleteRoundRequestCount.get());
+    }
+
+    @Test
+    public void deviceMethodInvocationsRunConcurrently() throws Exception
+    {
+        // Arrange
+        StubHub hub = new StubHub();
+        DeviceMethod deviceMethod = new DeviceMethod(CONNECTION_STRING, DeviceMethodClientOptions.builder().httpTransport(hub).build());
+        List<MethodResult> results = new ArrayList<>();
+
+        // Act
+        runConcurrently(() -> deviceMethod.invoke("device", "method", 5L, 5L, null), results);
+
+        // Assert
+        assertAllThreadsWereInFlightAtOnce(hub);
+        for (MethodResult result : results)
+        {
+            assertEquals(200, (int) result.getStatus());
+            assertEquals("done", result.getPayload());
+        }
+    }
+
+    @Test
+    public void deviceTwinRequestsRunConcurrently() throws Exception
+    {
+        // Arrange
+        StubHub hub = new StubHub();
+        DeviceTwin deviceTwin = new DeviceTwin(CONNECTION_STRING, DeviceTwinClientOptions.builder().httpTransport(hub).build());
+        List<DeviceTwinDevice> results = new ArrayList<>();
+
+        // Act
+        runConcurrently(() ->
+        {
+            DeviceTwinDevice device = new DeviceTwinDevice("device");
+            deviceTwin.getTwin(device);
+            return device;
+        }, results);
+
+        // Assert
+        assertAllThreadsWereInFlightAtOnce(hub);
+        for (DeviceTwinDevice result : results)
+        {
+            assertEquals("AAAAAAAAAAE=", result.getETag());
+        }
+    }
+
+    @Test
+    public void sharedDeviceTwinQueryIsIteratedByOneThreadAtATime() throws Exception
+    {
+        // Arrange
+        PagingStubHub hub = new PagingStubHub();
+        DeviceTwin deviceTwin = new DeviceTwin(CONNECTION_STRING, DeviceTwinClientOptions.builder().httpTransport(hub).build());
+        Query query = deviceTwin.queryTwin("SELECT * FROM devices", 1);
+        List<List<String>> results = new ArrayList<>();
+
+        // Act
+        runConcurrently(() ->
+        {
+            List<String> deviceIds = new ArrayList<>();
+            try
+            {
+                while (deviceTwin.hasNextDeviceTwin(query))
+                {
+                    deviceIds.add(deviceTwin.getNextDeviceTwin(query).getDeviceId());
+                }
+            }
+            catch (NoSuchElementException e)
+            {
+                // another thread took the last twin between the two calls
+            }
+
+            return deviceIds;
+        }, results);
+
+        // Assert
+        assertEquals(1, hub.maxInFlightRequests.get());
+        Set<String> deviceIds = new HashSet<>();
+        int twinCount = 0;
+        for (List<String> result : results)
+        {
+            deviceIds.addAll(result);
+            twinCount += result.size();
+        }
+
+        assertEquals(PagingStubHub.PAGE_COUNT, twinCount);
+        assertEquals(PagingStubHub.PAGE_COUNT, deviceIds.size());
+    }
+
+    @Test
+    public void jobClientRequestsRunConcurrently() throws Exception
+    {
+        // Arrange
+        StubHub hub = new StubHub();
+        JobClient jobClient = new JobClient(CONNECTION_STRING, JobClientOptions.builder().httpTransport(hub).build());
+        List<JobResult> results = new ArrayList<>();
+
+        // Act
+        runConcurrently(() -> jobClient.getJob("job"), results);
+
+        // Assert
+        assertAllThreadsWereInFlightAtOnce(hub);
+        for (JobResult result : results)
+        {
+            assertEquals("job", result.getJobId());
+        }
+    }
+}
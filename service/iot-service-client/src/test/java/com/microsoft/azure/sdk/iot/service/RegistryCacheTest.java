@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for RegistryCache, using a fake clock.
+ */
+public class RegistryCacheTest
+{
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private RegistryCache<String> createCache(int maxEntries, long timeToLiveMillis)
+    {
+        return new RegistryCache<>(
+            RegistryCacheOptions.builder().maxEntries(maxEntries).timeToLiveMillis(timeToLiveMillis).build(),
+            this.nanoTime::get);
+    }
+
+    private void advanceMillis(long millis)
+    {
+        this.nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void load(RegistryCache<String> cache, String key, String value, String eTag)
+    {
+        cache.completeLoad(cache.startLoad(key), value, eTag);
+    }
+
+    @Test
+    public void loadedEntryIsFreshUntilItExpires()
+    {
+        // Arrange
+        RegistryCache<String> cache = createCache(10, 1000);
+        load(cache, "device1", "json1", "\"1\"");
+
+        // Act / Assert
+        advanceMillis(999);
+        assertEquals("json1", cache.getIfFresh("device1"));
+        advanceMillis(1);
+        assertNull(cache.getIfFresh("device1"));
+
+        RegistryCacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getSize());
+    }
+
+    @Test
+    public void expiredEntryCanBeRevalidated()
+    {
+        // Arrange
+        RegistryCache<String> cache = createCache(10, 1000);
+        load(cache, "device1", "json1", "\"1\"");
+        advanceMillis(1000);
+
+        // Act
+        RegistryCache.Load<String> load = cache.startLoad("device1");
+        String revalidated = cache.completeRevalidation(load);
+
+        // Assert
+        assertEquals("\"1\"", load.getStaleETag());
+        assertEquals("json1", revalidated);
+        assertEquals("json1", cache.getIfFresh("device1"));
+        assertEquals(1, cache.getStatistics().getRevalidationCount());
+    }
+
+    @Test
+    public void loadThatWasInFlightDuringAnInvalidationIsNotCached()
+    {
+        // Arrange
+        RegistryCache<String> cache = createCache(10, 1000);
+        RegistryCache.Load<String> load = cache.startLoad("device1");
+
+        // Act
+        cache.invalidate("device1");
+        cache.completeLoad(load, "stale json", "\"1\"");
+
+        // Assert
+        assertNull(cache.getIfFresh("device1"));
+    }
+
+    @Test
+    public void loadThatWasInFlightDuringAWriteDoesNotReplaceIt()
+    {
+        // Arrange
+        RegistryCache<String> cache = createCache(10, 1000);
+        RegistryCache.Load<String> load = cache.startLoad("device1");
+
+        // Act
+        cache.put("device1", "written json", "\"2\"");
+        cache.completeLoad(load, "stale json", "\"1\"");
+
+        // Assert
+        assertEquals("written json", cache.getIfFresh("device1"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted()
+    {
+        // Arrange
+        RegistryCache<String> cache = createCache(2, 1000);
+        load(cache, "device1", "json1", "\"1\"");
+        load(cache, "device2", "json2", "\"1\"");
+
+        // Act
+        cache.getIfFresh("device1");
+        load(cache, "device3", "json3", "\"1\"");
+
+        // Assert
+        assertEquals("json1", cache.getIfFresh("device1"));
+        assertNull(cache.getIfFresh("device2"));
+        assertEquals("json3", cache.getIfFresh("device3"));
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void invalidatingDevicesAlsoInvalidatesTheirModules()
+    {
+        // Arrange
+        RegistryCache<String> cache = createCache(10, 1000);
+        load(cache, "device1", "json1", "\"1\"");
+        load(cache, RegistryCache.moduleKey("device1", "module1"), "module json1", "\"1\"");
+        load(cache, "device10", "json10", "\"1\"");
+        load(cache, RegistryCache.moduleKey("device2", "module1"), "module json2", "\"1\"");
+
+        // Act
+        cache.invalidateDevices(Arrays.asList("device1", "device2"));
+
+        // Assert
+        assertNull(cache.getIfFresh("device1"));
+        assertNull(cache.getIfFresh(RegistryCache.moduleKey("device1", "module1")));
+        assertNull(cache.getIfFresh(RegistryCache.moduleKey("device2", "module1")));
+        assertEquals("json10", cache.getIfFresh("device10"));
+    }
+
+    @Test
+    public void hitRateCountsOnlyLookupsWithoutARequest()
+    {
+        // Arrange
+        RegistryCache<String> cache = createCache(10, 1000);
+        load(cache, "device1", "json1", "\"1\"");
+
+        // Act
+        cache.getIfFresh("device1");
+        cache.getIfFresh("device1");
+        cache.getIfFresh("device1");
+
+        // Assert
+        assertEquals(0.75, cache.getStatistics().getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void constructorThrowsOnInvalidOptions()
+    {
+        assertThrows(IllegalArgumentException.class, () -> createCache(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> createCache(10, 0));
+    }
+}
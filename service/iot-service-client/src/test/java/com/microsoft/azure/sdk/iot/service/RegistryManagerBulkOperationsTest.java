@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
+import mockit.Deencapsulation;
+import org.junit.jupiter.api.Test;
+
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the bulk device operations of RegistryManager, run against a stub hub rather than mocks.
+ */
+public class RegistryManagerBulkOperationsTest
+{
+    private static final String CONNECTION_STRING = "HostName=test.azure-devices.net;SharedAccessKeyName=iothubowner;SharedAccessKey="
+        + encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+
+    /**
+     * Answers bulk registry requests after a short delay. Devices whose id starts with "existing" are rejected, and
+     * requests whose first device id starts with "throttled" are throttled as a whole.
+     */
+    private static class BulkStubHub implements HttpTransport
+    {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final ConcurrentLinkedQueue<JsonArray> requests = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public HttpResponse send(URL url, HttpMethod method, byte[] body, Map<String, String> headers, Proxy proxy, int connectTimeoutMillis, int readTimeoutMillis)
+        {
+            int current = this.inFlight.incrementAndGet();
+            this.maxInFlight.accumulateAndGet(current, Math::max);
+            try
+            {
+                assertEquals(HttpMethod.POST, method);
+                assertEquals("/devices", url.getPath());
+
+                JsonArray devices = new JsonParser().parse(new String(body, StandardCharsets.UTF_8)).getAsJsonArray();
+                this.requests.add(devices);
+                Thread.sleep(50);
+
+                if (devices.get(0).getAsJsonObject().get("id").getAsString().startsWith("throttled"))
+                {
+                    return new HttpResponse(429, new byte[0], new HashMap<>(), "{\"Message\":\"ErrorCode:ThrottlingException;Throttled\"}".getBytes(StandardCharsets.UTF_8));
+                }
+
+                JsonArray errors = new JsonArray();
+                for (JsonElement device : devices)
+                {
+                    String deviceId = device.getAsJsonObject().get("id").getAsString();
+                    if (deviceId.startsWith("existing"))
+                    {
+                        JsonObject error = new JsonObject();
+                        error.addProperty("deviceId", deviceId);
+                        error.addProperty("errorCode", "DeviceAlreadyExists");
+                        error.addProperty("errorStatus", "A device with ID '" + deviceId + "' is already registered.");
+                        errors.add(error);
+                    }
+                }
+
+                JsonObject result = new JsonObject();
+                result.addProperty("isSuccessful", errors.size() == 0);
+                result.add("errors", errors);
+                result.add("warnings", new JsonArray());
+                byte[] resultBytes = result.toString().getBytes(StandardCharsets.UTF_8);
+
+                return errors.size() == 0
+                    ? new HttpResponse(200, resultBytes, new HashMap<>(), new byte[0])
+                    : new HttpResponse(400, new byte[0], new HashMap<>(), resultBytes);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            finally
+            {
+                this.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static RegistryManager createRegistryManager(HttpTransport hub)
+    {
+        return new RegistryManager(CONNECTION_STRING, RegistryManagerOptions.builder().httpTransport(hub).build());
+    }
+
+    private static List<Device> createDevices(String prefix, int count)
+    {
+        List<Device> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            devices.add(Device.createFromId(prefix + i, null, null));
+        }
+
+        return devices;
+    }
+
+    @Test
+    public void addDevicesSendsUpTo100DevicesPerRequest() throws Exception
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+
+        // Act
+        BulkRegistryOperationResult result = createRegistryManager(hub).addDevices(createDevices("device", 250));
+
+        // Assert
+        assertTrue(result.isSuccessful());
+        assertEquals(250, result.getSucceededDeviceIds().size());
+        assertEquals("device0", result.getSucceededDeviceIds().get(0));
+        assertEquals("device249", result.getSucceededDeviceIds().get(249));
+
+        List<Integer> requestSizes = new ArrayList<>();
+        for (JsonArray request : hub.requests)
+        {
+            requestSizes.add(request.size());
+            for (JsonElement device : request)
+            {
+                assertEquals("Create", device.getAsJsonObject().get("importMode").getAsString());
+                assertTrue(device.getAsJsonObject().has("authentication"));
+            }
+        }
+
+        Collections.sort(requestSizes);
+        assertEquals(Arrays.asList(50, 100, 100), requestSizes);
+    }
+
+    @Test
+    public void requestsAreSentConcurrentlyUpToTheLimit() throws Exception
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+
+        // Act
+        createRegistryManager(hub).updateDevices(createDevices("device", 1000), 3);
+
+        // Assert
+        assertEquals(10, hub.requests.size());
+        assertEquals(3, hub.maxInFlight.get());
+    }
+
+    @Test
+    public void devicesRejectedByTheServiceAreReportedAsErrors() throws Exception
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+        List<Device> devices = createDevices("device", 150);
+        devices.add(10, Device.createFromId("existing0", null, null));
+        devices.add(Device.createFromId("existing1", null, null));
+
+        // Act
+        BulkRegistryOperationResult result = createRegistryManager(hub).addDevices(devices);
+
+        // Assert
+        assertFalse(result.isSuccessful());
+        assertEquals(150, result.getSucceededDeviceIds().size());
+        assertEquals(Arrays.asList("existing0", "existing1"), new ArrayList<>(result.getErrors().keySet()));
+
+        DeviceRegistryOperationError error = result.getErrors().get("existing1");
+        assertEquals("existing1", error.getDeviceId());
+        assertEquals("DeviceAlreadyExists", error.getErrorCode());
+        assertNull(error.getException());
+    }
+
+    @Test
+    public void requestThatFailsAsAWholeDoesNotStopTheOthers() throws Exception
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+        List<Device> devices = createDevices("device", 100);
+        devices.addAll(createDevices("throttled", 100));
+
+        // Act
+        BulkRegistryOperationResult result = createRegistryManager(hub).addDevices(devices);
+
+        // Assert
+        assertEquals(100, result.getSucceededDeviceIds().size());
+        assertEquals(100, result.getErrors().size());
+        for (DeviceRegistryOperationError error : result.getErrors().values())
+        {
+            assertTrue(error.getDeviceId().startsWith("throttled"));
+            assertTrue(error.getException() instanceof IotHubTooManyRequestsException);
+            assertNull(error.getErrorCode());
+        }
+    }
+
+    @Test
+    public void removeDevicesOnlyMatchesETagsThatAreSet() throws Exception
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+        List<Device> devices = createDevices("device", 3);
+        Deencapsulation.setField(devices.get(1), "eTag", "MQ==");
+        Deencapsulation.setField(devices.get(2), "eTag", "*");
+
+        // Act
+        BulkRegistryOperationResult result = createRegistryManager(hub).removeDevices(devices);
+
+        // Assert
+        assertTrue(result.isSuccessful());
+        JsonArray request = hub.requests.peek();
+        assertEquals("Delete", request.get(0).getAsJsonObject().get("importMode").getAsString());
+        assertEquals("DeleteIfMatchETag", request.get(1).getAsJsonObject().get("importMode").getAsString());
+        assertEquals("MQ==", request.get(1).getAsJsonObject().get("eTag").getAsString());
+        assertEquals("Delete", request.get(2).getAsJsonObject().get("importMode").getAsString());
+    }
+
+    @Test
+    public void updateDevicesKeepsEdgeCapabilityAndScopesInTheRequestBody() throws Exception
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+        List<Device> devices = createDevices("device", 2);
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+        capabilities.setIotEdge(true);
+        devices.get(0).setCapabilities(capabilities);
+        devices.get(0).setScope("ms-azure-iot-edge://edge-1234");
+        devices.get(1).setScope("ms-azure-iot-edge://parent-5678");
+        devices.get(1).getParentScopes().add("ms-azure-iot-edge://parent-5678");
+
+        // Act
+        BulkRegistryOperationResult result = createRegistryManager(hub).updateDevices(devices);
+
+        // Assert
+        assertTrue(result.isSuccessful());
+        JsonArray request = hub.requests.peek();
+        JsonObject edgeDevice = request.get(0).getAsJsonObject();
+        assertEquals("Update", edgeDevice.get("importMode").getAsString());
+        assertTrue(edgeDevice.getAsJsonObject("capabilities").get("iotEdge").getAsBoolean());
+        assertEquals("ms-azure-iot-edge://edge-1234", edgeDevice.get("deviceScope").getAsString());
+        JsonObject leafDevice = request.get(1).getAsJsonObject();
+        assertEquals("ms-azure-iot-edge://parent-5678", leafDevice.get("deviceScope").getAsString());
+        assertEquals(1, leafDevice.getAsJsonArray("parentScopes").size());
+        assertEquals("ms-azure-iot-edge://parent-5678", leafDevice.getAsJsonArray("parentScopes").get(0).getAsString());
+    }
+
+    @Test
+    public void emptyCollectionSendsNothing() throws Exception
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+
+        // Act
+        BulkRegistryOperationResult result = createRegistryManager(hub).addDevices(Collections.emptyList());
+
+        // Assert
+        assertTrue(result.isSuccessful());
+        assertTrue(hub.requests.isEmpty());
+    }
+
+    @Test
+    public void invalidArgumentsThrowBeforeAnythingIsSent()
+    {
+        // Arrange
+        BulkStubHub hub = new BulkStubHub();
+        RegistryManager registryManager = createRegistryManager(hub);
+        List<Device> duplicates = createDevices("device", 3);
+        duplicates.add(Device.createFromId("device1", null, null));
+
+        // Act / Assert
+        assertThrows(IllegalArgumentException.class, () -> registryManager.addDevices(null));
+        assertThrows(IllegalArgumentException.class, () -> registryManager.addDevices(Arrays.asList(Device.createFromId("device0", null, null), null)));
+        assertThrows(IllegalArgumentException.class, () -> registryManager.addDevices(duplicates));
+        assertThrows(IllegalArgumentException.class, () -> registryManager.addDevices(createDevices("device", 3), 0));
+        assertTrue(hub.requests.isEmpty());
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
+import org.junit.jupiter.api.Test;
+
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the read-through cache of RegistryManager, run against a stub hub rather than mocks.
+ */
+public class RegistryManagerCacheTest
+{
+    private static final String CONNECTION_STRING = "HostName=test.azure-devices.net;SharedAccessKeyName=iothubowner;SharedAccessKey="
+        + encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+
+    /**
+     * Stores devices and modules by path, answers lookups with a 304 when the If-None-Match header matches, and
+     * changes the eTag of an entry each time it is written.
+     */
+    private static class RegistryStubHub implements HttpTransport
+    {
+        private final Map<String, JsonObject> entries = new ConcurrentHashMap<>();
+        private final AtomicInteger eTagCounter = new AtomicInteger();
+        private final AtomicInteger getCount = new AtomicInteger();
+        private final AtomicInteger notModifiedCount = new AtomicInteger();
+
+        void store(String path, String json)
+        {
+            JsonObject entry = new JsonParser().parse(json).getAsJsonObject();
+            entry.addProperty("etag", "etag" + this.eTagCounter.incrementAndGet());
+            this.entries.put(path, entry);
+        }
+
+        @Override
+        public HttpResponse send(URL url, HttpMethod method, byte[] body, Map<String, String> headers, Proxy proxy, int connectTimeoutMillis, int readTimeoutMillis)
+        {
+            String path = url.getPath();
+            if (method == HttpMethod.PUT)
+            {
+                store(path, new String(body, StandardCharsets.UTF_8));
+            }
+            else if (method == HttpMethod.DELETE)
+            {
+                this.entries.remove(path);
+                return new HttpResponse(204, new byte[0], new HashMap<>(), new byte[0]);
+            }
+            else
+            {
+                this.getCount.incrementAndGet();
+            }
+
+            JsonObject entry = this.entries.get(path);
+            if (entry == null)
+            {
+                return new HttpResponse(404, new byte[0], new HashMap<>(), "{\"Message\":\"ErrorCode:DeviceNotFound;Not found\"}".getBytes(StandardCharsets.UTF_8));
+            }
+
+            String quotedETag = "\"" + entry.get("etag").getAsString() + "\"";
+            if (method == HttpMethod.GET && quotedETag.equals(headers.get("If-None-Match")))
+            {
+                this.notModifiedCount.incrementAndGet();
+                return new HttpResponse(304, new byte[0], new HashMap<>(), new byte[0]);
+            }
+
+            return new HttpResponse(200, entry.toString().getBytes(StandardCharsets.UTF_8), new HashMap<>(), new byte[0]);
+        }
+    }
+
+    private static RegistryManager createRegistryManager(HttpTransport hub, long timeToLiveMillis)
+    {
+        RegistryManagerOptions options = RegistryManagerOptions.builder()
+            .httpTransport(hub)
+            .cacheOptions(RegistryCacheOptions.builder().timeToLiveMillis(timeToLiveMillis).build())
+            .build();
+
+        return new RegistryManager(CONNECTION_STRING, options);
+    }
+
+    private static RegistryStubHub createHubWithDevice(String deviceId)
+    {
+        RegistryStubHub hub = new RegistryStubHub();
+        hub.store("/devices/" + deviceId, Device.createFromId(deviceId, null, null).toDeviceParser().toJson());
+        return hub;
+    }
+
+    @Test
+    public void repeatedLookupsAreServedFromTheCache() throws Exception
+    {
+        // Arrange
+        RegistryStubHub hub = createHubWithDevice("device1");
+        RegistryManager registryManager = createRegistryManager(hub, 60000);
+
+        // Act
+        Device first = registryManager.getDevice("device1");
+        Device second = registryManager.getDevice("device1");
+        Device third = registryManager.getDevice("device1");
+
+        // Assert
+        assertEquals(1, hub.getCount.get());
+        assertEquals("device1", third.getDeviceId());
+        assertEquals(first.getPrimaryKey(), second.getPrimaryKey());
+        assertEquals(first.geteTag(), third.geteTag());
+
+        RegistryCacheStatistics statistics = registryManager.getCacheStatistics();
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(2.0 / 3, statistics.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void expiredEntryIsRevalidatedWithItsETag() throws Exception
+    {
+        // Arrange
+        RegistryStubHub hub = createHubWithDevice("device1");
+        RegistryManager registryManager = createRegistryManager(hub, 100);
+        registryManager.getDevice("device1");
+
+        // Act
+        Thread.sleep(150);
+        Device revalidated = registryManager.getDevice("device1");
+        Device cached = registryManager.getDevice("device1");
+
+        // Assert
+        assertEquals("device1", revalidated.getDeviceId());
+        assertEquals("device1", cached.getDeviceId());
+        assertEquals(2, hub.getCount.get());
+        assertEquals(1, hub.notModifiedCount.get());
+        assertEquals(1, registryManager.getCacheStatistics().getRevalidationCount());
+    }
+
+    @Test
+    public void expiredEntryThatChangedIsDownloadedAgain() throws Exception
+    {
+        // Arrange
+        RegistryStubHub hub = createHubWithDevice("device1");
+        RegistryManager registryManager = createRegistryManager(hub, 100);
+        String firstETag = registryManager.getDevice("device1").geteTag();
+
+        // Act
+        Device disabled = Device.createFromId("device1", DeviceStatus.Disabled, null);
+        hub.store("/devices/device1", disabled.toDeviceParser().toJson());
+        Thread.sleep(150);
+        Device changed = registryManager.getDevice("device1");
+
+        // Assert
+        assertEquals(DeviceStatus.Disabled, changed.getStatus());
+        assertEquals(0, hub.notModifiedCount.get());
+        assertEquals(2, registryManager.getCacheStatistics().getMissCount());
+        assertNotEquals(firstETag, changed.geteTag());
+    }
+
+    @Test
+    public void updateThroughTheSameRegistryManagerReplacesTheCachedEntry() throws Exception
+    {
+        // Arrange
+        RegistryStubHub hub = createHubWithDevice("device1");
+        RegistryManager registryManager = createRegistryManager(hub, 60000);
+        Device device = registryManager.getDevice("device1");
+
+        // Act
+        device.setStatus(DeviceStatus.Disabled);
+        registryManager.updateDevice(device);
+        Device updated = registryManager.getDevice("device1");
+
+        // Assert
+        assertEquals(DeviceStatus.Disabled, updated.getStatus());
+        assertEquals(1, hub.getCount.get());
+    }
+
+    @Test
+    public void removeThroughTheSameRegistryManagerInvalidatesTheDeviceAndItsModules() throws Exception
+    {
+        // Arrange
+        RegistryStubHub hub = createHubWithDevice("device1");
+        hub.store("/devices/device1/modules/module1", Module.createFromId("device1", "module1", null).toDeviceParser().toJson());
+        RegistryManager registryManager = createRegistryManager(hub, 60000);
+        registryManager.getDevice("device1");
+        assertEquals("module1", registryManager.getModule("device1", "module1").getId());
+        hub.entries.remove("/devices/device1/modules/module1");
+
+        // Act
+        registryManager.removeDevice("device1");
+
+        // Assert
+        assertThrows(IotHubNotFoundException.class, () -> registryManager.getDevice("device1"));
+        assertThrows(IotHubNotFoundException.class, () -> registryManager.getModule("device1", "module1"));
+        assertEquals(4, hub.getCount.get());
+    }
+
+    @Test
+    public void changingAnObjectReturnedFromTheCacheDoesNotChangeTheCachedEntry() throws Exception
+    {
+        // Arrange
+        RegistryStubHub hub = createHubWithDevice("device1");
+        RegistryManager registryManager = createRegistryManager(hub, 60000);
+
+        // Act
+        registryManager.getDevice("device1").setStatus(DeviceStatus.Disabled);
+        Device cached = registryManager.getDevice("device1");
+
+        // Assert
+        assertEquals(DeviceStatus.Enabled, cached.getStatus());
+    }
+
+    @Test
+    public void cacheIsDisabledByDefault() throws Exception
+    {
+        // Arrange
+        RegistryStubHub hub = createHubWithDevice("device1");
+        RegistryManager registryManager = new RegistryManager(CONNECTION_STRING, RegistryManagerOptions.builder().httpTransport(hub).build());
+
+        // Act
+        registryManager.getDevice("device1");
+        registryManager.getDevice("device1");
+
+        // Assert
+        assertEquals(2, hub.getCount.get());
+        assertNull(registryManager.getCacheStatistics());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.auth;
+
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for IotHubServiceSasTokenCache.
+ */
+public class IotHubServiceSasTokenCacheTest
+{
+    private static IotHubConnectionString createConnectionString(String keyName) throws IOException
+    {
+        String sharedAccessKey = encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+        return IotHubConnectionStringBuilder.createConnectionString(
+            "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=" + keyName + ";SharedAccessKey=" + sharedAccessKey);
+    }
+
+    @Test
+    public void tokenIsReusedForEquivalentConnectionStrings() throws IOException
+    {
+        // Arrange
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache();
+
+        // Act
+        String token = cache.getSasToken(createConnectionString("ACCESSKEYNAME"));
+        String token2 = cache.getSasToken(createConnectionString("ACCESSKEYNAME"));
+
+        // Assert
+        assertSame(token, token2);
+        assertTrue(token.startsWith("SharedAccessSignature "));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void tokensAreCachedPerKeyName() throws IOException
+    {
+        // Arrange
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache();
+
+        // Act
+        String token = cache.getSasToken(createConnectionString("ACCESSKEYNAME"));
+        String token2 = cache.getSasToken(createConnectionString("OTHERKEYNAME"));
+
+        // Assert
+        assertNotEquals(token, token2);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void tokenIsRenewedOnceRenewalFractionOfLifetimeHasPassed() throws IOException, InterruptedException
+    {
+        // Arrange
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache(Double.MIN_VALUE);
+        IotHubConnectionString connectionString = createConnectionString("ACCESSKEYNAME");
+        cache.getSasToken(connectionString);
+        Thread.sleep(5);
+
+        // Act
+        cache.getSasToken(connectionString);
+
+        // Assert
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void clearForcesNewToken() throws IOException
+    {
+        // Arrange
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache();
+        IotHubConnectionString connectionString = createConnectionString("ACCESSKEYNAME");
+        cache.getSasToken(connectionString);
+
+        // Act
+        cache.clear();
+        cache.getSasToken(connectionString);
+
+        // Assert
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void renewalFractionMustBeWithinRange()
+    {
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> new IotHubServiceSasTokenCache(0));
+        assertThrows(IllegalArgumentException.class, () -> new IotHubServiceSasTokenCache(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new IotHubServiceSasTokenCache(Double.NaN));
+        assertEquals(1, new IotHubServiceSasTokenCache(1).getRenewalFraction(), 0);
+    }
+
+    @Test
+    public void getSasTokenThrowsForNullConnectionString()
+    {
+        // Arrange
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache();
+
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> cache.getSasToken(null));
+    }
+}
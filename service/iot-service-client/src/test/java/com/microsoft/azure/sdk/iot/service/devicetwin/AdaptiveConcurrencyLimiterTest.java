@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for AdaptiveConcurrencyLimiter
+ */
+public class AdaptiveConcurrencyLimiterTest
+{
+    @Test
+    public void constructorThrowsOnNonPositiveMaxLimit()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(0));
+    }
+
+    @Test
+    public void throttlingHalvesTheLimitOncePerGeneration() throws InterruptedException
+    {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8);
+        long firstGeneration = limiter.acquire();
+        long secondGeneration = limiter.acquire();
+
+        // Act
+        limiter.onThrottled(firstGeneration);
+        limiter.onThrottled(secondGeneration);
+
+        // Assert
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void throttlingNeverLowersTheLimitBelowOne() throws InterruptedException
+    {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2);
+
+        // Act
+        limiter.onThrottled(limiter.acquire());
+        limiter.onThrottled(limiter.acquire());
+        limiter.onThrottled(limiter.acquire());
+
+        // Assert
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void successesGrowTheLimitBackToTheMaximum() throws InterruptedException
+    {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4);
+        limiter.onThrottled(limiter.acquire());
+        assertEquals(2, limiter.getLimit());
+
+        // Act
+        for (int i = 0; i < 20; i++)
+        {
+            limiter.acquire();
+            limiter.onSuccess();
+        }
+
+        // Assert
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void failuresDoNotChangeTheLimit() throws InterruptedException
+    {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4);
+
+        // Act
+        limiter.acquire();
+        limiter.onFailure();
+
+        // Assert
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void acquireWaitsWhileTheLimitIsReached() throws InterruptedException
+    {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1);
+        limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() ->
+        {
+            try
+            {
+                limiter.acquire();
+                acquired.countDown();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Act
+        waiter.start();
+        boolean acquiredBeforeRelease = acquired.await(200, TimeUnit.MILLISECONDS);
+        limiter.onSuccess();
+        boolean acquiredAfterRelease = acquired.await(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertFalse(acquiredBeforeRelease);
+        assertTrue(acquiredAfterRelease);
+        waiter.join();
+    }
+}
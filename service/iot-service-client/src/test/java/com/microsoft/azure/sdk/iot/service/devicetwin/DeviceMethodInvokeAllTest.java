@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
+import org.junit.jupiter.api.Test;
+
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for DeviceMethod.invokeAll, run against a stub hub rather than mocks.
+ */
+public class DeviceMethodInvokeAllTest
+{
+    private static final String CONNECTION_STRING = "HostName=test.azure-devices.net;SharedAccessKeyName=iothubowner;SharedAccessKey="
+        + encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+
+    /**
+     * Answers each method invocation after a short delay, and throttles any invocation sent while {@code capacity}
+     * invocations are already in flight.
+     */
+    private static class ThrottlingStubHub implements HttpTransport
+    {
+        private final int capacity;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger throttledCount = new AtomicInteger();
+        private final AtomicInteger invokedCount = new AtomicInteger();
+
+        ThrottlingStubHub(int capacity)
+        {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public HttpResponse send(URL url, HttpMethod method, byte[] body, Map<String, String> headers, Proxy proxy, int connectTimeoutMillis, int readTimeoutMillis)
+        {
+            try
+            {
+                if (this.inFlight.incrementAndGet() > this.capacity)
+                {
+                    this.throttledCount.incrementAndGet();
+                    return new HttpResponse(429, new byte[0], new HashMap<>(), "{\"Message\":\"ErrorCode:ThrottlingException;Throttled\"}".getBytes(StandardCharsets.UTF_8));
+                }
+
+                if (url.getPath().contains("/twins/missing/"))
+                {
+                    return new HttpResponse(404, new byte[0], new HashMap<>(), "{\"Message\":\"ErrorCode:DeviceNotFound;Not found\"}".getBytes(StandardCharsets.UTF_8));
+                }
+
+                Thread.sleep(20);
+                this.invokedCount.incrementAndGet();
+                return new HttpResponse(200, "{\"status\":200,\"payload\":\"done\"}".getBytes(StandardCharsets.UTF_8), new HashMap<>(), new byte[0]);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return new HttpResponse(500, new byte[0], new HashMap<>(), new byte[0]);
+            }
+            finally
+            {
+                this.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static DeviceMethod createDeviceMethod(HttpTransport hub)
+    {
+        return new DeviceMethod(CONNECTION_STRING, DeviceMethodClientOptions.builder().httpTransport(hub).build());
+    }
+
+    private static List<String> deviceIds(int count)
+    {
+        List<String> deviceIds = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            deviceIds.add("device" + i);
+        }
+
+        return deviceIds;
+    }
+
+    @Test
+    public void invokeAllReturnsAResultForEachDevice() throws Exception
+    {
+        // Arrange
+        ThrottlingStubHub hub = new ThrottlingStubHub(Integer.MAX_VALUE);
+        List<String> deviceIds = deviceIds(50);
+
+        // Act
+        Map<String, MethodInvocationResult> results = createDeviceMethod(hub)
+            .invokeAll(deviceIds, "reboot", 5L, 5L, null, 8)
+            .get(30, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(50, results.size());
+        for (String deviceId : deviceIds)
+        {
+            MethodInvocationResult result = results.get(deviceId);
+            assertEquals(deviceId, result.getDeviceId());
+            assertTrue(result.isSuccessful());
+            assertEquals(200, (int) result.getMethodResult().getStatus());
+            assertEquals("done", result.getMethodResult().getPayload());
+        }
+    }
+
+    @Test
+    public void invokeAllBacksOffAndRetriesThrottledInvocations() throws Exception
+    {
+        // Arrange
+        ThrottlingStubHub hub = new ThrottlingStubHub(4);
+        List<String> deviceIds = deviceIds(100);
+
+        // Act
+        Map<String, MethodInvocationResult> results = createDeviceMethod(hub)
+            .invokeAll(deviceIds, "reboot", 5L, 5L, null, 16)
+            .get(60, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(hub.throttledCount.get() > 0);
+        assertEquals(100, hub.invokedCount.get());
+        for (String deviceId : deviceIds)
+        {
+            assertTrue(results.get(deviceId).isSuccessful());
+        }
+    }
+
+    @Test
+    public void invokeAllReportsFailuresPerDevice() throws Exception
+    {
+        // Arrange
+        ThrottlingStubHub hub = new ThrottlingStubHub(Integer.MAX_VALUE);
+
+        // Act
+        Map<String, MethodInvocationResult> results = createDeviceMethod(hub)
+            .invokeAll(Arrays.asList("device", "missing"), "reboot", 5L, 5L, null, 2)
+            .get(30, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(results.get("device").isSuccessful());
+        assertFalse(results.get("missing").isSuccessful());
+        assertNull(results.get("missing").getMethodResult());
+        assertTrue(results.get("missing").getException() instanceof IotHubNotFoundException);
+    }
+
+    @Test
+    public void invokeAllGivesUpOnInvocationsThatAreAlwaysThrottled() throws Exception
+    {
+        // Arrange
+        ThrottlingStubHub hub = new ThrottlingStubHub(0);
+
+        // Act
+        Map<String, MethodInvocationResult> results = createDeviceMethod(hub)
+            .invokeAll(Collections.singletonList("device"), "reboot", 5L, 5L, null, 1)
+            .get(60, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(10, hub.throttledCount.get());
+        assertTrue(results.get("device").getException() instanceof IotHubTooManyRequestsException);
+    }
+
+    @Test
+    public void invokeAllCallsTheResultCallbackOncePerDevice() throws Exception
+    {
+        // Arrange
+        ThrottlingStubHub hub = new ThrottlingStubHub(Integer.MAX_VALUE);
+        AtomicInteger callbackCount = new AtomicInteger();
+
+        // Act
+        createDeviceMethod(hub)
+            .invokeAll(Arrays.asList("device1", "device2", "device1"), "reboot", 5L, 5L, null, 4, result -> callbackCount.incrementAndGet())
+            .get(30, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(2, callbackCount.get());
+        assertEquals(2, hub.invokedCount.get());
+    }
+
+    @Test
+    public void invokeAllCompletesImmediatelyForNoDevices() throws Exception
+    {
+        // Act
+        Map<String, MethodInvocationResult> results = createDeviceMethod(new ThrottlingStubHub(1))
+            .invokeAll(Collections.<String>emptyList(), "reboot", 5L, 5L, null, 4)
+            .get(1, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void invokeAllThrowsOnInvalidArguments()
+    {
+        // Arrange
+        DeviceMethod deviceMethod = createDeviceMethod(new ThrottlingStubHub(1));
+
+        // Act / Assert
+        assertThrows(IllegalArgumentException.class, () -> deviceMethod.invokeAll(null, "reboot", 5L, 5L, null, 4));
+        assertThrows(IllegalArgumentException.class, () -> deviceMethod.invokeAll(Collections.singletonList("device"), "", 5L, 5L, null, 4));
+        assertThrows(IllegalArgumentException.class, () -> deviceMethod.invokeAll(Collections.singletonList("device"), "reboot", 5L, 5L, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> deviceMethod.invokeAll(Collections.singletonList(""), "reboot", 5L, 5L, null, 4));
+    }
+}
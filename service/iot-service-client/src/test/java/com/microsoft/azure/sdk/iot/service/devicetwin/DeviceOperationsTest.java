@@ -6,6 +6,7 @@ package com.microsoft.azure.sdk.iot.service.devicetwin;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubBadFormatException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
@@ -64,6 +65,9 @@ public class DeviceOperationsTest
     {
         IOT_HUB_CONNECTION_STRING = IotHubConnectionStringBuilder.createConnectionString(STANDARD_CONNECTIONSTRING);
         STANDARD_SASTOKEN_STRING = (new IotHubServiceSasToken(IOT_HUB_CONNECTION_STRING)).toString();
+
+        // requests sign their tokens through the shared cache, so don't let a token cached by one test leak into the next
+        IotHubServiceSasTokenCache.getSharedInstance().clear();
     }
 
     /* Tests_SRS_DEVICE_OPERATIONS_21_001: [The request shall throw IllegalArgumentException if the provided `iotHubConnectionString` is null.] */
@@ -687,7 +691,7 @@ public class DeviceOperationsTest
                 STANDARD_REQUEST_ID,
                 0);
 
-        assertNull(Deencapsulation.getField(DeviceOperations.class, "headers"));
+        assertNull(((ThreadLocal<?>) Deencapsulation.getField(DeviceOperations.class, "headers")).get());
 
         //assert
         new Verifications()
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubInternalServerErrorException;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.HttpTransport;
+import org.junit.jupiter.api.Test;
+
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for PrefetchingQueryIterator, run against a stub hub rather than mocks.
+ */
+public class PrefetchingQueryIteratorTest
+{
+    private static final String CONNECTION_STRING = "HostName=test.azure-devices.net;SharedAccessKeyName=iothubowner;SharedAccessKey="
+        + encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+
+    private static final String CONTINUATION_TOKEN_KEY = "x-ms-continuation";
+    private static final String PAGE_SIZE = "x-ms-max-item-count";
+
+    /**
+     * Serves the pages of a twin query. The continuation token of each page is the index of the next page, and each
+     * request takes {@code latencyMillis} to be answered.
+     */
+    private static class PagingStubHub implements HttpTransport
+    {
+        private final int pageCount;
+        private final long latencyMillis;
+        private final int failingPage;
+        private final AtomicInteger requestCount = new AtomicInteger();
+
+        PagingStubHub(int pageCount, long latencyMillis, int failingPage)
+        {
+            this.pageCount = pageCount;
+            this.latencyMillis = latencyMillis;
+            this.failingPage = failingPage;
+        }
+
+        @Override
+        public HttpResponse send(URL url, HttpMethod method, byte[] body, Map<String, String> headers, Proxy proxy, int connectTimeoutMillis, int readTimeoutMillis)
+        {
+            this.requestCount.incrementAndGet();
+            try
+            {
+                Thread.sleep(this.latencyMillis);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            int page = headers.containsKey(CONTINUATION_TOKEN_KEY) ? Integer.parseInt(headers.get(CONTINUATION_TOKEN_KEY)) : 0;
+            if (page == this.failingPage)
+            {
+                return new HttpResponse(500, new byte[0], new HashMap<>(), "{\"Message\":\"ErrorCode:ServerError;Failed\"}".getBytes(StandardCharsets.UTF_8));
+            }
+
+            int pageSize = Integer.parseInt(headers.get(PAGE_SIZE));
+            StringBuilder twins = new StringBuilder("[");
+            for (int i = 0; i < pageSize; i++)
+            {
+                twins.append(i == 0 ? "" : ",")
+                    .append("{\"deviceId\":\"device").append(page * pageSize + i).append("\",\"etag\":\"AAAAAAAAAAE=\",\"properties\":{\"desired\":{},\"reported\":{}}}");
+            }
+            twins.append("]");
+
+            Map<String, List<String>> responseHeaders = new HashMap<>();
+            responseHeaders.put("x-ms-item-type", Collections.singletonList("twin"));
+            if (page + 1 < this.pageCount)
+            {
+                responseHeaders.put(CONTINUATION_TOKEN_KEY, Collections.singletonList(String.valueOf(page + 1)));
+            }
+
+            return new HttpResponse(200, twins.toString().getBytes(StandardCharsets.UTF_8), responseHeaders, new byte[0]);
+        }
+    }
+
+    private static DeviceTwin createDeviceTwin(HttpTransport hub)
+    {
+        return new DeviceTwin(CONNECTION_STRING, DeviceTwinClientOptions.builder().httpTransport(hub).build());
+    }
+
+    @Test
+    public void streamReturnsEveryTwinInOrder() throws Exception
+    {
+        // Arrange
+        PagingStubHub hub = new PagingStubHub(5, 0, -1);
+
+        // Act
+        List<String> deviceIds;
+        try (Stream<DeviceTwinDevice> twins = createDeviceTwin(hub).queryTwinStream("SELECT * FROM devices", 10, QueryPrefetchOptions.builder().build()))
+        {
+            deviceIds = twins.map(DeviceTwinDevice::getDeviceId).collect(Collectors.toList());
+        }
+
+        // Assert
+        assertEquals(50, deviceIds.size());
+        for (int i = 0; i < 50; i++)
+        {
+            assertEquals("device" + i, deviceIds.get(i));
+        }
+
+        assertEquals(5, hub.requestCount.get());
+    }
+
+    @Test
+    public void pagesAreFetchedWhileTheCurrentPageIsConsumed() throws Exception
+    {
+        // Arrange
+        final int pageCount = 6;
+        final long latencyMillis = 100;
+        final long consumeMillisPerPage = 100;
+        PagingStubHub hub = new PagingStubHub(pageCount, latencyMillis, -1);
+        Query query = createDeviceTwin(hub).queryTwin("SELECT * FROM devices", 2);
+        long start = System.nanoTime();
+
+        // Act
+        PrefetchingQueryIterator<String> iterator = new PrefetchingQueryIterator<>(query, json -> json, QueryPrefetchOptions.builder().prefetchDepth(2).build());
+        int count = 0;
+        while (iterator.hasNext())
+        {
+            iterator.next();
+            if (++count % 2 == 0)
+            {
+                Thread.sleep(consumeMillisPerPage);
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert
+        assertEquals(pageCount * 2, count);
+
+        // Fetching and consuming serially would take pageCount * (latency + consume). With prefetching, the
+        // consumption overlaps with fetching, so it takes about (pageCount + 1) * latency
+        long serialMillis = pageCount * (latencyMillis + consumeMillisPerPage);
+        assertTrue("Took " + elapsedMillis + " milliseconds", elapsedMillis < serialMillis - 3 * latencyMillis);
+    }
+
+    @Test
+    public void prefetchingStopsAtTheMaxBufferedItems() throws Exception
+    {
+        // Arrange
+        PagingStubHub hub = new PagingStubHub(20, 0, -1);
+        Query query = createDeviceTwin(hub).queryTwin("SELECT * FROM devices", 10);
+
+        // Act
+        PrefetchingQueryIterator<String> iterator = new PrefetchingQueryIterator<>(
+            query,
+            json -> json,
+            QueryPrefetchOptions.builder().prefetchDepth(10).maxBufferedItems(20).build());
+        iterator.next();
+        Thread.sleep(500);
+        int requestsWhileIdle = hub.requestCount.get();
+        iterator.close();
+
+        // Assert
+        // The first page is being consumed, and at most 2 pages of 10 are buffered behind it
+        assertEquals(3, requestsWhileIdle);
+    }
+
+    @Test
+    public void failureIsThrownAfterThePagesBeforeIt() throws Exception
+    {
+        // Arrange
+        PagingStubHub hub = new PagingStubHub(5, 0, 2);
+        Iterator<DeviceTwinDevice> twins = createDeviceTwin(hub)
+            .queryTwinStream("SELECT * FROM devices", 10, QueryPrefetchOptions.builder().build())
+            .iterator();
+
+        // Act
+        int count = 0;
+        CompletionException exception = null;
+        try
+        {
+            while (twins.hasNext())
+            {
+                twins.next();
+                count++;
+            }
+        }
+        catch (CompletionException e)
+        {
+            exception = e;
+        }
+
+        // Assert
+        assertEquals(20, count);
+        assertTrue(exception != null && exception.getCause() instanceof IotHubInternalServerErrorException);
+    }
+
+    @Test
+    public void queryCollectionCanBeStreamed() throws Exception
+    {
+        // Arrange
+        PagingStubHub hub = new PagingStubHub(3, 0, -1);
+        DeviceTwin deviceTwin = createDeviceTwin(hub);
+
+        // Act
+        long count;
+        try (Stream<DeviceTwinDevice> twins = deviceTwin.stream(deviceTwin.queryTwinCollection("SELECT * FROM devices", 5), QueryPrefetchOptions.builder().build()))
+        {
+            count = twins.count();
+        }
+
+        // Assert
+        assertEquals(15, count);
+    }
+
+    @Test
+    public void closedIteratorThrows() throws Exception
+    {
+        // Arrange
+        PagingStubHub hub = new PagingStubHub(3, 0, -1);
+        PrefetchingQueryIterator<String> iterator = new PrefetchingQueryIterator<>(
+            createDeviceTwin(hub).queryTwin("SELECT * FROM devices", 5),
+            json -> json,
+            QueryPrefetchOptions.builder().build());
+
+        // Act
+        iterator.close();
+
+        // Assert
+        assertThrows(IllegalStateException.class, iterator::hasNext);
+    }
+
+    @Test
+    public void constructorThrowsOnInvalidOptions() throws Exception
+    {
+        // Arrange
+        Query query = createDeviceTwin(new PagingStubHub(1, 0, -1)).queryTwin("SELECT * FROM devices", 5);
+
+        // Act / Assert
+        assertThrows(IllegalArgumentException.class, () -> new PrefetchingQueryIterator<>(query, json -> json, QueryPrefetchOptions.builder().prefetchDepth(0).build()));
+        assertThrows(IllegalArgumentException.class, () -> new PrefetchingQueryIterator<>(query, json -> json, QueryPrefetchOptions.builder().maxBufferedItems(0).build()));
+        assertThrows(IllegalArgumentException.class, () -> new PrefetchingQueryIterator<>(query, null, QueryPrefetchOptions.builder().build()));
+        assertThrows(IllegalArgumentException.class, () -> new PrefetchingQueryIterator<>((Query) null, json -> json, QueryPrefetchOptions.builder().build()));
+    }
+}
@@ -11,7 +11,9 @@ import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 import static org.junit.Assert.assertEquals;
@@ -140,4 +142,25 @@ public class QueryCollectionResponseTest
         //assert
         assertEquals(expectedList, actualCollection);
     }
+
+    @Test
+    public void constructorFromBodyParsesEachElement()
+    {
+        //arrange
+        byte[] body = "[{\"deviceId\":\"devA\"},{\"deviceId\":\"devB\"}]".getBytes(StandardCharsets.UTF_8);
+
+        //act
+        QueryCollectionResponse actualResponse = Deencapsulation.newInstance(QueryCollectionResponse.class, new Class[] {byte[].class, String.class}, body, "some continuation token");
+
+        //assert
+        assertEquals(Arrays.asList("{\"deviceId\":\"devA\"}", "{\"deviceId\":\"devB\"}"), new ArrayList<>(actualResponse.getCollection()));
+        assertEquals("some continuation token", actualResponse.getContinuationToken());
+    }
+
+    @Test
+    public void constructorFromBodyThrowsForEmptyBody()
+    {
+        assertThrows(IllegalArgumentException.class, () ->
+            Deencapsulation.newInstance(QueryCollectionResponse.class, new Class[] {byte[].class, String.class}, new byte[0], "some continuation token"));
+    }
 }
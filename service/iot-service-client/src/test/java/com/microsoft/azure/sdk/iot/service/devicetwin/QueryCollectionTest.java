@@ -482,7 +482,7 @@ public class QueryCollectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(QueryCollectionResponse.class, new Class[] {String.class, String.class}, expectedQueryStringJson, expectedResponseContinuationToken);
+                Deencapsulation.newInstance(QueryCollectionResponse.class, new Class[] {byte[].class, String.class}, expectedQueryStringBytes, expectedResponseContinuationToken);
                 times = 1;
             }
         };
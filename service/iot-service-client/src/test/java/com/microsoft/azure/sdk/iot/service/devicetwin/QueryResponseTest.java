@@ -12,6 +12,7 @@ import mockit.NonStrictExpectations;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -197,4 +198,26 @@ public class QueryResponseTest
             assertNull(testResponse.next());
         });
     }
+
+    @Test
+    public void constructorFromBodyReadsElementsAsTheyAreIterated()
+    {
+        //arrange
+        final byte[] body = "[{\"deviceId\":\"devA\"},{\"deviceId\":\"devB\"}]".getBytes(StandardCharsets.UTF_8);
+
+        //act
+        QueryResponse testResponse = Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, body);
+
+        //assert
+        assertTrue(testResponse.hasNext());
+        assertEquals("{\"deviceId\":\"devA\"}", testResponse.next());
+        assertEquals("{\"deviceId\":\"devB\"}", testResponse.next());
+        assertFalse(testResponse.hasNext());
+    }
+
+    @Test
+    public void constructorFromBodyThrowsOnEmptyBody()
+    {
+        assertThrows(IllegalArgumentException.class, () -> Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, new byte[0]));
+    }
 }
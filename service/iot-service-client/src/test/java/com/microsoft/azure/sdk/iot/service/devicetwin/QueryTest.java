@@ -513,7 +513,7 @@ public class QueryTest
                 {
                     mockHttpResponse.getHeaderFields();
                     result = testHeaderResponseMap;
-                    Deencapsulation.newInstance(QueryResponse.class, anyString);
+                    Deencapsulation.newInstance(QueryResponse.class, new Class[] {byte[].class}, any);
                     result = new IOException("test");
                 }
             };
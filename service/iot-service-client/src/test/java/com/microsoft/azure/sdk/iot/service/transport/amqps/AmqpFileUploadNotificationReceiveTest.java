@@ -6,6 +6,7 @@
 package com.microsoft.azure.sdk.iot.service.transport.amqps;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.FileUploadNotificationParser;
+import com.microsoft.azure.sdk.iot.service.AcknowledgementType;
 import com.microsoft.azure.sdk.iot.service.FileUploadNotification;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import mockit.Deencapsulation;
@@ -24,6 +25,7 @@ import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /** Unit tests for AmqpFileUploadNotificationReceive */
@@ -132,4 +134,49 @@ public class AmqpFileUploadNotificationReceiveTest
         };
     }
 
+    @Test
+    public void startReceivingThrowsForNullCallback()
+    {
+        // Arrange
+        AmqpFileUploadNotificationReceive amqpFileUploadNotificationReceive = new AmqpFileUploadNotificationReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> amqpFileUploadNotificationReceive.startReceiving(null, 10));
+    }
+
+    @Test
+    public void startReceivingThrowsForNonPositivePrefetchCount()
+    {
+        // Arrange
+        AmqpFileUploadNotificationReceive amqpFileUploadNotificationReceive = new AmqpFileUploadNotificationReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> amqpFileUploadNotificationReceive.startReceiving((FileUploadNotification value) -> AcknowledgementType.COMPLETE, 0));
+    }
+
+    @Test
+    public void startReceivingThrowsIfNotOpened()
+    {
+        // Arrange
+        AmqpFileUploadNotificationReceive amqpFileUploadNotificationReceive = new AmqpFileUploadNotificationReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        // Assert
+        assertThrows(IOException.class, () -> amqpFileUploadNotificationReceive.startReceiving((FileUploadNotification value) -> AcknowledgementType.COMPLETE, 10));
+    }
+
+    @Test
+    public void stopReceivingWithoutStartIsNoOp()
+    {
+        // Arrange
+        AmqpFileUploadNotificationReceive amqpFileUploadNotificationReceive = new AmqpFileUploadNotificationReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        amqpFileUploadNotificationReceive.stopReceiving();
+
+        // Assert
+        assertNull(Deencapsulation.getField(amqpFileUploadNotificationReceive, "streamingReceiver"));
+    }
 }
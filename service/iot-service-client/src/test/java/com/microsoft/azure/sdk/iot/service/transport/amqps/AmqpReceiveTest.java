@@ -5,6 +5,8 @@
 
 package com.microsoft.azure.sdk.iot.service.transport.amqps;
 
+import com.microsoft.azure.sdk.iot.service.AcknowledgementType;
+import com.microsoft.azure.sdk.iot.service.FeedbackBatch;
 import com.microsoft.azure.sdk.iot.service.FeedbackBatchMessage;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import mockit.Deencapsulation;
@@ -23,6 +25,7 @@ import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /** Unit tests for AmqpReceive */
@@ -117,4 +120,50 @@ public class AmqpReceiveTest
         // Assert
         assertNotEquals(handler, handler2);
     }
+
+    @Test
+    public void startReceivingThrowsForNullCallback()
+    {
+        // Arrange
+        AmqpReceive amqpReceive = new AmqpReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> amqpReceive.startReceiving(null, 10));
+    }
+
+    @Test
+    public void startReceivingThrowsForNonPositivePrefetchCount()
+    {
+        // Arrange
+        AmqpReceive amqpReceive = new AmqpReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> amqpReceive.startReceiving((FeedbackBatch value) -> AcknowledgementType.COMPLETE, 0));
+    }
+
+    @Test
+    public void startReceivingThrowsIfNotOpened()
+    {
+        // Arrange
+        AmqpReceive amqpReceive = new AmqpReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        // Assert
+        assertThrows(IOException.class, () -> amqpReceive.startReceiving((FeedbackBatch value) -> AcknowledgementType.COMPLETE, 10));
+    }
+
+    @Test
+    public void stopReceivingWithoutStartIsNoOp()
+    {
+        // Arrange
+        AmqpReceive amqpReceive = new AmqpReceive("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        amqpReceive.stopReceiving();
+
+        // Assert
+        assertNull(Deencapsulation.getField(amqpReceive, "streamingReceiver"));
+    }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import mockit.Deencapsulation;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.transport.AmqpError;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Sender;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit tests for AmqpSendConnection */
+public class AmqpSendConnectionTest
+{
+    /**
+     * An open sender link that sends as many messages as it has credit for, recording the delivery tag of each.
+     */
+    private static class StubSenderLink
+    {
+        private final List<String> deliveryTags = new ArrayList<>();
+        private int credit;
+
+        private final Sender sender = stub(Sender.class, (name, args) ->
+        {
+            switch (name)
+            {
+                case "getLocalState":
+                case "getRemoteState":
+                    return EndpointState.ACTIVE;
+                case "getCredit":
+                    return this.credit;
+                case "delivery":
+                    this.deliveryTags.add(new String((byte[]) args[0], StandardCharsets.UTF_8));
+                    return null;
+                case "send":
+                    return args[2];
+                case "advance":
+                    this.credit--;
+                    return true;
+                default:
+                    return null;
+            }
+        });
+
+        private StubSenderLink(int credit)
+        {
+            this.credit = credit;
+        }
+    }
+
+    private interface StubMethod
+    {
+        Object invoke(String name, Object[] args);
+    }
+
+    // Methods that the stub method doesn't handle return null, or the default value of their primitive return type
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubMethod stubMethod)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) ->
+        {
+            Object result = stubMethod.invoke(method.getName(), args);
+            if (result == null && method.getReturnType() == boolean.class)
+            {
+                return false;
+            }
+
+            if (result == null && method.getReturnType() == int.class)
+            {
+                return 0;
+            }
+
+            return result;
+        });
+    }
+
+    private static Event createLinkFlowEvent(final Sender link)
+    {
+        return stub(Event.class, (name, args) -> "getLink".equals(name) ? link : null);
+    }
+
+    private static Event createDeliveryEvent(String deliveryTag, final DeliveryState remoteState, final List<String> settledTags)
+    {
+        final byte[] tag = deliveryTag.getBytes(StandardCharsets.UTF_8);
+        final Delivery delivery = stub(Delivery.class, (name, args) ->
+        {
+            switch (name)
+            {
+                case "getRemoteState":
+                    return remoteState;
+                case "remotelySettled":
+                    return true;
+                case "getTag":
+                    return tag;
+                case "settle":
+                    settledTags.add(deliveryTag);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+
+        return stub(Event.class, (name, args) -> "getDelivery".equals(name) ? delivery : null);
+    }
+
+    private static AmqpSendConnection createConnection()
+    {
+        return new AmqpSendConnection("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null, null);
+    }
+
+    private static AmqpSendConnection createConnection(StubSenderLink link)
+    {
+        AmqpSendConnection connection = createConnection();
+        Deencapsulation.setField(connection, "cloudToDeviceMessageSendingLink", link.sender);
+        return connection;
+    }
+
+    @Test
+    public void connectionIsNotOpenBeforeOpenIsCalled()
+    {
+        // Arrange
+        AmqpSendConnection connection = createConnection();
+
+        // Act
+        // Assert
+        assertFalse(connection.isOpen());
+    }
+
+    @Test
+    public void sendAfterCloseCompletesExceptionally()
+    {
+        // Arrange
+        AmqpSendConnection connection = createConnection();
+        connection.close();
+
+        // Act
+        CompletableFuture<Void> future = connection.send(Proton.message());
+
+        // Assert
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof IOException);
+    }
+
+    @Test
+    public void queuedSendsCompleteExceptionallyWhenReactorStops()
+    {
+        // Arrange
+        AmqpSendConnection connection = createConnection();
+        CompletableFuture<Void> queuedFuture = connection.send(Proton.message());
+        assertFalse(queuedFuture.isDone());
+
+        // Act
+        Deencapsulation.invoke(connection, "reactorStopped");
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, queuedFuture::get);
+        assertTrue(e.getCause() instanceof IOException);
+        assertTrue(connection.send(Proton.message()).isCompletedExceptionally());
+        assertFalse(connection.isOpen());
+    }
+
+    @Test
+    public void decodeDeliveryTagParsesAsciiDigits()
+    {
+        // Act
+        // Assert
+        assertEquals(0, AmqpSendConnection.decodeDeliveryTag("0".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Integer.MAX_VALUE, AmqpSendConnection.decodeDeliveryTag(String.valueOf(Integer.MAX_VALUE).getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, AmqpSendConnection.decodeDeliveryTag("not a tag".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void queuedMessagesAreOnlySentWhileTheLinkHasCredit()
+    {
+        // Arrange
+        StubSenderLink link = new StubSenderLink(2);
+        AmqpSendConnection connection = createConnection(link);
+        connection.send(Proton.message());
+        connection.send(Proton.message());
+        CompletableFuture<Void> third = connection.send(Proton.message());
+
+        // Act
+        Deencapsulation.invoke(connection, "sendQueuedMessages");
+        List<String> tagsBeforeFlow = new ArrayList<>(link.deliveryTags);
+        link.credit = 5;
+        connection.onLinkFlow(createLinkFlowEvent(link.sender));
+
+        // Assert
+        assertEquals(Arrays.asList("0", "1"), tagsBeforeFlow);
+        assertEquals(Arrays.asList("0", "1", "2"), link.deliveryTags);
+        assertFalse(third.isDone());
+        Map<Integer, CompletableFuture<Void>> inProgressMessages = Deencapsulation.getField(connection, "inProgressMessages");
+        assertEquals(3, inProgressMessages.size());
+    }
+
+    @Test
+    public void messagesThatTheSenderGaveUpOnAreNotSent()
+    {
+        // Arrange
+        StubSenderLink link = new StubSenderLink(5);
+        AmqpSendConnection connection = createConnection(link);
+        CompletableFuture<Void> abandoned = connection.send(Proton.message());
+        abandoned.completeExceptionally(new IOException("timed out"));
+        connection.send(Proton.message());
+
+        // Act
+        Deencapsulation.invoke(connection, "sendQueuedMessages");
+
+        // Assert
+        assertEquals(Arrays.asList("0"), link.deliveryTags);
+    }
+
+    @Test
+    public void acknowledgementCompletesTheFutureOfItsDeliveryTag() throws Exception
+    {
+        // Arrange
+        StubSenderLink link = new StubSenderLink(5);
+        AmqpSendConnection connection = createConnection(link);
+        CompletableFuture<Void> first = connection.send(Proton.message());
+        CompletableFuture<Void> second = connection.send(Proton.message());
+        Deencapsulation.invoke(connection, "sendQueuedMessages");
+        List<String> settledTags = new ArrayList<>();
+
+        // Act
+        connection.onDelivery(createDeliveryEvent("1", Accepted.getInstance(), settledTags));
+
+        // Assert
+        assertFalse(first.isDone());
+        assertTrue(second.isDone());
+        second.get();
+        assertEquals(Arrays.asList("1"), settledTags);
+        Map<Integer, CompletableFuture<Void>> inProgressMessages = Deencapsulation.getField(connection, "inProgressMessages");
+        assertEquals(1, inProgressMessages.size());
+        assertTrue(inProgressMessages.containsKey(0));
+    }
+
+    @Test
+    public void rejectionCompletesTheFutureWithTheMatchingIotHubException()
+    {
+        // Arrange
+        StubSenderLink link = new StubSenderLink(5);
+        AmqpSendConnection connection = createConnection(link);
+        CompletableFuture<Void> future = connection.send(Proton.message());
+        Deencapsulation.invoke(connection, "sendQueuedMessages");
+        Rejected rejected = new Rejected();
+        rejected.setError(new ErrorCondition(AmqpError.NOT_FOUND, "device not found"));
+
+        // Act
+        connection.onDelivery(createDeliveryEvent("0", rejected, new ArrayList<String>()));
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof IotHubNotFoundException);
+    }
+
+    @Test
+    public void acknowledgementOfAnUnknownDeliveryTagIsSettledAndIgnored()
+    {
+        // Arrange
+        StubSenderLink link = new StubSenderLink(5);
+        AmqpSendConnection connection = createConnection(link);
+        CompletableFuture<Void> future = connection.send(Proton.message());
+        Deencapsulation.invoke(connection, "sendQueuedMessages");
+        List<String> settledTags = new ArrayList<>();
+
+        // Act
+        connection.onDelivery(createDeliveryEvent("7", Accepted.getInstance(), settledTags));
+
+        // Assert
+        assertFalse(future.isDone());
+        assertEquals(Arrays.asList("7"), settledTags);
+    }
+}
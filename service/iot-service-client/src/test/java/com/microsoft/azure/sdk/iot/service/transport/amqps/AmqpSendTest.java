@@ -21,6 +21,7 @@ import org.junit.runner.RunWith;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /** Unit tests for AmqpSend */
@@ -172,4 +173,16 @@ public class AmqpSendTest
             amqpSend.send(deviceId, moduleId, message);
         });
     }
+
+    @Test
+    public void sendAsync_throwsIllegalStateException_when_open_has_not_been_called()
+    {
+        // Arrange
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null);
+
+        // Act
+        // Assert
+        assertFalse(amqpSend.isOpen());
+        assertThrows(IllegalStateException.class, () -> amqpSend.sendAsync("deviceId", null, new Message("abc")));
+    }
 }
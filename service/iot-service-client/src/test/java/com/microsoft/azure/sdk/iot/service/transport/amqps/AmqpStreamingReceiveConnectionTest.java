@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.AcknowledgementType;
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import mockit.Deencapsulation;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.engine.Collector;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.EndpointState;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Session;
+import org.apache.qpid.proton.engine.Transport;
+import org.apache.qpid.proton.message.Message;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for AmqpStreamingReceiveConnection. The receiver link is connected to a sender link over a pair of in
+ * memory proton transports, standing in for the service.
+ */
+public class AmqpStreamingReceiveConnectionTest
+{
+    private static final int PREFETCH_COUNT = 3;
+    private static final String FILE_UPLOAD_NOTIFICATION_JSON =
+        "{\"deviceId\":\"myDevice\",\"blobUri\":\"https://myaccount.blob.core.windows.net/myDevice/b%C3%A9.txt\","
+            + "\"blobName\":\"myDevice/b\u00e9.txt\",\"lastUpdatedTime\":\"2016-06-01T21:22:41+00:00\","
+            + "\"blobSizeInBytes\":1234,\"enqueuedTimeUtc\":\"2016-06-01T21:22:43.7996883Z\"}";
+    private static final String FEEDBACK_BATCH_JSON =
+        "[{\"originalMessageId\":\"a1aaaaaa-bbbb-cccc-dddd-eeeeeeeeeeee\",\"description\":\"Success\",\"statusCode\":\"Success\","
+            + "\"deviceGenerationId\":\"111111111111111111\",\"deviceId\":\"xxx-01\",\"enqueuedTimeUtc\":\"2015-10-10T23:35:19.9774002Z\"}]";
+
+    private Transport clientTransport;
+    private Transport serviceTransport;
+    private Collector clientCollector;
+    private Sender serviceSender;
+    private Receiver clientReceiver;
+
+    private AmqpStreamingReceiveConnection createConnectedReceiver(Function<String, AcknowledgementType> messageCallback)
+    {
+        Connection clientConnection = Proton.connection();
+        this.clientTransport = Proton.transport();
+        this.clientTransport.bind(clientConnection);
+        this.clientCollector = Proton.collector();
+        clientConnection.collect(this.clientCollector);
+
+        Connection serviceConnection = Proton.connection();
+        this.serviceTransport = Proton.transport();
+        this.serviceTransport.bind(serviceConnection);
+
+        clientConnection.open();
+        Session clientSession = clientConnection.session();
+        clientSession.open();
+        this.clientReceiver = clientSession.receiver("receiver");
+        this.clientReceiver.open();
+        pump();
+
+        serviceConnection.open();
+        Session serviceSession = serviceConnection.sessionHead(EnumSet.of(EndpointState.UNINITIALIZED), EnumSet.of(EndpointState.ACTIVE));
+        serviceSession.open();
+        this.serviceSender = (Sender) serviceConnection.linkHead(EnumSet.of(EndpointState.UNINITIALIZED), EnumSet.of(EndpointState.ACTIVE));
+        this.serviceSender.open();
+        pump();
+
+        AmqpStreamingReceiveConnection connection = new AmqpStreamingReceiveConnection(
+            "aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null, null, "receiver", "/endpoint", "test", PREFETCH_COUNT, messageCallback);
+        Deencapsulation.setField(connection, "receiverLink", this.clientReceiver);
+        this.clientReceiver.flow(PREFETCH_COUNT);
+        pump();
+
+        return connection;
+    }
+
+    private Delivery sendFromService(String body, int tag)
+    {
+        return sendFromService(new Data(new Binary(body.getBytes(StandardCharsets.UTF_8))), tag);
+    }
+
+    private Delivery sendFromService(Section body, int tag)
+    {
+        Message message = Proton.message();
+        message.setBody(body);
+        byte[] buffer = new byte[1024];
+        int length = message.encode(buffer, 0, buffer.length);
+
+        Delivery delivery = this.serviceSender.delivery(String.valueOf(tag).getBytes(StandardCharsets.UTF_8));
+        this.serviceSender.send(buffer, 0, length);
+        this.serviceSender.advance();
+        return delivery;
+    }
+
+    private void pump()
+    {
+        boolean moved = true;
+        while (moved)
+        {
+            moved = transfer(this.clientTransport, this.serviceTransport) | transfer(this.serviceTransport, this.clientTransport);
+        }
+    }
+
+    private static boolean transfer(Transport from, Transport to)
+    {
+        ByteBuffer output = from.getOutputBuffer();
+        int pending = output.remaining();
+        if (pending == 0)
+        {
+            return false;
+        }
+
+        ByteBuffer input = to.getInputBuffer();
+        int length = Math.min(pending, input.remaining());
+        byte[] bytes = new byte[length];
+        output.get(bytes);
+        from.outputConsumed();
+        input.put(bytes);
+        to.processInput();
+        return true;
+    }
+
+    private void dispatchDeliveryEvents(AmqpStreamingReceiveConnection connection)
+    {
+        Event event;
+        while ((event = this.clientCollector.peek()) != null)
+        {
+            if (event.getType() == Event.Type.DELIVERY)
+            {
+                connection.onDelivery(event);
+            }
+
+            this.clientCollector.pop();
+        }
+    }
+
+    @Test
+    public void deliveriesAreHandedToCallbackAndSettledWithItsAcknowledgement()
+    {
+        // Arrange
+        final List<String> receivedBodies = new ArrayList<>();
+        AmqpStreamingReceiveConnection connection = createConnectedReceiver(body ->
+        {
+            receivedBodies.add(body);
+            return receivedBodies.size() == 1 ? AcknowledgementType.COMPLETE : AcknowledgementType.ABANDON;
+        });
+        Delivery completedDelivery = sendFromService(FILE_UPLOAD_NOTIFICATION_JSON, 0);
+        Delivery abandonedDelivery = sendFromService(FEEDBACK_BATCH_JSON, 1);
+        pump();
+
+        // Act
+        dispatchDeliveryEvents(connection);
+        pump();
+
+        // Assert
+        assertEquals(2, receivedBodies.size());
+        assertEquals(FILE_UPLOAD_NOTIFICATION_JSON, receivedBodies.get(0));
+        assertEquals(FEEDBACK_BATCH_JSON, receivedBodies.get(1));
+        assertTrue(completedDelivery.getRemoteState() instanceof Accepted);
+        assertTrue(abandonedDelivery.getRemoteState() instanceof Released);
+    }
+
+    @Test
+    public void creditIsReturnedOnceEachDeliveryIsSettled()
+    {
+        // Arrange
+        AmqpStreamingReceiveConnection connection = createConnectedReceiver(body -> AcknowledgementType.COMPLETE);
+        assertEquals(PREFETCH_COUNT, this.serviceSender.getCredit());
+        sendFromService("first", 0);
+        sendFromService("second", 1);
+        pump();
+
+        // Act
+        dispatchDeliveryEvents(connection);
+        pump();
+
+        // Assert
+        assertEquals(PREFETCH_COUNT, this.serviceSender.getCredit());
+    }
+
+    @Test
+    public void deliveryIsAbandonedWhenCallbackThrows()
+    {
+        // Arrange
+        AmqpStreamingReceiveConnection connection = createConnectedReceiver(body ->
+        {
+            throw new IllegalStateException("callback failure");
+        });
+        Delivery delivery = sendFromService("first", 0);
+        pump();
+
+        // Act
+        dispatchDeliveryEvents(connection);
+        pump();
+
+        // Assert
+        assertTrue(delivery.getRemoteState() instanceof Released);
+    }
+
+    @Test
+    public void deliveryWithoutDataSectionIsCompletedWithoutCallingTheCallback()
+    {
+        // Arrange
+        final List<String> receivedBodies = new ArrayList<>();
+        AmqpStreamingReceiveConnection connection = createConnectedReceiver(body ->
+        {
+            receivedBodies.add(body);
+            return AcknowledgementType.ABANDON;
+        });
+        Delivery delivery = sendFromService(new AmqpValue("first"), 0);
+        pump();
+
+        // Act
+        dispatchDeliveryEvents(connection);
+        pump();
+
+        // Assert
+        assertTrue(receivedBodies.isEmpty());
+        assertTrue(delivery.getRemoteState() instanceof Accepted);
+    }
+}
@@ -634,4 +634,66 @@ public class HttpsRequestTest
             }
         };
     }
+
+    @Test
+    public void sendDelegatesToTransport() throws IOException
+    {
+        // Arrange
+        final URL url = new URL("https://www.example.com/twins/device");
+        final byte[] body = { 1, 2, 3 };
+        final Map<String, String> sentHeaders = new HashMap<>();
+        final List<Object> sentArguments = new LinkedList<>();
+        final HttpResponse expectedResponse = new HttpResponse(200, new byte[0], new HashMap<String, List<String>>(), new byte[0]);
+        HttpTransport transport = (sentUrl, sentMethod, sentBody, headers, proxy, connectTimeout, readTimeout) ->
+        {
+            sentHeaders.putAll(headers);
+            sentArguments.add(sentUrl);
+            sentArguments.add(sentMethod);
+            sentArguments.add(sentBody.length);
+            sentArguments.add(connectTimeout);
+            sentArguments.add(readTimeout);
+            return expectedResponse;
+        };
+        HttpRequest request = new HttpRequest(url, HttpMethod.PATCH, body, null, transport);
+
+        // Act
+        request.setHeaderField("authorization", "token");
+        request.setConnectTimeoutMillis(10);
+        request.setReadTimeoutMillis(20);
+        HttpResponse response = request.send();
+
+        // Assert
+        assertThat(response, is(expectedResponse));
+        assertThat(sentArguments.get(0), is((Object) url));
+        assertThat(sentArguments.get(1), is((Object) HttpMethod.PATCH));
+        assertThat(sentArguments.get(2), is((Object) body.length));
+        assertThat(sentArguments.get(3), is((Object) 10));
+        assertThat(sentArguments.get(4), is((Object) 20));
+        assertThat(sentHeaders.get("authorization"), is("token"));
+        assertThat(sentHeaders.get("User-Agent"), is(TransportUtils.javaServiceClientIdentifier + TransportUtils.serviceVersion));
+    }
+
+    @Test
+    public void constructorWithTransportRejectsBodyOnGet() throws IOException
+    {
+        // Arrange
+        final URL url = new URL("https://www.example.com/twins/device");
+        final HttpTransport transport = (sentUrl, sentMethod, sentBody, headers, proxy, connectTimeout, readTimeout) -> null;
+
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> new HttpRequest(url, HttpMethod.GET, new byte[] { 1 }, null, transport));
+    }
+
+    @Test
+    public void constructorWithTransportRejectsNonHttpsUrl() throws IOException
+    {
+        // Arrange
+        final URL url = new URL("http://www.example.com/twins/device");
+        final HttpTransport transport = (sentUrl, sentMethod, sentBody, headers, proxy, connectTimeout, readTimeout) -> null;
+
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> new HttpRequest(url, HttpMethod.GET, new byte[0], null, transport));
+    }
 }
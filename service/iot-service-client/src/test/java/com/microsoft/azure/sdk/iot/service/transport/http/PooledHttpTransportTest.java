@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for PooledHttpTransport. Requests are sent to a local plain http server, since the transport itself does
+ * not care about the protocol of the URL that HttpRequest has already validated.
+ */
+public class PooledHttpTransportTest
+{
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private volatile CountDownLatch releaseRequests = new CountDownLatch(0);
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.serverExecutor);
+        this.server.createContext("/", exchange ->
+        {
+            int concurrent = this.concurrentRequests.incrementAndGet();
+            this.maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+            try
+            {
+                this.releaseRequests.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            byte[] requestBody;
+            try (InputStream inputStream = exchange.getRequestBody())
+            {
+                requestBody = HttpConnection.readInputStream(inputStream);
+            }
+
+            int status = exchange.getRequestURI().getPath().equals("/error") ? 404 : 200;
+            byte[] responseBody = (exchange.getRequestMethod() + ":" + new String(requestBody, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("x-test", "value");
+            exchange.sendResponseHeaders(status, responseBody.length);
+            try (OutputStream outputStream = exchange.getResponseBody())
+            {
+                outputStream.write(responseBody);
+            }
+
+            this.concurrentRequests.decrementAndGet();
+        });
+        this.server.start();
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    private URL url(String path) throws IOException
+    {
+        return new URL("http://127.0.0.1:" + this.server.getAddress().getPort() + path);
+    }
+
+    @Test
+    public void sendReturnsResponseAndReusesConnection() throws IOException
+    {
+        // Arrange
+        PooledHttpTransport transport = new PooledHttpTransport();
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("Content-Length", "2");
+
+        try
+        {
+            // Act
+            HttpResponse response = transport.send(url("/ok"), HttpMethod.PUT, "{}".getBytes(StandardCharsets.UTF_8), headers, null, TIMEOUT_MILLIS, TIMEOUT_MILLIS);
+            HttpResponse response2 = transport.send(url("/ok"), HttpMethod.GET, new byte[0], headers, null, TIMEOUT_MILLIS, TIMEOUT_MILLIS);
+
+            // Assert
+            assertEquals(200, response.getStatus());
+            assertArrayEquals("PUT:{}".getBytes(StandardCharsets.UTF_8), response.getBody());
+            assertEquals("value", response.getHeaderField("x-test"));
+            assertArrayEquals("GET:".getBytes(StandardCharsets.UTF_8), response2.getBody());
+            assertEquals(1, transport.getConnectionCount());
+            assertEquals(1, transport.getIdleConnectionCount());
+            assertEquals(0, transport.getActiveRequestCount());
+        }
+        finally
+        {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void errorResponseBodyIsReturnedAsErrorReason() throws IOException
+    {
+        // Arrange
+        PooledHttpTransport transport = new PooledHttpTransport();
+
+        try
+        {
+            // Act
+            HttpResponse response = transport.send(url("/error"), HttpMethod.DELETE, new byte[0], new HashMap<>(), null, TIMEOUT_MILLIS, TIMEOUT_MILLIS);
+
+            // Assert
+            assertEquals(404, response.getStatus());
+            assertEquals(0, response.getBody().length);
+            assertArrayEquals("DELETE:".getBytes(StandardCharsets.UTF_8), response.getErrorReason());
+        }
+        finally
+        {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void requestsInFlightToOneHostAreCapped() throws Exception
+    {
+        // Arrange
+        PooledHttpTransport transport = new PooledHttpTransport(PooledHttpTransportOptions.builder().maxConnectionsPerHost(2).build());
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        this.releaseRequests = new CountDownLatch(1);
+
+        try
+        {
+            // Act
+            Future<?>[] futures = new Future<?>[5];
+            for (int i = 0; i < futures.length; i++)
+            {
+                futures[i] = executor.submit(() -> transport.send(url("/ok"), HttpMethod.GET, new byte[0], new HashMap<>(), null, TIMEOUT_MILLIS, TIMEOUT_MILLIS));
+            }
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (transport.getWaitingRequestCount() < 3 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+
+            int waitingRequestCount = transport.getWaitingRequestCount();
+            this.releaseRequests.countDown();
+            for (Future<?> future : futures)
+            {
+                future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            // Assert
+            assertEquals(3, waitingRequestCount);
+            assertEquals(2, this.maxConcurrentRequests.get());
+            assertTrue(transport.getConnectionCount() <= 2);
+        }
+        finally
+        {
+            executor.shutdownNow();
+            transport.close();
+        }
+    }
+
+    @Test
+    public void derivedClientsAreOnlyCachedUpToTheLimit() throws IOException
+    {
+        // Arrange
+        PooledHttpTransport transport = new PooledHttpTransport();
+        int requestCount = PooledHttpTransport.MAX_CACHED_CLIENT_COUNT + 3;
+
+        try
+        {
+            // Act
+            for (int i = 0; i < requestCount; i++)
+            {
+                HttpResponse response = transport.send(url("/ok"), HttpMethod.GET, new byte[0], new HashMap<String, String>(), null, TIMEOUT_MILLIS + i, TIMEOUT_MILLIS);
+                assertEquals(200, response.getStatus());
+            }
+
+            // Assert
+            assertEquals(PooledHttpTransport.MAX_CACHED_CLIENT_COUNT, transport.getCachedClientCount());
+            assertEquals(1, transport.getConnectionCount());
+        }
+        finally
+        {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void sendThrowsAfterClose() throws IOException
+    {
+        // Arrange
+        PooledHttpTransport transport = new PooledHttpTransport();
+        transport.close();
+        URL url = url("/ok");
+
+        // Act
+        // Assert
+        assertThrows(IllegalStateException.class, () -> transport.send(url, HttpMethod.GET, new byte[0], new HashMap<>(), null, TIMEOUT_MILLIS, TIMEOUT_MILLIS));
+    }
+
+    @Test
+    public void constructorRejectsInvalidOptions()
+    {
+        // Act
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> new PooledHttpTransport(null));
+        assertThrows(IllegalArgumentException.class, () -> new PooledHttpTransport(PooledHttpTransportOptions.builder().maxConnectionsPerHost(0).build()));
+        assertThrows(IllegalArgumentException.class, () -> new PooledHttpTransport(PooledHttpTransportOptions.builder().idleConnectionTimeout(0).build()));
+    }
+}